@@ -25,6 +25,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileReader;
+import java.io.IOException;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Set;
@@ -50,6 +51,8 @@ import aml.match.UnsupportedEntityTypeException;
 import aml.match.Alignment;
 import aml.match.AutomaticMatcher;
 import aml.ontology.Ontology;
+import aml.ontology.OntologySnapshot;
+import aml.ontology.OntologyStreamReader;
 import aml.ontology.RelationshipMap;
 import aml.ontology.URIMap;
 import aml.settings.Problem;
@@ -69,6 +72,7 @@ import aml.ui.GUI;
 import aml.ui.OntologyFileChooser;
 import aml.util.ExtensionFilter;
 import aml.util.InteractionManager;
+import aml.util.Scheduler;
 import aml.util.Similarity;
 
 public class AML
@@ -106,6 +110,10 @@ public class AML
 	private boolean matchProperties;
 	private final String LOG = "log4j.properties";
 	private final String BK_PATH = "store/knowledge/";
+	private final String SNAPSHOT_PATH = "store/snapshots/";
+	//Whether ontology files are opened by streaming their triples rather than
+	//through the OWL API (set by the ontology_loader option of config.ini)
+	private boolean streamOntologies = false;
 	private Vector<String> bkSources; //The list of files under the BK_PATH
 	private Set<Integer> sourceIndividualsToMatch;
 	private Set<Integer> targetIndividualsToMatch;
@@ -118,6 +126,8 @@ public class AML
     private SelectionType sType;
 	//Manual matching settings
 	private double threshold = 0.6;
+	private boolean fixedThreads = false; //Whether the number of threads was set by the user (CLI)
+	private long wordMatcherMemory = 0; //The memory budget of the WordMatcher in HUGE tasks (0 for auto)
 	private boolean hierarchic;
 	private Vector<MatchStep> matchSteps;
     private Vector<Problem> flagSteps;
@@ -615,6 +625,14 @@ public class AML
 		return targetIndividualsToMatch;
 	}
 
+	/**
+	 * @return the number of CPU threads used in parallel tasks
+	 */
+	public int getThreads()
+	{
+		return Scheduler.getParallelism();
+	}
+	
 	/**
 	 * @return the active similarity threshold
 	 */
@@ -639,6 +657,17 @@ public class AML
 		return wms;
 	}
     
+	/**
+	 * @return the memory budget (in bytes) of the WordMatcher when matching
+	 * HUGE ontologies (by default, a quarter of the maximum heap size)
+	 */
+	public long getWordMatcherMemory()
+	{
+		if(wordMatcherMemory > 0)
+			return wordMatcherMemory;
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+    
     public void goTo(int index)
     {
     	activeMapping = index;
@@ -885,30 +914,84 @@ public class AML
 		rels = new RelationshipMap();
 		if(useReasoner)
 			PropertyConfigurator.configure(dir + LOG);
-		long time = System.currentTimeMillis()/1000;
-		System.out.println("Loading source ontology");	
-		source = new Ontology(src);
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(source.getURI() + " loaded in " + time + " seconds");
-		System.out.println("Classes: " + source.count(EntityType.CLASS));
-		System.out.println("Individuals: " + source.count(EntityType.INDIVIDUAL));
-		System.out.println("Properties: " + (source.count(EntityType.DATA)+source.count(EntityType.OBJECT)));
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Loading target ontology");
-		target = new Ontology(tgt);
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(target.getURI() + " loaded in " + time + " seconds");
-		System.out.println("Classes: " + target.count(EntityType.CLASS));
-		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
-		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
-		System.out.println("Names: " + target.getLexicon().nameCount(EntityType.CLASS));
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Running transitive closure on RelationshipMap");
-		rels.transitiveClosure();
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Transitive closure finished in " + time + " seconds");	
-		System.out.println("Extended Relationships: " + rels.relationshipCount());
-		System.out.println("Disjoints: " + rels.disjointCount());
+		readLoadingOptions();
+		//OBO ontologies are always opened natively (see OBOStreamReader)
+		boolean stream = streamOntologies || (src.endsWith(".obo") && tgt.endsWith(".obo"));
+		//Reopen the ontologies from their snapshot if they were opened before
+		//(which includes the transitive closure and the lexical extensions)
+		OntologySnapshot snapshot = null;
+		boolean fromSnapshot = false;
+		try
+		{
+			snapshot = new OntologySnapshot(dir + SNAPSHOT_PATH, src, tgt, useReasoner, stream);
+			if(snapshot.exists())
+			{
+				long time = System.currentTimeMillis();
+				Ontology[] o = snapshot.load();
+				source = o[0];
+				target = o[1];
+				fromSnapshot = true;
+				time = System.currentTimeMillis() - time;
+				System.out.println("Ontologies loaded from snapshot in " + time + " milliseconds");
+				System.out.println(source.getURI() + " classes: " + source.count(EntityType.CLASS));
+				System.out.println(target.getURI() + " classes: " + target.count(EntityType.CLASS));
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println("Unable to load snapshot: " + e.getMessage());
+			uris = new URIMap();
+			rels = new RelationshipMap();
+		}
+		catch(RuntimeException e)
+		{
+			//A corrupted snapshot can fail in any way while it is read
+			System.out.println("Unable to load snapshot: " + e);
+			uris = new URIMap();
+			rels = new RelationshipMap();
+		}
+		if(!fromSnapshot)
+		{
+			long time = System.currentTimeMillis()/1000;
+			System.out.println("Loading source and target ontologies");	
+			Ontology[] o;
+			if(stream)
+			{
+				try
+				{
+					o = OntologyStreamReader.open(src, tgt);
+				}
+				catch(IOException e)
+				{
+					throw new OWLOntologyCreationException(e);
+				}
+			}
+			else
+				o = Ontology.open(src, tgt);
+			source = o[0];
+			target = o[1];
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Ontologies loaded in " + time + " seconds");
+			System.out.println(source.getURI());
+			System.out.println("Classes: " + source.count(EntityType.CLASS));
+			System.out.println("Individuals: " + source.count(EntityType.INDIVIDUAL));
+			System.out.println("Properties: " + (source.count(EntityType.DATA)+source.count(EntityType.OBJECT)));
+			System.out.println(target.getURI());
+			System.out.println("Classes: " + target.count(EntityType.CLASS));
+			System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
+			System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
+			System.out.println("Names: " + target.getLexicon().nameCount(EntityType.CLASS));
+			time = System.currentTimeMillis()/1000;
+			//For huge ontologies, the inherited relationships are computed on demand
+			rels.setReachabilityIndex(SizeCategory.getSizeCategory(source.count(EntityType.CLASS),
+					target.count(EntityType.CLASS)).equals(SizeCategory.HUGE));
+			System.out.println("Running transitive closure on RelationshipMap");
+			rels.transitiveClosure();
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Transitive closure finished in " + time + " seconds");	
+			System.out.println("Extended Relationships: " + rels.relationshipCount());
+			System.out.println("Disjoints: " + rels.disjointCount());
+		}
     	//Reset the alignment, mapping, and evaluation
     	a = null;
     	activeMapping = -1;
@@ -917,10 +1000,28 @@ public class AML
     	if(userInterface != null)
     		userInterface.refresh();
     	defaultConfig();
-    	StopWordExtender sw = new StopWordExtender();
-    	sw.extendLexicons();
-    	ParenthesisExtender p = new ParenthesisExtender();
-    	p.extendLexicons();
+    	if(!fromSnapshot)
+    	{
+	    	StopWordExtender sw = new StopWordExtender();
+	    	sw.extendLexicons();
+	    	ParenthesisExtender p = new ParenthesisExtender();
+	    	p.extendLexicons();
+	    	if(snapshot != null)
+	    	{
+	    		try
+	    		{
+	    			snapshot.save(source, target);
+	    		}
+	    		catch(IOException e)
+	    		{
+	    			System.out.println("Unable to save snapshot: " + e.getMessage());
+	    		}
+	    	}
+    	}
+    	//The Lexicons are frozen for matching (they are only extended
+    	//again if background knowledge is selected for extension)
+    	source.getLexicon().freeze();
+    	target.getLexicon().freeze();
     	System.out.println("Finished!");	
 	}
 	
@@ -932,24 +1033,27 @@ public class AML
 		rels = new RelationshipMap();
 		if(useReasoner)
 			PropertyConfigurator.configure(dir + LOG);
+		readLoadingOptions();
 		long time = System.currentTimeMillis()/1000;
-		System.out.println("Loading source ontology");	
-		source = new Ontology(src);
+		System.out.println("Loading source and target ontologies");	
+		Ontology[] o = Ontology.open(src, tgt);
+		source = o[0];
+		target = o[1];
 		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(source.getURI() + " loaded in " + time + " seconds");
+		System.out.println("Ontologies loaded in " + time + " seconds");
+		System.out.println(source.getURI());
 		System.out.println("Classes: " + source.count(EntityType.CLASS));
 		System.out.println("Individuals: " + source.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (source.count(EntityType.DATA)+source.count(EntityType.OBJECT)));
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Loading target ontology");
-		target = new Ontology(tgt);
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(target.getURI() + " loaded in " + time + " seconds");
+		System.out.println(target.getURI());
 		System.out.println("Classes: " + target.count(EntityType.CLASS));
 		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
 		System.out.println("Direct Relationships: " + rels.relationshipCount());
 		time = System.currentTimeMillis()/1000;
+		//For huge ontologies, the inherited relationships are computed on demand
+		rels.setReachabilityIndex(SizeCategory.getSizeCategory(source.count(EntityType.CLASS),
+				target.count(EntityType.CLASS)).equals(SizeCategory.HUGE));
 		System.out.println("Running transitive closure on RelationshipMap");
 		rels.transitiveClosure();
 		time = System.currentTimeMillis()/1000 - time;
@@ -968,6 +1072,10 @@ public class AML
     	sw.extendLexicons();
     	ParenthesisExtender p = new ParenthesisExtender();
     	p.extendLexicons();
+    	//The Lexicons are frozen for matching (they are only extended
+    	//again if background knowledge is selected for extension)
+    	source.getLexicon().freeze();
+    	target.getLexicon().freeze();
     	System.out.println("Finished!");	
     }
     
@@ -1031,6 +1139,13 @@ public class AML
 					}
 					else if(option[0].equals("threshold"))
 						threshold = Double.parseDouble(option[1]);
+					else if(option[0].equals("word_matcher_memory"))
+					{
+						if(option[1].equalsIgnoreCase("auto"))
+							wordMatcherMemory = 0;
+						else
+							wordMatcherMemory = Long.parseLong(option[1]) * 1024 * 1024;
+					}
 					else if(option[0].equals("match_same_uri"))
 						matchSameURI = option[1].equalsIgnoreCase("true");
 					else if(option[0].equals("instance_matching_mode"))
@@ -1345,6 +1460,17 @@ public class AML
 		}
 	}
 	
+	/**
+	 * Sets the number of CPU threads used in parallel tasks, which
+	 * takes precedence over the number set in the config.ini file
+	 * @param threads: the number of threads (0 to use all available)
+	 */
+	public void setThreads(int threads)
+	{
+		Scheduler.setParallelism(threads);
+		fixedThreads = true;
+	}
+	
 	public void setThreshold(double thresh)
 	{
 		threshold = thresh;
@@ -1475,4 +1601,61 @@ public class AML
 	{
 		return useReasoner;
 	}
+	
+//Private Methods
+	
+	//Reads the ontology_loader and threads options of the config.ini file, which
+	//have to be read before the ontologies are opened (unlike the rest of the file)
+	private void readLoadingOptions()
+	{
+		File conf = new File(dir + "store/config.ini");
+		if(!conf.canRead())
+			return;
+		try
+		{
+			BufferedReader in = new BufferedReader(new FileReader(conf));
+			String line;
+			while((line=in.readLine()) != null)
+			{
+				if(line.startsWith("#"))
+					continue;
+				String[] option = line.split("=");
+				if(option.length != 2)
+					continue;
+				option[0] = option[0].trim();
+				option[1] = option[1].trim();
+				if(option[0].equals("ontology_loader"))
+				{
+					if(option[1].equalsIgnoreCase("streaming"))
+						streamOntologies = true;
+					else if(option[1].equalsIgnoreCase("owlapi"))
+						streamOntologies = false;
+				}
+				else if(option[0].equals("threads") && !fixedThreads)
+				{
+					if(option[1].equalsIgnoreCase("auto"))
+						Scheduler.setParallelism(0);
+					else
+					{
+						try
+						{
+							Scheduler.setParallelism(Integer.parseInt(option[1]));
+						}
+						catch(NumberFormatException e)
+						{
+							System.out.println("Error: Invalid number of threads in config file: " +
+									option[1] + " (using all available processors)");
+							Scheduler.setParallelism(0);
+						}
+					}
+				}
+			}
+			in.close();
+		}
+		catch(IOException e)
+		{
+			System.out.println("Error: Could not read config file");
+			e.printStackTrace();
+		}
+	}
 }
\ No newline at end of file
@@ -98,6 +98,19 @@ public class Main
 					inputPath = args[++i];
 				else if((args[i].equalsIgnoreCase("-o") || args[i].equalsIgnoreCase("--output")) && i+1 < args.length)
 					outputPath = args[++i];
+				else if((args[i].equalsIgnoreCase("-p") || args[i].equalsIgnoreCase("--threads")) && i+1 < args.length)
+				{
+					try
+					{
+						aml.setThreads(Integer.parseInt(args[++i]));
+					}
+					catch(NumberFormatException e)
+					{
+						System.out.println("ERROR: The number of threads must be an integer");
+						System.out.println("Use -h or --help for instructions on how to run AgreementMakerLight");
+						System.exit(1);
+					}
+				}
 				else if(args[i].equalsIgnoreCase("-a") || args[i].equalsIgnoreCase("--auto"))
 					mode = "auto";
 				else if(args[i].equalsIgnoreCase("-m") || args[i].equalsIgnoreCase("--manual"))
@@ -269,6 +282,9 @@ public class Main
 		System.out.println("|               alignment, to evaluate the match result)       |");
 		System.out.println("|  -o (--output) 'path_to_ouput_alignment'                     |");
 		System.out.println("|               (if you want to save the resulting alignment)  |");
+		System.out.println("|  -p (--threads) 'number_of_threads'                          |");
+		System.out.println("|               (optional; by default, AML uses all available  |");
+		System.out.println("|               processors, or the number set in config.ini)   |");
 		System.out.println("|  -a (--auto) -> automatic match mode                         |");
 		System.out.println("|   OR                                                         |");
 		System.out.println("|  -m (--manual) -> manual match mode (you can configure the   |");
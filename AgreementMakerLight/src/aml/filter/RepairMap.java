@@ -22,19 +22,15 @@ package aml.filter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
 import java.util.Vector;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
+import aml.util.IntSlice;
+import aml.util.Scheduler;
 import aml.util.Table2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
@@ -68,8 +64,6 @@ public class RepairMap implements Iterable<Integer>
 	//The table of conflicts per mapping
 	private Table2Set<Integer,Integer> conflictMappings;
 	private Table2Set<Integer,Integer> mappingConflicts;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -87,7 +81,6 @@ public class RepairMap implements Iterable<Integer>
 		for(Mapping m : a)
 			if(m.getStatus().equals(MappingStatus.FLAGGED))
 				m.setStatus(MappingStatus.UNKNOWN);
-		threads = Runtime.getRuntime().availableProcessors();
 		init();
 	}
 	
@@ -295,10 +288,12 @@ public class RepairMap implements Iterable<Integer>
 		for(Integer i: classList)
 		{
 			//Get the subClasses of classList classes
-			for(Integer j : rels.getSubClasses(i,false))
+			IntSlice subClasses = rels.getSubClassView(i,false);
+			for(int s = 0; s < subClasses.size(); s++)
 			{
+				int j = subClasses.get(s);
 				//Count their parents
-				Set<Integer> pars = rels.getSuperClasses(j, true);
+				IntSlice pars = rels.getSuperClassView(j, true);
 				//Check if they have a disjoint clause
 				int hasDisjoint = 0;
 				if(rels.hasDisjoint(j))
@@ -311,15 +306,17 @@ public class RepairMap implements Iterable<Integer>
 				//line of each parent (or until two parents with
 				//classList ancestors are found)
 				int count = hasDisjoint;
-				for(Integer k : pars)
+				for(int p = 0; p < pars.size(); p++)
 				{
+					int k = pars.get(p);
 					if(classList.contains(k))
 						count++;
 					else
 					{
-						for(Integer l : rels.getSuperClasses(k, false))
+						IntSlice ancs = rels.getSuperClassView(k, false);
+						for(int a = 0; a < ancs.size(); a++)
 						{
-							if(classList.contains(l))
+							if(classList.contains(ancs.get(a)))
 							{
 								count++;
 								break;
@@ -340,8 +337,10 @@ public class RepairMap implements Iterable<Integer>
 		HashSet<Integer> toRemove = new HashSet<Integer>();
 		for(Integer i : descList)
 		{
-			for(Integer j : rels.getSubClasses(i, false))
+			IntSlice subClasses = rels.getSubClassView(i, false);
+			for(int s = 0; s < subClasses.size(); s++)
 			{
+				int j = subClasses.get(s);
 				if(descList.contains(j) || a.containsClass(j))
 				{
 					toRemove.add(i);
@@ -359,9 +358,10 @@ public class RepairMap implements Iterable<Integer>
 		{
 			//Put the classList ancestors in a path
 			Path p = new Path();
-			for(Integer j : rels.getSuperClasses(i,false))
-				if(classList.contains(j))
-					p.add(j);
+			IntSlice ancs = rels.getSuperClassView(i,false);
+			for(int k = 0; k < ancs.size(); k++)
+				if(classList.contains(ancs.get(k)))
+					p.add(ancs.get(k));
 			//Put the class itself in the path if it
 			//is also in classList
 			if(classList.contains(i))
@@ -405,16 +405,12 @@ public class RepairMap implements Iterable<Integer>
 				continue;
 			//Check if there is no descendant in the checkList
 			boolean isRedundant = false;
-			HashSet<Integer> descendants = new HashSet<Integer>(rels.getSubClasses(source, false));
-			descendants.addAll(rels.getSubClasses(target, false));
-			for(Integer i : descendants)
-			{
-				if(checkList.contains(i))
-				{
-					isRedundant = true;
-					break;
-				}
-			}
+			IntSlice sourceDesc = rels.getSubClassView(source, false);
+			for(int i = 0; i < sourceDesc.size() && !isRedundant; i++)
+				isRedundant = checkList.contains(sourceDesc.get(i));
+			IntSlice targetDesc = rels.getSubClassView(target, false);
+			for(int i = 0; i < targetDesc.size() && !isRedundant; i++)
+				isRedundant = checkList.contains(targetDesc.get(i));
 			if(isRedundant)
 				continue;
 			//Count the mappings of both source and target classes
@@ -430,11 +426,13 @@ public class RepairMap implements Iterable<Integer>
 			//Otherwise, check for mapped ancestors on both sides
 			else
 			{
-				for(Integer j : rels.getSuperClasses(source, false))
-					if(a.containsSource(j))
+				IntSlice sourceAncs = rels.getSuperClassView(source, false);
+				for(int i = 0; i < sourceAncs.size(); i++)
+					if(a.containsSource(sourceAncs.get(i)))
 						sourceCount++;
-				for(Integer j : rels.getSuperClasses(target, false))
-					if(a.containsTarget(j))
+				IntSlice targetAncs = rels.getSuperClassView(target, false);
+				for(int i = 0; i < targetAncs.size(); i++)
+					if(a.containsTarget(targetAncs.get(i)))
 						targetCount++;
 				if(sourceCount > 1 && targetCount < sourceCount)
 					mapList.add(source);
@@ -445,8 +443,10 @@ public class RepairMap implements Iterable<Integer>
 		toRemove = new HashSet<Integer>();
 		for(Integer i : mapList)
 		{
-			for(Integer j : rels.getSubClasses(i, false))
+			IntSlice subClasses = rels.getSubClassView(i, false);
+			for(int s = 0; s < subClasses.size(); s++)
 			{
+				int j = subClasses.get(s);
 				if(mapList.contains(j))
 				{
 					toRemove.add(i);
@@ -471,10 +471,10 @@ public class RepairMap implements Iterable<Integer>
 		for(Integer i : checkList)
 		{
 			//Direct relations
-			Set<Integer> ancs = rels.getSuperClasses(i,false);
-			for(Integer j : ancs)
-				if(classList.contains(j))
-					addRelation(i, j, new Path());
+			IntSlice ancs = rels.getSuperClassView(i,false);
+			for(int k = 0; k < ancs.size(); k++)
+				if(classList.contains(ancs.get(k)))
+					addRelation(i, ancs.get(k), new Path());
 			//Mappings
 			Set<Integer> maps = a.getMappingsBidirectional(i);
 			for(Integer j : maps)
@@ -577,7 +577,7 @@ public class RepairMap implements Iterable<Integer>
 	private void buildConflictSets()
 	{
 		//If there is only one CPU thread available, then process in series
-		if(threads == 1)
+		if(Scheduler.getParallelism() == 1)
 		{
 			//For each checkList class
 			for(Integer i : checkList)
@@ -592,37 +592,15 @@ public class RepairMap implements Iterable<Integer>
 		//Otherwise process in parallel
 		else
 		{
-			//Create a task for each checkList class
-			ArrayList<ClassConflicts> tasks = new ArrayList<ClassConflicts>();
-			for(Integer i : checkList)
-				tasks.add(new ClassConflicts(i));
-			//Then execute all tasks using the available threads
-	        List<Future<Vector<Path>>> results;
-			ExecutorService exec = Executors.newFixedThreadPool(threads);
-			try
-			{
-				results = exec.invokeAll(tasks);
-			}
-			catch (InterruptedException e)
-			{
-				e.printStackTrace();
-		        results = new ArrayList<Future<Vector<Path>>>();
-			}
-			exec.shutdown();
+			//Create a task for all checkList classes
+			ClassConflicts task = new ClassConflicts(checkList);
+			//Then execute it using the shared Scheduler
+			Scheduler.run(task.classes.length, task);
 			//Finally, combine all minimal class conflict sets
 			Vector<Path> allConflicts = new Vector<Path>();
-			for(Future<Vector<Path>> conf : results)
-			{
-				try
-				{
-					for(Path p : conf.get())
-						allConflicts.add(p);
-				}
-				catch(Exception e)
-				{
-					e.printStackTrace();
-				}
-			}
+			for(Vector<Path> conf : task.conflicts)
+				if(conf != null)
+					allConflicts.addAll(conf);
 			//Sort them
 			Collections.sort(allConflicts);
 			//And turn them into the final minimal list of conflict sets
@@ -696,20 +674,27 @@ public class RepairMap implements Iterable<Integer>
 		paths.add(p);
 	}
 	
-	//Callable class for computing minimal conflict sets
-	private class ClassConflicts implements Callable<Vector<Path>>
+	//Task for computing minimal conflict sets, chunk by chunk
+	private class ClassConflicts implements Scheduler.Task
 	{
-		private int term;
+		private int[] classes;
+		private Vector<Vector<Path>> conflicts;
 		
-		ClassConflicts(int t)
+		ClassConflicts(Set<Integer> terms)
 	    {
-	        term = t;
+	        classes = new int[terms.size()];
+	        int k = 0;
+	        for(Integer i : terms)
+	        	classes[k++] = i;
+	        conflicts = new Vector<Vector<Path>>(classes.length);
+	        conflicts.setSize(classes.length);
 	    }
 	        
 	    @Override
-	    public Vector<Path> call()
+	    public void run(int start, int end)
 	    {
-       		return buildClassConflicts(term);
+	    	for(int i = start; i < end; i++)
+	    		conflicts.set(i, buildClassConflicts(classes[i]));
         }
 	}
 }
\ No newline at end of file
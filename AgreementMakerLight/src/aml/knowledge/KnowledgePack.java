@@ -0,0 +1,559 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A compiled background knowledge source (ontology or lexicon), which is      *
+* saved in a single binary file next to the source (with the extension        *
+* ".pack") and memory-mapped when it is opened. The pack has the normalized   *
+* names, numbered by a minimal perfect hash (see PackedStrings), the entities *
+* and weights of each name and the names of each entity in CSR form, and the  *
+* cross-references (including those of the xrefs file of an ontology) in the  *
+* same form. The MediatorLexicon and ReferenceMap of a pack are read in place *
+* from the mapped file, so opening it takes no parsing and almost no heap. A  *
+* pack is only used while the size and modification date of its source (and   *
+* xrefs file) are those it was compiled from. Packs are compiled offline by   *
+* running this class with the paths of the sources (or with no arguments, to  *
+* compile all ontologies and lexicons in the knowledge directory).            *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.knowledge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import aml.ontology.ReferenceMap;
+import aml.util.ExtensionFilter;
+
+public class KnowledgePack
+{
+
+//Attributes
+
+	//The format version, which must be changed whenever the format or
+	//the way sources are loaded changes (so old packs are ignored)
+	private static final int VERSION = 1;
+	private static final int MAGIC = 0x414D4C4B;
+	private static final String EXTENSION = ".pack";
+	private static final String BK_PATH = "store/knowledge/";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	//The mapped pack
+	private ByteBuffer buf;
+	//The URI of the source
+	private String uri;
+	//The names, and the positions of the rows of their entities,
+	//of the entities and of the weights of the entities
+	private PackedStrings names;
+	private int nameRows;
+	private int nameEntities;
+	private int nameWeights;
+	//The number of entity rows, and the positions of the rows
+	//of their names and of the names (by number)
+	private int entityCount;
+	private int entityRows;
+	private int entityNames;
+	//The same for the cross-references and the terms
+	private PackedStrings refs;
+	private int refRows;
+	private int refTerms;
+	private int termCount;
+	private int termKeys;
+	private int termRows;
+	private int termRefs;
+	//The views of the pack
+	private MediatorLexicon lex;
+	private ReferenceMap refMap;
+
+//Constructors
+
+	/**
+	 * Reads the sections of a mapped pack
+	 * @param buf: the mapped pack
+	 * @param pos: the position of the URI of the source in the pack
+	 */
+	private KnowledgePack(ByteBuffer buf, int pos)
+	{
+		this.buf = buf;
+		byte[] b = new byte[buf.getInt(pos)];
+		for(int i = 0; i < b.length; i++)
+			b[i] = buf.get(pos + 4 + i);
+		uri = new String(b, UTF8);
+		pos = align(pos + 4 + b.length);
+		names = new PackedStrings(buf, pos);
+		nameRows = names.end();
+		nameEntities = nameRows + 4 * (names.size() + 1);
+		nameWeights = align(nameEntities + 4 * rowEnd(nameRows, names.size()));
+		pos = nameWeights + 8 * rowEnd(nameRows, names.size());
+		entityCount = buf.getInt(pos);
+		entityRows = pos + 4;
+		entityNames = entityRows + 4 * (entityCount + 1);
+		refs = new PackedStrings(buf, align(entityNames + 4 * rowEnd(entityRows, entityCount)));
+		refRows = refs.end();
+		refTerms = refRows + 4 * (refs.size() + 1);
+		pos = align(refTerms + 4 * rowEnd(refRows, refs.size()));
+		termCount = buf.getInt(pos);
+		termKeys = buf.getInt(pos + 4);
+		termRows = pos + 8;
+		termRefs = termRows + 4 * (termCount + 1);
+		lex = new PackedLexicon(this);
+		refMap = new PackedReferenceMap(this);
+	}
+
+//Public Methods
+
+	/**
+	 * Compiles the pack of a background knowledge source, unless it is
+	 * already up to date
+	 * @param path: the path to the source (ontology or lexicon file)
+	 * @throws IOException if the source can't be read or the pack can't be written
+	 * @throws OWLOntologyCreationException if the ontology can't be opened
+	 */
+	public static void compile(String path) throws IOException, OWLOntologyCreationException
+	{
+		//The old pack is checked without mapping it, as a mapped file
+		//can't be deleted or replaced on some systems (such as Windows)
+		if(isCurrent(path))
+			return;
+		long[] stamp = stamp(path);
+		String uri;
+		MediatorLexicon ml;
+		ReferenceMap rm;
+		if(path.endsWith(".lexicon"))
+		{
+			uri = new File(path).toURI().toString();
+			ml = new MediatorLexicon(path);
+			rm = new ReferenceMap();
+		}
+		else
+		{
+			MediatorOntology mo = new MediatorOntology(path);
+			uri = mo.getURI();
+			ml = mo.getMediatorLexicon();
+			rm = mo.getReferenceMap();
+		}
+		File file = new File(path + EXTENSION);
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for(long l : stamp)
+				out.writeLong(l);
+			byte[] b = uri.getBytes(UTF8);
+			out.writeInt(b.length);
+			out.write(b);
+			pad(out);
+			writeLexicon(out, ml);
+			writeReferences(out, rm);
+		}
+		finally
+		{
+			out.close();
+		}
+		file.delete();
+		if(!temp.renameTo(file))
+		{
+			temp.delete();
+			throw new IOException("Unable to write knowledge pack: " + file);
+		}
+	}
+
+	/**
+	 * @return the MediatorLexicon of the pack
+	 */
+	public MediatorLexicon getMediatorLexicon()
+	{
+		return lex;
+	}
+
+	/**
+	 * @return the ReferenceMap of the pack
+	 */
+	public ReferenceMap getReferenceMap()
+	{
+		return refMap;
+	}
+
+	/**
+	 * @return the URI of the source of the pack
+	 */
+	public String getURI()
+	{
+		return uri;
+	}
+
+	/**
+	 * Compiles the packs of the given background knowledge sources,
+	 * or of all ontologies and lexicons in the knowledge directory
+	 * @param args: the paths to the sources
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		String[] paths = args;
+		if(paths.length == 0)
+		{
+			File[] files = new File(BK_PATH).listFiles(new ExtensionFilter("Knowledge Sources",
+					new String[] { ".owl", ".rdf", ".rdfs", ".xml", ".obo", ".lexicon" }, false));
+			if(files == null)
+			{
+				System.out.println("WARNING: '" + BK_PATH + "' directory not found!");
+				return;
+			}
+			paths = new String[files.length];
+			for(int i = 0; i < files.length; i++)
+				paths[i] = files[i].getPath();
+			Arrays.sort(paths);
+		}
+		for(String p : paths)
+		{
+			if(isCurrent(p))
+			{
+				System.out.println(p + " is up to date");
+				continue;
+			}
+			System.out.println("Compiling " + p);
+			long time = System.currentTimeMillis();
+			compile(p);
+			time = System.currentTimeMillis() - time;
+			System.out.println("Finished in " + time + " ms");
+		}
+	}
+
+	/**
+	 * Opens the pack of a background knowledge source
+	 * @param path: the path to the source (ontology or lexicon file)
+	 * @return the pack, or null if the source has no pack, or if it is
+	 * out of date or can't be read (including if it is corrupted or too
+	 * large to be mapped)
+	 */
+	public static KnowledgePack open(String path)
+	{
+		if(!isCurrent(path))
+			return null;
+		File file = new File(path + EXTENSION);
+		try
+		{
+			RandomAccessFile f = new RandomAccessFile(file, "r");
+			ByteBuffer buf;
+			try
+			{
+				//The mapping remains valid after the file is closed
+				buf = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+			}
+			finally
+			{
+				f.close();
+			}
+			return new KnowledgePack(buf, 8 + 8 * stamp(path).length);
+		}
+		catch(IOException e)
+		{
+			return null;
+		}
+		catch(RuntimeException e)
+		{
+			//A truncated or corrupted pack fails with an IndexOutOfBoundsException,
+			//and one larger than 2 GB with an IllegalArgumentException
+			System.out.println("Unable to read knowledge pack: " + file + " (" + e + ")");
+			return null;
+		}
+	}
+
+//Package Methods
+
+	//Returns the position rounded up to a multiple of 8
+	static int align(int pos)
+	{
+		return (pos + 7) & ~7;
+	}
+
+	//Returns the number of entity rows
+	int entityCount()
+	{
+		return entityCount;
+	}
+
+	//Returns the numbers of the names of an entity
+	int[] entityNames(int entity)
+	{
+		if(entity < 0 || entity >= entityCount)
+			return new int[0];
+		return row(entityRows, entityNames, entity);
+	}
+
+	//Returns the names
+	PackedStrings names()
+	{
+		return names;
+	}
+
+	//Returns the entities of a name (by number)
+	int[] nameEntities(int name)
+	{
+		return row(nameRows, nameEntities, name);
+	}
+
+	//Returns the weight of a name (by number) for an entity, or 0.0 if
+	//the entity doesn't have the name
+	double nameWeight(int name, int entity)
+	{
+		int i = find(nameRows, nameEntities, name, entity);
+		if(i < 0)
+			return 0.0;
+		return buf.getDouble(nameWeights + 8 * i);
+	}
+
+	//Writes zeros up to the next multiple of 8
+	static void pad(DataOutputStream out) throws IOException
+	{
+		while(out.size() % 8 != 0)
+			out.writeByte(0);
+	}
+
+	//Returns the cross-references
+	PackedStrings refs()
+	{
+		return refs;
+	}
+
+	//Returns the terms of a cross-reference (by number)
+	int[] refTerms(int ref)
+	{
+		return row(refRows, refTerms, ref);
+	}
+
+	//Returns the number of rows of a cross-reference (by number) and a term
+	//(or -1 if the term doesn't have the cross-reference)
+	int refTerm(int ref, int term)
+	{
+		return find(refRows, refTerms, ref, term);
+	}
+
+	//Returns the number of term rows
+	int termCount()
+	{
+		return termCount;
+	}
+
+	//Returns the number of terms with cross-references
+	int termKeys()
+	{
+		return termKeys;
+	}
+
+	//Returns the numbers of the cross-references of a term
+	int[] termRefs(int term)
+	{
+		if(term < 0 || term >= termCount)
+			return new int[0];
+		return row(termRows, termRefs, term);
+	}
+
+//Private Methods
+
+	//Finds a value in a (sorted) row, and returns its position
+	//among the values, or -1 if the row doesn't have it
+	private int find(int rows, int values, int row, int value)
+	{
+		int low = buf.getInt(rows + 4 * row);
+		int high = buf.getInt(rows + 4 * (row + 1)) - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int v = buf.getInt(values + 4 * mid);
+			if(v < value)
+				low = mid + 1;
+			else if(v > value)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	//Checks whether the pack of a source has the current format version and
+	//the stamp of the source, reading only its header
+	private static boolean isCurrent(String path)
+	{
+		File file = new File(path + EXTENSION);
+		if(!file.isFile())
+			return false;
+		try
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try
+			{
+				if(in.readInt() != MAGIC || in.readInt() != VERSION)
+					return false;
+				for(long l : stamp(path))
+					if(in.readLong() != l)
+						return false;
+				return true;
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+	}
+
+	//Returns the values of a row
+	private int[] row(int rows, int values, int row)
+	{
+		int from = buf.getInt(rows + 4 * row);
+		int[] r = new int[buf.getInt(rows + 4 * (row + 1)) - from];
+		for(int i = 0; i < r.length; i++)
+			r[i] = buf.getInt(values + 4 * (from + i));
+		return r;
+	}
+
+	//Returns the end of the last row (i.e., the number of values)
+	private int rowEnd(int rows, int count)
+	{
+		return buf.getInt(rows + 4 * count);
+	}
+
+	//Returns the size and modification date of the source and of its
+	//xrefs file (which are 0 if it doesn't exist, or for lexicons)
+	private static long[] stamp(String path)
+	{
+		File f = new File(path);
+		long[] stamp = new long[]{f.length(), f.lastModified(), 0, 0};
+		if(!path.endsWith(".lexicon"))
+		{
+			File x = new File(MediatorOntology.getXRefPath(path));
+			stamp[2] = x.length();
+			stamp[3] = x.lastModified();
+		}
+		return stamp;
+	}
+
+	//Writes the names, with their entities and weights, and the
+	//names of each entity
+	private static void writeLexicon(DataOutputStream out, MediatorLexicon ml) throws IOException
+	{
+		String[] n = PackedStrings.write(out, ml.getNames());
+		int entities = 0;
+		int size = 0;
+		int[][] rows = new int[n.length][];
+		for(int i = 0; i < n.length; i++)
+		{
+			rows[i] = sorted(ml.getEntities(n[i]));
+			size += rows[i].length;
+			for(int e : rows[i])
+				entities = Math.max(entities, e + 1);
+		}
+		writeRows(out, rows);
+		for(int i = 0; i < n.length; i++)
+			for(int e : rows[i])
+				out.writeDouble(ml.getWeight(n[i], e));
+		//The names of each entity, in the order of their numbers
+		int[] count = new int[entities + 1];
+		for(int[] r : rows)
+			for(int e : r)
+				count[e + 1]++;
+		out.writeInt(entities);
+		for(int i = 0; i < entities; i++)
+			count[i + 1] += count[i];
+		for(int c : count)
+			out.writeInt(c);
+		int[] byEntity = new int[size];
+		for(int i = 0; i < n.length; i++)
+			for(int e : rows[i])
+				byEntity[count[e]++] = i;
+		for(int i : byEntity)
+			out.writeInt(i);
+		pad(out);
+	}
+
+	//Writes the cross-references, with their terms, and the
+	//cross-references of each term
+	private static void writeReferences(DataOutputStream out, ReferenceMap rm) throws IOException
+	{
+		String[] r = PackedStrings.write(out, rm.getReferences());
+		int terms = 0;
+		int size = 0;
+		int[][] rows = new int[r.length][];
+		for(int i = 0; i < r.length; i++)
+		{
+			rows[i] = sorted(rm.get(r[i]));
+			size += rows[i].length;
+			for(int t : rows[i])
+				terms = Math.max(terms, t + 1);
+		}
+		writeRows(out, rows);
+		int[] count = new int[terms + 1];
+		for(int[] row : rows)
+			for(int t : row)
+				count[t + 1]++;
+		out.writeInt(terms);
+		out.writeInt(rm.termCount());
+		for(int i = 0; i < terms; i++)
+			count[i + 1] += count[i];
+		for(int c : count)
+			out.writeInt(c);
+		int[] byTerm = new int[size];
+		for(int i = 0; i < r.length; i++)
+			for(int t : rows[i])
+				byTerm[count[t]++] = i;
+		for(int i : byTerm)
+			out.writeInt(i);
+		pad(out);
+	}
+
+	//Writes rows in CSR form (the offsets, then the values)
+	private static void writeRows(DataOutputStream out, int[][] rows) throws IOException
+	{
+		int offset = 0;
+		out.writeInt(offset);
+		for(int[] r : rows)
+		{
+			offset += r.length;
+			out.writeInt(offset);
+		}
+		for(int[] r : rows)
+			for(int v : r)
+				out.writeInt(v);
+		pad(out);
+	}
+
+	//Returns the values of a set in ascending order
+	private static int[] sorted(Set<Integer> set)
+	{
+		int[] a = new int[set.size()];
+		int i = 0;
+		for(Integer v : set)
+			a[i++] = v;
+		Arrays.sort(a);
+		return a;
+	}
+}
@@ -75,6 +75,19 @@ public class MediatorLexicon
 
 //Public Methods
 
+	/**
+	 * Opens a MediatorLexicon from a given Lexicon file, or from its
+	 * compiled KnowledgePack if it is up to date
+	 * @param file: the MediatorLexicon file
+	 */
+	public static MediatorLexicon open(String file) throws IOException
+	{
+		KnowledgePack pack = KnowledgePack.open(file);
+		if(pack != null)
+			return pack.getMediatorLexicon();
+		return new MediatorLexicon(file);
+	}
+
 	/**
 	 * Adds a new entry to the MediatorLexicon
 	 * @param index: the index of the entity to which the name belongs
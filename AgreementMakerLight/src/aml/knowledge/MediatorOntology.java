@@ -19,8 +19,10 @@
 package aml.knowledge;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.HashMap;
 import java.util.Set;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
@@ -36,6 +38,8 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
 
+import aml.ontology.OBOStreamReader;
+import aml.ontology.RDFStreamReader;
 import aml.ontology.ReferenceMap;
 import aml.settings.LexicalType;
 import aml.util.StringParser;
@@ -47,6 +51,7 @@ public class MediatorOntology
 	
 	//The entity expansion limit property
     private final String LIMIT = "entityExpansionLimit";
+    private final String OWL = "http://www.w3.org/2002/07/owl#";
 	//The URI of the ontology
 	private String uri;
 	//Its lexicon
@@ -67,18 +72,32 @@ public class MediatorOntology
 	}
 	
 	/**
-	 * Constructs an Ontology from file 
+	 * Constructs an Ontology from file (OBO files are read natively,
+	 * and other files through the OWL API), or from its compiled
+	 * KnowledgePack if it is up to date
 	 * @param path: the path to the input Ontology file
 	 * @throws OWLOntologyCreationException 
 	 */
 	public MediatorOntology(String path) throws OWLOntologyCreationException
 	{
 		this();
+		//Open the compiled pack of the ontology, if it is up to date
+		KnowledgePack pack = KnowledgePack.open(path);
+		if(pack != null)
+		{
+			uri = pack.getURI();
+			lex = pack.getMediatorLexicon();
+			refs = pack.getReferenceMap();
+			return;
+		}
         //Load the local ontology
-		init(path);
+		if(path.endsWith(".obo"))
+			initOBO(path);
+		else
+			init(path);
         //Check if a xrefs file with the same name as the ontology exists 
 		//And if so, use it to extend the ReferenceMap
-		String refName = path.substring(0,path.lastIndexOf(".")) + ".xrefs";
+		String refName = getXRefPath(path);
 		File f = new File(refName);
 		if(f.exists())
 			refs.extend(refName);
@@ -120,6 +139,14 @@ public class MediatorOntology
 		return uri;
 	}
 		
+//Package Methods
+	
+	//Returns the path of the xrefs file of an ontology file
+	static String getXRefPath(String path)
+	{
+		return path.substring(0,path.lastIndexOf(".")) + ".xrefs";
+	}
+	
 //Private Methods	
 
 	//Builds the ontology data structures
@@ -220,6 +247,58 @@ public class MediatorOntology
         System.clearProperty(LIMIT);
 	}
 	
+	//Builds the ontology data structures from an OBO file, by streaming the
+	//triples of its terms (see OBOStreamReader)
+	private void initOBO(String path) throws OWLOntologyCreationException
+	{
+		uri = new File(path).getAbsolutePath();
+		//The internal index of each class
+		final HashMap<String,Integer> ids = new HashMap<String,Integer>();
+		RDFStreamReader.Handler h = new RDFStreamReader.Handler()
+		{
+			@Override
+			public void resource(String s, String p, String o)
+			{
+				if(!p.equals(RDFStreamReader.TYPE))
+					return;
+				if(o.equals(OWL + "Class") && !ids.containsKey(s))
+				{
+					int id = ids.size();
+					ids.put(s, id);
+					//If the local name is not an alphanumeric code, add it to the lexicon
+					String name = getLocalName(s);
+					if(!StringParser.isNumericId(name))
+						lex.add(id, name, LexicalType.LOCAL_NAME.getDefaultWeight());
+				}
+				else if(o.equals(OWL + "Ontology"))
+					uri = s;
+			}
+
+			@Override
+			public void literal(String s, String p, String value, String lang, String datatype)
+			{
+				Integer id = ids.get(s);
+				if(id == null)
+					return;
+				//Labels and synonyms go to the Lexicon
+				LexicalType type = LexicalType.getLexicalType(p);
+				if(type != null)
+					lex.add(id, value, type.getDefaultWeight());
+				//xRefs go to the ReferenceMap
+				else if(p.endsWith("hasDbXref") && !value.startsWith("http"))
+					refs.add(id, value.replace(':','_'));
+			}
+		};
+		try
+		{
+			new OBOStreamReader(h).read(path);
+		}
+		catch(IOException e)
+		{
+			throw new OWLOntologyCreationException(e);
+		}
+	}
+	
 	//Get the local name of an entity from its URI
 	private String getLocalName(String uri)
 	{
@@ -0,0 +1,117 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A read-only MediatorLexicon that is read in place from a KnowledgePack. The *
+* names in the pack are already normalized, so they are searched as given.    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.knowledge;
+
+import java.io.FileOutputStream;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+class PackedLexicon extends MediatorLexicon
+{
+
+//Attributes
+
+	//The pack of the MediatorLexicon
+	private KnowledgePack pack;
+
+//Constructors
+
+	/**
+	 * Constructs the MediatorLexicon of the given KnowledgePack
+	 * @param p: the KnowledgePack
+	 */
+	PackedLexicon(KnowledgePack p)
+	{
+		pack = p;
+	}
+
+//Public Methods
+
+	@Override
+	public void add(int classId, String name, double weight)
+	{
+		throw new UnsupportedOperationException("Knowledge packs are read-only");
+	}
+
+	@Override
+	public boolean contains(String name)
+	{
+		return pack.names().indexOf(name) > -1;
+	}
+
+	@Override
+	public Set<Integer> getEntities(String name)
+	{
+		int n = pack.names().indexOf(name);
+		if(n < 0)
+			return null;
+		HashSet<Integer> entities = new HashSet<Integer>();
+		for(int e : pack.nameEntities(n))
+			entities.add(e);
+		return entities;
+	}
+
+	@Override
+	public Set<String> getNames()
+	{
+		return pack.names().asSet();
+	}
+
+	@Override
+	public Set<String> getNames(int index)
+	{
+		HashSet<String> names = new HashSet<String>();
+		for(int n : pack.entityNames(index))
+			names.add(pack.names().get(n));
+		return names;
+	}
+
+	@Override
+	public double getWeight(String name, int entityId)
+	{
+		int n = pack.names().indexOf(name);
+		if(n < 0)
+			return 0.0;
+		return pack.nameWeight(n, entityId);
+	}
+
+	@Override
+	public int nameCount()
+	{
+		return pack.names().size();
+	}
+
+	@Override
+	public int nameCount(int entityId)
+	{
+		return pack.entityNames(entityId).length;
+	}
+
+	@Override
+	public void save(String file) throws Exception
+	{
+		PrintWriter outStream = new PrintWriter(new FileOutputStream(file));
+		for(int i = 0; i < pack.entityCount(); i++)
+			for(int n : pack.entityNames(i))
+				outStream.println(i + "\t" + pack.names().get(n) + "\t" + pack.nameWeight(n,i));
+		outStream.close();
+	}
+}
@@ -0,0 +1,148 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A read-only ReferenceMap that is read in place from a KnowledgePack (which  *
+* already includes the cross-references of the xrefs file of its source).     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.knowledge;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import aml.ontology.ReferenceMap;
+
+class PackedReferenceMap extends ReferenceMap
+{
+
+//Attributes
+
+	//The pack of the ReferenceMap
+	private KnowledgePack pack;
+
+//Constructors
+
+	/**
+	 * Constructs the ReferenceMap of the given KnowledgePack
+	 * @param p: the KnowledgePack
+	 */
+	PackedReferenceMap(KnowledgePack p)
+	{
+		pack = p;
+	}
+
+//Public Methods
+
+	@Override
+	public void add(int term, String ref)
+	{
+		throw new UnsupportedOperationException("Knowledge packs are read-only");
+	}
+
+	@Override
+	public boolean contains(String ref)
+	{
+		return pack.refs().indexOf(ref) > -1;
+	}
+
+	@Override
+	public boolean contains(int term, String ref)
+	{
+		int r = pack.refs().indexOf(ref);
+		return r > -1 && pack.refTerm(r, term) > -1;
+	}
+
+	@Override
+	public int countRefs(int term)
+	{
+		return pack.termRefs(term).length;
+	}
+
+	@Override
+	public int countTerms(String ref)
+	{
+		int r = pack.refs().indexOf(ref);
+		if(r < 0)
+			return 0;
+		return pack.refTerms(r).length;
+	}
+
+	@Override
+	public void extend(String file)
+	{
+		throw new UnsupportedOperationException("Knowledge packs are read-only");
+	}
+
+	@Override
+	public Set<String> get(int term)
+	{
+		int[] refs = pack.termRefs(term);
+		if(refs.length == 0)
+			return null;
+		HashSet<String> set = new HashSet<String>();
+		for(int r : refs)
+			set.add(pack.refs().get(r));
+		return set;
+	}
+
+	@Override
+	public Set<Integer> get(String ref)
+	{
+		int r = pack.refs().indexOf(ref);
+		if(r < 0)
+			return null;
+		HashSet<Integer> set = new HashSet<Integer>();
+		for(int t : pack.refTerms(r))
+			set.add(t);
+		return set;
+	}
+
+	@Override
+	public Set<String> getReferences()
+	{
+		return pack.refs().asSet();
+	}
+
+	@Override
+	public Set<Integer> getTerms()
+	{
+		HashSet<Integer> terms = new HashSet<Integer>();
+		for(int t = 0; t < pack.termCount(); t++)
+			if(pack.termRefs(t).length > 0)
+				terms.add(t);
+		return terms;
+	}
+
+	@Override
+	public int refCount()
+	{
+		return pack.refs().size();
+	}
+
+	@Override
+	public int size()
+	{
+		int size = 0;
+		for(int r = 0; r < pack.refs().size(); r++)
+			size += pack.refTerms(r).length;
+		return size;
+	}
+
+	@Override
+	public int termCount()
+	{
+		return pack.termKeys();
+	}
+}
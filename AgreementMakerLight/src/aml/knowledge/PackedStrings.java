@@ -0,0 +1,300 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A table of distinct Strings in a KnowledgePack, which is read in place from *
+* the mapped pack. The Strings are stored in UTF-8 and numbered by a minimal  *
+* perfect hash (hash and displace): each bucket of the first hash has either  *
+* the seed of a second hash that places its Strings in free positions, or (if *
+* it has a single String) the position of that String. Looking up a String    *
+* costs two hashes and one comparison, with no index on the heap.             *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.knowledge;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+class PackedStrings
+{
+
+//Attributes
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	//The mapped pack
+	private ByteBuffer buf;
+	//The number of Strings
+	private int size;
+	//The positions of the seeds of the buckets, of the offsets of the
+	//Strings, of their bytes and of the end of the table in the pack
+	private int seeds;
+	private int offsets;
+	private int bytes;
+	private int end;
+
+//Constructors
+
+	/**
+	 * Reads the table of Strings at the given position of a mapped pack
+	 * @param buf: the mapped pack
+	 * @param pos: the position of the table in the pack
+	 */
+	PackedStrings(ByteBuffer buf, int pos)
+	{
+		this.buf = buf;
+		size = buf.getInt(pos);
+		seeds = pos + 4;
+		offsets = seeds + 4 * size;
+		bytes = offsets + 4 * (size + 1);
+		end = KnowledgePack.align(bytes + buf.getInt(offsets + 4 * size));
+	}
+
+//Package Methods
+
+	/**
+	 * @return a read-only view of the Strings in the table, which are
+	 * decoded as they are iterated
+	 */
+	AbstractSet<String> asSet()
+	{
+		return new AbstractSet<String>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof String && indexOf((String)o) > -1;
+			}
+
+			@Override
+			public Iterator<String> iterator()
+			{
+				return new Iterator<String>()
+				{
+					private int next = 0;
+
+					@Override
+					public boolean hasNext()
+					{
+						return next < size;
+					}
+
+					@Override
+					public String next()
+					{
+						if(next >= size)
+							throw new NoSuchElementException();
+						return get(next++);
+					}
+
+					@Override
+					public void remove()
+					{
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * @return the position after the end of the table in the pack
+	 */
+	int end()
+	{
+		return end;
+	}
+
+	/**
+	 * @param i: the number of the String
+	 * @return the String with the given number
+	 */
+	String get(int i)
+	{
+		int from = buf.getInt(offsets + 4 * i);
+		byte[] b = new byte[buf.getInt(offsets + 4 * (i + 1)) - from];
+		for(int j = 0; j < b.length; j++)
+			b[j] = buf.get(bytes + from + j);
+		return new String(b, UTF8);
+	}
+
+	/**
+	 * @param s: the String to search in the table
+	 * @return the number of the String, or -1 if it isn't in the table
+	 */
+	int indexOf(String s)
+	{
+		if(size == 0)
+			return -1;
+		byte[] b = s.getBytes(UTF8);
+		int seed = buf.getInt(seeds + 4 * (hash(b, 0) % size));
+		int i;
+		if(seed < 0)
+			i = -seed - 1;
+		else
+			i = hash(b, seed) % size;
+		//The hash is perfect only for the Strings in the table,
+		//so the String in that position must be checked
+		int from = buf.getInt(offsets + 4 * i);
+		if(buf.getInt(offsets + 4 * (i + 1)) - from != b.length)
+			return -1;
+		for(int j = 0; j < b.length; j++)
+			if(buf.get(bytes + from + j) != b[j])
+				return -1;
+		return i;
+	}
+
+	/**
+	 * @return the number of Strings in the table
+	 */
+	int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Writes a table with the given (distinct) Strings
+	 * @param out: the output stream of the pack
+	 * @param strings: the Strings to write
+	 * @return the Strings in the order of their numbers in the table
+	 * @throws IOException if the table can't be written
+	 */
+	static String[] write(DataOutputStream out, Collection<String> strings) throws IOException
+	{
+		int n = strings.size();
+		String[] keys = strings.toArray(new String[n]);
+		byte[][] b = new byte[n][];
+		for(int i = 0; i < n; i++)
+			b[i] = keys[i].getBytes(UTF8);
+		//Distribute the Strings by bucket, in CSR form
+		int[] bucket = new int[n];
+		int[] start = new int[n + 1];
+		for(int i = 0; i < n; i++)
+		{
+			bucket[i] = hash(b[i], 0) % n;
+			start[bucket[i] + 1]++;
+		}
+		int max = 0;
+		for(int i = 0; i < n; i++)
+		{
+			max = Math.max(max, start[i + 1]);
+			start[i + 1] += start[i];
+		}
+		int[] members = new int[n];
+		int[] next = new int[n];
+		System.arraycopy(start, 0, next, 0, n);
+		for(int i = 0; i < n; i++)
+			members[next[bucket[i]]++] = i;
+		//Place the buckets from the largest to the smallest, as the large
+		//buckets are the hardest to place once positions are taken
+		int[] seed = new int[n];
+		int[] slotKeys = new int[n];
+		Arrays.fill(slotKeys, -1);
+		int[] slots = new int[max];
+		for(int count = max; count > 1; count--)
+		{
+			for(int k = 0; k < n; k++)
+			{
+				if(start[k + 1] - start[k] != count)
+					continue;
+				int s = 1;
+				while(!fits(b, members, start[k], count, s, slotKeys, slots))
+					s++;
+				seed[k] = s;
+				for(int j = 0; j < count; j++)
+					slotKeys[slots[j]] = members[start[k] + j];
+			}
+		}
+		//The buckets with a single String take the free positions
+		int free = 0;
+		for(int k = 0; k < n; k++)
+		{
+			if(start[k + 1] - start[k] != 1)
+				continue;
+			while(slotKeys[free] > -1)
+				free++;
+			slotKeys[free] = members[start[k]];
+			seed[k] = -free - 1;
+		}
+		//Write the table
+		out.writeInt(n);
+		for(int i = 0; i < n; i++)
+			out.writeInt(seed[i]);
+		int offset = 0;
+		out.writeInt(offset);
+		for(int i = 0; i < n; i++)
+		{
+			offset += b[slotKeys[i]].length;
+			out.writeInt(offset);
+		}
+		String[] sorted = new String[n];
+		for(int i = 0; i < n; i++)
+		{
+			out.write(b[slotKeys[i]]);
+			sorted[i] = keys[slotKeys[i]];
+		}
+		KnowledgePack.pad(out);
+		return sorted;
+	}
+
+//Private Methods
+
+	//Checks whether the seed places all Strings of a bucket in
+	//distinct free positions (which are stored in slots)
+	private static boolean fits(byte[][] b, int[] members, int from, int size, int seed, int[] slotKeys, int[] slots)
+	{
+		for(int j = 0; j < size; j++)
+		{
+			int slot = hash(b[members[from + j]], seed) % slotKeys.length;
+			if(slotKeys[slot] > -1)
+				return false;
+			for(int l = 0; l < j; l++)
+				if(slots[l] == slot)
+					return false;
+			slots[j] = slot;
+		}
+		return true;
+	}
+
+	//FNV-1a hash of the bytes of a String, starting from the seed
+	//and mixed at the end as in MurmurHash3 (so that the Strings that
+	//differ only in their last bytes are spread over the table)
+	private static int hash(byte[] b, int seed)
+	{
+		int h = seed == 0 ? 0x811C9DC5 : seed;
+		for(byte x : b)
+		{
+			h ^= x & 0xFF;
+			h *= 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h & 0x7FFFFFFF;
+	}
+}
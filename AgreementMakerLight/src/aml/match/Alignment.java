@@ -12,8 +12,10 @@
 * limitations under the License.                                              *
 *                                                                             *
 *******************************************************************************
-* An alignment between two Ontologies, stored both as a list of Mappings and  *
-* as a Table of indexes, and including methods for input and output.          *
+* An alignment between two Ontologies, stored as columns of primitive arrays  *
+* (one row per Mapping) indexed by the pair of entities and by each entity,   *
+* and including methods for input and output. The Mappings it returns are     *
+* views of its rows, so changes to them are reflected in the Alignment.       *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
@@ -25,12 +27,15 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
 
@@ -47,19 +52,32 @@ import aml.ontology.URIMap;
 import aml.settings.EntityType;
 import aml.settings.MappingRelation;
 import aml.settings.MappingStatus;
-import aml.util.Table2Map;
+import aml.util.LongIntMap;
 
 public class Alignment implements Collection<Mapping>
 {
 
 //Attributes
 
-	//Term mappings organized in list
-	private Vector<Mapping> maps;
-	//Term mappings organized by source class (Source Id, Target Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> sourceMaps;
-	//Term mappings organized by target class (Target Id, Source Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> targetMaps;
+	//The mapping relations and statuses, indexed by their ordinal
+	private static final MappingRelation[] RELATIONS = MappingRelation.values();
+	private static final MappingStatus[] STATUSES = MappingStatus.values();
+	//Term mappings organized in columns, with one row per Mapping (in list order)
+	private int[] sources;
+	private int[] targets;
+	//The similarities are stored in units of 0.0001, the precision of Mappings
+	private int[] sims;
+	private byte[] rels;
+	private byte[] statuses;
+	private int size;
+	//The number of rows added or removed, to detect changes during iteration
+	private int modCount;
+	//The row of each Mapping, indexed by its source and target ids
+	private LongIntMap rows;
+	//The target classes mapped to each source class (Source Id, Target Ids)
+	private HashMap<Integer,Partners> sourceMaps;
+	//The source classes mapped to each target class (Target Id, Source Ids)
+	private HashMap<Integer,Partners> targetMaps;
 	//Link to AML and the Ontologies
 	private AML aml;
 	private Ontology source;
@@ -74,9 +92,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Alignment()
 	{
-		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();
+		init();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -156,35 +172,41 @@ public class Alignment implements Collection<Mapping>
 		if(!aml.matchSameURI() && (source.contains(targetId) || target.contains(sourceId)))
 			return false;
 		
-		//Construct the Mapping
-		Mapping m = new Mapping(sourceId, targetId, sim, r);
-		m.setStatus(s);
+		long key = LongIntMap.key(sourceId, targetId);
+		int row = rows.get(key);
 		//If it isn't listed yet, add it
-		if(!sourceMaps.contains(sourceId,targetId))
+		if(row == LongIntMap.NONE)
 		{
-			maps.add(m);
-			sourceMaps.add(sourceId, targetId, m);
-			targetMaps.add(targetId, sourceId, m);
+			if(size == sources.length)
+				grow();
+			sources[size] = sourceId;
+			targets[size] = targetId;
+			sims[size] = units(sim);
+			rels[size] = (byte)r.ordinal();
+			statuses[size] = (byte)s.ordinal();
+			rows.put(key, size++);
+			partners(sourceMaps, sourceId).add(targetId);
+			partners(targetMaps, targetId).add(sourceId);
+			modCount++;
 			return true;
 		}
 		//Otherwise update the similarity
 		else
 		{
-			m = sourceMaps.get(sourceId,targetId);
 			boolean check = false;
-			if(m.getSimilarity() < sim)
+			if(sims[row] / 10000.0 < sim)
 			{
-				m.setSimilarity(sim);
+				sims[row] = units(sim);
 				check = true;
 			}
-			if(!m.getRelationship().equals(r))
+			if(!RELATIONS[rels[row]].equals(r))
 			{
-				m.setRelationship(r);
+				rels[row] = (byte)r.ordinal();
 				check = true;
 			}
-			if(!m.getStatus().equals(s))
+			if(!STATUSES[statuses[row]].equals(s))
 			{
-				m.setStatus(s);
+				statuses[row] = (byte)s.ordinal();
 				check = true;
 			}
 			return check;
@@ -250,7 +272,7 @@ public class Alignment implements Collection<Mapping>
 	public void addAllNonConflicting(Alignment a)
 	{
 		Vector<Mapping> nonConflicting = new Vector<Mapping>();
-		for(Mapping m : a.maps)
+		for(Mapping m : a)
 			if(!this.containsConflict(m))
 				nonConflicting.add(m);
 		addAll(nonConflicting);
@@ -264,7 +286,7 @@ public class Alignment implements Collection<Mapping>
 	public void addAllOneToOne(Alignment a)
 	{
 		a.sortDescending();
-		for(Mapping m : a.maps)
+		for(Mapping m : a)
 			if(!this.containsConflict(m))
 				add(m);
 	}
@@ -274,18 +296,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public double cardinality()
 	{
-		double cardinality = 0.0;
-		
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
-			cardinality += sourceMaps.keySet(i).size();
-		
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
-			cardinality += targetMaps.keySet(i).size();
-		cardinality /= sources.size() + targets.size();
-		
-		return cardinality;		
+		//Each Mapping counts once for its source and once for its target
+		double cardinality = 2.0 * size;
+		cardinality /= sourceMaps.size() + targetMaps.size();
+		return cardinality;
 	}
 	
 	/**
@@ -294,19 +308,18 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int cardinality(int id)
 	{
-		if(sourceMaps.contains(id))
-			return sourceMaps.get(id).size();
-		if(targetMaps.contains(id))
-			return targetMaps.get(id).size();
+		if(sourceMaps.containsKey(id))
+			return sourceMaps.get(id).size;
+		if(targetMaps.containsKey(id))
+			return targetMaps.get(id).size;
 		return 0;
 	}
 	
 	@Override
 	public void clear()
 	{
-		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();		
+		init();
+		modCount++;
 	}
 	
 	/**
@@ -318,8 +331,8 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean contains(int sourceId, int targetId, MappingRelation r)
 	{
-		return sourceMaps.contains(sourceId, targetId) &&
-				getRelationship(sourceId,targetId).equals(r);
+		int row = rows.get(LongIntMap.key(sourceId, targetId));
+		return row != LongIntMap.NONE && RELATIONS[rels[row]].equals(r);
 	}
 
 	@Override
@@ -381,13 +394,11 @@ public class Alignment implements Collection<Mapping>
 		int source = m.getSourceId();
 		double sim = m.getSimilarity();
 		
-		if(containsSource(source))
-		{
-			Set<Integer> targets = sourceMaps.keySet(source);
-			for(Integer i : targets)
-				if(getSimilarity(source,i) > sim)
+		Partners targets = sourceMaps.get(source);
+		if(targets != null)
+			for(int i = 0; i < targets.size; i++)
+				if(getSimilarity(source,targets.ids[i]) > sim)
 					return true;
-		}
 		return false;
 	}
 	
@@ -402,13 +413,11 @@ public class Alignment implements Collection<Mapping>
 		int target = m.getTargetId();
 		double sim = m.getSimilarity();
 		
-		if(containsTarget(target))
-		{
-			Set<Integer> sources = targetMaps.keySet(target);
-			for(Integer i : sources)
-				if(getSimilarity(i,target) > sim)
+		Partners sources = targetMaps.get(target);
+		if(sources != null)
+			for(int i = 0; i < sources.size; i++)
+				if(getSimilarity(sources.ids[i],target) > sim)
 					return true;
-		}
 		return false;
 	}
 	
@@ -429,12 +438,16 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsConflict(int sourceId, int targetId)
 	{
-		for(int s : getTargetMappings(targetId))
-			if(s != sourceId)
-				return true;
-		for(int t : getSourceMappings(sourceId))
-			if(t != targetId)
-				return true;
+		Partners sources = targetMaps.get(targetId);
+		if(sources != null)
+			for(int i = 0; i < sources.size; i++)
+				if(sources.ids[i] != sourceId)
+					return true;
+		Partners targets = sourceMaps.get(sourceId);
+		if(targets != null)
+			for(int i = 0; i < targets.size; i++)
+				if(targets.ids[i] != targetId)
+					return true;
 		return false;
 	}
 	
@@ -477,7 +490,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsMapping(int sourceId, int targetId)
 	{
-		return sourceMaps.contains(sourceId, targetId);
+		return rows.contains(LongIntMap.key(sourceId, targetId));
 	}
 	
 	/**
@@ -487,7 +500,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsMapping(Mapping m)
 	{
-		return sourceMaps.contains(m.getSourceId(), m.getTargetId());
+		return containsMapping(m.getSourceId(), m.getTargetId());
 	}
 	
 	/**
@@ -530,7 +543,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsSource(int sourceId)
 	{
-		return sourceMaps.contains(sourceId);
+		return sourceMaps.containsKey(sourceId);
 	}
 
 	/**
@@ -539,7 +552,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsTarget(int targetId)
 	{
-		return targetMaps.contains(targetId);
+		return targetMaps.containsKey(targetId);
 	}
 	
 	/**
@@ -548,8 +561,8 @@ public class Alignment implements Collection<Mapping>
 	public int countConflicts()
 	{
 		int count = 0;
-		for(Mapping m : maps)
-			if(m.getRelationship().equals(MappingRelation.UNKNOWN))
+		for(int i = 0; i < size; i++)
+			if(RELATIONS[rels[i]].equals(MappingRelation.UNKNOWN))
 				count++;
 		return count;
 	}
@@ -561,7 +574,7 @@ public class Alignment implements Collection<Mapping>
 	public Alignment difference(Alignment a)
 	{
 		Alignment diff = new Alignment();
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			if(!a.contains(m))
 				diff.add(m);
 		return diff;
@@ -580,20 +593,22 @@ public class Alignment implements Collection<Mapping>
 	public int[] evaluate(Alignment ref)
 	{
 		int[] count = new int[2];
-		for(Mapping m : maps)
+		for(int i = 0; i < size; i++)
 		{
-			if(ref.contains(m))
+			MappingStatus s;
+			if(ref.contains(sources[i],targets[i],RELATIONS[rels[i]]))
 			{
 				count[0]++;
-				m.setStatus(MappingStatus.CORRECT);
+				s = MappingStatus.CORRECT;
 			}
-			else if(ref.contains(m.getSourceId(),m.getTargetId(),MappingRelation.UNKNOWN))
+			else if(ref.contains(sources[i],targets[i],MappingRelation.UNKNOWN))
 			{
 				count[1]++;
-				m.setStatus(MappingStatus.UNKNOWN);
+				s = MappingStatus.UNKNOWN;
 			}
 			else
-				m.setStatus(MappingStatus.INCORRECT);
+				s = MappingStatus.INCORRECT;
+			statuses[i] = (byte)s.ordinal();
 		}
 		return count;
 	}
@@ -606,8 +621,8 @@ public class Alignment implements Collection<Mapping>
 	public double gain(Alignment a)
 	{
 		double gain = 0.0;
-		for(Mapping m : maps)
-			if(!a.containsMapping(m))
+		for(int i = 0; i < size; i++)
+			if(!a.containsMapping(sources[i],targets[i]))
 				gain++;
 		gain /= a.size();
 		return gain;
@@ -621,14 +636,12 @@ public class Alignment implements Collection<Mapping>
 	public double gainOneToOne(Alignment a)
 	{
 		double sourceGain = 0.0;
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
+		for(Integer i : sourceMaps.keySet())
 			if(!a.containsSource(i))
 				sourceGain++;
 		sourceGain /= a.sourceCount();
 		double targetGain = 0.0;
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
+		for(Integer i : targetMaps.keySet())
 			if(!a.containsTarget(i))
 				targetGain++;
 		targetGain /= a.targetCount();
@@ -642,9 +655,9 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping get(int index)
 	{
-		if(index < 0 || index >= maps.size())
+		if(index < 0 || index >= size)
 			return null;
-		return maps.get(index);
+		return new Entry(index);
 	}
 	
 	/**
@@ -655,7 +668,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping get(int sourceId, int targetId)
 	{
-		return sourceMaps.get(sourceId, targetId);
+		int row = rows.get(LongIntMap.key(sourceId, targetId));
+		if(row == LongIntMap.NONE)
+			return null;
+		return new Entry(row);
 	}
 	
 	/**
@@ -666,12 +682,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping getBidirectional(int id1, int id2)
 	{
-		if(sourceMaps.contains(id1, id2))
-			return sourceMaps.get(id1, id2);
-		else if(sourceMaps.contains(id2, id1))
-			return  sourceMaps.get(id2, id1);
-		else
-			return null;
+		Mapping m = get(id1, id2);
+		if(m == null)
+			m = get(id2, id1);
+		return m;
 	}
 	
 	/**
@@ -682,14 +696,16 @@ public class Alignment implements Collection<Mapping>
 	{
 		double max = 0;
 		int target = -1;
-		Set<Integer> targets = sourceMaps.keySet(sourceId);
-		for(Integer i : targets)
+		Partners targets = sourceMaps.get(sourceId);
+		if(targets == null)
+			return target;
+		for(int i = 0; i < targets.size; i++)
 		{
-			double sim = getSimilarity(sourceId,i);
+			double sim = getSimilarity(sourceId,targets.ids[i]);
 			if(sim > max)
 			{
 				max = sim;
-				target = i;
+				target = targets.ids[i];
 			}
 		}
 		return target;
@@ -703,14 +719,16 @@ public class Alignment implements Collection<Mapping>
 	{
 		double max = 0;
 		int source = -1;
-		Set<Integer> sources = sourceMaps.keySet(targetId);
-		for(Integer i : sources)
+		Partners sources = targetMaps.get(targetId);
+		if(sources == null)
+			return source;
+		for(int i = 0; i < sources.size; i++)
 		{
-			double sim = getSimilarity(i,targetId);
+			double sim = getSimilarity(sources.ids[i],targetId);
 			if(sim > max)
 			{
 				max = sim;
-				source = i;
+				source = sources.ids[i];
 			}
 		}
 		return source;
@@ -723,12 +741,16 @@ public class Alignment implements Collection<Mapping>
 	public Vector<Mapping> getConflicts(Mapping m)
 	{
 		Vector<Mapping> conflicts = new Vector<Mapping>();
-		for(Integer t : sourceMaps.keySet(m.getSourceId()))
-			if(t != m.getTargetId())
-				conflicts.add(sourceMaps.get(m.getSourceId(),t));
-		for(Integer s : targetMaps.keySet(m.getTargetId()))
-			if(s != m.getSourceId())
-				conflicts.add(sourceMaps.get(s,m.getTargetId()));
+		Partners targets = sourceMaps.get(m.getSourceId());
+		if(targets != null)
+			for(int i = 0; i < targets.size; i++)
+				if(targets.ids[i] != m.getTargetId())
+					conflicts.add(get(m.getSourceId(),targets.ids[i]));
+		Partners sources = targetMaps.get(m.getTargetId());
+		if(sources != null)
+			for(int i = 0; i < sources.size; i++)
+				if(sources.ids[i] != m.getSourceId())
+					conflicts.add(get(sources.ids[i],m.getTargetId()));
 		return conflicts;
 	}
 	
@@ -742,11 +764,11 @@ public class Alignment implements Collection<Mapping>
 		RelationshipMap rels = aml.getRelationshipMap();
 		
 		Alignment a = new Alignment();
-		int total = maps.size();
-		for(Mapping m : maps)
+		int total = size;
+		for(int k = 0; k < size; k++)
 		{
-			Set<Integer> sourceAncestors = rels.getHighLevelAncestors(m.getSourceId());
-			Set<Integer> targetAncestors = rels.getHighLevelAncestors(m.getTargetId());
+			Set<Integer> sourceAncestors = rels.getHighLevelAncestors(sources[k]);
+			Set<Integer> targetAncestors = rels.getHighLevelAncestors(targets[k]);
 			for(int i : sourceAncestors)
 			{
 				for(int j : targetAncestors)
@@ -771,10 +793,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int getIndex(int sourceId, int targetId)
 	{
-		if(sourceMaps.contains(sourceId, targetId))
-			return maps.indexOf(sourceMaps.get(sourceId, targetId));
-		else
-			return -1;
+		return rows.get(LongIntMap.key(sourceId, targetId));
 	}
 	
 	/**
@@ -785,12 +804,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int getIndexBidirectional(int id1, int id2)
 	{
-		if(sourceMaps.contains(id1, id2))
-			return maps.indexOf(sourceMaps.get(id1, id2));
-		else if(targetMaps.contains(id1, id2))
-			return maps.indexOf(targetMaps.get(id1, id2));
-		else
-			return -1;
+		int index = getIndex(id1, id2);
+		if(index == -1)
+			index = getIndex(id2, id1);
+		return index;
 	}
 	
 	/**
@@ -800,10 +817,10 @@ public class Alignment implements Collection<Mapping>
 	public Set<Integer> getMappingsBidirectional(int id)
 	{
 		HashSet<Integer> mappings = new HashSet<Integer>();
-		if(sourceMaps.contains(id))
-			mappings.addAll(sourceMaps.keySet(id));
-		if(targetMaps.contains(id))
-			mappings.addAll(targetMaps.keySet(id));
+		if(sourceMaps.containsKey(id))
+			sourceMaps.get(id).addTo(mappings);
+		if(targetMaps.containsKey(id))
+			targetMaps.get(id).addTo(mappings);
 		return mappings;
 	}
 	
@@ -814,10 +831,12 @@ public class Alignment implements Collection<Mapping>
 	public double getMaxSourceSim(int sourceId)
 	{
 		double max = 0;
-		Set<Integer> targets = sourceMaps.keySet(sourceId);
-		for(Integer i : targets)
+		Partners targets = sourceMaps.get(sourceId);
+		if(targets == null)
+			return max;
+		for(int i = 0; i < targets.size; i++)
 		{
-			double sim = getSimilarity(sourceId,i);
+			double sim = getSimilarity(sourceId,targets.ids[i]);
 			if(sim > max)
 				max = sim;
 		}
@@ -831,10 +850,12 @@ public class Alignment implements Collection<Mapping>
 	public double getMaxTargetSim(int targetId)
 	{
 		double max = 0;
-		Set<Integer> sources = targetMaps.keySet(targetId);
-		for(Integer i : sources)
+		Partners sources = targetMaps.get(targetId);
+		if(sources == null)
+			return max;
+		for(int i = 0; i < sources.size; i++)
 		{
-			double sim = getSimilarity(i,targetId);
+			double sim = getSimilarity(sources.ids[i],targetId);
 			if(sim > max)
 				max = sim;
 		}
@@ -848,10 +869,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public MappingRelation getRelationship(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
-		if(m == null)
+		int row = rows.get(LongIntMap.key(sourceId, targetId));
+		if(row == LongIntMap.NONE)
 			return null;
-		return m.getRelationship();
+		return RELATIONS[rels[row]];
 	}
 	
 	/**
@@ -861,10 +882,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public double getSimilarity(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
-		if(m == null)
+		int row = rows.get(LongIntMap.key(sourceId, targetId));
+		if(row == LongIntMap.NONE)
 			return 0.0;
-		return m.getSimilarity();
+		return sims[row] / 10000.0;
 	}
 	
 	/**
@@ -874,10 +895,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public String getSimilarityPercent(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
-		if(m == null)
+		int row = rows.get(LongIntMap.key(sourceId, targetId));
+		if(row == LongIntMap.NONE)
 			return "0%";
-		return m.getSimilarityPercent();
+		return (sims[row] * 1.0 / 100) + "%";
 	}
 	
 	/**
@@ -886,9 +907,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Set<Integer> getSourceMappings(int sourceId)
 	{
-		if(sourceMaps.contains(sourceId))
-			return sourceMaps.keySet(sourceId);
-		return new HashSet<Integer>();
+		HashSet<Integer> targets = new HashSet<Integer>();
+		if(sourceMaps.containsKey(sourceId))
+			sourceMaps.get(sourceId).addTo(targets);
+		return targets;
 	}
 	
 	/**
@@ -907,9 +929,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Set<Integer> getTargetMappings(int targetId)
 	{
-		if(targetMaps.contains(targetId))
-			return targetMaps.keySet(targetId);
-		return new HashSet<Integer>();
+		HashSet<Integer> sources = new HashSet<Integer>();
+		if(targetMaps.containsKey(targetId))
+			targetMaps.get(targetId).addTo(sources);
+		return sources;
 	}
 	
 	/**
@@ -925,7 +948,11 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public int hashCode()
 	{
-		return maps.hashCode();
+		//Same as the hashCode of the list of Mappings
+		int hash = 1;
+		for(int i = 0; i < size; i++)
+			hash = 31 * hash + (31 * sources[i] + targets[i]);
+		return hash;
 	}
 	
 	/**
@@ -936,7 +963,7 @@ public class Alignment implements Collection<Mapping>
 	{
 		//Otherwise, compute the intersection
 		Alignment intersection = new Alignment();
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			if(a.contains(m))
 				intersection.add(m);
 		return intersection;
@@ -945,13 +972,13 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public boolean isEmpty()
 	{
-		return maps.isEmpty();
+		return size == 0;
 	}
 	
 	@Override
 	public Iterator<Mapping> iterator()
 	{
-		return maps.iterator();
+		return new MappingIterator();
 	}
 	
 	/**
@@ -962,21 +989,19 @@ public class Alignment implements Collection<Mapping>
 		double cardinality;
 		double max = 0.0;
 		
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
+		for(Partners p : sourceMaps.values())
 		{
-			cardinality = sourceMaps.keySet(i).size();
+			cardinality = p.size;
 			if(cardinality > max)
 				max = cardinality;
 		}
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
+		for(Partners p : targetMaps.values())
 		{
-			cardinality = targetMaps.keySet(i).size();
+			cardinality = p.size;
 			if(cardinality > max)
 				max = cardinality;
 		}
-		return max;		
+		return max;
 	}
 	
 	@Override
@@ -985,11 +1010,7 @@ public class Alignment implements Collection<Mapping>
 		if(o instanceof Mapping && contains(o))
 		{
 			Mapping m = (Mapping)o;
-			int sourceId = m.getSourceId();
-			int targetId = m.getTargetId();
-			sourceMaps.remove(sourceId, targetId);
-			targetMaps.remove(targetId, sourceId);
-			maps.remove(m);
+			removeRow(getIndex(m.getSourceId(), m.getTargetId()));
 			return true;
 		}
 		else
@@ -1010,20 +1031,36 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public boolean removeAll(Collection<?> c)
 	{
+		//The rows are marked first and then removed all at once
+		boolean[] remove = new boolean[size];
 		boolean check = false;
 		for(Object o : c)
-			check = remove(o) || check;
+		{
+			if(o instanceof Mapping && contains(o))
+			{
+				Mapping m = (Mapping)o;
+				int row = getIndex(m.getSourceId(), m.getTargetId());
+				check = check || !remove[row];
+				remove[row] = true;
+			}
+		}
+		if(check)
+			removeRows(remove);
 		return check;
 	}
 	
 	@Override
 	public boolean retainAll(Collection<?> c)
 	{
+		boolean[] remove = new boolean[size];
 		boolean check = false;
-		Vector<Mapping> clone = new Vector<Mapping>(this);
-		for(Mapping m : clone)
-			if(!c.contains(m))
-				check = remove(m) || check;
+		for(int i = 0; i < size; i++)
+		{
+			remove[i] = !c.contains(new Entry(i));
+			check = check || remove[i];
+		}
+		if(check)
+			removeRows(remove);
 		return check;
 	}
 	
@@ -1034,7 +1071,7 @@ public class Alignment implements Collection<Mapping>
 	public void saveDoubles(String file) throws FileNotFoundException
 	{
 		PrintWriter outStream = new PrintWriter(new FileOutputStream(file));
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			outStream.println("<" + m.getSourceURI() + "> <" + m.getTargetURI() + ">");
 		outStream.close();
 	}
@@ -1066,7 +1103,7 @@ public class Alignment implements Collection<Mapping>
 		outStream.println("\t<onto2>" + targetURI + "</onto2>");
 		outStream.println("\t<uri1>" + sourceURI + "</uri1>");
 		outStream.println("\t<uri2>" + targetURI + "</uri2>");
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			outStream.println(m.toRDF());
 		outStream.println("</Alignment>");
 		outStream.println("</rdf:RDF>");		
@@ -1084,7 +1121,7 @@ public class Alignment implements Collection<Mapping>
 		outStream.println("#Source ontology:\t" + source.getURI());
 		outStream.println("#Target ontology:\t" + target.getURI());
 		outStream.println("Source URI\tSource Label\tTarget URI\tTarget Label\tSimilarity\tRelationship\tStatus");
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			outStream.println(m.toString());
 		outStream.close();
 	}
@@ -1092,7 +1129,7 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public int size()
 	{
-		return maps.size();
+		return size;
 	}
 
 	/**
@@ -1100,7 +1137,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public void sortAscending()
 	{
-		Collections.sort(maps);
+		sort(false);
 	}
 	
 	/**
@@ -1108,15 +1145,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public void sortDescending()
 	{
-		Collections.sort(maps,new Comparator<Mapping>()
-        {
-			//Sorting in descending order can be done simply by
-			//reversing the order of the elements in the comparison
-            public int compare(Mapping m1, Mapping m2)
-            {
-        		return m2.compareTo(m1);
-            }
-        } );
+		sort(true);
 	}
 	
 	/**
@@ -1124,7 +1153,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int sourceCount()
 	{
-		return sourceMaps.keyCount();
+		return sourceMaps.size();
 	}
 	
 	/**
@@ -1149,7 +1178,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int targetCount()
 	{
-		return targetMaps.keyCount();
+		return targetMaps.size();
 	}
 	
 	/**
@@ -1172,17 +1201,44 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public Object[] toArray()
 	{
-		return maps.toArray();
+		Object[] a = new Object[size];
+		for(int i = 0; i < size; i++)
+			a[i] = new Entry(i);
+		return a;
 	}
 	
 	@Override
 	public <T> T[] toArray(T[] a)
 	{
-		return maps.toArray(a);
+		return new Vector<Object>(Arrays.asList(toArray())).toArray(a);
 	}
 	
 //Private Methods
 
+	//Grows the columns to hold more rows
+	private void grow()
+	{
+		int capacity = Math.max(8, sources.length * 2);
+		sources = Arrays.copyOf(sources, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		sims = Arrays.copyOf(sims, capacity);
+		rels = Arrays.copyOf(rels, capacity);
+		statuses = Arrays.copyOf(statuses, capacity);
+	}
+	
+	private void init()
+	{
+		sources = new int[0];
+		targets = new int[0];
+		sims = new int[0];
+		rels = new byte[0];
+		statuses = new byte[0];
+		size = 0;
+		rows = new LongIntMap();
+		sourceMaps = new HashMap<Integer,Partners>();
+		targetMaps = new HashMap<Integer,Partners>();
+	}
+	
 	private void loadMappingsRDF(String file) throws DocumentException
 	{
 		//Open the Alignment file using SAXReader
@@ -1284,4 +1340,268 @@ public class Alignment implements Collection<Mapping>
 		}
 		inStream.close();
 	}
+	
+	//Moves a row to a new position in the columns
+	private void move(int from, int to)
+	{
+		sources[to] = sources[from];
+		targets[to] = targets[from];
+		sims[to] = sims[from];
+		rels[to] = rels[from];
+		statuses[to] = statuses[from];
+		rows.put(LongIntMap.key(sources[to], targets[to]), to);
+	}
+	
+	//Gets the entities mapped to an entity, adding the entity if it isn't listed
+	private static Partners partners(HashMap<Integer,Partners> map, int id)
+	{
+		Partners p = map.get(id);
+		if(p == null)
+		{
+			p = new Partners();
+			map.put(id, p);
+		}
+		return p;
+	}
+	
+	//Removes a row, shifting the rows after it
+	private void removeRow(int row)
+	{
+		unlink(row);
+		size--;
+		for(int i = row; i < size; i++)
+			move(i + 1, i);
+		modCount++;
+	}
+	
+	//Removes the marked rows, shifting the remaining rows in a single pass
+	private void removeRows(boolean[] remove)
+	{
+		int count = size;
+		size = 0;
+		for(int i = 0; i < count; i++)
+		{
+			if(remove[i])
+				unlink(i);
+			else if(size != i)
+				move(i, size++);
+			else
+				size++;
+		}
+		modCount++;
+	}
+	
+	//Sorts the rows by status and then by similarity, keeping the
+	//order of rows that are tied (as Collections.sort would)
+	private void sort(final boolean descending)
+	{
+		Integer[] order = new Integer[size];
+		for(int i = 0; i < size; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer i, Integer j)
+			{
+				int c;
+				if(statuses[i] != statuses[j])
+					c = statuses[i] < statuses[j] ? -1 : 1;
+				else if(sims[i] != sims[j])
+					c = sims[i] < sims[j] ? -1 : 1;
+				else
+					c = 0;
+				return descending ? -c : c;
+			}
+		});
+		int[] s = new int[sources.length];
+		int[] t = new int[targets.length];
+		int[] sim = new int[sims.length];
+		byte[] r = new byte[rels.length];
+		byte[] st = new byte[statuses.length];
+		for(int i = 0; i < size; i++)
+		{
+			int row = order[i];
+			s[i] = sources[row];
+			t[i] = targets[row];
+			sim[i] = sims[row];
+			r[i] = rels[row];
+			st[i] = statuses[row];
+			rows.put(LongIntMap.key(s[i], t[i]), i);
+		}
+		sources = s;
+		targets = t;
+		sims = sim;
+		rels = r;
+		statuses = st;
+		modCount++;
+	}
+	
+	//Converts a similarity to the units it is stored in
+	private static int units(double sim)
+	{
+		return (int)Math.round(sim*10000);
+	}
+	
+	//Removes a row from the indexes (but not from the columns)
+	private void unlink(int row)
+	{
+		int s = sources[row];
+		int t = targets[row];
+		rows.remove(LongIntMap.key(s, t));
+		if(sourceMaps.get(s).remove(t) == 0)
+			sourceMaps.remove(s);
+		if(targetMaps.get(t).remove(s) == 0)
+			targetMaps.remove(t);
+	}
+	
+	//A Mapping that reads and writes through to its row in this Alignment,
+	//and that keeps its last known values if it is removed from the Alignment
+	private class Entry extends Mapping
+	{
+		//The last known row of the Mapping (rows change when sorting or removing)
+		private int row;
+		
+		private Entry(int row)
+		{
+			super(sources[row], targets[row], sims[row] / 10000.0, RELATIONS[rels[row]]);
+			super.setStatus(STATUSES[statuses[row]]);
+			this.row = row;
+		}
+		
+		@Override
+		public MappingRelation getRelationship()
+		{
+			int r = row();
+			if(r == LongIntMap.NONE)
+				return super.getRelationship();
+			return RELATIONS[rels[r]];
+		}
+		
+		@Override
+		public double getSimilarity()
+		{
+			int r = row();
+			if(r == LongIntMap.NONE)
+				return super.getSimilarity();
+			return sims[r] / 10000.0;
+		}
+		
+		@Override
+		public MappingStatus getStatus()
+		{
+			int r = row();
+			if(r == LongIntMap.NONE)
+				return super.getStatus();
+			return STATUSES[statuses[r]];
+		}
+		
+		@Override
+		public void setRelationship(MappingRelation rel)
+		{
+			super.setRelationship(rel);
+			int r = row();
+			if(r != LongIntMap.NONE)
+				rels[r] = (byte)rel.ordinal();
+		}
+		
+		@Override
+		public void setSimilarity(double sim)
+		{
+			super.setSimilarity(sim);
+			int r = row();
+			if(r != LongIntMap.NONE)
+				sims[r] = units(sim);
+		}
+		
+		@Override
+		public void setStatus(MappingStatus s)
+		{
+			super.setStatus(s);
+			int r = row();
+			if(r != LongIntMap.NONE)
+				statuses[r] = (byte)s.ordinal();
+		}
+		
+		private int row()
+		{
+			int s = getSourceId();
+			int t = getTargetId();
+			if(row < 0 || row >= size || sources[row] != s || targets[row] != t)
+				row = rows.get(LongIntMap.key(s, t));
+			return row;
+		}
+	}
+	
+	//Iterates over the rows of this Alignment in list order
+	private class MappingIterator implements Iterator<Mapping>
+	{
+		private int next = 0;
+		private int last = -1;
+		private int expectedModCount = modCount;
+		
+		@Override
+		public boolean hasNext()
+		{
+			return next < size;
+		}
+		
+		@Override
+		public Mapping next()
+		{
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= size)
+				throw new NoSuchElementException();
+			last = next++;
+			return new Entry(last);
+		}
+		
+		@Override
+		public void remove()
+		{
+			if(last < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			removeRow(last);
+			next = last;
+			last = -1;
+			expectedModCount = modCount;
+		}
+	}
+	
+	//The entities mapped to an entity, in the order they were mapped
+	private static class Partners
+	{
+		private int[] ids = new int[2];
+		private int size = 0;
+		
+		private void add(int id)
+		{
+			if(size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+		
+		private void addTo(Set<Integer> set)
+		{
+			for(int i = 0; i < size; i++)
+				set.add(ids[i]);
+		}
+		
+		//Removes an entity, returning the number of entities left
+		private int remove(int id)
+		{
+			for(int i = 0; i < size; i++)
+			{
+				if(ids[i] == id)
+				{
+					System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+					size--;
+					break;
+				}
+			}
+			return size;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,210 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Collects Mappings from multiple threads concurrently and builds them into   *
+* an Alignment. Redundant Mappings are merged keeping the maximum similarity, *
+* and the relation and status added with it (or, if several were added with   *
+* the maximum similarity, those with the highest ordinals), so that the       *
+* result doesn't depend on the order in which threads add them. Mappings are  *
+* kept in lock-striped tables, so that threads adding Mappings for different  *
+* entities seldom wait for each other.                                        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Vector;
+
+import aml.settings.MappingRelation;
+import aml.settings.MappingStatus;
+
+public class AlignmentBuilder
+{
+
+//Attributes
+
+	//The number of stripes (a power of 2)
+	private static final int STRIPES = 64;
+	//The stripes of Mappings, indexed by the source and target ids
+	private HashMap<Long,Mapping>[] stripes;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty AlignmentBuilder
+	 */
+	@SuppressWarnings({"rawtypes","unchecked"})
+	public AlignmentBuilder()
+	{
+		stripes = new HashMap[STRIPES];
+		for(int i = 0; i < STRIPES; i++)
+			stripes[i] = new HashMap<Long,Mapping>();
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a new Mapping to the AlignmentBuilder if it is non-redundant
+	 * Otherwise, updates the similarity of the already present Mapping
+	 * to the maximum similarity of the two redundant Mappings
+	 * This method can be called concurrently by multiple threads
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @param sim: the similarity between the entities
+	 */
+	public void add(int sourceId, int targetId, double sim)
+	{
+		add(sourceId,targetId,sim,MappingRelation.EQUIVALENCE);
+	}
+
+	/**
+	 * Adds a new Mapping to the AlignmentBuilder if it is non-redundant
+	 * Otherwise, updates the similarity of the already present Mapping
+	 * to the maximum similarity of the two redundant Mappings
+	 * This method can be called concurrently by multiple threads
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @param sim: the similarity between the entities
+	 * @param r: the mapping relation between the entities
+	 */
+	public void add(int sourceId, int targetId, double sim, MappingRelation r)
+	{
+		add(sourceId,targetId,sim,r,MappingStatus.UNKNOWN);
+	}
+
+	/**
+	 * Adds a new Mapping to the AlignmentBuilder if it is non-redundant
+	 * Otherwise, updates the similarity of the already present Mapping
+	 * to the maximum similarity of the two redundant Mappings, and its
+	 * mapping relation and status to those of the Mapping with the higher
+	 * similarity (or, if both have the same similarity, to the relation
+	 * and then the status with the higher ordinal), unlike Alignment.add
+	 * which keeps the last ones, so that the result is the same in any order
+	 * This method can be called concurrently by multiple threads
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @param sim: the similarity between the entities
+	 * @param r: the mapping relation between the entities
+	 * @param s: the mapping status
+	 */
+	public void add(int sourceId, int targetId, double sim, MappingRelation r, MappingStatus s)
+	{
+		Long key = ((long)sourceId << 32) | (targetId & 0xFFFFFFFFL);
+		HashMap<Long,Mapping> stripe = stripes[stripe(sourceId,targetId)];
+		synchronized(stripe)
+		{
+			Mapping m = stripe.get(key);
+			if(m == null)
+			{
+				m = new Mapping(sourceId,targetId,sim,r);
+				m.setStatus(s);
+				stripe.put(key, m);
+			}
+			else
+			{
+				//Similarities are compared as the Mapping rounds them
+				double rounded = Math.round(sim*10000)/10000.0;
+				if(rounded < m.getSimilarity() || (rounded == m.getSimilarity() && !precedes(m,r,s)))
+					return;
+				m.setSimilarity(sim);
+				m.setRelationship(r);
+				m.setStatus(s);
+			}
+		}
+	}
+
+	/**
+	 * Adds a Mapping to the AlignmentBuilder
+	 * (see add(int,int,double,MappingRelation,MappingStatus))
+	 * @param m: the Mapping to add
+	 */
+	public void add(Mapping m)
+	{
+		add(m.getSourceId(),m.getTargetId(),m.getSimilarity(),m.getRelationship(),m.getStatus());
+	}
+
+	/**
+	 * Builds the Alignment with all Mappings added so far, which are added
+	 * by order of source and target index, so that the result doesn't depend
+	 * on the order in which the threads added them. This method should only
+	 * be called after all threads have finished adding Mappings
+	 * @return the Alignment
+	 */
+	public Alignment build()
+	{
+		Vector<Mapping> maps = new Vector<Mapping>(size());
+		for(HashMap<Long,Mapping> stripe : stripes)
+		{
+			synchronized(stripe)
+			{
+				maps.addAll(stripe.values());
+			}
+		}
+		Collections.sort(maps, new Comparator<Mapping>()
+		{
+			@Override
+			public int compare(Mapping m1, Mapping m2)
+			{
+				if(m1.getSourceId() != m2.getSourceId())
+					return m1.getSourceId() < m2.getSourceId() ? -1 : 1;
+				if(m1.getTargetId() != m2.getTargetId())
+					return m1.getTargetId() < m2.getTargetId() ? -1 : 1;
+				return 0;
+			}
+		});
+		Alignment a = new Alignment();
+		for(Mapping m : maps)
+			a.add(m);
+		return a;
+	}
+
+	/**
+	 * @return the number of Mappings in the AlignmentBuilder
+	 */
+	public int size()
+	{
+		int size = 0;
+		for(HashMap<Long,Mapping> stripe : stripes)
+		{
+			synchronized(stripe)
+			{
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+//Private Methods
+
+	//Checks whether the relation and status of a Mapping precede the given
+	//ones (by the order of their ordinals), when merging Mappings with the
+	//same similarity
+	private boolean precedes(Mapping m, MappingRelation r, MappingStatus s)
+	{
+		if(m.getRelationship() != r)
+			return m.getRelationship().ordinal() < r.ordinal();
+		return m.getStatus().ordinal() < s.ordinal();
+	}
+
+	//Chooses the stripe for a pair of entities
+	private int stripe(int sourceId, int targetId)
+	{
+		int h = sourceId * 31 + targetId;
+		h ^= (h >>> 16);
+		return h & (STRIPES - 1);
+	}
+}
\ No newline at end of file
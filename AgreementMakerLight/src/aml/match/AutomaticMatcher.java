@@ -182,7 +182,7 @@ public class AutomaticMatcher
 					{
 						try
 						{
-							MediatorLexicon ml = new MediatorLexicon(BK_PATH + bk);
+							MediatorLexicon ml = MediatorLexicon.open(BK_PATH + bk);
 							MediatingMatcher mm = new MediatingMatcher(ml, BK_PATH + bk);
 							Alignment med = mm.match(EntityType.CLASS, thresh);
 							double gain = med.gain(lex);
@@ -223,6 +223,8 @@ public class AutomaticMatcher
 						{
 							System.out.println(bk + " selected for lexical extension");
 							xr.extendLexicons();
+							aml.getSource().getLexicon().freeze();
+							aml.getTarget().getLexicon().freeze();
 							//If that is the case, we must compute a new Lexical alignment
 							//after the extension
 							a.addAll(lm.match(EntityType.CLASS, thresh));
@@ -239,24 +241,27 @@ public class AutomaticMatcher
 				}
 			}
 		}
-		if(!size.equals(SizeCategory.HUGE))
+		//If the task is huge, the WordMatcher is run with a memory budget
+		long budget = 0;
+		if(size.equals(SizeCategory.HUGE))
+			budget = aml.getWordMatcherMemory();
+		Alignment word = new Alignment();
+		if(lang.equals(LanguageSetting.SINGLE))
 		{
-			Alignment word = new Alignment();
-			if(lang.equals(LanguageSetting.SINGLE))
+			WordMatcher wm = new WordMatcher();
+			wm.setMemoryBudget(budget);
+			word.addAll(wm.match(EntityType.CLASS, thresh));
+		}
+		else if(lang.equals(LanguageSetting.MULTI))
+		{
+			for(String l : aml.getLanguages())
 			{
-				WordMatcher wm = new WordMatcher();
+				WordMatcher wm = new WordMatcher(l);
+				wm.setMemoryBudget(budget);
 				word.addAll(wm.match(EntityType.CLASS, thresh));
 			}
-			else if(lang.equals(LanguageSetting.MULTI))
-			{
-				for(String l : aml.getLanguages())
-				{
-					WordMatcher wm = new WordMatcher(l);
-					word.addAll(wm.match(EntityType.CLASS, thresh));
-				}
-			}
-			a.addAllOneToOne(word);
 		}
+		a.addAllOneToOne(word);
 		StringMatcher psm = new StringMatcher();
 		//If the task is small, we can use the PSM in match mode
 		if(size.equals(SizeCategory.SMALL))
@@ -119,7 +119,7 @@ public class BackgroundKnowledgeMatcher implements PrimaryMatcher
 			{
 				try
 				{
-					MediatorLexicon ml = new MediatorLexicon(path + s);
+					MediatorLexicon ml = MediatorLexicon.open(path + s);
 					MediatingMatcher mm = new MediatingMatcher(ml, (new File(path + s)).toURI().toString());
 					temp = mm.match(e,thresh);
 				}
@@ -19,18 +19,12 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
-import aml.util.Table2Set;
+import aml.util.IntTable2Set;
 
 public class InstanceNeighborSimilarityMatcher implements PrimaryMatcher
 {
@@ -78,7 +72,7 @@ public class InstanceNeighborSimilarityMatcher implements PrimaryMatcher
 		checkEntityType(e);
 		System.out.println("Matching Ontologies with Individual Neighbor Similarity Matcher");
 		long time = System.currentTimeMillis()/1000;
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Integer s : aml.getSourceIndividualsToMatch())
 			for(Integer t : aml.getTargetIndividualsToMatch())
 				toMap.add(s, t);
@@ -105,40 +99,10 @@ public class InstanceNeighborSimilarityMatcher implements PrimaryMatcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, keeping only those above the threshold
+	private Alignment mapInParallel(IntTable2Set toMap, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		return new MappingTask(toMap,thresh).score();
 	}
 	
 	//Computes the neighbor structural similarity between two terms by
@@ -157,22 +121,18 @@ public class InstanceNeighborSimilarityMatcher implements PrimaryMatcher
 		 return sim;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//PairScorer class for mapping a table of classes
+	private class MappingTask extends PairScorer
 	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
+		MappingTask(IntTable2Set toMap, double thresh)
 	    {
-			source = s;
-	        target = t;
+			super(toMap,thresh);
 	    }
 	        
 	    @Override
-	    public Mapping call()
+	    protected double score(int sourceId, int targetId)
 	    {
-       		return new Mapping(source,target,mapTwoTerms(source,target));
-        }
+	    	return mapTwoTerms(sourceId,targetId);
+	    }
 	}
 }
\ No newline at end of file
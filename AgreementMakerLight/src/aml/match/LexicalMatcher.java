@@ -27,6 +27,7 @@ import aml.ontology.Lexicon;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
+import aml.util.Scheduler;
 import aml.util.StringParser;
 
 public class LexicalMatcher implements PrimaryMatcher
@@ -73,8 +74,6 @@ public class LexicalMatcher implements PrimaryMatcher
 		AML aml = AML.getInstance();
 		Lexicon sLex = aml.getSource().getLexicon();
 		Lexicon tLex = aml.getTarget().getLexicon();
-		//Initialize the alignment
-		Alignment maps = new Alignment();
 		//To minimize iterations, we want to iterate through the
 		//Ontology with the smallest Lexicon
 		boolean sourceIsSmaller = (sLex.nameCount(e) <= tLex.nameCount(e));
@@ -83,58 +82,83 @@ public class LexicalMatcher implements PrimaryMatcher
 			names = sLex.getNames(e);
 		else
 			names = tLex.getNames(e);
-		//If we have a multi-language Lexicon, we must match language by language
-		if(aml.getLanguageSetting().equals(LanguageSetting.MULTI))
+		//Match the names in parallel, with each thread adding
+		//its mappings directly to the AlignmentBuilder
+		MatchingTask task = new MatchingTask(names,e,thresh);
+		Scheduler.run(task.names.length, task);
+		Alignment maps = task.maps.build();
+		time = System.currentTimeMillis()/1000 - time;
+		System.out.println("Finished in " + time + " seconds");
+		return maps;
+	}
+	
+//Private Methods
+	
+	private void checkEntityType(EntityType e) throws UnsupportedEntityTypeException
+	{
+		boolean check = false;
+		for(EntityType t : SUPPORT)
 		{
-			for(String s : names)
+			if(t.equals(e))
 			{
-				HashSet<String> languages = new HashSet<String>();
-				for(String l : sLex.getLanguages(e,s))
-					if(tLex.getLanguages().contains(l))
-						languages.add(l);
-				
-				for(String l : languages)
-				{
-					//Get all term indexes for the name in both ontologies
-					Set<Integer> sourceIndexes = sLex.getEntitiesWithLanguage(e,s,l);
-					Set<Integer> targetIndexes = tLex.getEntitiesWithLanguage(e,s,l);
-					//If the name doesn't exist in either ontology, or if it is too common skip it
-					if(sourceIndexes == null || targetIndexes == null ||
-							sourceIndexes.size() > 5 || targetIndexes.size() > 5)
-						continue;
-					//Otherwise, match all indexes
-					for(Integer i : sourceIndexes)
-					{
-						if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
-							continue;
-						//Get the weight of the name for the term in the smaller lexicon
-						double weight = sLex.getCorrectedWeight(s, i);
-						for(Integer j : targetIndexes)
-						{
-							if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
-									(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
-									!aml.getRelationshipMap().shareClass(i,j))))
-								continue;
-							//Get the weight of the name for the term in the larger lexicon
-							double similarity = tLex.getCorrectedWeight(s, j);
-							//Then compute the similarity, by multiplying the two weights
-							similarity *= weight;
-							//If the similarity is above threshold
-							if(similarity >= thresh)
-								maps.add(i, j, similarity);
-						}
-					}
-				}
+				check = true;
+				break;
 			}
 		}
-		//Otherwise we can just match everything
-		else
+		if(!check)
+			throw new UnsupportedEntityTypeException(e.toString());
+	}
+	
+	//Task for matching a list of names, chunk by chunk
+	private class MatchingTask implements Scheduler.Task
+	{
+		private AML aml;
+		private Lexicon sLex;
+		private Lexicon tLex;
+		private String[] names;
+		private EntityType e;
+		private double thresh;
+		private boolean multiLanguage;
+		private AlignmentBuilder maps;
+		
+		MatchingTask(Set<String> names, EntityType e, double thresh)
+		{
+			aml = AML.getInstance();
+			sLex = aml.getSource().getLexicon();
+			tLex = aml.getTarget().getLexicon();
+			this.names = names.toArray(new String[names.size()]);
+			this.e = e;
+			this.thresh = thresh;
+			//If we have a multi-language Lexicon, we must match language by language
+			multiLanguage = aml.getLanguageSetting().equals(LanguageSetting.MULTI);
+			maps = new AlignmentBuilder();
+		}
+		
+		@Override
+		public void run(int start, int end)
 		{
-			for(String s : names)
+			for(int k = start; k < end; k++)
 			{
-				boolean isSmallFormula = StringParser.isFormula(s) && s.length() < 10;
-				Set<Integer> sourceIndexes = sLex.getEntities(e,s);
-				Set<Integer> targetIndexes = tLex.getEntities(e,s);
+				if(multiLanguage)
+					matchByLanguage(names[k]);
+				else
+					match(names[k]);
+			}
+		}
+		
+		//Matches all entities with the given name in the same language
+		private void matchByLanguage(String s)
+		{
+			HashSet<String> languages = new HashSet<String>();
+			for(String l : sLex.getLanguages(e,s))
+				if(tLex.getLanguages().contains(l))
+					languages.add(l);
+			
+			for(String l : languages)
+			{
+				//Get all term indexes for the name in both ontologies
+				Set<Integer> sourceIndexes = sLex.getEntitiesWithLanguage(e,s,l);
+				Set<Integer> targetIndexes = tLex.getEntitiesWithLanguage(e,s,l);
 				//If the name doesn't exist in either ontology, or if it is too common skip it
 				if(sourceIndexes == null || targetIndexes == null ||
 						sourceIndexes.size() > 5 || targetIndexes.size() > 5)
@@ -144,8 +168,6 @@ public class LexicalMatcher implements PrimaryMatcher
 				{
 					if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
 						continue;
-					if(isSmallFormula && sLex.containsNonSmallFormula(i))
-						continue;
 					//Get the weight of the name for the term in the smaller lexicon
 					double weight = sLex.getCorrectedWeight(s, i);
 					for(Integer j : targetIndexes)
@@ -154,8 +176,6 @@ public class LexicalMatcher implements PrimaryMatcher
 								(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
 								!aml.getRelationshipMap().shareClass(i,j))))
 							continue;
-						if(isSmallFormula && tLex.containsNonSmallFormula(j))
-							continue;
 						//Get the weight of the name for the term in the larger lexicon
 						double similarity = tLex.getCorrectedWeight(s, j);
 						//Then compute the similarity, by multiplying the two weights
@@ -167,26 +187,43 @@ public class LexicalMatcher implements PrimaryMatcher
 				}
 			}
 		}
-		//And match them
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Finished in " + time + " seconds");
-		return maps;
-	}
-	
-//Private Methods
-	
-	private void checkEntityType(EntityType e) throws UnsupportedEntityTypeException
-	{
-		boolean check = false;
-		for(EntityType t : SUPPORT)
+		
+		//Matches all entities with the given name
+		private void match(String s)
 		{
-			if(t.equals(e))
+			boolean isSmallFormula = StringParser.isFormula(s) && s.length() < 10;
+			Set<Integer> sourceIndexes = sLex.getEntities(e,s);
+			Set<Integer> targetIndexes = tLex.getEntities(e,s);
+			//If the name doesn't exist in either ontology, or if it is too common skip it
+			if(sourceIndexes == null || targetIndexes == null ||
+					sourceIndexes.size() > 5 || targetIndexes.size() > 5)
+				return;
+			//Otherwise, match all indexes
+			for(Integer i : sourceIndexes)
 			{
-				check = true;
-				break;
+				if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
+					continue;
+				if(isSmallFormula && sLex.containsNonSmallFormula(i))
+					continue;
+				//Get the weight of the name for the term in the smaller lexicon
+				double weight = sLex.getCorrectedWeight(s, i);
+				for(Integer j : targetIndexes)
+				{
+					if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
+							(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
+							!aml.getRelationshipMap().shareClass(i,j))))
+						continue;
+					if(isSmallFormula && tLex.containsNonSmallFormula(j))
+						continue;
+					//Get the weight of the name for the term in the larger lexicon
+					double similarity = tLex.getCorrectedWeight(s, j);
+					//Then compute the similarity, by multiplying the two weights
+					similarity *= weight;
+					//If the similarity is above threshold
+					if(similarity >= thresh)
+						maps.add(i, j, similarity);
+				}
 			}
 		}
-		if(!check)
-			throw new UnsupportedEntityTypeException(e.toString());
 	}
 }
\ No newline at end of file
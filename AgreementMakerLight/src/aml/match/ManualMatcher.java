@@ -29,6 +29,7 @@ import aml.settings.LanguageSetting;
 import aml.settings.MatchStep;
 import aml.settings.NeighborSimilarityStrategy;
 import aml.settings.SelectionType;
+import aml.settings.SizeCategory;
 import aml.settings.WordMatchStrategy;
 
 public class ManualMatcher
@@ -68,9 +69,14 @@ public class ManualMatcher
 		if(steps.contains(MatchStep.WORD))
 		{
 			WordMatchStrategy wms = aml.getWordMatchStrategy();
+			//If the task is huge, the WordMatcher is run with a memory budget
+			long budget = 0;
+			if(aml.getSizeClasses().equals(SizeCategory.HUGE))
+				budget = aml.getWordMatcherMemory();
 			if(aml.getLanguageSetting().equals(LanguageSetting.SINGLE))
 			{
 				WordMatcher wm = new WordMatcher(wms);
+				wm.setMemoryBudget(budget);
 				aux = wm.match(EntityType.CLASS,thresh);
 			}
 			else
@@ -79,6 +85,7 @@ public class ManualMatcher
 				for(String l : aml.getLanguages())
 				{
 					WordMatcher wm = new WordMatcher(l,wms);
+					wm.setMemoryBudget(budget);
 					aux.addAll(wm.match(EntityType.CLASS,thresh));
 				}
 			}
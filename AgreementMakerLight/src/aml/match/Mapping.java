@@ -97,11 +97,11 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public Mapping(Mapping m)
 	{
-		sourceId = m.sourceId;
-		targetId = m.targetId;
-		similarity = m.similarity;
-		rel = m.rel;
-		s = m.s;
+		sourceId = m.getSourceId();
+		targetId = m.getTargetId();
+		similarity = m.getSimilarity();
+		rel = m.getRelationship();
+		s = m.getStatus();
 	}
 
 //Public Methods
@@ -116,16 +116,16 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public int compareTo(Mapping o)
 	{
-		if(this.s.equals(o.s))
+		if(this.getStatus().equals(o.getStatus()))
 		{
-			double diff = this.similarity - o.similarity;
+			double diff = this.getSimilarity() - o.getSimilarity();
 			if(diff < 0)
 				return -1;
 			if(diff > 0)
 				return 1;
 			return 0;
 		}
-		else return this.s.compareTo(o.s);
+		else return this.getStatus().compareTo(o.getStatus());
 	}
 	
 	/**
@@ -138,7 +138,13 @@ public class Mapping implements Comparable<Mapping>
 		if(!(o instanceof Mapping))
 			return false;
 		Mapping m = (Mapping)o;
-		return (this.sourceId == m.sourceId && this.targetId == m.targetId);
+		return (this.getSourceId() == m.getSourceId() && this.getTargetId() == m.getTargetId());
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return 31 * getSourceId() + getTargetId();
 	}
 	
 	/**
@@ -162,7 +168,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public String getSimilarityPercent()
 	{
-		return (Math.round(similarity*10000) * 1.0 / 100) + "%";
+		return (Math.round(getSimilarity()*10000) * 1.0 / 100) + "%";
 	}
 	
 	/**
@@ -238,7 +244,7 @@ public class Mapping implements Comparable<Mapping>
 	public String toGUI()
 	{
 		return AML.getInstance().getSource().getName(sourceId) + " " +
-			rel.toString() + " " + AML.getInstance().getTarget().getName(targetId) +
+			getRelationship().toString() + " " + AML.getInstance().getTarget().getName(targetId) +
 			" (" + getSimilarityPercent() + ") ";
 	}
 	
@@ -251,8 +257,8 @@ public class Mapping implements Comparable<Mapping>
 			"\t\t<Cell>\n" +
 			"\t\t\t<entity1 rdf:resource=\""+ sourceURI +"\"/>\n" +
 			"\t\t\t<entity2 rdf:resource=\""+ targetURI +"\"/>\n" +
-			"\t\t\t<measure rdf:datatype=\"http://www.w3.org/2001/XMLSchema#float\">"+ similarity +"</measure>\n" +
-			"\t\t\t<relation>" + StringEscapeUtils.escapeXml(rel.toString()) + "</relation>\n";
+			"\t\t\t<measure rdf:datatype=\"http://www.w3.org/2001/XMLSchema#float\">"+ getSimilarity() +"</measure>\n" +
+			"\t\t\t<relation>" + StringEscapeUtils.escapeXml(getRelationship().toString()) + "</relation>\n";
 		out += "\t\t</Cell>\n" +
 			"\t</map>\n";
 		return out;
@@ -267,9 +273,9 @@ public class Mapping implements Comparable<Mapping>
 		Ontology target = aml.getTarget();
 		String out = uris.getURI(sourceId) + "\t" + source.getName(sourceId) +
 				"\t" + uris.getURI(targetId) + "\t" + target.getName(targetId) +
-				"\t" + similarity + "\t" + rel.toString();
-		if(!s.equals(MappingStatus.UNKNOWN))
-			out += "\t" + s;
+				"\t" + getSimilarity() + "\t" + getRelationship().toString();
+		if(!getStatus().equals(MappingStatus.UNKNOWN))
+			out += "\t" + getStatus();
 		return out;
 	}
 }
@@ -20,8 +20,6 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 
 import aml.AML;
@@ -31,8 +29,8 @@ import aml.knowledge.MediatorOntology;
 import aml.ontology.Lexicon;
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
-import aml.util.MapSorter;
-import aml.util.Table2Map;
+import aml.util.IntTable2Map;
+import aml.util.Scheduler;
 
 public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 {
@@ -83,23 +81,13 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 		long time = System.currentTimeMillis()/1000;
 		AML aml = AML.getInstance();
 		Lexicon source = aml.getSource().getLexicon();
-		Table2Map<Integer,Integer,Double> maps = match(source,0.0);
-		for(Integer s : maps.keySet())
+		IntTable2Map maps = match(source,0.0);
+		for(int s : maps.keySet())
 		{
-			int hit;
-			//If there are multiple mappings, choose the best
-			if(maps.entryCount(s) > 1)
-			{
-				Map<Integer,Double> results = MapSorter.sortDescending(maps.get(s));
-				Iterator<Integer> i = results.keySet().iterator();
-				hit = i.next();
-				int secondHit = i.next();
-				//If there is a tie, then skip to next class
-				if(maps.get(s,hit) == maps.get(s,secondHit))
-					continue;
-			}
-			else
-				hit = maps.keySet(s).iterator().next();
+			int hit = best(maps, s);
+			//If there is a tie, then skip to next class
+			if(hit < 0)
+				continue;
 			Set<String> names = ext.getNames(hit);
 			for(String n : names)
 			{
@@ -109,22 +97,12 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 		}
 		Lexicon target = aml.getTarget().getLexicon();
 		maps = match(target,0.0);
-		for(Integer s : maps.keySet())
+		for(int s : maps.keySet())
 		{
-			int hit;
-			//If there are multiple mappings, choose the best
-			if(maps.entryCount(s) > 1)
-			{
-				Map<Integer,Double> results = MapSorter.sortDescending(maps.get(s));
-				Iterator<Integer> i = results.keySet().iterator();
-				hit = i.next();
-				int secondHit = i.next();
-				//If there is a tie, then skip to next class
-				if(maps.get(s,hit) == maps.get(s,secondHit))
-					continue;
-			}
-			else
-				hit = maps.keySet(s).iterator().next();
+			int hit = best(maps, s);
+			//If there is a tie, then skip to next class
+			if(hit < 0)
+				continue;
 			Set<String> names = ext.getNames(hit);
 			for(String n : names)
 			{
@@ -163,27 +141,9 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 		AML aml = AML.getInstance();
 		Lexicon source = aml.getSource().getLexicon();
 		Lexicon target = aml.getTarget().getLexicon();
-		Table2Map<Integer,Integer,Double> src = match(source,thresh);
-		Table2Map<Integer,Integer,Double> tgt = match(target,thresh);
-		//Reverse the target alignment table
-		Table2Map<Integer,Integer,Double> rev = new Table2Map<Integer,Integer,Double>();
-		for(Integer s : tgt.keySet())
-			for(Integer t : tgt.keySet(s))
-				rev.add(t, s, tgt.get(s, t));
-		Alignment maps = new Alignment();
-		for(Integer s : src.keySet())
-		{
-			for(Integer med : src.keySet(s))
-			{
-				if(!rev.contains(med))
-					continue;
-				for(Integer t : rev.keySet(med))
-				{
-					double similarity = Math.min(src.get(s, med), rev.get(med, t));
-					maps.add(s,t,similarity);
-				}
-			}
-		}
+		IntTable2Map src = match(source,thresh);
+		IntTable2Map tgt = match(target,thresh);
+		Alignment maps = mediate(src,tgt,1.0);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 		return maps;
@@ -206,9 +166,9 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	protected Table2Map<Integer,Integer,Double> match(Lexicon source, double thresh)
+	protected IntTable2Map match(Lexicon source, double thresh)
 	{
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
+		IntTable2Map maps = new IntTable2Map();
 		for(String s : source.getNames(EntityType.CLASS))
 		{
 			Set<Integer> sourceIndexes = source.getEntities(EntityType.CLASS,s);
@@ -228,11 +188,97 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 					//Then compute the similarity, by multiplying the two weights
 					similarity *= weight;
 					//If the similarity is above threshold
-					if(similarity >= thresh && (!maps.contains(i, j) || similarity > maps.get(i, j)))
-						maps.add(i, j, similarity);
+					if(similarity >= thresh)
+						maps.addUpgrade(i, j, similarity);
 				}
 			}
 		}
 		return maps;
 	}
+	
+	//Aligns the source and target entities that match the same mediator entity
+	//(in parallel), with similarity equal to the minimum of their similarities
+	//to the mediator entity, but no higher than maxSim
+	protected Alignment mediate(IntTable2Map src, IntTable2Map tgt, double maxSim)
+	{
+		//Reverse the target alignment table
+		IntTable2Map rev = new IntTable2Map();
+		for(int s : tgt.keySet())
+		{
+			int[] meds = tgt.keySet(s);
+			double[] sims = tgt.values(s);
+			for(int i = 0; i < meds.length; i++)
+				rev.add(meds[i], s, sims[i]);
+		}
+		MediatingTask task = new MediatingTask(src,rev,maxSim);
+		Scheduler.run(task.sources.length, task);
+		return task.maps.build();
+	}
+	
+	//Returns the mediator entity that best matches the given entity,
+	//or -1 if two or more mediator entities tie for the best match
+	private int best(IntTable2Map maps, int s)
+	{
+		int[] hits = maps.keySet(s);
+		double[] sims = maps.values(s);
+		int hit = 0;
+		boolean tie = false;
+		for(int i = 1; i < hits.length; i++)
+		{
+			if(sims[i] > sims[hit])
+			{
+				hit = i;
+				tie = false;
+			}
+			else if(sims[i] == sims[hit])
+				tie = true;
+		}
+		if(tie)
+			return -1;
+		return hits[hit];
+	}
+	
+	//Task for aligning source entities through the mediator, chunk by chunk
+	private class MediatingTask implements Scheduler.Task
+	{
+		private int[] sources;
+		private IntTable2Map src;
+		private IntTable2Map rev;
+		private double maxSim;
+		private AlignmentBuilder maps;
+		
+		MediatingTask(IntTable2Map src, IntTable2Map rev, double maxSim)
+		{
+			sources = src.keySet();
+			this.src = src;
+			this.rev = rev;
+			this.maxSim = maxSim;
+			maps = new AlignmentBuilder();
+		}
+		
+		@Override
+		public void run(int start, int end)
+		{
+			for(int k = start; k < end; k++)
+			{
+				int s = sources[k];
+				int[] meds = src.keySet(s);
+				double[] sims = src.values(s);
+				for(int i = 0; i < meds.length; i++)
+				{
+					if(!rev.contains(meds[i]))
+						continue;
+					int[] targets = rev.keySet(meds[i]);
+					double[] revSims = rev.values(meds[i]);
+					for(int j = 0; j < targets.length; j++)
+					{
+						int t = targets[j];
+						double similarity = Math.min(sims[i], revSims[j]);
+						similarity = Math.min(similarity,maxSim);
+						maps.add(s,t,similarity);
+					}
+				}
+			}
+		}
+	}
 }
\ No newline at end of file
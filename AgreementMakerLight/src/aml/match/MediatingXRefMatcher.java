@@ -27,7 +27,7 @@ import aml.knowledge.MediatorOntology;
 import aml.ontology.Ontology;
 import aml.ontology.ReferenceMap;
 import aml.settings.EntityType;
-import aml.util.Table2Map;
+import aml.util.IntTable2Map;
 
 public class MediatingXRefMatcher extends MediatingMatcher
 {
@@ -44,8 +44,8 @@ public class MediatingXRefMatcher extends MediatingMatcher
 	//The weight used for matching and Lexicon extension
 	private final double WEIGHT = 0.95;
 	//The source and target alignments
-	Table2Map<Integer,Integer,Double> src;
-	Table2Map<Integer,Integer,Double> tgt;
+	IntTable2Map src;
+	IntTable2Map tgt;
 	
 //Constructors
 
@@ -88,9 +88,9 @@ public class MediatingXRefMatcher extends MediatingMatcher
 		Ontology source = aml.getSource();
 		if(src == null)
 			src = match(source,0.0);
-		for(Integer s : src.keySet())
+		for(int s : src.keySet())
 		{
-			for(Integer hit : src.keySet(s))
+			for(int hit : src.keySet(s))
 			{
 				Set<String> names = ext.getNames(hit);
 				for(String n : names)
@@ -103,9 +103,9 @@ public class MediatingXRefMatcher extends MediatingMatcher
 		Ontology target = aml.getTarget();
 		if(tgt == null)
 			tgt = match(target,0.0);
-		for(Integer s : tgt.keySet())
+		for(int s : tgt.keySet())
 		{
-			for(Integer hit : tgt.keySet(s))
+			for(int hit : tgt.keySet(s))
 			{
 				Set<String> names = ext.getNames(hit);
 				for(String n : names)
@@ -130,26 +130,7 @@ public class MediatingXRefMatcher extends MediatingMatcher
 		Ontology target = aml.getTarget();
 		src = match(source,thresh);
 		tgt = match(target,thresh);
-		//Reverse the target alignment table
-		Table2Map<Integer,Integer,Double> rev = new Table2Map<Integer,Integer,Double>();
-		for(Integer s : tgt.keySet())
-			for(Integer t : tgt.keySet(s))
-				rev.add(t, s, tgt.get(s, t));
-		Alignment maps = new Alignment();
-		for(Integer s : src.keySet())
-		{
-			for(Integer med : src.keySet(s))
-			{
-				if(!rev.contains(med))
-					continue;
-				for(Integer t : rev.keySet(med))
-				{
-					double similarity = Math.min(src.get(s, med), rev.get(med, t));
-					similarity = Math.min(similarity,WEIGHT);
-					maps.add(s,t,similarity);
-				}
-			}
-		}
+		Alignment maps = mediate(src,tgt,WEIGHT);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 		return maps;
@@ -157,9 +138,9 @@ public class MediatingXRefMatcher extends MediatingMatcher
 	
 //Private Methods
 	
-	private Table2Map<Integer,Integer,Double> match(Ontology o, double thresh)
+	private IntTable2Map match(Ontology o, double thresh)
 	{
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
+		IntTable2Map maps = new IntTable2Map();
 		if(rm != null)
 		{
 			Set<String> refs = rm.getReferences();
@@ -181,20 +162,22 @@ public class MediatingXRefMatcher extends MediatingMatcher
 			}
 		}
 		//Step 2 - Do a lexical match
-		Table2Map<Integer,Integer,Double> lex = match(o.getLexicon(),thresh);
+		IntTable2Map lex = match(o.getLexicon(),thresh);
 		
 		//Step 3 - Compare the two
 		//If the coverage of the lexical match is at least double
 		//the coverage of the xref match (such as when there are
 		//few or no xrefs) merge the two
-		if(lex.keySet().size() > maps.keySet().size() * 2)
+		if(lex.keyCount() > maps.keyCount() * 2)
 		{
-			for(Integer s : lex.keySet())
+			for(int s : lex.keySet())
 			{
 				if(maps.contains(s))
 					continue;
-				for(Integer t : lex.keySet(s))
-					maps.add(s, t, lex.get(s, t));
+				int[] targets = lex.keySet(s);
+				double[] sims = lex.values(s);
+				for(int i = 0; i < targets.length; i++)
+					maps.add(s, targets[i], sims[i]);
 			}
 		}
 		return maps;
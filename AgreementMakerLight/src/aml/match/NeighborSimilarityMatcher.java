@@ -19,19 +19,12 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
 import aml.AML;
 import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
 import aml.settings.NeighborSimilarityStrategy;
-import aml.util.Table2Set;
+import aml.util.IntSlice;
+import aml.util.IntTable2Set;
 
 public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 {
@@ -49,8 +42,6 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 	private Alignment input;
 	private NeighborSimilarityStrategy strat;
 	private boolean direct;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -60,7 +51,6 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		rels = aml.getRelationshipMap();
 		strat = NeighborSimilarityStrategy.MINIMUM;
 		direct = aml.directNeighbors();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 	public NeighborSimilarityMatcher(NeighborSimilarityStrategy s, boolean direct)
@@ -79,33 +69,37 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		System.out.println("Extending Alignment with Neighbor Similarity Matcher");
 		long time = System.currentTimeMillis()/1000;
 		input = a;
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < input.size(); i++)
 		{
 			Mapping m = input.get(i);
 			if(!aml.getURIMap().isClass(m.getSourceId()))
 				continue;
-			Set<Integer> sourceSubClasses = rels.getSubClasses(m.getSourceId(),true);
-			Set<Integer> targetSubClasses = rels.getSubClasses(m.getTargetId(),true);
-			for(Integer s : sourceSubClasses)
+			IntSlice sourceSubClasses = rels.getSubClassView(m.getSourceId(),true);
+			IntSlice targetSubClasses = rels.getSubClassView(m.getTargetId(),true);
+			for(int k = 0; k < sourceSubClasses.size(); k++)
 			{
+				int s = sourceSubClasses.get(k);
 				if(input.containsSource(s))
 					continue;
-				for(Integer t : targetSubClasses)
+				for(int l = 0; l < targetSubClasses.size(); l++)
 				{
+					int t = targetSubClasses.get(l);
 					if(input.containsTarget(t))
 						continue;
 					toMap.add(s, t);
 				}
 			}
-			Set<Integer> sourceSuperClasses = rels.getSuperClasses(m.getSourceId(),true);
-			Set<Integer> targetSuperClasses = rels.getSuperClasses(m.getTargetId(),true);
-			for(Integer s : sourceSuperClasses)
+			IntSlice sourceSuperClasses = rels.getSuperClassView(m.getSourceId(),true);
+			IntSlice targetSuperClasses = rels.getSuperClassView(m.getTargetId(),true);
+			for(int k = 0; k < sourceSuperClasses.size(); k++)
 			{
+				int s = sourceSuperClasses.get(k);
 				if(input.containsSource(s))
 					continue;
-				for(Integer t : targetSuperClasses)
+				for(int l = 0; l < targetSuperClasses.size(); l++)
 				{
+					int t = targetSuperClasses.get(l);
 					if(input.containsTarget(t))
 						continue;
 					toMap.add(s, t);
@@ -144,7 +138,7 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		long time = System.currentTimeMillis()/1000;
 		input = a;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			int sId = m.getSourceId();
@@ -179,40 +173,10 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, keeping only those above the threshold
+	private Alignment mapInParallel(IntTable2Set toMap, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		return new MappingTask(toMap,thresh).score();
 	}
 	
 	//Computes the neighbor structural similarity between two terms by
@@ -224,33 +188,41 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		if(!strat.equals(NeighborSimilarityStrategy.DESCENDANTS))
 		{
 			double parentTotal = 0.0;
-			Set<Integer> sourceParents = rels.getSuperClasses(sId,direct);
-			Set<Integer> targetParents = rels.getSuperClasses(tId,direct);
-			for(Integer i : sourceParents)
+			IntSlice sourceParents = rels.getSuperClassView(sId,direct);
+			IntSlice targetParents = rels.getSuperClassView(tId,direct);
+			for(int k = 0; k < sourceParents.size(); k++)
 			{
+				int i = sourceParents.get(k);
 				parentTotal += 0.5 / rels.getDistance(sId,i);
-				for(Integer j : targetParents)
+				for(int l = 0; l < targetParents.size(); l++)
+				{
+					int j = targetParents.get(l);
 					parentSim += input.getSimilarity(i,j) /
 						Math.sqrt(rels.getDistance(sId,i) * rels.getDistance(tId, j));
+				}
 			}
-			for(Integer i : targetParents)
-				parentTotal += 0.5 / rels.getDistance(tId,i);
+			for(int k = 0; k < targetParents.size(); k++)
+				parentTotal += 0.5 / rels.getDistance(tId,targetParents.get(k));
 			parentSim /= parentTotal;
 		}
 		if(!strat.equals(NeighborSimilarityStrategy.ANCESTORS))
 		{
 			double childrenTotal = 0.0;
-			Set<Integer> sourceChildren = rels.getSubClasses(sId,direct);
-			Set<Integer> targetChildren = rels.getSubClasses(tId,direct);
-			for(Integer i : sourceChildren)
+			IntSlice sourceChildren = rels.getSubClassView(sId,direct);
+			IntSlice targetChildren = rels.getSubClassView(tId,direct);
+			for(int k = 0; k < sourceChildren.size(); k++)
 			{
+				int i = sourceChildren.get(k);
 				childrenTotal += 0.5 / rels.getDistance(i,sId);
-				for(Integer j : targetChildren)
+				for(int l = 0; l < targetChildren.size(); l++)
+				{
+					int j = targetChildren.get(l);
 					childrenSim += input.getSimilarity(i,j) /
 						Math.sqrt(rels.getDistance(i,sId) * rels.getDistance(j,tId));
+				}
 			}
-			for(Integer i : targetChildren)
-				childrenTotal += 0.5 / rels.getDistance(i,tId);
+			for(int k = 0; k < targetChildren.size(); k++)
+				childrenTotal += 0.5 / rels.getDistance(targetChildren.get(k),tId);
 			childrenSim /= childrenTotal;
 		}
 		if(strat.equals(NeighborSimilarityStrategy.ANCESTORS))
@@ -265,22 +237,18 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			return (parentSim + childrenSim)*0.5;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//PairScorer class for mapping a table of classes
+	private class MappingTask extends PairScorer
 	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
+		MappingTask(IntTable2Set toMap, double thresh)
 	    {
-			source = s;
-	        target = t;
+			super(toMap,thresh);
 	    }
 	        
 	    @Override
-	    public Mapping call()
+	    protected double score(int sourceId, int targetId)
 	    {
-       		return new Mapping(source,target,mapTwoTerms(source,target));
-        }
+	    	return mapTwoTerms(sourceId,targetId);
+	    }
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Scores a batch of (source, target) pairs of entities in parallel, using the *
+* shared Scheduler. Each chunk of pairs keeps only the pairs that score above *
+* the threshold, so the memory used is proportional to the output rather      *
+* than to the number of pairs scored.                                         *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Collections;
+import java.util.Vector;
+
+import aml.util.IntTable2Set;
+import aml.util.Scheduler;
+
+public abstract class PairScorer implements Scheduler.Task
+{
+
+//Attributes
+
+	//The pairs of entities to score
+	private int[] sources;
+	private int[] targets;
+	//The similarity threshold
+	private double threshold;
+	//The results of each chunk of pairs scored
+	private Vector<Sink> sinks;
+
+//Constructors
+
+	/**
+	 * Constructs a new PairScorer for the given pairs of entities
+	 * @param sources: the indexes of the source entities to score
+	 * @param targets: the indexes of the target entities to score,
+	 * which are paired with the source entities by position
+	 * @param thresh: the similarity threshold
+	 */
+	public PairScorer(int[] sources, int[] targets, double thresh)
+	{
+		if(sources.length != targets.length)
+			throw new IllegalArgumentException("Source and target lists of different sizes");
+		this.sources = sources;
+		this.targets = targets;
+		threshold = thresh;
+	}
+
+	/**
+	 * Constructs a new PairScorer for the given table of entities
+	 * @param pairs: the table of source entities to target entities to score
+	 * @param thresh: the similarity threshold
+	 */
+	public PairScorer(IntTable2Set pairs, double thresh)
+	{
+		sources = new int[pairs.size()];
+		targets = new int[pairs.size()];
+		int k = 0;
+		for(int i : pairs.keySet())
+		{
+			for(int j : pairs.get(i))
+			{
+				sources[k] = i;
+				targets[k++] = j;
+			}
+		}
+		threshold = thresh;
+	}
+
+//Public Methods
+
+	/**
+	 * @return the similarity threshold
+	 */
+	public double getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Scores all pairs of entities in parallel
+	 * @return the Alignment with the pairs of entities that have a
+	 * similarity above the threshold, in the order they were given
+	 */
+	public Alignment score()
+	{
+		sinks = new Vector<Sink>();
+		Scheduler.run(sources.length, this);
+		Collections.sort(sinks);
+		Alignment maps = new Alignment();
+		for(Sink s : sinks)
+			for(int i = 0; i < s.size; i++)
+				maps.add(s.sources[i], s.targets[i], s.sims[i]);
+		sinks = null;
+		return maps;
+	}
+
+	@Override
+	public void run(int start, int end)
+	{
+		Sink s = new Sink(start);
+		for(int i = start; i < end; i++)
+		{
+			double sim = score(sources[i], targets[i]);
+			//Mappings round their similarity, so the check is done on the rounded value
+			if(Math.round(sim*10000)/10000.0 >= threshold)
+				s.add(sources[i], targets[i], sim);
+		}
+		sinks.add(s);
+	}
+
+//Protected Methods
+
+	/**
+	 * Computes the similarity between two entities
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @return the similarity between the entities
+	 */
+	protected abstract double score(int sourceId, int targetId);
+
+//Private Methods
+
+	//The pairs of entities above the threshold found in a chunk
+	private static class Sink implements Comparable<Sink>
+	{
+		private int start;
+		private int[] sources = new int[4];
+		private int[] targets = new int[4];
+		private double[] sims = new double[4];
+		private int size = 0;
+
+		private Sink(int start)
+		{
+			this.start = start;
+		}
+
+		private void add(int source, int target, double sim)
+		{
+			if(size == sims.length)
+			{
+				int[] auxS = new int[size * 2];
+				int[] auxT = new int[size * 2];
+				double[] auxSim = new double[size * 2];
+				System.arraycopy(sources, 0, auxS, 0, size);
+				System.arraycopy(targets, 0, auxT, 0, size);
+				System.arraycopy(sims, 0, auxSim, 0, size);
+				sources = auxS;
+				targets = auxT;
+				sims = auxSim;
+			}
+			sources[size] = source;
+			targets[size] = target;
+			sims[size++] = sim;
+		}
+
+		@Override
+		public int compareTo(Sink s)
+		{
+			return start - s.start;
+		}
+	}
+}
\ No newline at end of file
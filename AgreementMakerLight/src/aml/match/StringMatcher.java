@@ -16,23 +16,17 @@
 * classes, using one of the four available String similarity measures.        *
 *                                                                             *
 * WARNING: This matching algorithm takes O(N^2) time, and thus should be used *
-* either to match small ontologies or as a SecondaryMatcher.                  *
+* either to match small ontologies or as a SecondaryMatcher. With the ISub    *
+* measure, the PrimaryMatcher mode only scores pairs of entities whose names  *
+* share a 3-gram (as all other pairs have similarity 0).                      *
 *                                                                             *
 * @authors Daniel Faria, Cosmin Stroe                                         *
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
-import uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler;
-import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
-import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
 import aml.AML;
 import aml.ontology.Ontology;
 import aml.ontology.Lexicon;
@@ -44,7 +38,9 @@ import aml.settings.LexicalType;
 import aml.settings.MappingRelation;
 import aml.settings.StringSimMeasure;
 import aml.util.ISub;
-import aml.util.Table2Set;
+import aml.util.IntTable2Set;
+import aml.util.QGramIndex;
+import aml.util.StringSimilarity;
 
 public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatcher
 {
@@ -69,9 +65,12 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private StringSimMeasure measure = StringSimMeasure.ISUB;
 	//Correction factor (to make string similarity values comparable to word similarity values
 	//and thus enable their combination and proper selection; 0.8 is optimized for the ISub measure)
-	private final double CORRECTION = 0.80;
-	//The available CPU threads
-	private int threads;
+	private static final double CORRECTION = 0.80;
+	//Tolerance for rounding errors when pruning pairs by their maximum similarity
+	private static final double TOLERANCE = 0.000001;
+	//Half the rounding unit of mapping similarities (a pair whose similarity is
+	//this much below the threshold still reaches it once rounded, so it can't be pruned)
+	private static final double ROUNDING = 0.00005;
 
 //Constructors
 	
@@ -81,7 +80,6 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	 */
 	public StringMatcher()
 	{
-		threads = Runtime.getRuntime().availableProcessors();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -165,12 +163,27 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		Set<Integer> sources = sLex.getEntities(e);
 		Set<Integer> targets = tLex.getEntities(e);
 		Alignment a = new Alignment();
+		//With the ISub measure, pairs of names that don't share a 3-gram have
+		//similarity 0, so (with a positive threshold) we need only score the
+		//pairs of entities that have such names
+		QGramIndex index = null;
+		if(measure.equals(StringSimMeasure.ISUB) && thresh > 0)
+		{
+			index = new QGramIndex(3);
+			for(String n : tLex.getNames(e))
+				index.add(n);
+		}
 		for(Integer i : sources)
 		{
 			if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
 				continue;
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
-			for(Integer j : targets)
+			IntTable2Set toMap = new IntTable2Set();
+			Set<Integer> candidates;
+			if(index == null)
+				candidates = targets;
+			else
+				candidates = getCandidates(index, i, e, thresh);
+			for(Integer j : candidates)
 			{
 				if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
 						(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
@@ -192,7 +205,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		System.out.println("Computing String Similarity");
 		long time = System.currentTimeMillis()/1000;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -224,7 +237,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private Alignment extendChildrenAndParents(Alignment a, double thresh)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
@@ -261,7 +274,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private Alignment extendNeighbors(Alignment a, double thresh)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
@@ -330,7 +343,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private Alignment extendSiblings(Alignment a, double thresh)
 	{		
 		RelationshipMap rels = aml.getRelationshipMap();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
@@ -354,45 +367,41 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		return mapInParallel(toMap,thresh);
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Gets the target entities that can have a similarity above the threshold with
+	//the given source entity, i.e., those that have a name that shares a 3-gram
+	//with a name of the source entity and is not too dissimilar in length
+	private Set<Integer> getCandidates(QGramIndex index, int sId, EntityType e, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
+		HashSet<Integer> candidates = new HashSet<Integer>();
+		//Since Lexicon weights are at most 1, a pair of names can only
+		//produce a mapping above the threshold if their ISub is above this
+		double minSim = (thresh - ROUNDING) / CORRECTION - TOLERANCE;
+		for(String s : sLex.getNames(sId))
 		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
+			if(sLex.getTypes(s,sId).contains(LexicalType.FORMULA))
+				continue;
+			for(String t : index.getCandidates(s))
 			{
-				e.printStackTrace();
+				if(ISub.maxSimilarity(s.length(), t.length()) < minSim)
+					continue;
+				for(Integer j : tLex.getEntities(e,t))
+					if(!candidates.contains(j) && !tLex.getTypes(t,j).contains(LexicalType.FORMULA))
+						candidates.add(j);
 			}
 		}
-		return maps;
+		return candidates;
+	}
+	
+	//Maps a table of classes in parallel, keeping only those above the threshold
+	private Alignment mapInParallel(IntTable2Set toMap, double thresh)
+	{
+		return new MappingTask(toMap,thresh).score();
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
-	//pairwise comparison of all their names
-	private double mapTwoEntities(int sId, int tId)
+	//pairwise comparison of all their names (skipping the comparisons that
+	//can't reach either the rounded threshold or the current maximum similarity)
+	private double mapTwoEntities(int sId, int tId, double thresh)
 	{
 		double maxSim = 0.0;
 		double sim, weight;
@@ -417,7 +426,9 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 						if(tLex.getTypes(t,tId).contains(LexicalType.FORMULA))
 							continue;
 						sim = weight * tLex.getCorrectedWeight(t, tId, l);
-						sim *= stringSimilarity(s,t);
+						if(sim <= 0)
+							continue;
+						sim *= stringSimilarity(s,t,measure,minSimilarity(thresh,maxSim)/sim);
 						if(sim > maxSim)
 							maxSim = sim;
 					}
@@ -441,7 +452,9 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 					if(tLex.getTypes(t,tId).contains(LexicalType.FORMULA))
 						continue;
 					sim = weight * tLex.getCorrectedWeight(t, tId);
-					sim *= stringSimilarity(s,t);
+					if(sim <= 0)
+						continue;
+					sim *= stringSimilarity(s,t,measure,minSimilarity(thresh,maxSim)/sim);
 					if(sim > maxSim)
 						maxSim = sim;
 				}
@@ -450,47 +463,35 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		return maxSim;
 	}
 	
-	// Computes the string the similarity between two Strings
-	private double stringSimilarity(String s, String t)
+	//Computes the minimum similarity a pair of names must reach to matter
+	//for a pair of entities, given the threshold and the similarity found
+	//so far for them (only the former is checked on rounded similarities)
+	static double minSimilarity(double thresh, double maxSim)
 	{
-		double sim = 0.0;
-		if(measure.equals(StringSimMeasure.ISUB))
-			sim = ISub.stringSimilarity(s,t);
-		else if(measure.equals(StringSimMeasure.EDIT))
-		{
-			Levenshtein lv = new Levenshtein();
-			sim = lv.getSimilarity(s, t);
-		}
-		else if(measure.equals(StringSimMeasure.JW))
-		{
-			JaroWinkler jv = new JaroWinkler();
-			sim = jv.getSimilarity(s, t);
-		}
-		else if(measure.equals(StringSimMeasure.QGRAM))
-		{
-			QGramsDistance q = new QGramsDistance();
-			sim = q.getSimilarity(s, t);
-		}
+		return Math.max(thresh - ROUNDING, maxSim);
+	}
+	
+	// Computes the string the similarity between two Strings, or 0 if
+	// it can't reach the given minimum (corrected) similarity
+	static double stringSimilarity(String s, String t, StringSimMeasure m, double minSim)
+	{
+		double sim = StringSimilarity.stringSimilarity(s, t, m, minSim / CORRECTION - TOLERANCE);
 		sim *= CORRECTION;
 		return sim;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//PairScorer class for mapping a table of classes
+	private class MappingTask extends PairScorer
 	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
+		MappingTask(IntTable2Set toMap, double thresh)
 	    {
-			source = s;
-	        target = t;
+			super(toMap,thresh);
 	    }
 	        
 	    @Override
-	    public Mapping call()
+	    protected double score(int sourceId, int targetId)
 	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target));
-        }
+	    	return mapTwoEntities(sourceId,targetId,getThreshold());
+	    }
 	}
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import java.util.Vector;
 
 import aml.AML;
 import aml.ontology.Lexicon;
+import aml.ontology.LexiconOverlay;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LexicalType;
@@ -83,8 +84,8 @@ public class ThesaurusMatcher implements PrimaryMatcher
 		System.out.println("Running Thesaurus Matcher");
 		long time = System.currentTimeMillis()/1000;
 		AML aml = AML.getInstance();
-		Lexicon source = new Lexicon(aml.getSource().getLexicon());
-		Lexicon target = new Lexicon(aml.getTarget().getLexicon());
+		Lexicon source = new LexiconOverlay(aml.getSource().getLexicon());
+		Lexicon target = new LexiconOverlay(aml.getTarget().getLexicon());
 		extendLexicon(source,e,thresh);
 		extendLexicon(target,e,thresh);
 		Alignment a = match(source,target,e,thresh);
@@ -20,13 +20,7 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.match.Alignment;
@@ -36,8 +30,8 @@ import aml.ontology.Ontology;
 import aml.ontology.ValueMap;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
+import aml.util.IntTable2Set;
 import aml.util.NameSimilarity;
-import aml.util.Table2Set;
 
 public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 {
@@ -58,8 +52,6 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 	private ValueMap sVal;
 	private ValueMap tVal;
 	private NameSimilarity ns = null;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -73,7 +65,6 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		tLex = target.getLexicon();
 		sVal = source.getValueMap();
 		tVal = target.getValueMap();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 //Public Methods
@@ -109,7 +100,7 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		Alignment a = new Alignment();
 		for(Integer i : sources)
 		{
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+			IntTable2Set toMap = new IntTable2Set();
 			for(Integer j : targets)
 			{
 				if(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
@@ -131,7 +122,7 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		System.out.println("Computing Value-To-Lexicon Similarity");
 		long time = System.currentTimeMillis()/1000;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -160,40 +151,10 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, keeping only those above the threshold
+	private Alignment mapInParallel(IntTable2Set toMap, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j,thresh));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		return new MappingTask(toMap,thresh).score();
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
@@ -204,32 +165,26 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		for(String n1 : sLex.getNames(sId))
 			for(Integer td : tVal.getProperties(tId))
 				for(String tv : tVal.getValues(tId,td))
-					crossSim = Math.max(crossSim,ns.nameSimilarity(n1,tv,thresh));
+					crossSim = Math.max(crossSim,ns.nameSimilarity(n1,tv,Math.max(thresh,crossSim)));
 		for(String n2 : tLex.getNames(tId))
 			for(Integer sd : sVal.getProperties(sId))
 				for(String sv : sVal.getValues(sId,sd))
-					crossSim = Math.max(crossSim,ns.nameSimilarity(n2,sv,thresh));
+					crossSim = Math.max(crossSim,ns.nameSimilarity(n2,sv,Math.max(thresh,crossSim)));
 		return crossSim;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//PairScorer class for mapping a table of classes
+	private class MappingTask extends PairScorer
 	{
-		private int source;
-		private int target;
-		private double threshold;
-		
-		MappingTask(int s, int t, double thresh)
+		MappingTask(IntTable2Set toMap, double thresh)
 	    {
-			source = s;
-	        target = t;
-	        threshold = thresh;
+			super(toMap,thresh);
 	    }
 	        
 	    @Override
-	    public Mapping call()
+	    protected double score(int sourceId, int targetId)
 	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target,threshold));
-        }
+	    	return mapTwoEntities(sourceId,targetId,getThreshold());
+	    }
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
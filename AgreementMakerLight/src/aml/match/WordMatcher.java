@@ -19,18 +19,28 @@
 ******************************************************************************/
 package aml.match;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 import aml.AML;
 import aml.ontology.RelationshipMap;
 import aml.ontology.WordLexicon;
 import aml.settings.EntityType;
-import aml.settings.InstanceMatchingCategory;
 import aml.settings.MappingRelation;
 import aml.settings.WordMatchStrategy;
-import aml.util.Table2Map;
-import aml.util.Table2Set;
+import aml.util.Scheduler;
 
 public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 {
@@ -47,6 +57,16 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 	private WordLexicon targetLex;
 	private WordMatchStrategy strategy = WordMatchStrategy.AVERAGE;
 	private String language;
+	//The memory budget for matching (0 for unbounded matching)
+	private long memory = 0;
+	//The number of best targets kept per source entity in bounded matching
+	private final int TOP_K = 10;
+	//The (estimated) memory used by each candidate pair while scoring a block
+	private final int PAIR_BYTES = 40;
+	//The memory used by each mapping of a block result
+	private final int MAPPING_BYTES = 48;
+	//The minimum size of blocks in bounded matching
+	private final int MIN_BLOCK_SIZE = 1000;
 
 //Constructors
 	
@@ -156,7 +176,7 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 	}
 	
 	@Override
-	public Alignment match(EntityType e, double thresh) throws UnsupportedEntityTypeException
+	public Alignment match(final EntityType e, double thresh) throws UnsupportedEntityTypeException
 	{
 		checkEntityType(e);
 		AML aml = AML.getInstance();
@@ -174,11 +194,13 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 			targetLex = aml.getTarget().getWordLexicon(e);
 		}
 		System.out.println("Running Word Matcher");
+		if(memory > 0)
+			fitBlocks();
 		Alignment a = new Alignment();
 		//If the strategy is BY_CLASS, the alignment can be computed
 		//globally. Otherwise we need to compute a preliminary
 		//alignment and then rematch according to the strategy.
-		double t;
+		final double t;
 		if(strategy.equals(WordMatchStrategy.BY_CLASS))
 			t = thresh;
 		else
@@ -186,44 +208,38 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 		//Global matching is done by chunks so as not to overload the memory
 		System.out.println("Blocks to match: " + sourceLex.blockCount() +
 				"x" + targetLex.blockCount());
-		//Match each chunk of both WordLexicons
-		for(int i = 0; i < sourceLex.blockCount(); i++)
+		final WordScorer scorer = new WordScorer(sourceLex,targetLex);
+		if(memory > 0)
 		{
-			//The word table (words->String, class indexes->Integer) for the current block
-			Table2Set<String,Integer> sWLex = sourceLex.getWordTable(i);
-			for(int j = 0; j < targetLex.blockCount(); j++)
+			matchBounded(a, scorer, e, t, thresh);
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Finished in " + time + " seconds");
+			return a;
+		}
+		//Match each pair of chunks of both WordLexicons in parallel, keeping
+		//the mappings of each pair apart, so that they can be merged in the
+		//same order regardless of which pairs finish first
+		final int targetBlocks = targetLex.blockCount();
+		final Vector<Vector<Mapping>> blockMaps = new Vector<Vector<Mapping>>();
+		blockMaps.setSize(sourceLex.blockCount() * targetBlocks);
+		Scheduler.run(blockMaps.size(), new Scheduler.Task()
+		{
+			@Override
+			public void run(int start, int end)
 			{
-				//The word table (words->String, class indexes->Integer) for the current block
-				Table2Set<String,Integer> tWLex = targetLex.getWordTable(j);
-				Vector<Mapping> temp = matchBlocks(sWLex,tWLex,e,t);
-				//If the strategy is BY_CLASS, just add the alignment
-				if(strategy.equals(WordMatchStrategy.BY_CLASS))
-					a.addAll(temp);
-				//Otherwise, update the similarity according to the strategy
-				else
+				for(int k = start; k < end; k++)
 				{
-					for(Mapping m : temp)
-					{
-						//First compute the name similarity
-						double nameSim = nameSimilarity(m.getSourceId(),m.getTargetId());
-						//Then update the final similarity according to the strategy
-						double sim = m.getSimilarity();
-						if(strategy.equals(WordMatchStrategy.BY_NAME))
-							sim = nameSim;
-						else if(strategy.equals(WordMatchStrategy.AVERAGE))
-							sim = Math.sqrt(nameSim * sim);
-						else if(strategy.equals(WordMatchStrategy.MAXIMUM))
-							sim = Math.max(nameSim,sim);
-						else if(strategy.equals(WordMatchStrategy.MINIMUM))
-							sim = Math.min(nameSim,sim);
-						if(sim >= thresh)
-							a.add(m.getSourceId(),m.getTargetId(),sim);
-					}
+					blockMaps.set(k, scorer.score(k / targetBlocks, k % targetBlocks, e, t));
+					System.out.print(".");
 				}
-				System.out.print(".");
 			}
-			System.out.println();
-		}
+		});
+		System.out.println();
+		Vector<Mapping> temp = new Vector<Mapping>();
+		for(Vector<Mapping> maps : blockMaps)
+			if(maps != null)
+				temp.addAll(maps);
+		addMappings(a, temp, thresh);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 		return a;
@@ -248,19 +264,69 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 			targetLex = aml.getTarget().getWordLexicon(e);
 		}		
 		System.out.println("Computing Word Similarity");
-		Alignment maps = new Alignment();
+		final Vector<Mapping> input = new Vector<Mapping>();
 		for(Mapping m : a)
-		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
-				maps.add(mapTwoEntities(m.getSourceId(),m.getTargetId()));
-		}
+				input.add(m);
+		//Each thread rematches a chunk of the input mappings, adding
+		//the results directly to the AlignmentBuilder
+		final AlignmentBuilder builder = new AlignmentBuilder();
+		Scheduler.run(input.size(), new Scheduler.Task()
+		{
+			@Override
+			public void run(int start, int end)
+			{
+				for(int i = start; i < end; i++)
+					builder.add(mapTwoEntities(input.get(i).getSourceId(),input.get(i).getTargetId()));
+			}
+		});
+		Alignment maps = builder.build();
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 		return maps;
 	}
 	
+	/**
+	 * Sets the memory budget for matching, which makes the WordMatcher
+	 * adapt the size of the WordLexicon blocks to the budget, keep only
+	 * the best target mappings of each source entity, and store block
+	 * results in temporary files when they exceed half of the budget
+	 * @param bytes: the memory budget, in bytes (0 for unbounded matching)
+	 */
+	public void setMemoryBudget(long bytes)
+	{
+		memory = Math.max(0, bytes);
+	}
+	
 //Private Methods
 	
+	//Adds the preliminary mappings to the alignment, updating their similarity
+	//according to the strategy (in parallel) unless the strategy is BY_CLASS
+	private void addMappings(Alignment a, Vector<Mapping> temp, double thresh)
+	{
+		//If the strategy is BY_CLASS, just add the alignment
+		if(strategy.equals(WordMatchStrategy.BY_CLASS))
+			a.addAll(temp);
+		//Otherwise, update the similarity according to the strategy (in parallel)
+		else
+		{
+			final Mapping[] prelim = temp.toArray(new Mapping[temp.size()]);
+			final double[] sims = new double[prelim.length];
+			Scheduler.run(prelim.length, new Scheduler.Task()
+			{
+				@Override
+				public void run(int start, int end)
+				{
+					for(int i = start; i < end; i++)
+						sims[i] = rescore(prelim[i]);
+				}
+			});
+			for(int i = 0; i < prelim.length; i++)
+				if(sims[i] >= thresh)
+					a.add(prelim[i].getSourceId(),prelim[i].getTargetId(),sims[i]);
+		}
+	}
+	
 	private void checkEntityType(EntityType e) throws UnsupportedEntityTypeException
 	{
 		boolean check = false;
@@ -290,226 +356,219 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 			double weight = sourceLex.getWordEC(w) * sourceLex.getWordWeight(w,sourceId);
 			if(targetWords.contains(w))
 				intersection += Math.sqrt(weight * targetLex.getWordEC(w) *
-						targetLex.getWordWeight(w,targetId));
+					targetLex.getWordWeight(w,targetId));
 		}			
 		union -= intersection;
 		return intersection / union;
 	}
 	
-	private Alignment extendChildrenAndParents(Alignment a, double thresh)
+	private Alignment extendChildrenAndParents(final Alignment a, final double thresh)
 	{
-		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
-		Alignment ext = new Alignment();
-		for(int i = 0; i < a.size(); i++)
+		final AML aml = AML.getInstance();
+		final RelationshipMap rels = aml.getRelationshipMap();
+		//Each thread extends a chunk of the input mappings, adding
+		//the new mappings directly to the AlignmentBuilder
+		final AlignmentBuilder ext = new AlignmentBuilder();
+		Scheduler.run(a.size(), new Scheduler.Task()
 		{
-			Mapping input = a.get(i);
-			if(!aml.getURIMap().isClass(input.getSourceId()))
-				continue;
-			Set<Integer> sourceChildren = rels.getChildren(input.getSourceId());
-			Set<Integer> targetChildren = rels.getChildren(input.getTargetId());
-			for(Integer s : sourceChildren)
+			@Override
+			public void run(int start, int end)
 			{
-				if(a.containsSource(s) || !aml.getURIMap().isClass(s))
-					continue;
-				for(Integer t : targetChildren)
+				for(int i = start; i < end; i++)
 				{
-					if(!a.containsTarget(t))
+					Mapping input = a.get(i);
+					if(!aml.getURIMap().isClass(input.getSourceId()))
+						continue;
+					Set<Integer> sourceChildren = rels.getChildren(input.getSourceId());
+					Set<Integer> targetChildren = rels.getChildren(input.getTargetId());
+					for(Integer s : sourceChildren)
 					{
-						Mapping m = mapTwoEntities(s,t);
-						if(m.getSimilarity() >= thresh)
-							ext.add(m);
+						if(a.containsSource(s) || !aml.getURIMap().isClass(s))
+							continue;
+						for(Integer t : targetChildren)
+						{
+							if(!a.containsTarget(t))
+							{
+								Mapping m = mapTwoEntities(s,t);
+								if(m.getSimilarity() >= thresh)
+									ext.add(m);
+							}
+						}
 					}
-				}
-			}
-			Set<Integer> sourceParents = rels.getParents(input.getSourceId());
-			Set<Integer> targetParents = rels.getParents(input.getTargetId());
-			for(Integer s : sourceParents)
-			{
-				if(a.containsSource(s))
-					continue;
-				for(Integer t : targetParents)
-				{
-					if(!a.containsTarget(t))
+					Set<Integer> sourceParents = rels.getParents(input.getSourceId());
+					Set<Integer> targetParents = rels.getParents(input.getTargetId());
+					for(Integer s : sourceParents)
 					{
-						Mapping m = mapTwoEntities(s,t);
-						if(m.getSimilarity() >= thresh)
-							ext.add(m);
+						if(a.containsSource(s))
+							continue;
+						for(Integer t : targetParents)
+						{
+							if(!a.containsTarget(t))
+							{
+								Mapping m = mapTwoEntities(s,t);
+								if(m.getSimilarity() >= thresh)
+									ext.add(m);
+							}
+						}
 					}
 				}
 			}
-		}
-		return ext;
+		});
+		return ext.build();
 	}
 	
-	private Alignment extendNeighbors(Alignment a, double thresh)
+	private Alignment extendNeighbors(final Alignment a, final double thresh)
 	{
-		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
-		Alignment ext = new Alignment();
-		for(int i = 0; i < a.size(); i++)
+		final AML aml = AML.getInstance();
+		final RelationshipMap rels = aml.getRelationshipMap();
+		//Each thread extends a chunk of the input mappings, adding
+		//the new mappings directly to the AlignmentBuilder
+		final AlignmentBuilder ext = new AlignmentBuilder();
+		Scheduler.run(a.size(), new Scheduler.Task()
 		{
-			Mapping input = a.get(i);
-			if(!aml.getURIMap().isIndividual(input.getSourceId()))
-				continue;
-			Set<Integer> sourceChildren = rels.getIndividualActiveRelations(input.getSourceId());
-			Set<Integer> targetChildren = rels.getIndividualActiveRelations(input.getTargetId());
-			for(Integer s : sourceChildren)
+			@Override
+			public void run(int start, int end)
 			{
-				if(a.containsSource(s) || !aml.getURIMap().isIndividual(s))
-					continue;
-				for(Integer t : targetChildren)
+				for(int i = start; i < end; i++)
 				{
-					if(a.containsTarget(t))
+					Mapping input = a.get(i);
+					if(!aml.getURIMap().isIndividual(input.getSourceId()))
 						continue;
-					boolean checkRels = false;
-					for(Integer r1 : rels.getIndividualProperties(input.getSourceId(), s))
+					Set<Integer> sourceChildren = rels.getIndividualActiveRelations(input.getSourceId());
+					Set<Integer> targetChildren = rels.getIndividualActiveRelations(input.getTargetId());
+					for(Integer s : sourceChildren)
 					{
-						if(checkRels)
-							break;
-						for(Integer r2 : rels.getIndividualProperties(input.getTargetId(), t))
+						if(a.containsSource(s) || !aml.getURIMap().isIndividual(s))
+							continue;
+						for(Integer t : targetChildren)
 						{
-							if(r1 == r2 || a.contains(r1, r2, MappingRelation.EQUIVALENCE))
+							if(a.containsTarget(t))
+								continue;
+							boolean checkRels = false;
+							for(Integer r1 : rels.getIndividualProperties(input.getSourceId(), s))
 							{
-								checkRels = true;
-								break;
+								if(checkRels)
+									break;
+								for(Integer r2 : rels.getIndividualProperties(input.getTargetId(), t))
+								{
+									if(r1 == r2 || a.contains(r1, r2, MappingRelation.EQUIVALENCE))
+									{
+										checkRels = true;
+										break;
+									}
+								}
+							}
+							if(checkRels)
+							{
+								Mapping m = mapTwoEntities(s,t);
+								if(m.getSimilarity() >= thresh)
+									ext.add(m);
 							}
 						}
 					}
-					if(checkRels)
-					{
-						Mapping m = mapTwoEntities(s,t);
-						if(m.getSimilarity() >= thresh)
-							ext.add(m);
-					}
-				}
-			}
-			Set<Integer> sourceParents = rels.getIndividualPassiveRelations(input.getSourceId());
-			Set<Integer> targetParents = rels.getIndividualPassiveRelations(input.getTargetId());
-			for(Integer s : sourceParents)
-			{
-				if(a.containsSource(s))
-					continue;
-				for(Integer t : targetParents)
-				{
-					if(a.containsTarget(t))
-						continue;
-					boolean checkRels = false;
-					for(Integer r1 : rels.getIndividualProperties(s, input.getSourceId()))
+					Set<Integer> sourceParents = rels.getIndividualPassiveRelations(input.getSourceId());
+					Set<Integer> targetParents = rels.getIndividualPassiveRelations(input.getTargetId());
+					for(Integer s : sourceParents)
 					{
-						if(checkRels)
-							break;
-						for(Integer r2 : rels.getIndividualProperties(t, input.getTargetId()))
+						if(a.containsSource(s))
+							continue;
+						for(Integer t : targetParents)
 						{
-							if(r1 == r2 || a.contains(r1, r2, MappingRelation.EQUIVALENCE))
+							if(a.containsTarget(t))
+								continue;
+							boolean checkRels = false;
+							for(Integer r1 : rels.getIndividualProperties(s, input.getSourceId()))
 							{
-								checkRels = true;
-								break;
+								if(checkRels)
+									break;
+								for(Integer r2 : rels.getIndividualProperties(t, input.getTargetId()))
+								{
+									if(r1 == r2 || a.contains(r1, r2, MappingRelation.EQUIVALENCE))
+									{
+										checkRels = true;
+										break;
+									}
+								}
+							}
+							if(checkRels)
+							{
+								Mapping m = mapTwoEntities(s,t);
+								if(m.getSimilarity() >= thresh)
+									ext.add(m);
 							}
 						}
 					}
-					if(checkRels)
-					{
-						Mapping m = mapTwoEntities(s,t);
-						if(m.getSimilarity() >= thresh)
-							ext.add(m);
-					}
 				}
 			}
-		}
-		return ext;
+		});
+		return ext.build();
 	}
 	
-	private Alignment extendSiblings(Alignment a, double thresh)
+	private Alignment extendSiblings(final Alignment a, final double thresh)
 	{		
-		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
-		Alignment ext = new Alignment();
-		for(int i = 0; i < a.size(); i++)
+		final AML aml = AML.getInstance();
+		final RelationshipMap rels = aml.getRelationshipMap();
+		//Each thread extends a chunk of the input mappings, adding
+		//the new mappings directly to the AlignmentBuilder
+		final AlignmentBuilder ext = new AlignmentBuilder();
+		Scheduler.run(a.size(), new Scheduler.Task()
 		{
-			Mapping input = a.get(i);
-			if(!aml.getURIMap().isClass(input.getSourceId()))
-				continue;
-			Set<Integer> sourceSiblings = rels.getAllSiblings(input.getSourceId());
-			Set<Integer> targetSiblings = rels.getAllSiblings(input.getTargetId());
-			if(sourceSiblings.size() > 200 || targetSiblings.size() > 200)
-				continue;
-			for(Integer s : sourceSiblings)
+			@Override
+			public void run(int start, int end)
 			{
-				if(a.containsSource(s))
-					continue;
-				for(Integer t : targetSiblings)
+				for(int i = start; i < end; i++)
 				{
-					if(!a.containsTarget(t))
+					Mapping input = a.get(i);
+					if(!aml.getURIMap().isClass(input.getSourceId()))
+						continue;
+					Set<Integer> sourceSiblings = rels.getAllSiblings(input.getSourceId());
+					Set<Integer> targetSiblings = rels.getAllSiblings(input.getTargetId());
+					if(sourceSiblings.size() > 200 || targetSiblings.size() > 200)
+						continue;
+					for(Integer s : sourceSiblings)
 					{
-						Mapping m = mapTwoEntities(s,t);
-						if(m.getSimilarity() >= thresh)
-							ext.add(m);
+						if(a.containsSource(s))
+							continue;
+						for(Integer t : targetSiblings)
+						{
+							if(!a.containsTarget(t))
+							{
+								Mapping m = mapTwoEntities(s,t);
+								if(m.getSimilarity() >= thresh)
+									ext.add(m);
+							}
+						}
 					}
 				}
 			}
-		}
-		return ext;
+		});
+		return ext.build();
 	}
 	
-	//Matches two WordLexicon blocks by class.
-	//Used by match() method either to compute the final BY_CLASS alignment
-	//or to compute a preliminary alignment which is then refined according
-	//to the WordMatchStrategy.
-	private Vector<Mapping> matchBlocks(Table2Set<String,Integer> sWLex,
-			Table2Set<String,Integer> tWLex, EntityType e, double thresh)
+	//Sets the size of the blocks of both WordLexicons so that the candidate
+	//pairs of the blocks scored at the same time fit in half of the budget
+	//(the other half is left for the block results)
+	private void fitBlocks()
 	{
-		AML aml = AML.getInstance();
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
-		//To minimize iterations, we want to iterate through the smallest Lexicon
-		boolean sourceIsSmaller = (sWLex.keyCount() <= tWLex.keyCount());
-		Set<String> words;
-		if(sourceIsSmaller)
-			words = sWLex.keySet();
-		else
-			words = tWLex.keySet();
-		
-		for(String s : words)
-		{
-			Set<Integer> sourceIndexes = sWLex.get(s);
-			Set<Integer> targetIndexes = tWLex.get(s);
-			if(sourceIndexes == null || targetIndexes == null)
-				continue;
-			double ec = sourceLex.getWordEC(s) * targetLex.getWordEC(s);
-			for(Integer i : sourceIndexes)
-			{
-				if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
-					continue;
-				double sim = ec * sourceLex.getWordWeight(s,i);
-				for(Integer j : targetIndexes)
-				{
-					if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
-							(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
-							!aml.getRelationshipMap().shareClass(i,j))))
-						continue;
-					double finalSim = Math.sqrt(sim * targetLex.getWordWeight(s,j));
-					Double previousSim = maps.get(i,j);
-					if(previousSim == null)
-						previousSim = 0.0;
-					finalSim += previousSim;
-					maps.add(i,j,finalSim);
-				}
-			}
-		}
-		Set<Integer> sources = maps.keySet();
-		Vector<Mapping> a = new Vector<Mapping>();
-		for(Integer i : sources)
+		int sourceCount = sourceLex.getEntities().size();
+		int targetCount = targetLex.getEntities().size();
+		//Estimate the number of candidate pairs by the number of entities
+		//sharing each word (which overestimates pairs sharing many words)
+		double pairs = 0;
+		for(String w : sourceLex.getWords())
+			if(targetLex.getWordEC(w) > -1)
+				pairs += 1.0 * sourceLex.getEntityCount(w) * targetLex.getEntityCount(w);
+		int max = Math.max(Math.max(sourceCount, targetCount), MIN_BLOCK_SIZE);
+		int size = max;
+		if(pairs > 0)
 		{
-			Set<Integer> targets = maps.keySet(i);
-			for(Integer j : targets)
-			{
-				double sim = maps.get(i,j);
-				sim /= sourceLex.getEntityEC(i) + targetLex.getEntityEC(j) - sim;
-				if(sim >= thresh)
-					a.add(new Mapping(i, j, sim));
-			}
+			double blockPairs = memory / 2.0 / (Scheduler.getParallelism() * PAIR_BYTES);
+			double s = Math.sqrt(blockPairs * sourceCount * targetCount / pairs);
+			if(s < max)
+				size = Math.max(MIN_BLOCK_SIZE, (int)s);
 		}
-		return a;
+		sourceLex.setBlockSize(size);
+		targetLex.setBlockSize(size);
 	}
 	
 	//Maps two classes according to the selected strategy.
@@ -547,6 +606,64 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 		return new Mapping(sourceId,targetId,sim);
 	}
 
+	//Matches the WordLexicons keeping only the TOP_K targets of each source
+	//entity in each block result, storing block results in temporary files
+	//when they exceed half of the budget, and then merges the results of each
+	//source block (keeping again only the TOP_K targets) into the alignment
+	//(a block result that can't be stored is kept in memory instead, but one
+	//that can't be read back fails the matching, as its mappings are lost)
+	private void matchBounded(Alignment a, final WordScorer scorer, final EntityType e,
+			final double t, double thresh)
+	{
+		final int targetBlocks = targetLex.blockCount();
+		final BlockResult[] results = new BlockResult[sourceLex.blockCount() * targetBlocks];
+		final AtomicLong retained = new AtomicLong(0);
+		Scheduler.run(results.length, new Scheduler.Task()
+		{
+			@Override
+			public void run(int start, int end)
+			{
+				for(int k = start; k < end; k++)
+				{
+					results[k] = new BlockResult(topTargets(scorer.score(k / targetBlocks, k % targetBlocks, e, t)));
+					if(retained.addAndGet(results[k].bytes()) > memory / 2)
+					{
+						try
+						{
+							long bytes = results[k].bytes();
+							results[k].spill();
+							retained.addAndGet(-bytes);
+						}
+						catch(IOException x)
+						{
+							System.out.println("Warning: could not store block result in a temporary file");
+							x.printStackTrace();
+						}
+					}
+					System.out.print(".");
+				}
+			}
+		});
+		System.out.println();
+		for(int i = 0; i < results.length; i += targetBlocks)
+		{
+			Vector<Mapping> temp = new Vector<Mapping>();
+			for(int j = i; j < i + targetBlocks; j++)
+			{
+				try
+				{
+					temp.addAll(results[j].load());
+				}
+				catch(IOException x)
+				{
+					throw new RuntimeException("Could not read block result from temporary file", x);
+				}
+				results[j] = null;
+			}
+			addMappings(a, topTargets(temp), thresh);
+		}
+	}
+	
 	//Computes the maximum word-based (bag-of-words) similarity between
 	//two classes' names, for use by both match() and rematch()
 	private double nameSimilarity(int sourceId, int targetId)
@@ -582,4 +699,130 @@ public class WordMatcher implements PrimaryMatcher, SecondaryMatcher, Rematcher
 		union -= intersection;
 		return intersection/union;
 	}
+	
+	//Filters a list of mappings, keeping only the mappings of each source entity
+	//with one of the TOP_K highest similarities (and in the same order)
+	private Vector<Mapping> topTargets(Vector<Mapping> maps)
+	{
+		Vector<Mapping> sorted = new Vector<Mapping>(maps);
+		Collections.sort(sorted, new Comparator<Mapping>()
+		{
+			@Override
+			public int compare(Mapping m1, Mapping m2)
+			{
+				if(m1.getSourceId() != m2.getSourceId())
+					return m1.getSourceId() < m2.getSourceId() ? -1 : 1;
+				return Double.compare(m2.getSimilarity(), m1.getSimilarity());
+			}
+		});
+		//Find the lowest similarity kept for each source entity
+		HashMap<Integer,Double> cutoffs = new HashMap<Integer,Double>();
+		int count = 0;
+		for(int i = 0; i < sorted.size(); i++)
+		{
+			Mapping m = sorted.get(i);
+			if(i == 0 || sorted.get(i-1).getSourceId() != m.getSourceId())
+				count = 0;
+			if(++count <= TOP_K)
+				cutoffs.put(m.getSourceId(), m.getSimilarity());
+		}
+		Vector<Mapping> top = new Vector<Mapping>();
+		for(Mapping m : maps)
+			if(m.getSimilarity() >= cutoffs.get(m.getSourceId()))
+				top.add(m);
+		return top;
+	}
+	
+	//Updates the similarity of a mapping from the preliminary alignment
+	//according to the strategy. Used by match() only.
+	private double rescore(Mapping m)
+	{
+		//First compute the name similarity
+		double nameSim = nameSimilarity(m.getSourceId(),m.getTargetId());
+		//Then update the final similarity according to the strategy
+		double sim = m.getSimilarity();
+		if(strategy.equals(WordMatchStrategy.BY_NAME))
+			sim = nameSim;
+		else if(strategy.equals(WordMatchStrategy.AVERAGE))
+			sim = Math.sqrt(nameSim * sim);
+		else if(strategy.equals(WordMatchStrategy.MAXIMUM))
+			sim = Math.max(nameSim,sim);
+		else if(strategy.equals(WordMatchStrategy.MINIMUM))
+			sim = Math.min(nameSim,sim);
+		return sim;
+	}
+	
+	//The mappings of a block, kept in memory or stored in a temporary file
+	private class BlockResult
+	{
+		private Vector<Mapping> maps;
+		private File file;
+		private int size;
+		
+		public BlockResult(Vector<Mapping> maps)
+		{
+			this.maps = maps;
+			size = maps.size();
+		}
+		
+		//The memory used by the mappings, if they are in memory
+		public long bytes()
+		{
+			if(maps == null)
+				return 0;
+			return (long)size * MAPPING_BYTES;
+		}
+		
+		//Returns the mappings, reading them (and deleting the file) if stored
+		public Vector<Mapping> load() throws IOException
+		{
+			if(maps != null)
+				return maps;
+			Vector<Mapping> loaded = new Vector<Mapping>(size);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try
+			{
+				for(int i = 0; i < size; i++)
+					loaded.add(new Mapping(in.readInt(),in.readInt(),in.readDouble()));
+			}
+			finally
+			{
+				in.close();
+				file.delete();
+			}
+			return loaded;
+		}
+		
+		//Stores the mappings in a temporary file, releasing them from memory
+		//(if they can't be stored, they are kept in memory and the file deleted)
+		public void spill() throws IOException
+		{
+			File f = File.createTempFile("aml_words", ".bin");
+			f.deleteOnExit();
+			try
+			{
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+				try
+				{
+					for(Mapping m : maps)
+					{
+						out.writeInt(m.getSourceId());
+						out.writeInt(m.getTargetId());
+						out.writeDouble(m.getSimilarity());
+					}
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+			catch(IOException x)
+			{
+				f.delete();
+				throw x;
+			}
+			file = f;
+			maps = null;
+		}
+	}
 }
\ No newline at end of file
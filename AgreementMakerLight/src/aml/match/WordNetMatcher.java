@@ -27,6 +27,7 @@ import aml.AML;
 import aml.ext.LexiconExtender;
 import aml.knowledge.WordNet;
 import aml.ontology.Lexicon;
+import aml.ontology.LexiconOverlay;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LexicalType;
@@ -103,8 +104,8 @@ public class WordNetMatcher implements PrimaryMatcher, LexiconExtender
 		System.out.println("Running WordNet Matcher");
 		long time = System.currentTimeMillis()/1000;
 		AML aml = AML.getInstance();
-		Lexicon source = new Lexicon(aml.getSource().getLexicon());
-		Lexicon target = new Lexicon(aml.getTarget().getLexicon());
+		Lexicon source = new LexiconOverlay(aml.getSource().getLexicon());
+		Lexicon target = new LexiconOverlay(aml.getTarget().getLexicon());
 		extendLexicon(source,e,thresh);
 		extendLexicon(target,e,thresh);
 		Alignment a = match(source,target,e,thresh);
@@ -0,0 +1,338 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Scores pairs of entities from a block of two WordLexicons by their weighted *
+* Jaccard word similarity, using the word tables as inverted indexes. Words   *
+* are processed from the most to the least informative (by EC), and once the  *
+* words left for an entity can't bring any new pair with it up to the         *
+* threshold, the entity only updates the pairs it is already in, which avoids *
+* the cross products of the postings of common words.                         *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.AML;
+import aml.ontology.RelationshipMap;
+import aml.ontology.WordLexicon;
+import aml.settings.EntityType;
+import aml.settings.InstanceMatchingCategory;
+import aml.util.LongIntMap;
+import aml.util.Table2Set;
+
+public class WordScorer
+{
+
+//Attributes
+
+	//Tolerance for rounding errors in the word EC left for each entity
+	private static final double TOLERANCE = 0.000000001;
+	private WordLexicon sourceLex;
+	private WordLexicon targetLex;
+
+//Constructors
+
+	/**
+	 * Constructs a new WordScorer for the given WordLexicons
+	 * @param sourceLex: the source WordLexicon
+	 * @param targetLex: the target WordLexicon
+	 */
+	public WordScorer(WordLexicon sourceLex, WordLexicon targetLex)
+	{
+		this.sourceLex = sourceLex;
+		this.targetLex = targetLex;
+	}
+
+//Public Methods
+
+	/**
+	 * Scores the pairs of entities from a block of each WordLexicon that
+	 * share words, keeping those with similarity above the threshold.
+	 * The similarity is the weighted Jaccard index of their words, where
+	 * each shared word contributes sqrt(EC_s*EC_t*weight_s*weight_t) to
+	 * the intersection, and the union is EC(source)+EC(target)-intersection
+	 * @param sourceBlock: the block of the source WordLexicon to score
+	 * @param targetBlock: the block of the target WordLexicon to score
+	 * @param e: the EntityType of the WordLexicons
+	 * @param thresh: the similarity threshold
+	 * @return the list of Mappings above the threshold, sorted by source
+	 * and then target index
+	 */
+	public Vector<Mapping> score(int sourceBlock, int targetBlock, EntityType e, double thresh)
+	{
+		Table2Set<String,Integer> sWLex = sourceLex.getWordTable(sourceBlock);
+		Table2Set<String,Integer> tWLex = targetLex.getWordTable(targetBlock);
+		//Get the words shared by both blocks, sorted by descending EC
+		Set<String> words;
+		if(sWLex.keyCount() <= tWLex.keyCount())
+			words = sWLex.keySet();
+		else
+			words = tWLex.keySet();
+		Vector<String> shared = new Vector<String>();
+		for(String w : words)
+			if(sWLex.contains(w) && tWLex.contains(w))
+				shared.add(w);
+		final String[] sorted = shared.toArray(new String[shared.size()]);
+		final double[] ecs = new double[sorted.length];
+		for(int k = 0; k < sorted.length; k++)
+			ecs[k] = sourceLex.getWordEC(sorted[k]) * targetLex.getWordEC(sorted[k]);
+		Integer[] order = new Integer[sorted.length];
+		for(int k = 0; k < order.length; k++)
+			order[k] = k;
+		Arrays.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer k, Integer l)
+			{
+				if(ecs[k] != ecs[l])
+					return ecs[k] > ecs[l] ? -1 : 1;
+				return sorted[k].compareTo(sorted[l]);
+			}
+		});
+		//Build the postings of each word, with local entity indexes
+		Postings sources = new Postings(sourceLex, sWLex, sorted, order, true, e);
+		Postings targets = new Postings(targetLex, tWLex, sorted, order, false, e);
+		Accumulator acc = new Accumulator(sources.count(), e);
+		//An entity stays open to new pairs while the EC of its words left
+		//is at least 4c^2 times its EC, where c = thresh/(1+thresh)
+		//(see Postings.isOpen)
+		double c = thresh / (1 + thresh);
+		double minFraction = 4 * c * c;
+		//Marks the targets in the posting of the current word
+		int[] mark = new int[targets.count()];
+		Arrays.fill(mark, -1);
+		double[] markWeight = new double[targets.count()];
+		int[] openTargets = new int[targets.count()];
+		for(int k = 0; k < order.length; k++)
+		{
+			int[] sPost = sources.entities[k];
+			double[] sWeights = sources.weights[k];
+			int[] tPost = targets.entities[k];
+			double[] tWeights = targets.weights[k];
+			int open = 0;
+			for(int l = 0; l < tPost.length; l++)
+			{
+				mark[tPost[l]] = k;
+				markWeight[tPost[l]] = tWeights[l];
+				if(targets.isOpen(tPost[l], minFraction))
+					openTargets[open++] = tPost[l];
+			}
+			for(int l = 0; l < sPost.length; l++)
+			{
+				int i = sPost[l];
+				double sim = ecs[order[k]] * sWeights[l];
+				boolean sourceOpen = sources.isOpen(i, minFraction);
+				//If the source is open, its pairs with open targets may be new
+				if(sourceOpen)
+					for(int m = 0; m < open; m++)
+						acc.add(i, openTargets[m], Math.sqrt(sim * markWeight[openTargets[m]]),
+								sources.ids[i], targets.ids[openTargets[m]]);
+				//Otherwise, only the pairs it already is in are updated
+				for(int m = 0; m < acc.candidateCount[i]; m++)
+				{
+					int p = acc.candidates[i][m];
+					int j = acc.targets[p];
+					if(mark[j] == k && !(sourceOpen && targets.isOpen(j, minFraction)))
+						acc.scores[p] += Math.sqrt(sim * markWeight[j]);
+				}
+			}
+			sources.consume(k);
+			targets.consume(k);
+		}
+		//Normalize the scores and keep those above the threshold
+		Vector<Mapping> maps = new Vector<Mapping>();
+		Integer[] pairs = new Integer[acc.size];
+		for(int p = 0; p < acc.size; p++)
+			pairs[p] = p;
+		final int[] pairSources = new int[acc.size];
+		final int[] pairTargets = new int[acc.size];
+		for(int p = 0; p < acc.size; p++)
+		{
+			pairSources[p] = sources.ids[acc.sources[p]];
+			pairTargets[p] = targets.ids[acc.targets[p]];
+		}
+		Arrays.sort(pairs, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer p, Integer q)
+			{
+				if(pairSources[p] != pairSources[q])
+					return pairSources[p] < pairSources[q] ? -1 : 1;
+				if(pairTargets[p] != pairTargets[q])
+					return pairTargets[p] < pairTargets[q] ? -1 : 1;
+				return 0;
+			}
+		});
+		for(Integer p : pairs)
+		{
+			double sim = acc.scores[p];
+			sim /= sources.ec[acc.sources[p]] + targets.ec[acc.targets[p]] - sim;
+			if(sim >= thresh)
+				maps.add(new Mapping(pairSources[p], pairTargets[p], sim));
+		}
+		return maps;
+	}
+
+//Private Methods
+
+	//The postings of the shared words in a block of a WordLexicon, by order
+	//of processing, along with the EC of the words left for each entity
+	private static class Postings
+	{
+		//The entity ids, by local index
+		private int[] ids;
+		//The EC of each entity, and the EC of its shared words left to process
+		private double[] ec;
+		private double[] left;
+		//The local indexes of the entities of each word, and their word weights
+		private int[][] entities;
+		private double[][] weights;
+		//The EC of each word in this WordLexicon
+		private double[] wordECs;
+
+		private Postings(WordLexicon lex, Table2Set<String,Integer> table, String[] words,
+				Integer[] order, boolean source, EntityType e)
+		{
+			AML aml = AML.getInstance();
+			HashMap<Integer,Integer> local = new HashMap<Integer,Integer>();
+			Vector<Integer> idList = new Vector<Integer>();
+			entities = new int[order.length][];
+			weights = new double[order.length][];
+			wordECs = new double[order.length];
+			for(int k = 0; k < order.length; k++)
+			{
+				String w = words[order[k]];
+				wordECs[k] = lex.getWordEC(w);
+				Set<Integer> post = table.get(w);
+				int[] ents = new int[post.size()];
+				double[] wts = new double[post.size()];
+				int n = 0;
+				for(Integer i : post)
+				{
+					if(e.equals(EntityType.INDIVIDUAL) &&
+							!(source ? aml.isToMatchSource(i) : aml.isToMatchTarget(i)))
+						continue;
+					Integer l = local.get(i);
+					if(l == null)
+					{
+						l = idList.size();
+						local.put(i, l);
+						idList.add(i);
+					}
+					ents[n] = l;
+					wts[n++] = lex.getWordWeight(w, i);
+				}
+				entities[k] = Arrays.copyOf(ents, n);
+				weights[k] = Arrays.copyOf(wts, n);
+			}
+			ids = new int[idList.size()];
+			ec = new double[ids.length];
+			left = new double[ids.length];
+			for(int i = 0; i < ids.length; i++)
+			{
+				ids[i] = idList.get(i);
+				ec[i] = lex.getEntityEC(ids[i]);
+			}
+			for(int k = 0; k < order.length; k++)
+				for(int l = 0; l < entities[k].length; l++)
+					left[entities[k][l]] += wordECs[k] * weights[k][l];
+		}
+
+		//Marks the k-th word as processed for all its entities
+		private void consume(int k)
+		{
+			for(int l = 0; l < entities[k].length; l++)
+				left[entities[k][l]] -= wordECs[k] * weights[k][l];
+		}
+
+		private int count()
+		{
+			return ids.length;
+		}
+
+		//Checks whether an entity can still be in a new pair above the threshold.
+		//For a new pair (i,j), only the words left can be shared, so its score is
+		//at most sqrt(left_i*left_j) (by the Cauchy-Schwarz inequality), and it is
+		//above the threshold only if the score is at least c*(EC_i+EC_j), which is
+		//at least 2c*sqrt(EC_i*EC_j). As left_j <= EC_j, this requires that
+		//left_i >= 4c^2*EC_i, and likewise for j
+		private boolean isOpen(int i, double minFraction)
+		{
+			return left[i] + TOLERANCE >= minFraction * ec[i];
+		}
+	}
+
+	//The scores of the pairs of entities, indexed by their local indexes
+	private static class Accumulator
+	{
+		//The local indexes and scores of the pairs, by order of creation
+		private int[] sources = new int[16];
+		private int[] targets = new int[16];
+		private double[] scores = new double[16];
+		private int size = 0;
+		//The index of each pair
+		private LongIntMap index = new LongIntMap();
+		//The pairs of each source entity
+		private int[][] candidates;
+		private int[] candidateCount;
+		//Whether pairs of individuals must share a class
+		private boolean sameClasses;
+		private RelationshipMap rels;
+
+		private Accumulator(int sourceCount, EntityType e)
+		{
+			candidates = new int[sourceCount][];
+			candidateCount = new int[sourceCount];
+			AML aml = AML.getInstance();
+			sameClasses = e.equals(EntityType.INDIVIDUAL) &&
+					aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES);
+			rels = aml.getRelationshipMap();
+		}
+
+		//Adds to the score of a pair, creating it if it doesn't exist
+		private void add(int i, int j, double score, int sourceId, int targetId)
+		{
+			long key = LongIntMap.key(i, j);
+			int p = index.get(key);
+			if(p != LongIntMap.NONE)
+			{
+				scores[p] += score;
+				return;
+			}
+			if(sameClasses && !rels.shareClass(sourceId, targetId))
+				return;
+			if(size == scores.length)
+			{
+				sources = Arrays.copyOf(sources, size * 2);
+				targets = Arrays.copyOf(targets, size * 2);
+				scores = Arrays.copyOf(scores, size * 2);
+			}
+			sources[size] = i;
+			targets[size] = j;
+			scores[size] = score;
+			index.put(key, size);
+			if(candidates[i] == null)
+				candidates[i] = new int[4];
+			else if(candidateCount[i] == candidates[i].length)
+				candidates[i] = Arrays.copyOf(candidates[i], candidateCount[i] * 2);
+			candidates[i][candidateCount[i]++] = size++;
+		}
+	}
+}
\ No newline at end of file
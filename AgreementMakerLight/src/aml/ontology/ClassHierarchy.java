@@ -0,0 +1,334 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* An immutable snapshot of the relationships between classes in a             *
+* RelationshipMap, in compressed sparse row form: the ancestors (and the      *
+* descendants) of each class are kept in sorted int arrays, with parallel     *
+* arrays for the distance and property of each relationship, so that it can   *
+* be queried by multiple threads without locking or copying.                  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.util.IntSlice;
+import aml.util.Table3List;
+
+public class ClassHierarchy
+{
+
+//Attributes
+
+	//The value that matches any distance or property in filtered queries
+	public static final int ANY = Integer.MIN_VALUE;
+	//The ancestors and descendants of each class
+	private final Rows ancestors;
+	private final Rows descendants;
+
+//Constructors
+
+	/**
+	 * Builds a snapshot of the given relationships between classes
+	 * @param ancestorClasses: the table of ancestors (Class -> Ancestor -> Relationship)
+	 * @param descendantClasses: the table of descendants (Class -> Descendant -> Relationship)
+	 */
+	public ClassHierarchy(Table3List<Integer,Integer,Relationship> ancestorClasses,
+			Table3List<Integer,Integer,Relationship> descendantClasses)
+	{
+		int max = -1;
+		for(Integer i : ancestorClasses.keySet())
+			max = Math.max(max, i);
+		for(Integer i : descendantClasses.keySet())
+			max = Math.max(max, i);
+		ancestors = new Rows(ancestorClasses, max);
+		descendants = new Rows(descendantClasses, max);
+	}
+
+//Public Methods
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return whether there is a relationship between child and parent
+	 */
+	public boolean contains(int child, int parent)
+	{
+		return ancestors.first(child, parent) > -1;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @return a view of the ancestors of the class (through any relationship)
+	 */
+	public IntSlice getAncestors(int classId)
+	{
+		return ancestors.all.get(classId);
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @param distance: the distance between the class and its ancestors (or ANY)
+	 * @param prop: the property between the class and its ancestors (or ANY)
+	 * @return the (modifiable) set of ancestors of the class with the given
+	 * distance and property
+	 */
+	public Set<Integer> getAncestors(int classId, int distance, int prop)
+	{
+		return ancestors.select(classId, distance, prop);
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @return a view of the descendants of the class (through any relationship)
+	 */
+	public IntSlice getDescendants(int classId)
+	{
+		return descendants.all.get(classId);
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @param distance: the distance between the class and its descendants (or ANY)
+	 * @param prop: the property between the class and its descendants (or ANY)
+	 * @return the (modifiable) set of descendants of the class with the given
+	 * distance and property
+	 */
+	public Set<Integer> getDescendants(int classId, int distance, int prop)
+	{
+		return descendants.select(classId, distance, prop);
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return the minimal distance between the child and parent,
+	 * or -1 if they aren't related
+	 */
+	public int getDistance(int child, int parent)
+	{
+		int i = ancestors.first(child, parent);
+		if(i < 0)
+			return -1;
+		//Relationships between the same classes are sorted by distance
+		return ancestors.distances[i];
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @param direct: whether to return all subclasses or just the direct ones
+	 * @return a view of the direct or indirect 'is_a' descendants of the class
+	 */
+	public IntSlice getSubClasses(int classId, boolean direct)
+	{
+		if(direct)
+			return descendants.direct.get(classId);
+		return descendants.isA.get(classId);
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the snapshot
+	 * @param direct: whether to return all superclasses or just the direct ones
+	 * @return a view of the direct or indirect 'is_a' ancestors of the class
+	 */
+	public IntSlice getSuperClasses(int classId, boolean direct)
+	{
+		if(direct)
+			return ancestors.direct.get(classId);
+		return ancestors.isA.get(classId);
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @param prop: the property to search
+	 * @return whether there is a relationship between child and parent
+	 * with the given property
+	 */
+	public boolean hasProperty(int child, int parent, int prop)
+	{
+		int i = ancestors.first(child, parent);
+		if(i < 0)
+			return false;
+		for(; i < ancestors.end(child) && ancestors.ids[i] == parent; i++)
+			if(ancestors.properties[i] == prop)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return whether there is an 'is_a' relationship between child and parent
+	 */
+	public boolean isSubclass(int child, int parent)
+	{
+		return ancestors.isA.get(child).contains(parent);
+	}
+
+	//A list of sorted ids for each class
+	private static class Lists
+	{
+		private final int[] offsets;
+		private final int[] ids;
+
+		public Lists(int[] offsets, int[] ids)
+		{
+			this.offsets = offsets;
+			this.ids = ids;
+		}
+
+		public IntSlice get(int classId)
+		{
+			if(classId < 0 || classId >= offsets.length - 1)
+				return IntSlice.EMPTY;
+			return new IntSlice(ids, offsets[classId], offsets[classId+1]);
+		}
+	}
+
+	//The relationships of each class, sorted by related class then distance,
+	//along with the lists of related classes through any relationship, through
+	//'is_a' relationships, and through direct 'is_a' relationships
+	private static class Rows
+	{
+		private final int[] offsets;
+		private final int[] ids;
+		private final int[] distances;
+		private final int[] properties;
+		private final Lists all;
+		private final Lists isA;
+		private final Lists direct;
+
+		public Rows(Table3List<Integer,Integer,Relationship> table, int max)
+		{
+			Comparator<Relationship> byDistance = new Comparator<Relationship>()
+			{
+				@Override
+				public int compare(Relationship r1, Relationship r2)
+				{
+					return r1.getDistance() - r2.getDistance();
+				}
+			};
+			int total = 0;
+			int related = 0;
+			for(Integer c : table.keySet())
+			{
+				for(Integer r : table.keySet(c))
+				{
+					related++;
+					total += table.get(c,r).size();
+				}
+			}
+			offsets = new int[max+2];
+			ids = new int[total];
+			distances = new int[total];
+			properties = new int[total];
+			int[] allOffsets = new int[max+2];
+			int[] allIds = new int[related];
+			int[] isAOffsets = new int[max+2];
+			int[] isAIds = new int[related];
+			int[] directOffsets = new int[max+2];
+			int[] directIds = new int[related];
+			int pos = 0, allPos = 0, isAPos = 0, directPos = 0;
+			for(int c = 0; c <= max; c++)
+			{
+				offsets[c] = pos;
+				allOffsets[c] = allPos;
+				isAOffsets[c] = isAPos;
+				directOffsets[c] = directPos;
+				if(!table.contains(c))
+					continue;
+				Set<Integer> keys = table.keySet(c);
+				int[] sorted = new int[keys.size()];
+				int k = 0;
+				for(Integer r : keys)
+					sorted[k++] = r;
+				Arrays.sort(sorted);
+				for(int r : sorted)
+				{
+					allIds[allPos++] = r;
+					Vector<Relationship> rels = new Vector<Relationship>(table.get(c,r));
+					Collections.sort(rels, byDistance);
+					boolean isa = false, dir = false;
+					for(Relationship rel : rels)
+					{
+						ids[pos] = r;
+						distances[pos] = rel.getDistance();
+						properties[pos] = rel.getProperty();
+						pos++;
+						if(rel.getProperty() == -1)
+						{
+							isa = true;
+							dir = dir || rel.getDistance() == 1;
+						}
+					}
+					if(isa)
+						isAIds[isAPos++] = r;
+					if(dir)
+						directIds[directPos++] = r;
+				}
+			}
+			offsets[max+1] = pos;
+			allOffsets[max+1] = allPos;
+			isAOffsets[max+1] = isAPos;
+			directOffsets[max+1] = directPos;
+			all = new Lists(allOffsets, allIds);
+			isA = new Lists(isAOffsets, Arrays.copyOf(isAIds, isAPos));
+			direct = new Lists(directOffsets, Arrays.copyOf(directIds, directPos));
+		}
+
+		//The position after the last relationship of a class
+		public int end(int classId)
+		{
+			return offsets[classId+1];
+		}
+
+		//The position of the first relationship between two classes, or -1
+		public int first(int classId, int related)
+		{
+			if(classId < 0 || classId >= offsets.length - 1)
+				return -1;
+			int low = offsets[classId];
+			int high = offsets[classId+1] - 1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(ids[mid] < related)
+					low = mid + 1;
+				else
+					high = mid - 1;
+			}
+			if(low < offsets[classId+1] && ids[low] == related)
+				return low;
+			return -1;
+		}
+
+		public HashSet<Integer> select(int classId, int distance, int prop)
+		{
+			HashSet<Integer> set = new HashSet<Integer>();
+			if(classId < 0 || classId >= offsets.length - 1)
+				return set;
+			for(int i = offsets[classId]; i < offsets[classId+1]; i++)
+				if((distance == ANY || distances[i] == distance) && (prop == ANY || properties[i] == prop))
+					set.add(ids[i]);
+			return set;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* An index of the disjoint clauses in a RelationshipMap that are inherited by *
+* each class through 'is_a' relationships. The classes with disjoint clauses  *
+* (the roots) are numbered, and each class has two bitsets of roots: those    *
+* that are the class or its superclasses, and those that are disjoint with    *
+* any of the former. Two classes are disjoint if the second bitset of one     *
+* intersects the first bitset of the other.                                   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.util.IntSlice;
+import aml.util.Table2Set;
+
+public class DisjointIndex
+{
+
+//Attributes
+
+	//The classes with disjoint clauses, by number, and the number of each one
+	private Vector<Integer> roots;
+	private HashMap<Integer,Integer> number;
+	//The roots that are each class (by id) or its superclasses
+	private BitSet[] ancestors;
+	//The roots that are disjoint with the above
+	private BitSet[] disjoint;
+
+//Constructors
+
+	/**
+	 * Builds the index of the given disjoint clauses, which are inherited
+	 * through the current 'is_a' relationships of the RelationshipMap
+	 * @param disjointMap: the table of disjoint clauses (in both directions)
+	 * @param rels: the RelationshipMap with the relationships between classes
+	 */
+	public DisjointIndex(Table2Set<Integer,Integer> disjointMap, RelationshipMap rels)
+	{
+		roots = new Vector<Integer>();
+		number = new HashMap<Integer,Integer>();
+		ancestors = new BitSet[0];
+		disjoint = new BitSet[0];
+		for(Integer r : disjointMap.keySet())
+		{
+			int n = number(r);
+			BitSet partners = new BitSet();
+			for(Integer q : disjointMap.get(r))
+				partners.set(number(q));
+			IntSlice subClasses = rels.getSubClassView(r,false);
+			inherit(r, n, partners);
+			for(int i = 0; i < subClasses.size(); i++)
+				inherit(subClasses.get(i), n, partners);
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * Updates the index with a new disjoint clause
+	 * @param class1: the id of the first disjoint class
+	 * @param class2: the id of the second disjoint class
+	 * @param rels: the RelationshipMap with the relationships between classes
+	 */
+	public void add(int class1, int class2, RelationshipMap rels)
+	{
+		int n1 = number(class1);
+		int n2 = number(class2);
+		BitSet partners = new BitSet();
+		partners.set(n2);
+		IntSlice subClasses = rels.getSubClassView(class1,false);
+		inherit(class1, n1, partners);
+		for(int i = 0; i < subClasses.size(); i++)
+			inherit(subClasses.get(i), n1, partners);
+		partners = new BitSet();
+		partners.set(n1);
+		subClasses = rels.getSubClassView(class2,false);
+		inherit(class2, n2, partners);
+		for(int i = 0; i < subClasses.size(); i++)
+			inherit(subClasses.get(i), n2, partners);
+	}
+
+	/**
+	 * @param class1: the id of the first class to check
+	 * @param class2: the id of the second class to check
+	 * @return whether class1 or any of its superclasses are disjoint
+	 * with class2 or any of its superclasses
+	 */
+	public boolean areDisjoint(int class1, int class2)
+	{
+		BitSet d = get(disjoint, class1);
+		BitSet a = get(ancestors, class2);
+		return d != null && a != null && d.intersects(a);
+	}
+
+	/**
+	 * @param classes1: the ids of the first group of classes
+	 * @param classes2: the ids of the second group of classes
+	 * @return whether any class in the first group is disjoint with
+	 * any class in the second group (see areDisjoint(int,int))
+	 */
+	public boolean areDisjoint(int[] classes1, int[] classes2)
+	{
+		BitSet d = new BitSet();
+		for(int c : classes1)
+		{
+			BitSet b = get(disjoint, c);
+			if(b != null)
+				d.or(b);
+		}
+		if(d.isEmpty())
+			return false;
+		for(int c : classes2)
+		{
+			BitSet b = get(ancestors, c);
+			if(b != null && d.intersects(b))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return the (modifiable) set of classes disjoint with the given class
+	 * or any of its superclasses
+	 */
+	public Set<Integer> getDisjoint(int classId)
+	{
+		HashSet<Integer> set = new HashSet<Integer>();
+		BitSet d = get(disjoint, classId);
+		if(d == null)
+			return set;
+		for(int n = d.nextSetBit(0); n >= 0; n = d.nextSetBit(n+1))
+			set.add(roots.get(n));
+		return set;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return whether the class or any of its superclasses
+	 * have disjoint clauses
+	 */
+	public boolean hasDisjoint(int classId)
+	{
+		return get(ancestors, classId) != null;
+	}
+
+//Private Methods
+
+	//Returns the bitset of a class, or null if it has none
+	private BitSet get(BitSet[] sets, int classId)
+	{
+		if(classId < 0 || classId >= sets.length)
+			return null;
+		return sets[classId];
+	}
+
+	//Records that a class inherits a root and its disjoint roots
+	private void inherit(int classId, int root, BitSet partners)
+	{
+		if(classId >= ancestors.length)
+		{
+			int size = Math.max(classId + 1, ancestors.length * 2);
+			ancestors = Arrays.copyOf(ancestors, size);
+			disjoint = Arrays.copyOf(disjoint, size);
+		}
+		if(ancestors[classId] == null)
+		{
+			ancestors[classId] = new BitSet();
+			disjoint[classId] = new BitSet();
+		}
+		ancestors[classId].set(root);
+		disjoint[classId].or(partners);
+	}
+
+	//Returns the number of a root, numbering it if it is new
+	private int number(int classId)
+	{
+		Integer n = number.get(classId);
+		if(n == null)
+		{
+			n = roots.size();
+			number.put(classId, n);
+			roots.add(classId);
+		}
+		return n;
+	}
+}
@@ -19,6 +19,7 @@
 ******************************************************************************/
 package aml.ontology;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -27,9 +28,11 @@ import java.util.Vector;
 
 import aml.AML;
 import aml.util.Table3List;
+import aml.util.Table3ListOverlay;
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
 import aml.util.MapSorter;
+import aml.util.Scheduler;
 import aml.util.StringParser;
 
 
@@ -46,6 +49,9 @@ public class Lexicon
 	private HashMap<String,Integer> langCount;
 	//The URIMap
 	private URIMap uris;
+	//The frozen indexes of the tables, by EntityType (null if the Lexicon
+	//changed since it was last frozen)
+	private volatile LexiconIndex[] frozen;
 	
 //Constructors
 
@@ -70,16 +76,39 @@ public class Lexicon
 	 * Creates a new Lexicon that is a copy of the given Lexicon
 	 * @param l: the Lexicon to copy
 	 */
-	@SuppressWarnings("unchecked")
 	public Lexicon(Lexicon l)
+	{
+		this(l, false);
+	}
+	
+	/**
+	 * Creates a new Lexicon that is either a copy of the given Lexicon or
+	 * an overlay that shares its entries rather than copying them, and
+	 * keeps only the entries added to it (see LexiconOverlay)
+	 * @param l: the Lexicon to copy or overlay
+	 * @param overlay: whether to overlay the Lexicon (in which case it
+	 * must not change while this Lexicon is in use)
+	 */
+	@SuppressWarnings("unchecked")
+	protected Lexicon(Lexicon l, boolean overlay)
 	{
 		uris = AML.getInstance().getURIMap();
 		entityNames = new Table3List[EntityType.values().length];
 		for(int i = 0; i < entityNames.length; i++)
-			entityNames[i] = new Table3List<String,Integer,Provenance>(l.entityNames[i]);
+		{
+			if(overlay)
+				entityNames[i] = new Table3ListOverlay<String,Integer,Provenance>(l.entityNames[i]);
+			else
+				entityNames[i] = new Table3List<String,Integer,Provenance>(l.entityNames[i]);
+		}
 		nameEntities = new Table3List[EntityType.values().length];
 		for(int i = 0; i < nameEntities.length; i++)
-			nameEntities[i] = new Table3List<Integer,String,Provenance>(l.nameEntities[i]);
+		{
+			if(overlay)
+				nameEntities[i] = new Table3ListOverlay<Integer,String,Provenance>(l.nameEntities[i]);
+			else
+				nameEntities[i] = new Table3List<Integer,String,Provenance>(l.nameEntities[i]);
+		}
 		langCount = new HashMap<String,Integer>(l.langCount);
 	}
 	
@@ -103,52 +132,49 @@ public class Lexicon
 		if(language.length() > 2)
 			language = language.substring(0, 2);
 
-		String s;
-		Provenance p;
-
 		//Get the type of the entity
 		EntityType e = uris.getType(id);
-		int index = getIndex(e);
-
-		//If the name is not in english we parse it as a formula
-		if(!language.equals("en"))
-		{
-			s = StringParser.normalizeFormula(name);
-			p = new Provenance(type, source, language, weight);
-		}
-		//Otherwise
-		else
+		boolean formula = isFormula(name, language);
+		String s = normalize(name, language, formula, e);
+		if(s == null)
+			return;
+		add(id, s, new Provenance(formula ? LexicalType.FORMULA : type, source, language, weight));
+	}
+	
+	/**
+	 * Adds a batch of new entries to the Lexicon, normalizing their names in
+	 * parallel and then adding them in the order of the batch (so the Lexicon
+	 * is the same as if they were added one at a time)
+	 * @param b: the batch of entries to add
+	 */
+	public void addAll(final LexiconBatch b)
+	{
+		final String[] names = new String[b.size()];
+		final Provenance[] provs = new Provenance[b.size()];
+		Scheduler.run(b.size(), new Scheduler.Task()
 		{
-			//If it doesn't contain Latin characters, don't add it
-			if(!name.matches(".*[a-zA-Z].*"))
-				return;
-			//If it is a formula, parse it and label it as such
-			else if(StringParser.isFormula(name))
-			{
-				s = StringParser.normalizeFormula(name);
-				p = new Provenance(LexicalType.FORMULA, source, language, weight);
-			}
-			//If it is a property, parse it as such
-			else if(e.equals(EntityType.DATA) || e.equals(EntityType.OBJECT))
+			@Override
+			public void run(int start, int end)
 			{
-				s = StringParser.normalizeProperty(name);
-				p = new Provenance(type, source, language, weight);
-			}
-			//Otherwise, parse it normally
-			else
-			{
-				s = StringParser.normalizeName(name);
-				p = new Provenance(type, source, language, weight);
+				for(int i = start; i < end; i++)
+				{
+					String name = b.getName(i);
+					if(name == null || name.equals(""))
+						continue;
+					String language = b.getLanguage(i);
+					if(language.length() > 2)
+						language = language.substring(0, 2);
+					boolean formula = isFormula(name, language);
+					names[i] = normalize(name, language, formula, uris.getType(b.getId(i)));
+					if(names[i] != null)
+						provs[i] = new Provenance(formula ? LexicalType.FORMULA : b.getType(i),
+								b.getSource(i), language, b.getWeight(i));
+				}
 			}
-		}
-		//Then update the tables
-		entityNames[index].add(s,id,p);
-		nameEntities[index].add(id,s,p);
-		Integer i = langCount.get(language);
-		if(i == null)
-			langCount.put(language, 1);
-		else
-			langCount.put(language, i+1);
+		});
+		for(int i = 0; i < names.length; i++)
+			if(names[i] != null)
+				add(b.getId(i), names[i], provs[i]);
 	}
 	
 	/**
@@ -158,6 +184,9 @@ public class Lexicon
 	 */
 	public boolean contains(EntityType e, String name)
 	{
+		LexiconIndex x = frozen(getIndex(e));
+		if(x != null)
+			return x.contains(name);
 		return entityNames[getIndex(e)].contains(name);
 	}
 	
@@ -168,6 +197,9 @@ public class Lexicon
 	 */
 	public boolean contains(int id, String name)
 	{
+		LexiconIndex x = frozen(getIndex(uris.getType(id)));
+		if(x != null)
+			return x.contains(id, name);
 		return nameEntities[getIndex(uris.getType(id))].contains(id, name);
 	}
 	
@@ -218,6 +250,9 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e, String name)
 	{
+		LexiconIndex x = frozen(getIndex(e));
+		if(x != null)
+			return x.entityCount(name);
 		return entityNames[getIndex(e)].entryCount(name);
 	}
 	
@@ -267,6 +302,9 @@ public class Lexicon
 	 */
 	public int getBestEntity(EntityType e, String name, boolean internal)
 	{
+		LexiconIndex x = frozen(getIndex(e));
+		if(x != null)
+			return x.getBestEntity(name, internal);
 		Set<Integer> hits;
 		if(internal)
 			hits = getInternalEntities(e,name);
@@ -340,6 +378,9 @@ public class Lexicon
 	{
 		EntityType e = uris.getType(id);
 		int index = getIndex(e);
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.getCorrectedWeight(name, id);
 		if(!entityNames[index].contains(name, id))
 			return 0.0;
 		double weight = 0.0;
@@ -367,6 +408,9 @@ public class Lexicon
 	{
 		EntityType e = uris.getType(id);
 		int index = getIndex(e);
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.getCorrectedWeight(name, id, lang);
 		Vector<Provenance> provs = entityNames[index].get(name, id);
 		if(provs == null)
 			return 0.0;
@@ -642,6 +686,9 @@ public class Lexicon
 	public LexicalType getType(String name, int id)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.getType(name, id);
 		LexicalType type = null;
 		double weight = 0.0;
 		for(Provenance p : entityNames[index].get(name, id))
@@ -680,6 +727,9 @@ public class Lexicon
 	public double getWeight(String name, int id)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.getWeight(name, id);
 		double weight = 0.0;
 		if(nameEntities[index].contains(id,name))
 		{
@@ -699,6 +749,9 @@ public class Lexicon
 	public double getWeight(String name, int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.getWeight(name, id, lang);
 		if(!entityNames[index].contains(name, id))
 			return 0.0;
 		Vector<Provenance> provs = entityNames[index].get(name, id);
@@ -748,6 +801,9 @@ public class Lexicon
 	public boolean isExternal(String name, int id)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.isExternal(name, id);
 		if(nameEntities[index].contains(id,name))
 		{
 			Vector<Provenance> provs = nameEntities[index].get(id, name);
@@ -769,6 +825,9 @@ public class Lexicon
 	public boolean isExternal(String name, int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.isExternal(name, id, lang);
 		if(!entityNames[index].contains(name,id))
 			return false;
 		Vector<Provenance> provs = entityNames[index].get(name, id);
@@ -778,6 +837,21 @@ public class Lexicon
 		return false;
 	}
 	
+	/**
+	 * Compiles the tables of the Lexicon into a frozen index, from which
+	 * the weights, types and counts of its entries are then read, until
+	 * the Lexicon is changed (this should be done after Lexicon extension,
+	 * before matching)
+	 */
+	public void freeze()
+	{
+		frozen = null;
+		LexiconIndex[] f = new LexiconIndex[nameEntities.length];
+		for(int i = 0; i < f.length; i++)
+			f[i] = new LexiconIndex(this, nameEntities[i]);
+		frozen = f;
+	}
+	
 	/**
 	 * @param name: the name to search in the Lexicon
 	 * @return whether the name is a formula
@@ -803,6 +877,9 @@ public class Lexicon
 	public int nameCount(int id)
 	{
 		int index = getIndex(uris.getType(id));
+		LexiconIndex x = frozen(index);
+		if(x != null)
+			return x.nameCount(id);
 		return nameEntities[index].entryCount(id);
 	}
 	
@@ -813,6 +890,9 @@ public class Lexicon
 	 */
 	public int nameCount(int id, LexicalType type)
 	{
+		LexiconIndex x = frozen(getIndex(uris.getType(id)));
+		if(x != null)
+			return x.nameCount(id, type);
 		return getNames(id,type).size();
 	}
 	
@@ -848,15 +928,135 @@ public class Lexicon
 		return size;
 	}
 	
+//Package Methods
+	
+	//Reads the entries of the Lexicon from a snapshot (see save)
+	void load(OntologySnapshot s) throws IOException
+	{
+		frozen = null;
+		for(int i = 0; i < nameEntities.length; i++)
+		{
+			int ids = s.readInt();
+			for(int j = 0; j < ids; j++)
+			{
+				int id = s.readInt();
+				int names = s.readInt();
+				for(int k = 0; k < names; k++)
+				{
+					String n = s.readString();
+					int provs = s.readInt();
+					for(int l = 0; l < provs; l++)
+						nameEntities[i].add(id, n, s.readProvenance());
+				}
+			}
+			int names = s.readInt();
+			for(int j = 0; j < names; j++)
+			{
+				String n = s.readString();
+				ids = s.readInt();
+				for(int k = 0; k < ids; k++)
+				{
+					int id = s.readInt();
+					for(Provenance p : nameEntities[i].get(id, n))
+						entityNames[i].add(n, id, p);
+				}
+			}
+		}
+		s.readMap(langCount);
+	}
+	
+	//Writes the entries of the Lexicon to a snapshot: the table of names of
+	//each entity, with the provenances, and then the order of the entities
+	//of each name, as both tables share the provenances
+	void save(OntologySnapshot s) throws IOException
+	{
+		for(int i = 0; i < nameEntities.length; i++)
+		{
+			s.writeInt(nameEntities[i].keyCount());
+			for(Integer id : nameEntities[i].keySet())
+			{
+				s.writeInt(id);
+				Set<String> names = nameEntities[i].keySet(id);
+				s.writeInt(names.size());
+				for(String n : names)
+				{
+					s.writeString(n);
+					Vector<Provenance> provs = nameEntities[i].get(id, n);
+					s.writeInt(provs.size());
+					for(Provenance p : provs)
+						s.writeProvenance(p);
+				}
+			}
+			s.writeInt(entityNames[i].keyCount());
+			for(String n : entityNames[i].keySet())
+			{
+				s.writeString(n);
+				Set<Integer> ids = entityNames[i].keySet(n);
+				s.writeInt(ids.size());
+				for(Integer id : ids)
+					s.writeInt(id);
+			}
+		}
+		s.writeMap(langCount);
+	}
 	
 //Private Methods
 	
+	//Adds an entry with a normalized name to the tables
+	private void add(int id, String s, Provenance p)
+	{
+		int index = getIndex(uris.getType(id));
+		frozen = null;
+		entityNames[index].add(s,id,p);
+		nameEntities[index].add(id,s,p);
+		Integer i = langCount.get(p.getLanguage());
+		if(i == null)
+			langCount.put(p.getLanguage(), 1);
+		else
+			langCount.put(p.getLanguage(), i+1);
+	}
+	
+	//Returns the frozen index of the given EntityType, or null if the
+	//Lexicon isn't frozen
+	private LexiconIndex frozen(int index)
+	{
+		LexiconIndex[] f = frozen;
+		if(f == null)
+			return null;
+		return f[index];
+	}
+	
 	private int getIndex(EntityType e)
 	{
-		EntityType[] types = EntityType.values();
-		for(int i = 0; i < types.length; i++)
-			if(types[i].equals(e))
-				return i;
-		return -1;
+		return e.ordinal();
+	}
+	
+	//Checks whether a name with the given language is a formula (which is
+	//only the case for names in English with Latin characters), so that it
+	//is parsed and labeled as such
+	private static boolean isFormula(String name, String language)
+	{
+		return language.equals("en") && StringParser.hasLetter(name) && StringParser.isFormula(name);
+	}
+	
+	//Normalizes a name with the given language (and whether it is a formula,
+	//see isFormula) for an entity of the given EntityType, or returns null
+	//if the name is not to be added
+	private static String normalize(String name, String language, boolean formula, EntityType e)
+	{
+		//If the name is not in english we parse it as a formula
+		if(!language.equals("en"))
+			return StringParser.normalizeFormula(name);
+		//If it doesn't contain Latin characters, don't add it
+		if(!StringParser.hasLetter(name))
+			return null;
+		//If it is a formula, parse it as such
+		if(formula)
+			return StringParser.normalizeFormula(name);
+		//If it is a property, parse it as such
+		if(e.equals(EntityType.DATA) || e.equals(EntityType.OBJECT))
+			return StringParser.normalizeProperty(name);
+		//Otherwise, parse it normally
+		return StringParser.normalizeName(name);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,150 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A list of entries to add to a Lexicon, as they were read from an ontology   *
+* (before their names are normalized), which is added to the Lexicon all at   *
+* once (see Lexicon.addAll).                                                  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+
+import aml.settings.LexicalType;
+
+public class LexiconBatch
+{
+
+//Attributes
+
+	//The index, name, language, type, source and weight of each entry
+	private int[] ids;
+	private String[] names;
+	private String[] languages;
+	private LexicalType[] types;
+	private String[] sources;
+	private double[] weights;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty LexiconBatch
+	 */
+	public LexiconBatch()
+	{
+		ids = new int[64];
+		names = new String[64];
+		languages = new String[64];
+		types = new LexicalType[64];
+		sources = new String[64];
+		weights = new double[64];
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a new entry to the batch (see Lexicon.add)
+	 * @param id: the numerical index of the entry to add
+	 * @param name: the name of the entry to add
+	 * @param language: the language of the entry to add
+	 * @param type: the LexicalType of the entry to add (localName, label, etc)
+	 * @param source: the source of the entry (ontology URI, etc)
+	 * @param weight: the numeric weight of the entry, in [0.0,1.0]
+	 */
+	public void add(int id, String name, String language, LexicalType type, String source, double weight)
+	{
+		if(size == ids.length)
+		{
+			int length = size * 2;
+			ids = Arrays.copyOf(ids, length);
+			names = Arrays.copyOf(names, length);
+			languages = Arrays.copyOf(languages, length);
+			types = Arrays.copyOf(types, length);
+			sources = Arrays.copyOf(sources, length);
+			weights = Arrays.copyOf(weights, length);
+		}
+		ids[size] = id;
+		names[size] = name;
+		languages[size] = language;
+		types[size] = type;
+		sources[size] = source;
+		weights[size] = weight;
+		size++;
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the index of the entry
+	 */
+	public int getId(int i)
+	{
+		return ids[i];
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the language of the entry
+	 */
+	public String getLanguage(int i)
+	{
+		return languages[i];
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the name of the entry
+	 */
+	public String getName(int i)
+	{
+		return names[i];
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the source of the entry
+	 */
+	public String getSource(int i)
+	{
+		return sources[i];
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the LexicalType of the entry
+	 */
+	public LexicalType getType(int i)
+	{
+		return types[i];
+	}
+
+	/**
+	 * @param i: the position of the entry in the batch
+	 * @return the weight of the entry
+	 */
+	public double getWeight(int i)
+	{
+		return weights[i];
+	}
+
+	/**
+	 * @return the number of entries in the batch
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
@@ -0,0 +1,392 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A frozen index of the entries of one EntityType in a Lexicon. Names are     *
+* numbered, and the (entity, name) entries are kept in CSR form by entity,    *
+* with the best weight, corrected weight, best type, lexical types and        *
+* externality of each entry computed once, as are the weights of each of its  *
+* provenances (one per language). The entries of each name are listed in CSR  *
+* form as well. The answers are the same as those of the Lexicon tables at    *
+* the time the index was built.                                               *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.settings.LexicalType;
+import aml.util.Table3List;
+
+public class LexiconIndex
+{
+
+//Attributes
+
+	private static final LexicalType[] TYPES = LexicalType.values();
+	//The number of each name
+	private HashMap<String,Integer> nameIds;
+	//The entries of each name (by number) in CSR form
+	private int[] nameStart;
+	private int[] nameEntries;
+	//The lowest entity id and the entries of each entity (by id - base) in CSR form
+	private int base;
+	private int[] entityStart;
+	//The entity, name number, best weight, corrected weight, best type
+	//(ordinal or -1), lexical types (bitmask of ordinals) and externality
+	//of each entry
+	private int[] entity;
+	private int[] name;
+	private double[] weight;
+	private double[] corrected;
+	private byte[] bestType;
+	private int[] types;
+	private boolean[] external;
+	//The languages, and the provenances of each entry in CSR form, with
+	//their language (number), weight, corrected weight and externality
+	private Vector<String> languages;
+	private int[] provStart;
+	private int[] provLanguage;
+	private double[] provWeight;
+	private double[] provCorrected;
+	private boolean[] provExternal;
+
+//Constructors
+
+	/**
+	 * Builds the index of the given table of entries of a Lexicon
+	 * (which must not be indexed yet, so that the weights are computed
+	 * from its tables)
+	 * @param lex: the Lexicon with the entries
+	 * @param nameEntities: the table of entries of one EntityType in the
+	 * Lexicon (entity -> name -> Provenance)
+	 */
+	public LexiconIndex(Lexicon lex, Table3List<Integer,String,Provenance> nameEntities)
+	{
+		nameIds = new HashMap<String,Integer>();
+		languages = new Vector<String>();
+		Set<Integer> ids = nameEntities.keySet();
+		int min = Integer.MAX_VALUE;
+		int max = -1;
+		for(Integer i : ids)
+		{
+			min = Math.min(min, i);
+			max = Math.max(max, i);
+		}
+		base = Math.min(min, max + 1);
+		int size = nameEntities.size();
+		entityStart = new int[max - base + 2];
+		entity = new int[size];
+		name = new int[size];
+		weight = new double[size];
+		corrected = new double[size];
+		bestType = new byte[size];
+		types = new int[size];
+		external = new boolean[size];
+		provStart = new int[size+1];
+		Vector<Provenance> provs = new Vector<Provenance>();
+		int e = 0;
+		for(int id = base; id <= max; id++)
+		{
+			entityStart[id-base] = e;
+			if(!nameEntities.contains(id))
+				continue;
+			for(String n : nameEntities.keySet(id))
+			{
+				Integer k = nameIds.get(n);
+				if(k == null)
+				{
+					k = nameIds.size();
+					nameIds.put(n, k);
+				}
+				entity[e] = id;
+				name[e] = k;
+				weight[e] = lex.getWeight(n, id);
+				corrected[e] = lex.getCorrectedWeight(n, id);
+				LexicalType t = lex.getType(n, id);
+				bestType[e] = (byte)(t == null ? -1 : t.ordinal());
+				external[e] = lex.isExternal(n, id);
+				provStart[e] = provs.size();
+				for(Provenance p : nameEntities.get(id, n))
+				{
+					types[e] |= 1 << p.getType().ordinal();
+					provs.add(p);
+				}
+				e++;
+			}
+		}
+		entityStart[max-base+1] = e;
+		provStart[e] = provs.size();
+		provLanguage = new int[provs.size()];
+		provWeight = new double[provs.size()];
+		provCorrected = new double[provs.size()];
+		provExternal = new boolean[provs.size()];
+		for(int p = 0; p < provs.size(); p++)
+		{
+			Provenance prov = provs.get(p);
+			int l = languages.indexOf(prov.getLanguage());
+			if(l < 0)
+			{
+				l = languages.size();
+				languages.add(prov.getLanguage());
+			}
+			provLanguage[p] = l;
+			provWeight[p] = prov.getWeight();
+			provExternal[p] = prov.isExternal();
+		}
+		for(int i = 0; i < e; i++)
+			for(int p = provStart[i]; p < provStart[i+1]; p++)
+				provCorrected[p] = provWeight[p] - nameCount(entity[i], provs.get(p).getType(),
+						provLanguage[p], provs)/100.0;
+		nameStart = new int[nameIds.size()+1];
+		for(int i = 0; i < e; i++)
+			nameStart[name[i]+1]++;
+		for(int k = 0; k < nameIds.size(); k++)
+			nameStart[k+1] += nameStart[k];
+		nameEntries = new int[e];
+		int[] pos = Arrays.copyOf(nameStart, nameIds.size());
+		for(int i = 0; i < e; i++)
+			nameEntries[pos[name[i]]++] = i;
+	}
+
+//Public Methods
+
+	/**
+	 * @param n: the name to search in the index
+	 * @return whether the name is in the index
+	 */
+	public boolean contains(String n)
+	{
+		return nameIds.containsKey(n);
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the index
+	 * @param n: the name to search in the index
+	 * @return whether the index contains the name for the entity
+	 */
+	public boolean contains(int id, String n)
+	{
+		return entry(n, id) > -1;
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @return the number of entities associated with the name
+	 */
+	public int entityCount(String n)
+	{
+		Integer k = nameIds.get(n);
+		if(k == null)
+			return 0;
+		return nameStart[k+1] - nameStart[k];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param internal: whether to restrict the search to internal entries
+	 * @return the entity associated with the name that has the highest
+	 * weight, or -1 if either no entity or two or more such entities are found
+	 */
+	public int getBestEntity(String n, boolean internal)
+	{
+		Integer k = nameIds.get(n);
+		if(k == null)
+			return -1;
+		int best = -1;
+		int count = 0;
+		double maxWeight = 0.0;
+		for(int j = nameStart[k]; j < nameStart[k+1]; j++)
+		{
+			int i = nameEntries[j];
+			if(internal && external[i])
+				continue;
+			if(weight[i] > maxWeight)
+			{
+				maxWeight = weight[i];
+				best = entity[i];
+				count = 1;
+			}
+			else if(weight[i] == maxWeight && count++ == 0)
+				best = entity[i];
+		}
+		if(count != 1)
+			return -1;
+		return best;
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @return the corrected weight of the name for the entity (see Lexicon)
+	 */
+	public double getCorrectedWeight(String n, int id)
+	{
+		int i = entry(n, id);
+		if(i < 0)
+			return 0.0;
+		return corrected[i];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @param lang: the language to search in the index
+	 * @return the corrected weight of the name for the entity in the
+	 * given language (see Lexicon)
+	 */
+	public double getCorrectedWeight(String n, int id, String lang)
+	{
+		int p = provenance(n, id, lang);
+		if(p < 0)
+			return 0.0;
+		return provCorrected[p];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @return the best type of the name for the entity
+	 */
+	public LexicalType getType(String n, int id)
+	{
+		int i = entry(n, id);
+		if(i < 0 || bestType[i] < 0)
+			return null;
+		return TYPES[bestType[i]];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @return the best weight of the name for the entity
+	 */
+	public double getWeight(String n, int id)
+	{
+		int i = entry(n, id);
+		if(i < 0)
+			return 0.0;
+		return weight[i];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @param lang: the language to search in the index
+	 * @return the weight of the name for the entity in the given language
+	 */
+	public double getWeight(String n, int id, String lang)
+	{
+		int p = provenance(n, id, lang);
+		if(p < 0)
+			return 0.0;
+		return provWeight[p];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @return whether all provenances of the name for the entity are external
+	 */
+	public boolean isExternal(String n, int id)
+	{
+		int i = entry(n, id);
+		return i > -1 && external[i];
+	}
+
+	/**
+	 * @param n: the name to search in the index
+	 * @param id: the index of the entity to search in the index
+	 * @param lang: the language to search in the index
+	 * @return whether the first provenance of the name for the entity in
+	 * the given language is external
+	 */
+	public boolean isExternal(String n, int id, String lang)
+	{
+		int p = provenance(n, id, lang);
+		return p > -1 && provExternal[p];
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the index
+	 * @return the number of names associated with the entity
+	 */
+	public int nameCount(int id)
+	{
+		if(id < base || id - base >= entityStart.length - 1)
+			return 0;
+		return entityStart[id-base+1] - entityStart[id-base];
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the index
+	 * @param type: the type to restrict the search
+	 * @return the number of names of the given type associated with the entity
+	 */
+	public int nameCount(int id, LexicalType type)
+	{
+		if(id < base || id - base >= entityStart.length - 1)
+			return 0;
+		int count = 0;
+		int mask = 1 << type.ordinal();
+		for(int i = entityStart[id-base]; i < entityStart[id-base+1]; i++)
+			if((types[i] & mask) != 0)
+				count++;
+		return count;
+	}
+
+//Private Methods
+
+	//Returns the entry for the name and entity, or -1 if there is none
+	private int entry(String n, int id)
+	{
+		if(id < base || id - base >= entityStart.length - 1)
+			return -1;
+		Integer k = nameIds.get(n);
+		if(k == null)
+			return -1;
+		for(int i = entityStart[id-base]; i < entityStart[id-base+1]; i++)
+			if(name[i] == k)
+				return i;
+		return -1;
+	}
+
+	//Counts the provenances of the entity with the given type and language
+	private int nameCount(int id, LexicalType type, int lang, Vector<Provenance> provs)
+	{
+		int count = 0;
+		for(int i = entityStart[id-base]; i < entityStart[id-base+1]; i++)
+			for(int p = provStart[i]; p < provStart[i+1]; p++)
+				if(provLanguage[p] == lang && provs.get(p).getType().equals(type))
+					count++;
+		return count;
+	}
+
+	//Returns the first provenance of the entry for the name and entity
+	//with the given language, or -1 if there is none
+	private int provenance(String n, int id, String lang)
+	{
+		int i = entry(n, id);
+		if(i < 0)
+			return -1;
+		int l = languages.indexOf(lang);
+		for(int p = provStart[i]; p < provStart[i+1]; p++)
+			if(provLanguage[p] == l)
+				return p;
+		return -1;
+	}
+}
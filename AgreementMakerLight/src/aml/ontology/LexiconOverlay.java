@@ -0,0 +1,37 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A Lexicon that layers new entries over a shared base Lexicon, for matchers  *
+* that extend a Lexicon temporarily. Only the entries of the names and        *
+* entities that are extended are copied, and reads merge both Lexicons. The   *
+* base Lexicon must not change while the overlay is in use.                   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+public class LexiconOverlay extends Lexicon
+{
+
+//Constructors
+
+	/**
+	 * Creates a new empty overlay of the given Lexicon
+	 * @param base: the Lexicon to overlay
+	 */
+	public LexiconOverlay(Lexicon base)
+	{
+		super(base, true);
+	}
+}
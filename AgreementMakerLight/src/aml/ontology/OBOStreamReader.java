@@ -0,0 +1,348 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Reads an OBO file one stanza at a time, passing the terms and typedefs to   *
+* an RDFStreamReader.Handler as the triples of their OWL translation (with    *
+* the same URIs and properties as the OWL API's OBO parser). Only the tags    *
+* used for matching are translated: names, synonyms (with their scope),       *
+* xrefs, obsolete flags, is_a, relationship, intersection_of, union_of,       *
+* equivalent_to and disjoint_from in terms, and names and characteristics in  *
+* typedefs. The relationships are passed at the end of the file, as their     *
+* typedefs (which can change their URIs) are usually listed after the terms.  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Vector;
+
+public class OBOStreamReader
+{
+
+//Attributes
+
+	public static final String OBO = "http://purl.obolibrary.org/obo/";
+	private static final String OBO_IN_OWL = "http://www.geneontology.org/formats/oboInOwl#";
+	private static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+	//The handler of the triples
+	private RDFStreamReader.Handler handler;
+	//The id of the ontology (from the header of the file)
+	private String ontology;
+	//The URIs of the typedefs that are translated to the URI of their xref
+	private HashMap<String,String> typedefs;
+	//The relationships of the terms (subject URI, relation id, object URI)
+	private Vector<String[]> relationships;
+
+//Constructors
+
+	/**
+	 * Constructs a new OBOStreamReader that passes the triples to the given Handler
+	 * @param h: the Handler of the triples
+	 */
+	public OBOStreamReader(RDFStreamReader.Handler h)
+	{
+		handler = h;
+		ontology = null;
+		typedefs = new HashMap<String,String>();
+		relationships = new Vector<String[]>();
+	}
+
+//Public Methods
+
+	/**
+	 * Reads an OBO file
+	 * @param path: the path to the file
+	 * @throws IOException if the file can't be read
+	 */
+	public void read(String path) throws IOException
+	{
+		InputStream in = new BufferedInputStream(new FileInputStream(path), 1 << 16);
+		try
+		{
+			read(in);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads an ontology in the OBO format
+	 * @param in: the input stream with the ontology
+	 * @throws IOException if the ontology can't be read
+	 */
+	public void read(InputStream in) throws IOException
+	{
+		BufferedReader b = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		//The type of the current stanza (null for the header)
+		String stanza = null;
+		//The tag-value pairs of the current stanza
+		Vector<String[]> tags = new Vector<String[]>();
+		String line;
+		while((line = b.readLine()) != null)
+		{
+			line = line.trim();
+			if(line.isEmpty() || line.startsWith("!"))
+				continue;
+			if(line.startsWith("[") && line.endsWith("]"))
+			{
+				stanza(stanza, tags);
+				stanza = line.substring(1, line.length() - 1).trim();
+				tags = new Vector<String[]>();
+				continue;
+			}
+			int colon = line.indexOf(':');
+			if(colon > 0)
+				tags.add(new String[]{line.substring(0, colon).trim(), line.substring(colon + 1).trim()});
+		}
+		stanza(stanza, tags);
+		//Pass the relationships, now that the URIs of all typedefs are known
+		int blanks = 0;
+		for(String[] r : relationships)
+		{
+			String restriction = "_:r" + (++blanks);
+			handler.resource(r[0], RDFS + "subClassOf", restriction);
+			handler.resource(restriction, RDFStreamReader.TYPE, OWL + "Restriction");
+			String property = typedefs.get(r[1]);
+			if(property == null)
+				property = uri(r[1]);
+			handler.resource(restriction, OWL + "onProperty", property);
+			handler.resource(restriction, OWL + "someValuesFrom", r[2]);
+		}
+		relationships.clear();
+	}
+
+//Private Methods
+
+	//Returns the first token of a tag value (without comments or modifiers)
+	private static String first(String value)
+	{
+		String v = unquoted(value);
+		for(int i = 0; i < v.length(); i++)
+			if(Character.isWhitespace(v.charAt(i)))
+				return v.substring(0, i);
+		return v;
+	}
+
+	//Passes a literal value of the subject as an xsd:string
+	private void literal(String s, String p, String value)
+	{
+		handler.literal(s, p, value, "", XSD + "string");
+	}
+
+	//Reads the quoted text at the start of a tag value (without the escapes)
+	//and returns it along with the rest of the value
+	private static String[] quoted(String value)
+	{
+		int start = value.indexOf('"');
+		if(start < 0)
+			return new String[]{unquoted(value), ""};
+		StringBuilder s = new StringBuilder();
+		int i = start + 1;
+		for(; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if(c == '"')
+				break;
+			if(c == '\\' && i + 1 < value.length())
+				s.append(unescape(value.charAt(++i)));
+			else
+				s.append(c);
+		}
+		String rest = i + 1 < value.length() ? value.substring(i + 1).trim() : "";
+		return new String[]{s.toString(), rest};
+	}
+
+	//Passes the triples of a stanza
+	private void stanza(String stanza, Vector<String[]> tags)
+	{
+		if(stanza == null)
+		{
+			for(String[] t : tags)
+			{
+				if(t[0].equals("ontology"))
+				{
+					ontology = t[1];
+					handler.resource(OBO + ontology + ".owl", RDFStreamReader.TYPE, OWL + "Ontology");
+				}
+			}
+		}
+		else if(stanza.equals("Term"))
+			term(tags);
+		else if(stanza.equals("Typedef"))
+			typedef(tags);
+	}
+
+	//Passes the triples of a term stanza
+	private void term(Vector<String[]> tags)
+	{
+		String id = value(tags, "id");
+		if(id == null)
+			return;
+		String s = uri(first(id));
+		handler.resource(s, RDFStreamReader.TYPE, OWL + "Class");
+		for(String[] t : tags)
+		{
+			String tag = t[0];
+			String value = t[1];
+			if(tag.equals("name"))
+				literal(s, RDFS + "label", unquoted(value));
+			else if(tag.equals("synonym"))
+			{
+				String[] v = quoted(value);
+				String scope = v[1].split("[\\s\\[]", 2)[0];
+				if(scope.equals("EXACT"))
+					literal(s, OBO_IN_OWL + "hasExactSynonym", v[0]);
+				else if(scope.equals("NARROW"))
+					literal(s, OBO_IN_OWL + "hasNarrowSynonym", v[0]);
+				else if(scope.equals("BROAD"))
+					literal(s, OBO_IN_OWL + "hasBroadSynonym", v[0]);
+				else
+					literal(s, OBO_IN_OWL + "hasRelatedSynonym", v[0]);
+			}
+			else if(tag.equals("exact_synonym"))
+				literal(s, OBO_IN_OWL + "hasExactSynonym", quoted(value)[0]);
+			else if(tag.equals("related_synonym"))
+				literal(s, OBO_IN_OWL + "hasRelatedSynonym", quoted(value)[0]);
+			else if(tag.equals("narrow_synonym"))
+				literal(s, OBO_IN_OWL + "hasNarrowSynonym", quoted(value)[0]);
+			else if(tag.equals("broad_synonym"))
+				literal(s, OBO_IN_OWL + "hasBroadSynonym", quoted(value)[0]);
+			else if(tag.equals("xref") || tag.equals("xref_analog") || tag.equals("xref_unknown"))
+				literal(s, OBO_IN_OWL + "hasDbXref", first(value));
+			else if(tag.equals("is_obsolete"))
+			{
+				if(first(value).equals("true"))
+					handler.literal(s, OWL + "deprecated", "true", "", XSD + "boolean");
+			}
+			else if(tag.equals("is_a"))
+				handler.resource(s, RDFS + "subClassOf", uri(first(value)));
+			else if(tag.equals("relationship"))
+			{
+				String[] v = unquoted(value).split("\\s+");
+				if(v.length > 1)
+					relationships.add(new String[]{s, v[0], uri(v[1])});
+			}
+			//The classes in a logical definition are (implied) superclasses
+			else if(tag.equals("intersection_of"))
+			{
+				String[] v = unquoted(value).split("\\s+");
+				if(v.length == 1)
+					handler.resource(s, RDFS + "subClassOf", uri(v[0]));
+				else
+					relationships.add(new String[]{s, v[0], uri(v[1])});
+			}
+			//And those in a union are (implied) subclasses
+			else if(tag.equals("union_of"))
+				handler.resource(uri(first(value)), RDFS + "subClassOf", s);
+			else if(tag.equals("equivalent_to"))
+				handler.resource(s, OWL + "equivalentClass", uri(first(value)));
+			else if(tag.equals("disjoint_from"))
+				handler.resource(s, OWL + "disjointWith", uri(first(value)));
+		}
+	}
+
+	//Passes the triples of a typedef stanza
+	private void typedef(Vector<String[]> tags)
+	{
+		String id = value(tags, "id");
+		if(id == null)
+			return;
+		id = first(id);
+		//Typedefs with short ids are translated to the URI of their first xref
+		String xref = value(tags, "xref");
+		String p;
+		if(id.indexOf(':') < 0 && xref != null)
+		{
+			p = uri(first(xref));
+			typedefs.put(id, p);
+		}
+		else
+			p = uri(id);
+		handler.resource(p, RDFStreamReader.TYPE, OWL + "ObjectProperty");
+		for(String[] t : tags)
+		{
+			String tag = t[0];
+			if(tag.equals("name"))
+				literal(p, RDFS + "label", unquoted(t[1]));
+			else if(tag.equals("is_transitive") && first(t[1]).equals("true"))
+				handler.resource(p, RDFStreamReader.TYPE, OWL + "TransitiveProperty");
+			else if(tag.equals("is_symmetric") && first(t[1]).equals("true"))
+				handler.resource(p, RDFStreamReader.TYPE, OWL + "SymmetricProperty");
+			else if(tag.equals("is_functional") && first(t[1]).equals("true"))
+				handler.resource(p, RDFStreamReader.TYPE, OWL + "FunctionalProperty");
+		}
+	}
+
+	//Returns the character of an OBO escape sequence
+	private static char unescape(char c)
+	{
+		if(c == 'n')
+			return '\n';
+		if(c == 't')
+			return '\t';
+		if(c == 'W')
+			return ' ';
+		return c;
+	}
+
+	//Returns an unquoted tag value without the escapes, the trailing
+	//comment (after '!') and the trailing modifiers (between '{' and '}')
+	private static String unquoted(String value)
+	{
+		StringBuilder s = new StringBuilder();
+		int modifiers = value.lastIndexOf('}');
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\\' && i + 1 < value.length())
+				s.append(unescape(value.charAt(++i)));
+			else if(c == '!' || (c == '{' && i < modifiers))
+				break;
+			else
+				s.append(c);
+		}
+		return s.toString().trim();
+	}
+
+	//Returns the URI of an OBO id
+	private String uri(String id)
+	{
+		if(id.startsWith("http://") || id.startsWith("https://"))
+			return id;
+		int colon = id.indexOf(':');
+		if(colon < 0)
+			return OBO + (ontology == null ? "" : ontology) + "#" + id;
+		return OBO + id.substring(0, colon) + "_" + id.substring(colon + 1);
+	}
+
+	//Returns the first value of the given tag
+	private static String value(Vector<String[]> tags, String tag)
+	{
+		for(String[] t : tags)
+			if(t[0].equals(tag))
+				return t[1];
+		return null;
+	}
+}
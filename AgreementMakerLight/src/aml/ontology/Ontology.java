@@ -33,6 +33,7 @@ import org.semanticweb.elk.owlapi.ElkReasonerFactory;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.io.FileDocumentSource;
 import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
 import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.reasoner.Node;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
@@ -49,6 +50,7 @@ import aml.settings.LexicalType;
 import aml.settings.SKOS;
 import aml.settings.EntityType;
 import aml.util.MapSorter;
+import aml.util.Scheduler;
 import aml.util.StringParser;
 import aml.util.Table2Map;
 import aml.util.Table2Set;
@@ -63,7 +65,7 @@ public class Ontology
 	protected OWLDataFactory factory;
 	protected OWLOntologyLoaderConfiguration conf;
 	//The entity expansion limit property
-	 protected final String LIMIT = "entityExpansionLimit"; 
+	 protected static final String LIMIT = "entityExpansionLimit"; 
 	//The URI of the ontology
 	protected String uri;
 	//The set of entities in the ontology 
@@ -175,6 +177,31 @@ public class Ontology
 		//Reset the entity expansion limit
 		System.clearProperty(LIMIT);
 	}
+	
+	/**
+	 * Constructs an empty Ontology to be read from a snapshot or a stream,
+	 * which doesn't use an OWL Ontology Manager (see OntologySnapshot and
+	 * OntologyStreamReader)
+	 * @param uri: the URI of the Ontology
+	 * @param isSKOS: whether the Ontology is in SKOS format
+	 */
+	Ontology(String uri, boolean isSKOS)
+	{
+		this.uri = uri;
+		this.isSKOS = isSKOS;
+		entities = new HashSet<Integer>();
+		entityTypes = new Table2Set<EntityType,Integer>();
+		lex = new Lexicon();
+		vMap = new ValueMap();
+		refs = new ReferenceMap();
+		classNames = new HashMap<String,Integer>();
+		obsolete = new HashSet<Integer>();
+		wLex = null;
+		aml = AML.getInstance();
+		useReasoner = aml.useReasoner();
+		uris = aml.getURIMap();
+		rm = aml.getRelationshipMap();
+	}
 
 	//Public Methods
 
@@ -352,8 +379,104 @@ public class Ontology
 		return isSKOS;
 	}
 	
+	/**
+	 * Opens the given ontology files, parsing them concurrently, and then
+	 * builds the Ontologies one at a time in the given order (so the indexes
+	 * of their entities are the same as if they were opened one after another)
+	 * @param paths: the paths to the ontology files
+	 * @return the Ontologies, in the same order as the paths
+	 * @throws OWLOntologyCreationException 
+	 */
+	public static Ontology[] open(String... paths) throws OWLOntologyCreationException
+	{
+		OWLOntologyDocumentSource[] sources = new OWLOntologyDocumentSource[paths.length];
+		String[] uris = new String[paths.length];
+		for(int i = 0; i < paths.length; i++)
+		{
+			File f = new File(paths[i]);
+			sources[i] = new FileDocumentSource(f);
+			uris[i] = f.getAbsolutePath();
+		}
+		return open(sources, uris);
+	}
+	
+	/**
+	 * Opens the ontologies with the given URIs, parsing them concurrently, and
+	 * then builds the Ontologies one at a time in the given order (so the indexes
+	 * of their entities are the same as if they were opened one after another)
+	 * @param uris: the URIs of the ontologies
+	 * @return the Ontologies, in the same order as the URIs
+	 * @throws OWLOntologyCreationException 
+	 */
+	public static Ontology[] open(URI... uris) throws OWLOntologyCreationException
+	{
+		OWLOntologyDocumentSource[] sources = new OWLOntologyDocumentSource[uris.length];
+		String[] names = new String[uris.length];
+		for(int i = 0; i < uris.length; i++)
+		{
+			sources[i] = new IRIDocumentSource(IRI.create(uris[i]));
+			names[i] = uris[i].toString();
+		}
+		return open(sources, names);
+	}
+	
 //Private Methods	
 
+	//Parses the ontology documents concurrently (each with the manager of its
+	//Ontology, as managers aren't thread-safe), and then builds the Ontologies
+	//in order, as they share the URIMap and the RelationshipMap
+	private static Ontology[] open(final OWLOntologyDocumentSource[] sources, String[] uris)
+			throws OWLOntologyCreationException
+	{
+		final Ontology[] onts = new Ontology[sources.length];
+		for(int i = 0; i < sources.length; i++)
+			onts[i] = new Ontology();
+		final OWLOntology[] parsed = new OWLOntology[sources.length];
+		final Exception[] errors = new Exception[sources.length];
+		Scheduler.run(sources.length, new Scheduler.Task()
+		{
+			@Override
+			public void run(int start, int end)
+			{
+				for(int i = start; i < end; i++)
+				{
+					try
+					{
+						parsed[i] = onts[i].manager.loadOntologyFromOntologyDocument(sources[i],onts[i].conf);
+					}
+					catch(Exception e)
+					{
+						errors[i] = e;
+					}
+				}
+			}
+		});
+		try
+		{
+			for(Exception e : errors)
+			{
+				if(e instanceof OWLOntologyCreationException)
+					throw (OWLOntologyCreationException)e;
+				else if(e instanceof RuntimeException)
+					throw (RuntimeException)e;
+			}
+			for(int i = 0; i < onts.length; i++)
+			{
+				onts[i].uri = uris[i];
+				onts[i].init(parsed[i]);
+				//Close the OntModel
+				onts[i].manager.removeOntology(parsed[i]);
+				parsed[i] = null;
+			}
+		}
+		finally
+		{
+			//Reset the entity expansion limit
+			System.clearProperty(LIMIT);
+		}
+		return onts;
+	}
+
 	//Builds the ontology data structures
 	private void init(OWLOntology o)
 	{
@@ -594,6 +717,9 @@ public class Ontology
 		double weight;
 		//The label property
 		OWLAnnotationProperty label = factory.getOWLAnnotationProperty(OWLRDFVocabulary.RDFS_LABEL.getIRI());
+		//The names of the classes, which are added to the Lexicon at the end
+		//(so that they can be normalized in parallel)
+		LexiconBatch names = new LexiconBatch();
 		//Get the ontology classes
 		for(OWLClass c : o.getClassesInSignature(true))
 		{
@@ -615,7 +741,7 @@ public class Ontology
 			{
 				type = LexicalType.LOCAL_NAME;
 				weight = type.getDefaultWeight();
-				lex.add(id, name, "en", type, "", weight);
+				names.add(id, name, "en", type, "", weight);
 			}
 
 			//Now get the class's annotations (including imports)
@@ -637,7 +763,7 @@ public class Ontology
 						String lang = val.getLang();
 						if(lang.equals(""))
 							lang = "en";
-						lex.add(id, name, lang, type, "", weight);
+						names.add(id, name, lang, type, "", weight);
 					}
 					else if(annotation.getValue() instanceof IRI)
 					{
@@ -651,7 +777,7 @@ public class Ontology
 								String lang = val.getLang();
 								if(lang.equals(""))
 									lang = "en";
-								lex.add(id, name, lang, type, "", weight);
+								names.add(id, name, lang, type, "", weight);
 							}
 						}
 					}
@@ -725,6 +851,7 @@ public class Ontology
 					refs.add(id, e.toString());
 			}
 		}
+		lex.addAll(names);
 	}
 
 	//Reads the properties
@@ -0,0 +1,569 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A binary snapshot of a pair of opened ontologies, with the URIMap, the      *
+* RelationshipMap (after the transitive closure) and the data structures of   *
+* both ontologies (after the lexical extensions), which is keyed by the       *
+* contents of the ontology files and of the stop list, and by the version of  *
+* the code (the hash of its class files or jar), so that reopening            *
+* the same ontologies doesn't require parsing them again. The tables are      *
+* written in their iteration order and rebuilt in that order, so the loaded   *
+* ontologies behave exactly as the original ones.                             *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.AML;
+import aml.settings.EntityType;
+import aml.settings.LexicalType;
+import aml.util.StopList;
+import aml.util.Table2Set;
+import aml.util.Table3Set;
+
+public class OntologySnapshot
+{
+
+//Attributes
+
+	//The version of the code, which is the hash of the class files or jar it
+	//was loaded from (so snapshots are ignored whenever the format or the way
+	//ontologies are loaded changes), computed when first needed
+	private static String version;
+	private static final int MAGIC = 0x414D4C53;
+	//The tags of the values in generic tables
+	private static final byte INTEGER = 0;
+	private static final byte STRING = 1;
+	private static final byte ENTITY_TYPE = 2;
+	private static final EntityType[] ENTITY_TYPES = EntityType.values();
+	private static final LexicalType[] LEXICAL_TYPES = LexicalType.values();
+	//The paths of the ontology files, and the key and file of the snapshot
+	private String src;
+	private String tgt;
+	private String key;
+	private File file;
+	//The stream in use, and the strings written or read through it (each
+	//string is written once, and then referred to by its number)
+	private DataOutputStream out;
+	private HashMap<String,Integer> stringIds;
+	private DataInputStream in;
+	private Vector<String> strings;
+
+//Constructors
+
+	/**
+	 * Constructs the snapshot of the given pair of ontology files
+	 * @param dir: the directory of the snapshots
+	 * @param src: the path to the source ontology file
+	 * @param tgt: the path to the target ontology file
+	 * @param useReasoner: whether the ontologies are loaded with a reasoner
+	 * @param streamed: whether the ontologies are loaded by the OntologyStreamReader
+	 * @throws IOException if the ontology files can't be read
+	 */
+	public OntologySnapshot(String dir, String src, String tgt, boolean useReasoner, boolean streamed) throws IOException
+	{
+		this.src = src;
+		this.tgt = tgt;
+		MessageDigest d = digest();
+		d.update((version() + " " + useReasoner + " " + streamed + " ").getBytes("UTF-8"));
+		d.update(hash(src));
+		d.update(hash(tgt));
+		//The stop list is used by the lexical extensions
+		if(new File(StopList.getPath()).isFile())
+			d.update(hash(StopList.getPath()));
+		key = hex(d.digest());
+		file = new File(dir, key + ".snapshot");
+	}
+
+//Public Methods
+
+	/**
+	 * @return whether the snapshot was saved
+	 */
+	public boolean exists()
+	{
+		return file.isFile();
+	}
+
+	/**
+	 * Loads the snapshot into the (empty) URIMap and RelationshipMap of AML
+	 * @return the source and target ontologies
+	 * @throws IOException if the snapshot can't be read or is not valid
+	 */
+	public Ontology[] load() throws IOException
+	{
+		AML aml = AML.getInstance();
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		strings = new Vector<String>();
+		try
+		{
+			if(in.readInt() != MAGIC || !version().equals(in.readUTF()) || !key.equals(in.readUTF()))
+				throw new IOException("Invalid snapshot: " + file);
+			URIMap uris = aml.getURIMap();
+			int size = in.readInt();
+			for(int i = 1; i <= size; i++)
+			{
+				String uri = readString();
+				uris.addURI(uri, ENTITY_TYPES[in.readByte()]);
+			}
+			Ontology[] o = new Ontology[2];
+			o[0] = readOntology(src);
+			o[1] = readOntology(tgt);
+			aml.getRelationshipMap().load(this);
+			if(in.readInt() != MAGIC)
+				throw new IOException("Invalid snapshot: " + file);
+			return o;
+		}
+		finally
+		{
+			in.close();
+			in = null;
+			strings = null;
+		}
+	}
+
+	/**
+	 * Saves the snapshot of the given ontologies and of the URIMap and
+	 * RelationshipMap of AML (replacing the snapshot only once it is written,
+	 * and deleting the partial file if it can't be)
+	 * @param source: the source ontology
+	 * @param target: the target ontology
+	 * @throws IOException if the snapshot can't be written
+	 */
+	public void save(Ontology source, Ontology target) throws IOException
+	{
+		AML aml = AML.getInstance();
+		file.getParentFile().mkdirs();
+		File temp = File.createTempFile(key, ".tmp", file.getParentFile());
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+		stringIds = new HashMap<String,Integer>();
+		boolean written = false;
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeUTF(version());
+			out.writeUTF(key);
+			URIMap uris = aml.getURIMap();
+			out.writeInt(uris.size());
+			for(int i = 1; i <= uris.size(); i++)
+			{
+				writeString(uris.getURI(i));
+				out.writeByte(uris.getType(i).ordinal());
+			}
+			writeOntology(source, src);
+			writeOntology(target, tgt);
+			aml.getRelationshipMap().save(this);
+			out.writeInt(MAGIC);
+			out.close();
+			written = true;
+		}
+		finally
+		{
+			if(!written)
+			{
+				try
+				{
+					out.close();
+				}
+				catch(IOException e)
+				{
+					//The error that prevented writing is the one thrown
+				}
+				temp.delete();
+			}
+			out = null;
+			stringIds = null;
+		}
+		file.delete();
+		if(!temp.renameTo(file))
+		{
+			temp.delete();
+			throw new IOException("Unable to write snapshot: " + file);
+		}
+	}
+
+//Package Methods
+
+	boolean readBoolean() throws IOException
+	{
+		return in.readBoolean();
+	}
+
+	double readDouble() throws IOException
+	{
+		return in.readDouble();
+	}
+
+	int readInt() throws IOException
+	{
+		return in.readInt();
+	}
+
+	//Adds the entries read to the given map
+	@SuppressWarnings("unchecked")
+	<A,B> void readMap(Map<A,B> map) throws IOException
+	{
+		int size = in.readInt();
+		for(int i = 0; i < size; i++)
+		{
+			A a = (A)readValue();
+			map.put(a, (B)readValue());
+		}
+	}
+
+	Provenance readProvenance() throws IOException
+	{
+		LexicalType t = LEXICAL_TYPES[in.readByte()];
+		String s = readString();
+		String l = readString();
+		return new Provenance(t, s, l, in.readDouble());
+	}
+
+	Relationship readRelationship() throws IOException
+	{
+		int distance = in.readInt();
+		int prop = in.readInt();
+		return new Relationship(distance, prop, in.readBoolean());
+	}
+
+	//Adds the values read to the given set
+	@SuppressWarnings("unchecked")
+	<A> void readSet(Set<A> set) throws IOException
+	{
+		int size = in.readInt();
+		for(int i = 0; i < size; i++)
+			set.add((A)readValue());
+	}
+
+	String readString() throws IOException
+	{
+		int id = in.readInt();
+		if(id < 0)
+			return null;
+		if(id < strings.size())
+			return strings.get(id);
+		//New strings are numbered in order, and their characters must fit
+		//in the file (which rules out allocating huge arrays if it is corrupted)
+		int length = in.readInt();
+		if(id > strings.size() || length < 0 || 2L * length > file.length())
+			throw new IOException("Invalid snapshot: " + file);
+		char[] c = new char[length];
+		for(int i = 0; i < length; i++)
+			c[i] = in.readChar();
+		String s = new String(c);
+		strings.add(s);
+		return s;
+	}
+
+	//Adds the entries read to the given table
+	@SuppressWarnings("unchecked")
+	<A,B> void readTable(Table2Set<A,B> table) throws IOException
+	{
+		int keys = in.readInt();
+		for(int i = 0; i < keys; i++)
+		{
+			A a = (A)readValue();
+			int size = in.readInt();
+			for(int j = 0; j < size; j++)
+				table.add(a, (B)readValue());
+		}
+	}
+
+	//Adds the entries read to the given table
+	@SuppressWarnings("unchecked")
+	<A,B,C> void readTable(Table3Set<A,B,C> table) throws IOException
+	{
+		int keysA = in.readInt();
+		for(int i = 0; i < keysA; i++)
+		{
+			A a = (A)readValue();
+			int keysB = in.readInt();
+			for(int j = 0; j < keysB; j++)
+			{
+				B b = (B)readValue();
+				int size = in.readInt();
+				for(int k = 0; k < size; k++)
+					table.add(a, b, (C)readValue());
+			}
+		}
+	}
+
+	void writeBoolean(boolean b) throws IOException
+	{
+		out.writeBoolean(b);
+	}
+
+	void writeDouble(double d) throws IOException
+	{
+		out.writeDouble(d);
+	}
+
+	void writeInt(int i) throws IOException
+	{
+		out.writeInt(i);
+	}
+
+	void writeMap(Map<?,?> map) throws IOException
+	{
+		out.writeInt(map.size());
+		for(Map.Entry<?,?> e : map.entrySet())
+		{
+			writeValue(e.getKey());
+			writeValue(e.getValue());
+		}
+	}
+
+	void writeProvenance(Provenance p) throws IOException
+	{
+		out.writeByte(p.getType().ordinal());
+		writeString(p.getSource());
+		writeString(p.getLanguage());
+		out.writeDouble(p.getWeight());
+	}
+
+	void writeRelationship(Relationship r) throws IOException
+	{
+		out.writeInt(r.getDistance());
+		out.writeInt(r.getProperty());
+		out.writeBoolean(r.getRestriction());
+	}
+
+	void writeSet(Set<?> set) throws IOException
+	{
+		out.writeInt(set.size());
+		for(Object o : set)
+			writeValue(o);
+	}
+
+	void writeString(String s) throws IOException
+	{
+		if(s == null)
+		{
+			out.writeInt(-1);
+			return;
+		}
+		Integer id = stringIds.get(s);
+		if(id != null)
+		{
+			out.writeInt(id);
+			return;
+		}
+		out.writeInt(stringIds.size());
+		stringIds.put(s, stringIds.size());
+		out.writeInt(s.length());
+		out.writeChars(s);
+	}
+
+	<A,B> void writeTable(Table2Set<A,B> table) throws IOException
+	{
+		out.writeInt(table.keyCount());
+		for(A a : table.keySet())
+		{
+			writeValue(a);
+			writeSet(table.get(a));
+		}
+	}
+
+	<A,B,C> void writeTable(Table3Set<A,B,C> table) throws IOException
+	{
+		out.writeInt(table.keyCount());
+		for(A a : table.keySet())
+		{
+			writeValue(a);
+			Set<B> keysB = table.keySet(a);
+			out.writeInt(keysB.size());
+			for(B b : keysB)
+			{
+				writeValue(b);
+				writeSet(table.get(a, b));
+			}
+		}
+	}
+
+//Private Methods
+
+	private static MessageDigest digest() throws IOException
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+	}
+
+	//Hashes the contents of a file
+	private static byte[] hash(String path) throws IOException
+	{
+		MessageDigest d = digest();
+		InputStream is = new FileInputStream(path);
+		try
+		{
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while((n = is.read(buffer)) > 0)
+				d.update(buffer, 0, n);
+		}
+		finally
+		{
+			is.close();
+		}
+		return d.digest();
+	}
+
+	//Hashes a directory of class files (by their relative paths and contents)
+	private static void hashClasses(MessageDigest d, File dir, String path) throws IOException
+	{
+		File[] files = dir.listFiles();
+		if(files == null)
+			throw new IOException("Unable to read " + dir);
+		Arrays.sort(files);
+		for(File f : files)
+		{
+			String name = path + f.getName();
+			if(f.isDirectory())
+				hashClasses(d, f, name + "/");
+			else if(name.endsWith(".class"))
+			{
+				d.update(name.getBytes("UTF-8"));
+				d.update(hash(f.getPath()));
+			}
+		}
+	}
+
+	private static String hex(byte[] bytes)
+	{
+		StringBuilder s = new StringBuilder();
+		for(byte b : bytes)
+			s.append(String.format("%02x", b));
+		return s.toString();
+	}
+
+	//Returns the version of the code, hashing the jar or the directory of
+	//class files it was loaded from if it wasn't yet
+	private static synchronized String version() throws IOException
+	{
+		if(version != null)
+			return version;
+		CodeSource code = OntologySnapshot.class.getProtectionDomain().getCodeSource();
+		if(code == null)
+			throw new IOException("Unable to find the code of AML");
+		File f;
+		try
+		{
+			f = new File(code.getLocation().toURI());
+		}
+		catch(URISyntaxException e)
+		{
+			throw new IOException(e);
+		}
+		if(f.isDirectory())
+		{
+			MessageDigest d = digest();
+			hashClasses(d, f, "");
+			version = hex(d.digest());
+		}
+		else
+			version = hex(hash(f.getPath()));
+		return version;
+	}
+
+	//Reads the data structures of an ontology (whose URI is the
+	//absolute path of its file, unless the ontology lists one)
+	private Ontology readOntology(String path) throws IOException
+	{
+		String uri = readString();
+		if(uri == null)
+			uri = new File(path).getAbsolutePath();
+		Ontology o = new Ontology(uri, in.readBoolean());
+		readSet(o.entities);
+		readTable(o.entityTypes);
+		o.lex.load(this);
+		o.vMap.load(this);
+		o.refs.load(this);
+		readMap(o.classNames);
+		readSet(o.obsolete);
+		return o;
+	}
+
+	private Object readValue() throws IOException
+	{
+		byte tag = in.readByte();
+		if(tag == INTEGER)
+			return in.readInt();
+		if(tag == STRING)
+			return readString();
+		if(tag == ENTITY_TYPE)
+			return ENTITY_TYPES[in.readByte()];
+		throw new IOException("Invalid snapshot: " + file);
+	}
+
+	private void writeOntology(Ontology o, String path) throws IOException
+	{
+		if(o.uri.equals(new File(path).getAbsolutePath()))
+			writeString(null);
+		else
+			writeString(o.uri);
+		out.writeBoolean(o.isSKOS);
+		writeSet(o.entities);
+		writeTable(o.entityTypes);
+		o.lex.save(this);
+		o.vMap.save(this);
+		o.refs.save(this);
+		writeMap(o.classNames);
+		writeSet(o.obsolete);
+	}
+
+	private void writeValue(Object o) throws IOException
+	{
+		if(o instanceof Integer)
+		{
+			out.writeByte(INTEGER);
+			out.writeInt((Integer)o);
+		}
+		else if(o instanceof String)
+		{
+			out.writeByte(STRING);
+			writeString((String)o);
+		}
+		else if(o instanceof EntityType)
+		{
+			out.writeByte(ENTITY_TYPE);
+			out.writeByte(((EntityType)o).ordinal());
+		}
+		else
+			throw new IOException("Can't write " + o + " to a snapshot");
+	}
+}
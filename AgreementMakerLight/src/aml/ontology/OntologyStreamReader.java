@@ -0,0 +1,477 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Opens OWL ontologies in RDF/XML or N-Triples, or OBO ontologies, by         *
+* streaming their triples (see RDFStreamReader and OBOStreamReader) rather    *
+* than through the OWL API object model. Only the information used for        *
+* matching classes is read: the classes with their names and synonyms,        *
+* cross-references and obsolete flags, their named superclasses, equivalent   *
+* classes and disjoint classes, and their some and all values restrictions on *
+* object properties (with the names and the characteristics of the            *
+* properties). Data properties, individuals, domains, ranges, logical         *
+* definitions and imports are not read.                                       *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Vector;
+
+import aml.settings.EntityType;
+import aml.settings.LexicalType;
+import aml.util.Scheduler;
+import aml.util.StringParser;
+import aml.util.Table2List;
+
+public class OntologyStreamReader implements RDFStreamReader.Handler
+{
+
+//Attributes
+
+	private static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final String LABEL = "http://www.w3.org/2000/01/rdf-schema#label";
+	private static final String SUBCLASS = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
+	private static final String BOOLEAN = "http://www.w3.org/2001/XMLSchema#boolean";
+	//The path to the ontology file and the URI of the ontology
+	private String path;
+	private String uri;
+	//The classes and the object properties, in the order they were found
+	private LinkedHashSet<String> classes;
+	private LinkedHashSet<String> properties;
+	//The transitive, symmetric and functional properties
+	private HashSet<String> transitive;
+	private HashSet<String> symmetric;
+	private HashSet<String> functional;
+	//The annotations of each subject (only those used for matching)
+	private HashMap<String,Vector<Annotation>> annotations;
+	//The named superclasses, equivalent classes and disjoint classes of each class
+	private Table2List<String,String> parents;
+	private Table2List<String,String> equivalents;
+	private Table2List<String,String> disjoints;
+	//The anonymous superclasses and equivalent classes of each class
+	private Table2List<String,String> subRestrictions;
+	private Table2List<String,String> equivRestrictions;
+	//The property and the (named) value of each restriction
+	private HashMap<String,String> onProperty;
+	private HashMap<String,String> values;
+
+//Constructors
+
+	/**
+	 * Constructs a new OntologyStreamReader for the given ontology file
+	 * @param path: the path to the ontology file
+	 */
+	public OntologyStreamReader(String path)
+	{
+		this.path = path;
+		uri = null;
+		classes = new LinkedHashSet<String>();
+		properties = new LinkedHashSet<String>();
+		transitive = new HashSet<String>();
+		symmetric = new HashSet<String>();
+		functional = new HashSet<String>();
+		annotations = new HashMap<String,Vector<Annotation>>();
+		parents = new Table2List<String,String>();
+		equivalents = new Table2List<String,String>();
+		disjoints = new Table2List<String,String>();
+		subRestrictions = new Table2List<String,String>();
+		equivRestrictions = new Table2List<String,String>();
+		onProperty = new HashMap<String,String>();
+		values = new HashMap<String,String>();
+	}
+
+//Public Methods
+
+	/**
+	 * Builds the Ontology from the triples read, adding its entities
+	 * to the URIMap and its relations to the RelationshipMap
+	 * @return the Ontology
+	 */
+	public Ontology build()
+	{
+		if(uri == null)
+			uri = new File(path).getAbsolutePath();
+		Ontology ont = new Ontology(uri, false);
+		URIMap uris = ont.uris;
+		RelationshipMap rm = ont.rm;
+		//The names of the entities, which are added to the Lexicon at the end
+		//(so that they can be normalized in parallel)
+		LexiconBatch names = new LexiconBatch();
+		for(String c : classes)
+		{
+			if(c.endsWith("owl#Thing") || c.endsWith("owl:Thing"))
+				continue;
+			int id = uris.addURI(c,EntityType.CLASS);
+			ont.entities.add(id);
+			ont.entityTypes.add(EntityType.CLASS, id);
+			String name = uris.getLocalName(id);
+			ont.classNames.put(name, id);
+			//If the local name is not an alphanumeric code, add it to the lexicon
+			if(!StringParser.isNumericId(name))
+			{
+				LexicalType type = LexicalType.LOCAL_NAME;
+				names.add(id, name, "en", type, "", type.getDefaultWeight());
+			}
+			if(!annotations.containsKey(c))
+				continue;
+			for(Annotation a : annotations.get(c))
+			{
+				//Labels and synonyms go to the Lexicon
+				LexicalType type = LexicalType.getLexicalType(a.property);
+				if(type != null)
+				{
+					double weight = type.getDefaultWeight();
+					if(a.literal)
+						names.add(id, a.value, a.getLanguage(), type, "", weight);
+					else if(annotations.containsKey(a.value))
+					{
+						for(Annotation l : annotations.get(a.value))
+							if(l.literal && l.property.equals(LABEL))
+								names.add(id, l.value, l.getLanguage(), type, "", weight);
+					}
+				}
+				//xRefs go to the cross-reference table
+				else if(a.property.endsWith("hasDbXref"))
+				{
+					if(!a.value.startsWith("http"))
+						ont.refs.add(id,a.value.replace(':','_'));
+				}
+				//Deprecated classes are flagged as obsolete
+				else if(BOOLEAN.equals(a.datatype))
+				{
+					String value = a.value.trim();
+					if(value.equals("1") || value.equalsIgnoreCase("true"))
+						ont.obsolete.add(id);
+				}
+			}
+		}
+		for(String p : properties)
+		{
+			int id = uris.addURI(p,EntityType.OBJECT);
+			ont.entities.add(id);
+			ont.entityTypes.add(EntityType.OBJECT, id);
+			//Get the label(s)
+			String lang = "";
+			HashSet<String> labelLanguages = new HashSet<String>();
+			if(annotations.containsKey(p))
+			{
+				for(Annotation a : annotations.get(p))
+				{
+					if(a.literal && a.property.equals(LABEL))
+					{
+						lang = a.getLanguage();
+						LexicalType type = LexicalType.LABEL;
+						names.add(id, a.value, lang, type, "", type.getDefaultWeight());
+						labelLanguages.add(lang);
+					}
+				}
+			}
+			//If the local name is not an alphanumeric code, add it to the lexicon
+			//(assume it is in the same language as the label(s), if only one label
+			//language is declared; otherwise assume it is English)
+			String localName = uris.getLocalName(id);
+			if(!StringParser.isNumericId(localName))
+			{
+				LexicalType type = LexicalType.LOCAL_NAME;
+				if(labelLanguages.size() != 1)
+					lang = "en";
+				names.add(id, localName, lang, type, "", type.getDefaultWeight());
+			}
+			if(transitive.contains(p))
+				rm.addTransitive(id);
+			if(symmetric.contains(p))
+				rm.addSymmetric(id);
+			if(functional.contains(p))
+				rm.addFunctional(id);
+		}
+		ont.lex.addAll(names);
+		for(String c : classes)
+		{
+			int child = uris.getIndex(c);
+			if(child == -1)
+				continue;
+			if(parents.contains(c))
+			{
+				for(String p : parents.get(c))
+				{
+					int parent = uris.getIndex(p);
+					if(parent < 0)
+						continue;
+					rm.addDirectSubclass(child, parent);
+					String name = ont.getName(parent);
+					if(name.contains("Obsolete") || name.contains("obsolete") ||
+							name.contains("Retired") || name.contains ("retired") ||
+							name.contains("Deprecated") || name.contains("deprecated"))
+						ont.obsolete.add(child);
+				}
+			}
+			if(equivalents.contains(c))
+			{
+				for(String e : equivalents.get(c))
+				{
+					int parent = uris.getIndex(e);
+					if(parent > -1)
+						rm.addEquivalentClass(child, parent);
+				}
+			}
+			if(subRestrictions.contains(c))
+			{
+				for(String r : subRestrictions.get(c))
+				{
+					int property = getProperty(uris, r);
+					int parent = getValue(uris, r);
+					if(property > -1 && parent > -1)
+						rm.addClassRelationship(child, parent, property, false);
+				}
+			}
+			if(equivRestrictions.contains(c))
+			{
+				for(String r : equivRestrictions.get(c))
+				{
+					int property = getProperty(uris, r);
+					int parent = getValue(uris, r);
+					if(property > -1 && parent > -1)
+						rm.addEquivalence(child, parent, property, false);
+				}
+			}
+			if(disjoints.contains(c))
+			{
+				for(String d : disjoints.get(c))
+				{
+					int parent = uris.getIndex(d);
+					if(parent > -1)
+						rm.addDisjoint(child, parent);
+				}
+			}
+		}
+		return ont;
+	}
+
+	@Override
+	public void literal(String s, String p, String value, String lang, String datatype)
+	{
+		if(s.startsWith("_:"))
+			return;
+		if(LexicalType.getLexicalType(p) != null || p.endsWith("hasDbXref") ||
+				p.endsWith("deprecated"))
+			annotate(s, new Annotation(p, value, lang, datatype, true));
+	}
+
+	/**
+	 * Opens the given ontology files, reading them concurrently, and then
+	 * builds the Ontologies one at a time in the given order (so the indexes
+	 * of their entities are the same as if they were opened one after another)
+	 * @param paths: the paths to the ontology files
+	 * @return the Ontologies, in the same order as the paths
+	 * @throws IOException if an ontology file can't be read or parsed
+	 */
+	public static Ontology[] open(String... paths) throws IOException
+	{
+		final OntologyStreamReader[] readers = new OntologyStreamReader[paths.length];
+		for(int i = 0; i < paths.length; i++)
+			readers[i] = new OntologyStreamReader(paths[i]);
+		final IOException[] errors = new IOException[paths.length];
+		Scheduler.run(paths.length, new Scheduler.Task()
+		{
+			@Override
+			public void run(int start, int end)
+			{
+				for(int i = start; i < end; i++)
+				{
+					try
+					{
+						readers[i].read();
+					}
+					catch(IOException e)
+					{
+						errors[i] = e;
+					}
+				}
+			}
+		});
+		for(IOException e : errors)
+			if(e != null)
+				throw e;
+		Ontology[] onts = new Ontology[paths.length];
+		for(int i = 0; i < paths.length; i++)
+		{
+			onts[i] = readers[i].build();
+			readers[i] = null;
+		}
+		return onts;
+	}
+
+	/**
+	 * Reads the triples of the ontology file (which is read
+	 * as an OBO file if it has the extension ".obo")
+	 * @throws IOException if the ontology file can't be read or parsed
+	 */
+	public void read() throws IOException
+	{
+		if(path.endsWith(".obo"))
+			new OBOStreamReader(this).read(path);
+		else
+			new RDFStreamReader(this).read(path);
+		//The properties of restrictions on classes are object properties
+		for(String r : values.keySet())
+		{
+			String p = onProperty.get(r);
+			if(p != null && classes.contains(values.get(r)))
+				properties.add(p);
+		}
+	}
+
+	@Override
+	public void resource(String s, String p, String o)
+	{
+		boolean blank = s.startsWith("_:");
+		boolean named = !blank && !o.startsWith("_:");
+		if(p.equals(RDFStreamReader.TYPE))
+		{
+			if(blank)
+				return;
+			if(o.equals(OWL + "Class"))
+				classes.add(s);
+			else if(o.equals(OWL + "ObjectProperty"))
+				properties.add(s);
+			else if(o.equals(OWL + "TransitiveProperty"))
+			{
+				properties.add(s);
+				transitive.add(s);
+			}
+			else if(o.equals(OWL + "SymmetricProperty"))
+			{
+				properties.add(s);
+				symmetric.add(s);
+			}
+			else if(o.equals(OWL + "FunctionalProperty"))
+				functional.add(s);
+			else if(o.equals(OWL + "Ontology") && uri == null)
+				uri = s;
+		}
+		else if(p.equals(SUBCLASS))
+		{
+			if(blank)
+				return;
+			classes.add(s);
+			if(named)
+			{
+				classes.add(o);
+				parents.add(s, o);
+			}
+			else
+				subRestrictions.add(s, o);
+		}
+		else if(p.equals(OWL + "equivalentClass"))
+		{
+			if(named)
+			{
+				classes.add(s);
+				classes.add(o);
+				//Equivalence is symmetric, as with the OWL API
+				equivalents.add(s, o);
+				equivalents.add(o, s);
+			}
+			else if(!blank)
+				equivRestrictions.add(s, o);
+		}
+		else if(p.equals(OWL + "disjointWith"))
+		{
+			if(named)
+			{
+				classes.add(s);
+				classes.add(o);
+				disjoints.add(s, o);
+			}
+		}
+		//Restrictions are only used if their property and value are named
+		else if(blank && !o.startsWith("_:"))
+		{
+			if(p.equals(OWL + "onProperty"))
+				onProperty.put(s, o);
+			else if(p.equals(OWL + "someValuesFrom") || p.equals(OWL + "allValuesFrom"))
+				values.put(s, o);
+		}
+		//Only the annotations with named values are used
+		//(the labels of which are synonyms of the subject)
+		else if(named && LexicalType.getLexicalType(p) != null)
+			annotate(s, new Annotation(p, o, "", null, false));
+	}
+
+//Private Methods
+
+	//Adds an annotation to a subject
+	private void annotate(String s, Annotation a)
+	{
+		Vector<Annotation> list = annotations.get(s);
+		if(list == null)
+		{
+			list = new Vector<Annotation>(0,1);
+			annotations.put(s, list);
+		}
+		list.add(a);
+	}
+
+	//Returns the index of the property of a restriction (or -1 if it has none)
+	private int getProperty(URIMap uris, String restriction)
+	{
+		String p = onProperty.get(restriction);
+		if(p == null)
+			return -1;
+		return uris.getIndex(p);
+	}
+
+	//Returns the index of the class value of a restriction (or -1 if it has none)
+	private int getValue(URIMap uris, String restriction)
+	{
+		String v = values.get(restriction);
+		if(v == null || !classes.contains(v))
+			return -1;
+		return uris.getIndex(v);
+	}
+
+//Private Classes
+
+	//An annotation of a subject, with a literal or a named value
+	private static class Annotation
+	{
+		private String property;
+		private String value;
+		private String lang;
+		private String datatype;
+		private boolean literal;
+
+		private Annotation(String property, String value, String lang, String datatype, boolean literal)
+		{
+			this.property = property;
+			this.value = value;
+			this.lang = lang;
+			this.datatype = datatype;
+			this.literal = literal;
+		}
+
+		//Literals without a language are assumed to be in English
+		private String getLanguage()
+		{
+			if(lang.equals(""))
+				return "en";
+			return lang;
+		}
+	}
+}
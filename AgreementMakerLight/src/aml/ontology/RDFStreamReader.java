@@ -0,0 +1,544 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Reads the triples of an RDF/XML or N-Triples file as a stream, passing each *
+* triple to a Handler as soon as it is read, so that files can be processed   *
+* without building a model of the whole file in memory. Blank nodes are       *
+* given ids that start with "_:". It covers the RDF/XML syntax used by OWL    *
+* files, except for the numbering of rdf:li elements and reification.         *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class RDFStreamReader
+{
+
+//Attributes
+
+	public static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	public static final String TYPE = RDF + "type";
+	private static final String XML = "http://www.w3.org/XML/1998/namespace";
+	//The handler of the triples
+	private Handler handler;
+	//The XML reader in use
+	private XMLStreamReader r;
+	//The number of blank nodes without ids read so far
+	private int blanks;
+	//The N-Triples line in use, and the current position in it
+	private String line;
+	private int pos;
+
+//Constructors
+
+	/**
+	 * Constructs a new RDFStreamReader that passes the triples to the given Handler
+	 * @param h: the Handler of the triples
+	 */
+	public RDFStreamReader(Handler h)
+	{
+		handler = h;
+		blanks = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Reads an RDF file (in N-Triples if it has the extension ".nt",
+	 * or in RDF/XML otherwise)
+	 * @param path: the path to the file
+	 * @throws IOException if the file can't be read or parsed
+	 */
+	public void read(String path) throws IOException
+	{
+		File f = new File(path);
+		InputStream in = new BufferedInputStream(new FileInputStream(f), 1 << 16);
+		try
+		{
+			if(path.endsWith(".nt"))
+				readNTriples(in);
+			else
+				readRDFXML(in, f.toURI().toString());
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads triples in the N-Triples format
+	 * @param in: the input stream with the triples
+	 * @throws IOException if the triples can't be read or parsed
+	 */
+	public void readNTriples(InputStream in) throws IOException
+	{
+		BufferedReader b = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		int number = 0;
+		while((line = b.readLine()) != null)
+		{
+			number++;
+			pos = 0;
+			skipSpace();
+			if(pos == line.length() || line.charAt(pos) == '#')
+				continue;
+			try
+			{
+				String s = term();
+				skipSpace();
+				String p = term();
+				skipSpace();
+				if(line.charAt(pos) == '"')
+				{
+					String value = literal();
+					String lang = "";
+					String datatype = null;
+					if(pos < line.length() && line.charAt(pos) == '@')
+					{
+						int start = ++pos;
+						while(pos < line.length() && !Character.isWhitespace(line.charAt(pos)) &&
+								line.charAt(pos) != '.')
+							pos++;
+						lang = line.substring(start, pos);
+					}
+					else if(line.startsWith("^^", pos))
+					{
+						pos += 2;
+						datatype = term();
+					}
+					handler.literal(s, p, value, lang, datatype);
+				}
+				else
+					handler.resource(s, p, term());
+			}
+			catch(RuntimeException e)
+			{
+				throw new IOException("Invalid triple in line " + number + ": " + line);
+			}
+		}
+	}
+
+	/**
+	 * Reads triples in the RDF/XML format
+	 * @param in: the input stream with the triples
+	 * @param base: the base URI of the document
+	 * @throws IOException if the triples can't be read or parsed
+	 */
+	public void readRDFXML(InputStream in, String base) throws IOException
+	{
+		//Increase the entity expansion limit to allow large ontologies
+		//(as the OWL API does when it opens them, see Ontology)
+		System.setProperty(Ontology.LIMIT, "1000000");
+		XMLInputFactory f = XMLInputFactory.newInstance();
+		f.setProperty(XMLInputFactory.IS_COALESCING, true);
+		f.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		try
+		{
+			r = f.createXMLStreamReader(in);
+			if(nextTag() != XMLStreamConstants.START_ELEMENT)
+				return;
+			if(isRDF("RDF"))
+			{
+				base = base(base);
+				String lang = lang("");
+				while(nextTag() == XMLStreamConstants.START_ELEMENT)
+					node(base, lang);
+			}
+			else
+				node(base, "");
+		}
+		catch(XMLStreamException e)
+		{
+			throw new IOException(e);
+		}
+		finally
+		{
+			try
+			{
+				if(r != null)
+					r.close();
+			}
+			catch(XMLStreamException e)
+			{
+				//Do nothing
+			}
+			r = null;
+		}
+	}
+
+	/**
+	 * Handles the triples read by an RDFStreamReader
+	 */
+	public interface Handler
+	{
+		/**
+		 * Handles a triple whose object is a resource
+		 * @param s: the subject of the triple
+		 * @param p: the predicate of the triple
+		 * @param o: the object of the triple
+		 */
+		public void resource(String s, String p, String o);
+
+		/**
+		 * Handles a triple whose object is a literal
+		 * @param s: the subject of the triple
+		 * @param p: the predicate of the triple
+		 * @param value: the value of the literal
+		 * @param lang: the language of the literal ("" if it has none)
+		 * @param datatype: the datatype of the literal (null if it has none)
+		 */
+		public void literal(String s, String p, String value, String lang, String datatype);
+	}
+
+//Private Methods
+
+	//Returns the base URI in scope of the current element
+	private String base(String base)
+	{
+		String b = r.getAttributeValue(XML, "base");
+		if(b == null)
+			return base;
+		b = resolve(base, b);
+		int i = b.indexOf('#');
+		if(i > -1)
+			b = b.substring(0, i);
+		return b;
+	}
+
+	//Returns a new blank node id
+	private String blank()
+	{
+		return "_:g" + (++blanks);
+	}
+
+	//Passes the property attributes of the current element as literals of the subject
+	private void attributes(String subject, String base, String lang)
+	{
+		for(int i = 0; i < r.getAttributeCount(); i++)
+		{
+			String ns = r.getAttributeNamespace(i);
+			if(ns == null || ns.equals(XML) || (ns.equals(RDF) && !r.getAttributeLocalName(i).equals("type")))
+				continue;
+			String p = ns + r.getAttributeLocalName(i);
+			if(p.equals(TYPE))
+				handler.resource(subject, p, resolve(base, r.getAttributeValue(i)));
+			else
+				handler.literal(subject, p, r.getAttributeValue(i), lang, null);
+		}
+	}
+
+	//Checks whether the current element has property attributes
+	private boolean hasAttributes()
+	{
+		for(int i = 0; i < r.getAttributeCount(); i++)
+		{
+			String ns = r.getAttributeNamespace(i);
+			if(ns != null && !ns.equals(XML) && (!ns.equals(RDF) || r.getAttributeLocalName(i).equals("type")))
+				return true;
+		}
+		return false;
+	}
+
+	//Checks whether the current element is the given RDF element
+	private boolean isRDF(String name)
+	{
+		return RDF.equals(r.getNamespaceURI()) && name.equals(r.getLocalName());
+	}
+
+	//Returns the language in scope of the current element
+	private String lang(String lang)
+	{
+		String l = r.getAttributeValue(XML, "lang");
+		if(l == null)
+			return lang;
+		return l;
+	}
+
+	//Reads an N-Triples literal (with escapes) starting at the current position
+	private String literal()
+	{
+		StringBuilder s = new StringBuilder();
+		pos++;
+		while(line.charAt(pos) != '"')
+		{
+			char c = line.charAt(pos++);
+			if(c != '\\')
+			{
+				s.append(c);
+				continue;
+			}
+			c = line.charAt(pos++);
+			if(c == 't')
+				s.append('\t');
+			else if(c == 'n')
+				s.append('\n');
+			else if(c == 'r')
+				s.append('\r');
+			else if(c == 'b')
+				s.append('\b');
+			else if(c == 'f')
+				s.append('\f');
+			else if(c == 'u')
+			{
+				s.append((char)Integer.parseInt(line.substring(pos, pos + 4), 16));
+				pos += 4;
+			}
+			else if(c == 'U')
+			{
+				s.appendCodePoint(Integer.parseInt(line.substring(pos, pos + 8), 16));
+				pos += 8;
+			}
+			else
+				s.append(c);
+		}
+		pos++;
+		return s.toString();
+	}
+
+	//Moves to the next start or end tag, skipping text, comments and
+	//processing instructions, and returns its type (or the end of the document)
+	private int nextTag() throws XMLStreamException
+	{
+		while(r.hasNext())
+		{
+			int e = r.next();
+			if(e == XMLStreamConstants.START_ELEMENT || e == XMLStreamConstants.END_ELEMENT)
+				return e;
+		}
+		return XMLStreamConstants.END_DOCUMENT;
+	}
+
+	//Reads a node element (from its start tag to its end tag) and returns its subject
+	private String node(String base, String lang) throws XMLStreamException
+	{
+		base = base(base);
+		lang = lang(lang);
+		String subject;
+		String about = r.getAttributeValue(RDF, "about");
+		String id = r.getAttributeValue(RDF, "ID");
+		String nodeID = r.getAttributeValue(RDF, "nodeID");
+		if(about != null)
+			subject = resolve(base, about);
+		else if(id != null)
+			subject = resolve(base, "#" + id);
+		else if(nodeID != null)
+			subject = "_:n" + nodeID;
+		else
+			subject = blank();
+		if(!isRDF("Description"))
+			handler.resource(subject, TYPE, uri());
+		attributes(subject, base, lang);
+		while(nextTag() == XMLStreamConstants.START_ELEMENT)
+			property(subject, base, lang);
+		return subject;
+	}
+
+	//Reads a property element (from its start tag to its end tag) of the subject
+	private void property(String subject, String base, String lang) throws XMLStreamException
+	{
+		base = base(base);
+		lang = lang(lang);
+		String p = uri();
+		String resource = r.getAttributeValue(RDF, "resource");
+		String nodeID = r.getAttributeValue(RDF, "nodeID");
+		String parseType = r.getAttributeValue(RDF, "parseType");
+		String datatype = r.getAttributeValue(RDF, "datatype");
+		//A property with a resource or blank node object
+		if(resource != null || nodeID != null)
+		{
+			String o = resource != null ? resolve(base, resource) : "_:n" + nodeID;
+			handler.resource(subject, p, o);
+			attributes(o, base, lang);
+			skip();
+			return;
+		}
+		if("Resource".equals(parseType))
+		{
+			String o = blank();
+			handler.resource(subject, p, o);
+			while(nextTag() == XMLStreamConstants.START_ELEMENT)
+				property(o, base, lang);
+			return;
+		}
+		//The members of collections are read, but the list isn't built
+		if("Collection".equals(parseType))
+		{
+			handler.resource(subject, p, blank());
+			while(nextTag() == XMLStreamConstants.START_ELEMENT)
+				node(base, lang);
+			return;
+		}
+		if("Literal".equals(parseType))
+		{
+			handler.literal(subject, p, text(), "", RDF + "XMLLiteral");
+			return;
+		}
+		boolean attributes = hasAttributes();
+		StringBuilder text = new StringBuilder();
+		while(r.hasNext())
+		{
+			int e = r.next();
+			if(e == XMLStreamConstants.CHARACTERS || e == XMLStreamConstants.CDATA ||
+					e == XMLStreamConstants.SPACE)
+				text.append(r.getText());
+			//A property with a node element object
+			else if(e == XMLStreamConstants.START_ELEMENT)
+			{
+				handler.resource(subject, p, node(base, lang));
+				skip();
+				return;
+			}
+			else if(e == XMLStreamConstants.END_ELEMENT)
+				break;
+		}
+		//An empty property with property attributes has a blank node object
+		if(attributes && text.toString().trim().isEmpty())
+		{
+			String o = blank();
+			handler.resource(subject, p, o);
+			attributes(o, base, lang);
+		}
+		else if(datatype != null)
+			handler.literal(subject, p, text.toString(), "", resolve(base, datatype));
+		else
+			handler.literal(subject, p, text.toString(), lang, null);
+	}
+
+	//Resolves a URI reference against the base URI
+	private static String resolve(String base, String ref)
+	{
+		if(ref.startsWith("#"))
+			return strip(base) + ref;
+		if(ref.isEmpty())
+			return strip(base);
+		int colon = ref.indexOf(':');
+		if(colon > 0)
+		{
+			boolean scheme = true;
+			for(int i = 0; i < colon && scheme; i++)
+			{
+				char c = ref.charAt(i);
+				scheme = Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.';
+			}
+			if(scheme)
+				return ref;
+		}
+		try
+		{
+			return new URI(base).resolve(ref).toString();
+		}
+		catch(Exception e)
+		{
+			return base + ref;
+		}
+	}
+
+	//Skips the rest of the current element (up to its end tag)
+	private void skip() throws XMLStreamException
+	{
+		int depth = 1;
+		while(depth > 0 && r.hasNext())
+		{
+			int e = r.next();
+			if(e == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if(e == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	//Skips the spaces in the N-Triples line in use
+	private void skipSpace()
+	{
+		while(pos < line.length() && Character.isWhitespace(line.charAt(pos)))
+			pos++;
+	}
+
+	//Removes the fragment of a URI
+	private static String strip(String uri)
+	{
+		int i = uri.indexOf('#');
+		if(i > -1)
+			return uri.substring(0, i);
+		return uri;
+	}
+
+	//Reads an N-Triples URI or blank node starting at the current position
+	private String term()
+	{
+		if(line.charAt(pos) == '_')
+		{
+			int start = pos + 2;
+			pos = start;
+			while(pos < line.length() && !Character.isWhitespace(line.charAt(pos)))
+				pos++;
+			return "_:n" + line.substring(start, pos);
+		}
+		int end = line.indexOf('>', pos);
+		String uri = line.substring(pos + 1, end);
+		pos = end + 1;
+		if(uri.indexOf('\\') > -1)
+		{
+			String l = line;
+			int p = pos;
+			line = uri.replace("\"", "\\\"") + "\"";
+			pos = -1;
+			uri = literal();
+			line = l;
+			pos = p;
+		}
+		return uri;
+	}
+
+	//Reads the text of the current element (including that of its children)
+	private String text() throws XMLStreamException
+	{
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while(depth > 0 && r.hasNext())
+		{
+			int e = r.next();
+			if(e == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if(e == XMLStreamConstants.END_ELEMENT)
+				depth--;
+			else if(e == XMLStreamConstants.CHARACTERS || e == XMLStreamConstants.CDATA)
+				text.append(r.getText());
+		}
+		return text.toString();
+	}
+
+	//Returns the URI of the current element
+	private String uri()
+	{
+		String ns = r.getNamespaceURI();
+		if(ns == null)
+			return r.getLocalName();
+		return ns + r.getLocalName();
+	}
+}
@@ -0,0 +1,621 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* An index of the relationships between classes that keeps only the direct    *
+* relationships, for ontologies too large for the full transitive closure.    *
+* Each strongly connected component of the graph of relationships is labeled  *
+* with two post-order intervals, such that the intervals of the ancestors of  *
+* a class contain its interval, which rules out most unrelated pairs in       *
+* constant time. The pairs that pass this test are answered from the closure  *
+* of the child class, which is computed on demand (see TransitiveClosure) and *
+* published as an immutable row in a bounded cache, so that queries only lock *
+* to compute a closure. The descendants of a class are found by a single      *
+* search down from it. The answers are the same as those of the tables of a   *
+* RelationshipMap after the full transitive closure.                          *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import aml.util.IntSlice;
+import aml.util.Table2Set;
+import aml.util.Table3List;
+
+public class ReachabilityIndex
+{
+
+//Attributes
+
+	//The maximum number of relationships kept in the published rows
+	private static final int CACHE = 1 << 22;
+	//The closure of the relationships, computed on demand (which is
+	//only done while holding its lock)
+	private TransitiveClosure closure;
+	//The relationships of each class (by local index) whose closure was
+	//requested, and the number of relationships in them
+	private AtomicReferenceArray<Ancestors> rows;
+	private AtomicLong cached;
+	//The direct children of each class (by local index) in CSR form
+	private int[] childStart;
+	private int[] children;
+	//The two interval labels of each component: post is the position of the
+	//component in a post-order traversal of the graph of components, and low
+	//is the lowest position among the component and its ancestors
+	private int[] low1;
+	private int[] low2;
+	private int[] post2;
+
+//Constructors
+
+	/**
+	 * Builds the reachability index of the given relationships between classes
+	 * @param relationships: the table of direct relationships (Class -> Ancestor -> Relationship)
+	 * @param transitive: the table of transitive properties (Property1 -> Property2
+	 * over which 1 is transitive)
+	 */
+	public ReachabilityIndex(Table3List<Integer,Integer,Relationship> relationships,
+			Table2Set<Integer,Integer> transitive)
+	{
+		closure = new TransitiveClosure(relationships, transitive, true);
+		int n = closure.size();
+		childStart = new int[n+1];
+		for(int i = 0; i < n; i++)
+			for(int k = 0; k < closure.directCount(i); k++)
+				childStart[closure.getDirectParent(i,k)+1]++;
+		for(int i = 0; i < n; i++)
+			childStart[i+1] += childStart[i];
+		children = new int[childStart[n]];
+		int[] pos = new int[n];
+		for(int i = 0; i < n; i++)
+		{
+			for(int k = 0; k < closure.directCount(i); k++)
+			{
+				int p = closure.getDirectParent(i,k);
+				children[childStart[p] + pos[p]++] = i;
+			}
+		}
+		rows = new AtomicReferenceArray<Ancestors>(n);
+		cached = new AtomicLong(0);
+		label();
+	}
+
+//Public Methods
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return whether there is a relationship between child and parent
+	 */
+	public boolean contains(int child, int parent)
+	{
+		return !getRelationships(child,parent).isEmpty();
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return a view of the ancestors of the class (through any relationship)
+	 */
+	public IntSlice getAncestors(int classId)
+	{
+		return IntSlice.sorted(getAncestors(classId,ClassHierarchy.ANY,ClassHierarchy.ANY));
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @param distance: the distance between the class and its ancestors (or ANY)
+	 * @param prop: the property between the class and its ancestors (or ANY)
+	 * @return the (modifiable) set of ancestors of the class with the given
+	 * distance and property
+	 */
+	public Set<Integer> getAncestors(int classId, int distance, int prop)
+	{
+		HashSet<Integer> set = new HashSet<Integer>();
+		int c = closure.getIndex(classId);
+		if(c < 0)
+			return set;
+		Ancestors a = ancestors(c);
+		for(int k = 0; k < a.ancestors.length; k++)
+			if(a.matches(k,distance,prop))
+				set.add(a.ancestors[k]);
+		return set;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return a view of the descendants of the class (through any relationship)
+	 */
+	public IntSlice getDescendants(int classId)
+	{
+		return IntSlice.sorted(getDescendants(classId,ClassHierarchy.ANY,ClassHierarchy.ANY));
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @param distance: the distance between the class and its descendants (or ANY)
+	 * @param prop: the property between the class and its descendants (or ANY)
+	 * @return the (modifiable) set of descendants of the class with the given
+	 * distance and property
+	 */
+	public Set<Integer> getDescendants(int classId, int distance, int prop)
+	{
+		HashSet<Integer> set = new HashSet<Integer>();
+		int p = closure.getIndex(classId);
+		if(p < 0)
+			return set;
+		HashMap<Integer,Descent> found = descend(p);
+		for(Integer d : found.keySet())
+			if(found.get(d).matches(distance,prop))
+				set.add(closure.getClassId(d));
+		return set;
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return the minimal distance between the child and parent,
+	 * or -1 if they aren't related
+	 */
+	public int getDistance(int child, int parent)
+	{
+		Vector<Relationship> rels = getRelationships(child,parent);
+		int distance = -1;
+		for(Relationship r : rels)
+			if(distance == -1 || r.getDistance() < distance)
+				distance = r.getDistance();
+		return distance;
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return the relationships between child and parent (which is empty
+	 * if they aren't related)
+	 */
+	public Vector<Relationship> getRelationships(int child, int parent)
+	{
+		Vector<Relationship> rels = new Vector<Relationship>();
+		int c = closure.getIndex(child);
+		int p = closure.getIndex(parent);
+		if(c < 0 || p < 0 || !mayReach(c,p))
+			return rels;
+		Ancestors a = ancestors(c);
+		for(int k = 0; k < a.ancestors.length; k++)
+			if(a.ancestors[k] == parent)
+				rels.add(new Relationship(a.distances[k],a.properties[k],a.restrictions[k]));
+		return rels;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @param direct: whether to return all subclasses or just the direct ones
+	 * @return a view of the direct or indirect 'is_a' descendants of the class
+	 */
+	public IntSlice getSubClasses(int classId, boolean direct)
+	{
+		return IntSlice.sorted(getDescendants(classId, direct ? 1 : ClassHierarchy.ANY, -1));
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @param direct: whether to return all superclasses or just the direct ones
+	 * @return a view of the direct or indirect 'is_a' ancestors of the class
+	 */
+	public IntSlice getSuperClasses(int classId, boolean direct)
+	{
+		return IntSlice.sorted(getAncestors(classId, direct ? 1 : ClassHierarchy.ANY, -1));
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @param prop: the property to search
+	 * @return whether there is a relationship between child and parent
+	 * with the given property
+	 */
+	public boolean hasProperty(int child, int parent, int prop)
+	{
+		return matches(getRelationships(child,parent),ClassHierarchy.ANY,prop);
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return whether there is an 'is_a' relationship between child and parent
+	 */
+	public boolean isSubclass(int child, int parent)
+	{
+		return hasProperty(child,parent,-1);
+	}
+
+//Private Methods
+
+	//Gets the relationships of a class (by local index) as the tables of a
+	//RelationshipMap would list them after the full closure, computing and
+	//publishing them if they weren't yet (when the published rows exceed the
+	//size of the cache, they are all discarded, but those already being read
+	//remain valid, as rows are never modified)
+	private Ancestors ancestors(int c)
+	{
+		Ancestors a = rows.get(c);
+		if(a != null)
+			return a;
+		synchronized(closure)
+		{
+			a = rows.get(c);
+			if(a != null)
+				return a;
+			closure.close(c);
+			a = new Ancestors(closure,c);
+		}
+		if(cached.addAndGet(a.ancestors.length) > CACHE)
+		{
+			for(int i = 0; i < rows.length(); i++)
+				rows.set(i, null);
+			cached.set(a.ancestors.length);
+		}
+		rows.set(c, a);
+		return a;
+	}
+
+	//Finds the classes (by local index) below a class in the graph of direct
+	//relationships that are related to it, along with their relationships, by
+	//applying the rules of the closure (see TransitiveClosure) from the class
+	//down, revisiting the children of a class whenever its relationships improve
+	private HashMap<Integer,Descent> descend(int p)
+	{
+		HashMap<Integer,Descent> found = new HashMap<Integer,Descent>();
+		int[] queue = new int[16];
+		int head = 0, tail = 0;
+		queue[tail++] = p;
+		while(head < tail)
+		{
+			int v = queue[head++];
+			Descent up = found.get(v);
+			if(up != null)
+				up.queued = false;
+			for(int i = childStart[v]; i < childStart[v+1]; i++)
+			{
+				int c = children[i];
+				//The children of a class with several relationships to it are repeated
+				if(i > childStart[v] && children[i-1] == c)
+					continue;
+				Descent d = found.get(c);
+				if(d == null)
+				{
+					d = new Descent();
+					found.put(c, d);
+				}
+				boolean changed = false;
+				for(int k = 0; k < closure.directCount(c); k++)
+				{
+					if(closure.getDirectParent(c,k) != v)
+						continue;
+					int p2 = closure.getDirectProperty(c,k);
+					boolean r2 = closure.getDirectRestriction(c,k);
+					int d2 = closure.getDirectDistance(c,k);
+					//The direct relationships to p are added when p is first visited
+					if(v == p && up == null)
+					{
+						d.addDirect(p2, r2, d2);
+						changed = d.offer(p2, r2, d2) || changed;
+					}
+					if(up == null)
+						continue;
+					for(int j = 0; j < up.size; j++)
+					{
+						//Relationships at distance 0 (equivalences) are not extended upward
+						if(up.extensible[j] < 1)
+							continue;
+						int p1 = up.properties[j];
+						if(!(p1 == -1 || p2 == -1 || closure.isTransitiveOver(p2,p1)))
+							continue;
+						int prop;
+						if(p1 != -1)
+							prop = p1;
+						else
+							prop = p2;
+						changed = d.offer(prop, r2 && up.restrictions[j], d2 + up.extensible[j]) || changed;
+					}
+				}
+				if(changed && !d.queued)
+				{
+					d.queued = true;
+					if(tail == queue.length)
+					{
+						//Reuse the consumed part of the queue before growing it
+						System.arraycopy(queue, head, queue, 0, tail - head);
+						tail -= head;
+						head = 0;
+						if(tail == queue.length)
+							queue = Arrays.copyOf(queue, tail * 2);
+					}
+					queue[tail++] = c;
+				}
+			}
+		}
+		//Classes whose relationships to p were all ruled out aren't descendants
+		Vector<Integer> none = new Vector<Integer>();
+		for(Integer c : found.keySet())
+			if(found.get(c).size == 0)
+				none.add(c);
+		for(Integer c : none)
+			found.remove(c);
+		return found;
+	}
+
+	//Labels the components with two post-order intervals: the first from the
+	//order in which the closure found them, and the second from a depth-first
+	//search that starts from the last components and follows the edges in
+	//reverse, so that the two labelings are as different as possible
+	private void label()
+	{
+		int n = closure.componentCount();
+		//The edges between components, without repetitions, in CSR form
+		int[] edgeStart = new int[n+1];
+		int[] last = new int[n];
+		Arrays.fill(last, -1);
+		int[] byComponent = new int[closure.size()];
+		int[] memberStart = new int[n+1];
+		for(int i = 0; i < closure.size(); i++)
+			memberStart[closure.getComponent(i)+1]++;
+		for(int j = 0; j < n; j++)
+			memberStart[j+1] += memberStart[j];
+		int[] fill = new int[n];
+		for(int i = 0; i < closure.size(); i++)
+		{
+			int j = closure.getComponent(i);
+			byComponent[memberStart[j] + fill[j]++] = i;
+		}
+		int[] edges = new int[16];
+		int count = 0;
+		for(int j = 0; j < n; j++)
+		{
+			edgeStart[j] = count;
+			for(int m = memberStart[j]; m < memberStart[j+1]; m++)
+			{
+				int c = byComponent[m];
+				for(int k = 0; k < closure.directCount(c); k++)
+				{
+					int t = closure.getComponent(closure.getDirectParent(c,k));
+					if(t == j || last[t] == j)
+						continue;
+					last[t] = j;
+					if(count == edges.length)
+						edges = Arrays.copyOf(edges, count * 2);
+					edges[count++] = t;
+				}
+			}
+		}
+		edgeStart[n] = count;
+		//The closure numbers the components in post-order, with the ancestors
+		//first, so the first labeling is computed in that order
+		low1 = new int[n];
+		for(int j = 0; j < n; j++)
+		{
+			low1[j] = j;
+			for(int e = edgeStart[j]; e < edgeStart[j+1]; e++)
+				low1[j] = Math.min(low1[j], low1[edges[e]]);
+		}
+		//The second labeling comes from an iterative depth-first search
+		low2 = new int[n];
+		post2 = new int[n];
+		Arrays.fill(post2, -1);
+		int[] path = new int[n];
+		int[] next = new int[n];
+		boolean[] started = new boolean[n];
+		int order = 0;
+		for(int s = n-1; s >= 0; s--)
+		{
+			if(started[s])
+				continue;
+			int depth = 0;
+			path[0] = s;
+			started[s] = true;
+			next[s] = edgeStart[s+1];
+			low2[s] = Integer.MAX_VALUE;
+			while(depth >= 0)
+			{
+				int v = path[depth];
+				if(next[v] > edgeStart[v])
+				{
+					int w = edges[--next[v]];
+					if(!started[w])
+					{
+						started[w] = true;
+						next[w] = edgeStart[w+1];
+						low2[w] = Integer.MAX_VALUE;
+						path[++depth] = w;
+					}
+					else
+						low2[v] = Math.min(low2[v], low2[w]);
+					continue;
+				}
+				post2[v] = order++;
+				low2[v] = Math.min(low2[v], post2[v]);
+				depth--;
+				if(depth >= 0)
+					low2[path[depth]] = Math.min(low2[path[depth]], low2[v]);
+			}
+		}
+	}
+
+	//Checks whether the relationships include one with the given distance
+	//and property (either of which can be ANY)
+	private boolean matches(Vector<Relationship> rels, int distance, int prop)
+	{
+		for(Relationship r : rels)
+			if((distance == ClassHierarchy.ANY || r.getDistance() == distance) &&
+					(prop == ClassHierarchy.ANY || r.getProperty() == prop))
+				return true;
+		return false;
+	}
+
+	//Checks the interval labels of two classes (by local index): if the
+	//parent is an ancestor of the child, the intervals of the component of
+	//the parent are contained in those of the component of the child (the
+	//converse is not always true, so this only rules out unrelated classes)
+	private boolean mayReach(int c, int p)
+	{
+		int a = closure.getComponent(c);
+		int b = closure.getComponent(p);
+		if(a == b)
+			return true;
+		return b < a && low1[a] <= low1[b] &&
+				post2[b] < post2[a] && low2[a] <= low2[b];
+	}
+
+//Private Classes
+
+	//The relationships of a class, as the tables of a RelationshipMap would list
+	//them after the full closure: its direct relationships, followed by the
+	//relationships in its closure with a property and restriction that no direct
+	//relationship to the same ancestor has (and that are never modified)
+	private static class Ancestors
+	{
+		private final int[] ancestors;
+		private final int[] distances;
+		private final int[] properties;
+		private final boolean[] restrictions;
+
+		//Copies the relationships of a class (by local index) from a closure
+		//in which it has been closed
+		private Ancestors(TransitiveClosure closure, int c)
+		{
+			int direct = closure.directCount(c);
+			int size = direct + closure.relationshipCount(c);
+			int[] a = new int[size];
+			int[] d = new int[size];
+			int[] p = new int[size];
+			boolean[] r = new boolean[size];
+			for(int k = 0; k < direct; k++)
+			{
+				a[k] = closure.getClassId(closure.getDirectParent(c,k));
+				d[k] = closure.getDirectDistance(c,k);
+				p[k] = closure.getDirectProperty(c,k);
+				r[k] = closure.getDirectRestriction(c,k);
+			}
+			int n = direct;
+			for(int k = 0; k < closure.relationshipCount(c); k++)
+			{
+				a[n] = closure.getAncestor(c,k);
+				d[n] = closure.getDistance(c,k);
+				p[n] = closure.getProperty(c,k);
+				r[n] = closure.getRestriction(c,k);
+				boolean listed = false;
+				for(int i = 0; i < direct && !listed; i++)
+					listed = a[i] == a[n] && p[i] == p[n] && r[i] == r[n];
+				if(!listed)
+					n++;
+			}
+			ancestors = Arrays.copyOf(a, n);
+			distances = Arrays.copyOf(d, n);
+			properties = Arrays.copyOf(p, n);
+			restrictions = Arrays.copyOf(r, n);
+		}
+
+		//Checks whether the k-th relationship has the given distance and
+		//property (either of which can be ANY)
+		private boolean matches(int k, int distance, int prop)
+		{
+			return (distance == ClassHierarchy.ANY || distances[k] == distance) &&
+					(prop == ClassHierarchy.ANY || properties[k] == prop);
+		}
+	}
+
+	//The relationships of a class to an ancestor found while descending from
+	//it: its direct relationships to the ancestor, and the minimal distance (and
+	//minimal distance above 0) of each property and restriction in its closure
+	private static class Descent
+	{
+		private int[] properties = new int[2];
+		private boolean[] restrictions = new boolean[2];
+		private int[] distances = new int[2];
+		private int[] extensible = new int[2];
+		private int size = 0;
+		private Vector<Relationship> direct;
+		private boolean queued;
+
+		private void addDirect(int prop, boolean rest, int distance)
+		{
+			if(direct == null)
+				direct = new Vector<Relationship>();
+			direct.add(new Relationship(distance,prop,rest));
+		}
+
+		//Checks whether the class has a relationship with the given distance and
+		//property (either of which can be ANY), skipping the relationships in its
+		//closure that have the property and restriction of a direct relationship
+		private boolean matches(int distance, int prop)
+		{
+			if(direct != null)
+				for(Relationship r : direct)
+					if((distance == ClassHierarchy.ANY || r.getDistance() == distance) &&
+							(prop == ClassHierarchy.ANY || r.getProperty() == prop))
+						return true;
+			for(int j = 0; j < size; j++)
+			{
+				if(direct != null && direct.contains(new Relationship(0,properties[j],restrictions[j])))
+					continue;
+				if((distance == ClassHierarchy.ANY || distances[j] == distance) &&
+						(prop == ClassHierarchy.ANY || properties[j] == prop))
+					return true;
+			}
+			return false;
+		}
+
+		//Adds a relationship, or updates its distances if there is already one
+		//with the property and restriction, returning whether anything changed
+		private boolean offer(int prop, boolean rest, int distance)
+		{
+			for(int j = 0; j < size; j++)
+			{
+				if(properties[j] != prop || restrictions[j] != rest)
+					continue;
+				boolean changed = false;
+				if(distance < distances[j])
+				{
+					distances[j] = distance;
+					changed = true;
+				}
+				if(distance > 0 && (extensible[j] == 0 || distance < extensible[j]))
+				{
+					extensible[j] = distance;
+					changed = true;
+				}
+				return changed;
+			}
+			if(size == properties.length)
+			{
+				properties = Arrays.copyOf(properties, size * 2);
+				restrictions = Arrays.copyOf(restrictions, size * 2);
+				distances = Arrays.copyOf(distances, size * 2);
+				extensible = Arrays.copyOf(extensible, size * 2);
+			}
+			properties[size] = prop;
+			restrictions[size] = rest;
+			distances[size] = distance;
+			extensible[size] = Math.max(distance, 0);
+			size++;
+			return true;
+		}
+	}
+}
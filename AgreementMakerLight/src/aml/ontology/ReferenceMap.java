@@ -21,6 +21,7 @@ package aml.ontology;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.Set;
 
 import aml.util.Table2Set;
@@ -171,4 +172,20 @@ public class ReferenceMap
 	{
 		return termRefs.keyCount();
 	}
+	
+//Package Methods
+	
+	//Reads the entries of the ReferenceMap from a snapshot
+	void load(OntologySnapshot s) throws IOException
+	{
+		s.readTable(termRefs);
+		s.readTable(refTerms);
+	}
+	
+	//Writes the entries of the ReferenceMap to a snapshot
+	void save(OntologySnapshot s) throws IOException
+	{
+		s.writeTable(termRefs);
+		s.writeTable(refTerms);
+	}
 }
\ No newline at end of file
@@ -20,12 +20,14 @@
 ******************************************************************************/
 package aml.ontology;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.Vector;
 
 import aml.AML;
+import aml.util.IntSlice;
 import aml.util.Table2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
@@ -40,8 +42,22 @@ public class RelationshipMap
 	//Hierarchical relations and property restrictions (with transitive closure)
 	private Table3List<Integer,Integer,Relationship> ancestorClasses; //Class -> Ancestor -> Relationship
 	private Table3List<Integer,Integer,Relationship> descendantClasses;	//Class -> Descendant -> Relationship
+	//Immutable snapshot of the above, built by the transitive closure (and
+	//discarded if relationships between classes are added afterwards)
+	private ClassHierarchy hierarchy;
+	//Index of the relationships between classes that replaces the transitive
+	//closure of the tables above, for ontologies too large to materialize it
+	//(rebuilt when needed if relationships between classes are added afterwards)
+	private volatile ReachabilityIndex reachability;
+	private boolean indexed;
+	private boolean useIndex;
 	//Disjointness (direct only, no transitive closure)
 	private Table2Set<Integer,Integer> disjointMap; //Class -> Disjoint Classes
+	//Index of the disjoint clauses inherited by each class, built when needed
+	//after the transitive closure (updated when disjoint clauses are added, and
+	//discarded if relationships between classes are added or the transitive
+	//closure is recomputed); before it, queries are answered from the tables
+	private volatile DisjointIndex disjoints;
 	//List of high level classes
 	private HashSet<Integer> highLevelClasses;
 	
@@ -123,6 +139,9 @@ public class RelationshipMap
 		//Create the relationship
 		Relationship r = new Relationship(distance,prop,rest);
 		//Then update the MultiMaps
+		hierarchy = null;
+		reachability = null;
+		disjoints = null;
 		descendantClasses.add(parent,child,r);
 		ancestorClasses.add(child,parent,r);
 	}
@@ -149,6 +168,9 @@ public class RelationshipMap
 			//The disjointMap keeps disjoint clauses in both directions
 			disjointMap.add(class1, class2);
 			disjointMap.add(class2, class1);
+			DisjointIndex d = disjoints;
+			if(d != null)
+				d.add(class1, class2, this);
 		}
 	}
 	
@@ -295,6 +317,9 @@ public class RelationshipMap
 	 */
 	public boolean areDisjoint(int class1, int class2)
 	{
+		DisjointIndex d = disjointIndex();
+		if(d != null)
+			return d.areDisjoint(class1, class2);
 		//Get the transitive disjoint clauses involving class one
 		Set<Integer> disj = getDisjointTransitive(class1);
 		if(disj.size() > 0)
@@ -320,6 +345,12 @@ public class RelationshipMap
 	 */
 	public boolean areRelatedClasses(int child, int parent)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.contains(child,parent);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.contains(child,parent);
 		return descendantClasses.contains(parent,child);
 	}
 	
@@ -377,11 +408,30 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getAncestors(int classId)
 	{
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getAncestors(classId,ClassHierarchy.ANY,ClassHierarchy.ANY);
 		if(ancestorClasses.contains(classId))
 			return ancestorClasses.keySet(classId);
 		return new HashSet<Integer>();
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return a read-only view of the ancestors of the given class (sorted by id),
+	 * which doesn't copy them once the transitive closure has been computed
+	 */
+	public IntSlice getAncestorView(int classId)
+	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getAncestors(classId);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getAncestors(classId);
+		return IntSlice.sorted(getAncestors(classId));
+	}
+	
 	/**
 	 * @param classId: the id of the class to search in the map
 	 * @param distance: the distance between the class and its ancestors
@@ -389,6 +439,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getAncestors(int classId, int distance)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getAncestors(classId,distance,ClassHierarchy.ANY);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getAncestors(classId,distance,ClassHierarchy.ANY);
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -406,6 +462,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getAncestorsProperty(int classId, int prop)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getAncestors(classId,ClassHierarchy.ANY,prop);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getAncestors(classId,ClassHierarchy.ANY,prop);
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -425,6 +487,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getAncestors(int classId, int distance, int prop)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getAncestors(classId,distance,prop);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getAncestors(classId,distance,prop);
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -524,11 +592,30 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDescendants(int classId)
 	{
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDescendants(classId,ClassHierarchy.ANY,ClassHierarchy.ANY);
 		if(descendantClasses.contains(classId))
 			return descendantClasses.keySet(classId);
 		return new HashSet<Integer>();
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return a read-only view of the descendants of the given class (sorted by id),
+	 * which doesn't copy them once the transitive closure has been computed
+	 */
+	public IntSlice getDescendantView(int classId)
+	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getDescendants(classId);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDescendants(classId);
+		return IntSlice.sorted(getDescendants(classId));
+	}
+	
 	/**
 	 * @param classId: the id of the class to search in the map
 	 * @param distance: the distance between the class and its ancestors
@@ -536,6 +623,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDescendants(int classId, int distance)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getDescendants(classId,distance,ClassHierarchy.ANY);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDescendants(classId,distance,ClassHierarchy.ANY);
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -553,6 +646,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDescendantsProperty(int classId, int prop)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getDescendants(classId,ClassHierarchy.ANY,prop);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDescendants(classId,ClassHierarchy.ANY,prop);
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -572,6 +671,12 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDescendants(int classId, int distance, int prop)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getDescendants(classId,distance,prop);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDescendants(classId,distance,prop);
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -608,8 +713,11 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDisjointTransitive(int classId)
 	{
+		DisjointIndex d = disjointIndex();
+		if(d != null)
+			return d.getDisjoint(classId);
 		//Get the disjoint clauses for the class
-		Set<Integer> disj = getDisjoint(classId);
+		Set<Integer> disj = new HashSet<Integer>(getDisjoint(classId));
 		//Then get all superclasses of the class
 		Set<Integer> ancestors = getSuperClasses(classId,false);
 		//For each superclass
@@ -629,6 +737,12 @@ public class RelationshipMap
 	{
 		if(child == parent)
 			return 0;
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getDistance(child,parent);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getDistance(child,parent);
 		if(!ancestorClasses.contains(child, parent))
 			return -1;
 		Vector<Relationship> rels = ancestorClasses.get(child,parent);
@@ -676,11 +790,11 @@ public class RelationshipMap
 	{
 		if(highLevelClasses == null)
 			getHighLevelClasses();
-		Set<Integer> ancestors = getAncestors(classId);
+		IntSlice ancestors = getAncestorView(classId);
 		HashSet<Integer> highAncs = new HashSet<Integer>();
-		for(Integer i : ancestors)
-			if(highLevelClasses.contains(i))
-				highAncs.add(i);
+		for(int i = 0; i < ancestors.size(); i++)
+			if(highLevelClasses.contains(ancestors.get(i)))
+				highAncs.add(ancestors.get(i));
 		return highAncs;
 	}
 	
@@ -877,10 +991,18 @@ public class RelationshipMap
 	 */
 	public Relationship getRelationship(int child, int parent)
 	{
-		if(!ancestorClasses.contains(child, parent))
+		Vector<Relationship> rels;
+		ReachabilityIndex x = index();
+		if(x != null)
+			rels = x.getRelationships(child,parent);
+		else if(ancestorClasses.contains(child, parent))
+			rels = ancestorClasses.get(child,parent);
+		else
 			return null;
-		Relationship rel = ancestorClasses.get(child).get(parent).get(0);
-		for(Relationship r : ancestorClasses.get(child).get(parent))
+		if(rels.isEmpty())
+			return null;
+		Relationship rel = rels.get(0);
+		for(Relationship r : rels)
 			if(r.compareTo(rel) > 0)
 				rel = r;
 		return rel;
@@ -893,6 +1015,9 @@ public class RelationshipMap
 	 */
 	public Vector<Relationship> getRelationships(int child, int parent)
 	{
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getRelationships(child,parent);
 		return ancestorClasses.get(child).get(parent);
 	}
 	
@@ -941,12 +1066,36 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getSubClasses(int classId, boolean direct)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getSubClasses(classId,direct).toSet();
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getSubClasses(classId,direct).toSet();
 		if(direct)
 			return getDescendants(classId,1,-1);
 		else
 			return getDescendantsProperty(classId,-1);
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all subclasses or just the direct ones
+	 * @return a read-only view of the direct or indirect subclasses of the input
+	 * class (sorted by id), which doesn't copy them once the transitive closure
+	 * has been computed
+	 */
+	public IntSlice getSubClassView(int classId, boolean direct)
+	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getSubClasses(classId,direct);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getSubClasses(classId,direct);
+		return IntSlice.sorted(getSubClasses(classId,direct));
+	}
+	
 	/**
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of sub-properties of the input property
@@ -966,12 +1115,36 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getSuperClasses(int classId, boolean direct)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getSuperClasses(classId,direct).toSet();
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getSuperClasses(classId,direct).toSet();
 		if(direct)
 			return getAncestors(classId,1,-1);
 		else
 			return getAncestorsProperty(classId,-1);
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all superclasses or just the direct ones
+	 * @return a read-only view of the direct or indirect superclasses of the input
+	 * class (sorted by id), which doesn't copy them once the transitive closure
+	 * has been computed
+	 */
+	public IntSlice getSuperClassView(int classId, boolean direct)
+	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.getSuperClasses(classId,direct);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.getSuperClasses(classId,direct);
+		return IntSlice.sorted(getSuperClasses(classId,direct));
+	}
+	
 	/**
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of super-properties of the input property
@@ -1008,6 +1181,9 @@ public class RelationshipMap
 	 */
 	public boolean hasDisjointTransitive(int classId)
 	{
+		DisjointIndex d = disjointIndex();
+		if(d != null)
+			return d.hasDisjoint(classId);
 		//Get all superclasses of the class
 		Set<Integer> ancestors = getSuperClasses(classId,false);
 		//Plus the parent itself
@@ -1039,6 +1215,12 @@ public class RelationshipMap
 	 */
 	public boolean hasProperty(int child, int parent, int property)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.hasProperty(child,parent,property);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.hasProperty(child,parent,property);
 		Vector<Relationship> rels = getRelationships(child,parent);
 		for(Relationship r : rels)
 			if(r.getProperty() == property)
@@ -1078,6 +1260,12 @@ public class RelationshipMap
 	 */	
 	public boolean isSubclass(int child, int parent)
 	{
+		ClassHierarchy h = hierarchy;
+		if(h != null)
+			return h.isSubclass(child,parent);
+		ReachabilityIndex x = index();
+		if(x != null)
+			return x.isSubclass(child,parent);
 		if(!descendantClasses.contains(parent,child))
 			return false;
 		Vector<Relationship> rels = descendantClasses.get(parent,child);
@@ -1141,56 +1329,56 @@ public class RelationshipMap
 		return getSuperClasses(classId,direct).size();
 	}
 	
+	/**
+	 * Sets whether transitiveClosure() should build a ReachabilityIndex instead of
+	 * adding the inherited relationships to the map, for ontologies too large for
+	 * them to fit in memory. The queries about relationships between classes have
+	 * the same answers either way, but those about inherited relationships are
+	 * computed on demand
+	 * @param index: whether to use a ReachabilityIndex
+	 */
+	public void setReachabilityIndex(boolean index)
+	{
+		useIndex = index;
+	}
+	
 	/**
 	 * Compute the transitive closure of the RelationshipMap
-	 * by adding inherited relationships (and their distances)
-	 * This is an implementation of the Semi-Naive Algorithm
+	 * by adding inherited relationships (and their minimal distances)
+	 * Relationships are only combined if one of them is 'is_a' or the
+	 * property of the lower relationship is transitive over that of the
+	 * upper one, and equivalences (distance 0) are not extended upward
+	 * (see TransitiveClosure), or builds a ReachabilityIndex that answers as if
+	 * they had been added (see setReachabilityIndex)
 	 */
 	public void transitiveClosure()
 	{
-		//Transitive closure for class relations
-		Set<Integer> t = descendantClasses.keySet();
-		int lastCount = 0;
-		for(int distance = 1; lastCount != descendantClasses.size(); distance++)
+		disjoints = null;
+		if(useIndex)
 		{
-			lastCount = descendantClasses.size();
-			for(Integer i : t)
+			indexed = true;
+			hierarchy = null;
+			reachability = new ReachabilityIndex(ancestorClasses, transitiveOver);
+			return;
+		}
+		TransitiveClosure closure = new TransitiveClosure(ancestorClasses, transitiveOver);
+		for(int i = 0; i < closure.size(); i++)
+		{
+			int child = closure.getClassId(i);
+			for(int k = 0; k < closure.relationshipCount(i); k++)
 			{
-				Set<Integer> childs = getChildren(i);
-				childs.addAll(getEquivalences(i));
-				Set<Integer> pars = getAncestors(i,distance);
-				for(Integer j : pars)
+				int parent = closure.getAncestor(i,k);
+				Relationship r = new Relationship(closure.getDistance(i,k),
+						closure.getProperty(i,k),closure.getRestriction(i,k));
+				//Relationships already in the map are kept as they are
+				if(!ancestorClasses.contains(child,parent,r))
 				{
-					Vector<Relationship> rel1 = getRelationships(i,j);
-					for(int k = 0; k < rel1.size(); k++)
-					{
-						Relationship r1 = rel1.get(k);
-						int p1 = r1.getProperty();
-						for(Integer h : childs)
-						{
-							Vector<Relationship> rel2 = getRelationships(h,i);
-							for(int l = 0; l < rel2.size(); l++)
-							{
-								Relationship r2 = rel2.get(l);
-								int p2 = r2.getProperty();
-								//We only do transitive closure if the property is the same (and transitive)
-								//for two relationships or one of the properties is 'is_a' (-1)
-								if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(p2,p1)))
-									continue;
-								int dist = r1.getDistance() + r2.getDistance();
-								int prop;
-								if(p1 == p2 || p1 != -1)
-									prop = p1;
-								else
-									prop = p2;
-								boolean rest = r1.getRestriction() && r2.getRestriction();
-								addClassRelationship(h, j, dist, prop, rest);
-							}
-						}
-					}
+					descendantClasses.add(parent,child,r);
+					ancestorClasses.add(child,parent,r);
 				}
 			}
 		}
+		hierarchy = new ClassHierarchy(ancestorClasses, descendantClasses);
 	}
 	
 	/**
@@ -1201,22 +1389,159 @@ public class RelationshipMap
 	 */
 	public boolean violatesDisjoint(int child, int parent)
 	{
-		//Get all descendants of the child
-		Set<Integer> descendants = getDescendants(child);
-		//Plus the child itself
-		descendants.add(child);
-		//Then all ancestors of the parent
-		Set<Integer> ancestors = getAncestors(parent);
-		//Plus the parent itself
-		ancestors.add(parent);
-		
-		//For each descendant
-		for(Integer i : descendants)
-			//And each ancestor
-			for(Integer j : ancestors)
-				//Check for disjointness
+		//Get all descendants of the child, plus the child itself
+		int[] descendants = withClass(getDescendantView(child), child);
+		//Then all ancestors of the parent, plus the parent itself
+		int[] ancestors = withClass(getAncestorView(parent), parent);
+		//And check if any descendant is disjoint with any ancestor
+		DisjointIndex d = disjointIndex();
+		if(d != null)
+			return d.areDisjoint(descendants, ancestors);
+		for(int i : descendants)
+			for(int j : ancestors)
 				if(areDisjoint(i,j))
 					return true;
 		return false;
 	}
+	
+//Package Methods
+	
+	//Reads the relationships of the map from a snapshot (see save), and
+	//rebuilds the snapshot of the hierarchy if it had one
+	void load(OntologySnapshot s) throws IOException
+	{
+		int children = s.readInt();
+		for(int i = 0; i < children; i++)
+		{
+			int child = s.readInt();
+			int parents = s.readInt();
+			for(int j = 0; j < parents; j++)
+			{
+				int parent = s.readInt();
+				int rels = s.readInt();
+				for(int k = 0; k < rels; k++)
+					ancestorClasses.add(child, parent, s.readRelationship());
+			}
+		}
+		int parents = s.readInt();
+		for(int i = 0; i < parents; i++)
+		{
+			int parent = s.readInt();
+			children = s.readInt();
+			for(int j = 0; j < children; j++)
+			{
+				int child = s.readInt();
+				for(Relationship r : ancestorClasses.get(child, parent))
+					descendantClasses.add(parent, child, r);
+			}
+		}
+		s.readTable(disjointMap);
+		s.readTable(instanceOfMap);
+		s.readTable(hasInstanceMap);
+		s.readTable(activeRelation);
+		s.readTable(passiveRelation);
+		s.readTable(subProp);
+		s.readTable(superProp);
+		s.readTable(inverseProp);
+		s.readTable(transitiveOver);
+		s.readSet(symmetric);
+		s.readSet(functional);
+		s.readTable(domain);
+		s.readTable(objectRange);
+		s.readTable(dataRange);
+		useIndex = s.readBoolean();
+		indexed = s.readBoolean();
+		if(s.readBoolean())
+			hierarchy = new ClassHierarchy(ancestorClasses, descendantClasses);
+	}
+	
+	//Writes the relationships of the map to a snapshot: the table of ancestors,
+	//with the relationships, and then the order of the descendants of each class,
+	//as both tables share the relationships
+	void save(OntologySnapshot s) throws IOException
+	{
+		s.writeInt(ancestorClasses.keyCount());
+		for(Integer child : ancestorClasses.keySet())
+		{
+			s.writeInt(child);
+			Set<Integer> parents = ancestorClasses.keySet(child);
+			s.writeInt(parents.size());
+			for(Integer parent : parents)
+			{
+				s.writeInt(parent);
+				Vector<Relationship> rels = ancestorClasses.get(child, parent);
+				s.writeInt(rels.size());
+				for(Relationship r : rels)
+					s.writeRelationship(r);
+			}
+		}
+		s.writeInt(descendantClasses.keyCount());
+		for(Integer parent : descendantClasses.keySet())
+		{
+			s.writeInt(parent);
+			Set<Integer> children = descendantClasses.keySet(parent);
+			s.writeInt(children.size());
+			for(Integer child : children)
+				s.writeInt(child);
+		}
+		s.writeTable(disjointMap);
+		s.writeTable(instanceOfMap);
+		s.writeTable(hasInstanceMap);
+		s.writeTable(activeRelation);
+		s.writeTable(passiveRelation);
+		s.writeTable(subProp);
+		s.writeTable(superProp);
+		s.writeTable(inverseProp);
+		s.writeTable(transitiveOver);
+		s.writeSet(symmetric);
+		s.writeSet(functional);
+		s.writeTable(domain);
+		s.writeTable(objectRange);
+		s.writeTable(dataRange);
+		s.writeBoolean(useIndex);
+		s.writeBoolean(indexed);
+		s.writeBoolean(hierarchy != null);
+	}
+	
+//Private Methods
+	
+	//Returns the DisjointIndex of the map, building it if needed, or null
+	//if the transitive closure wasn't computed since relationships between
+	//classes were last added (as is the case while loading an ontology, when
+	//building it for each query would take quadratic time)
+	private DisjointIndex disjointIndex()
+	{
+		DisjointIndex d = disjoints;
+		if(d == null && (hierarchy != null || indexed))
+		{
+			d = new DisjointIndex(disjointMap, this);
+			disjoints = d;
+		}
+		return d;
+	}
+	
+	//Returns the ReachabilityIndex of the map, if it has one, rebuilding it
+	//if relationships between classes were added since it was built
+	private ReachabilityIndex index()
+	{
+		ReachabilityIndex x = reachability;
+		if(x != null || !indexed)
+			return x;
+		synchronized(this)
+		{
+			if(reachability == null)
+				reachability = new ReachabilityIndex(ancestorClasses, transitiveOver);
+			return reachability;
+		}
+	}
+	
+	//Returns the classes in a view plus the given class
+	private int[] withClass(IntSlice view, int classId)
+	{
+		int[] classes = new int[view.size()+1];
+		for(int i = 0; i < view.size(); i++)
+			classes[i] = view.get(i);
+		classes[view.size()] = classId;
+		return classes;
+	}
 }
\ No newline at end of file
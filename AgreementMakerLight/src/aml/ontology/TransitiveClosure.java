@@ -0,0 +1,613 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Computes the transitive closure of the relationships between classes, with  *
+* the minimal distance for each ancestor, property and restriction. Classes   *
+* are processed in topological order (ancestors first), so that the closure   *
+* of each class is built from the closures of its parents, which are kept in  *
+* primitive arrays. Cycles (e.g. from equivalences) are closed by iterating   *
+* over their classes until their closures no longer change. The closures can  *
+* also be computed on demand, keeping only a bounded number of relationships  *
+* (see ReachabilityIndex).                                                    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.util.LongIntMap;
+import aml.util.Table2Set;
+import aml.util.Table3List;
+
+public class TransitiveClosure
+{
+
+//Attributes
+
+	//The maximum number of relationships kept in closures computed on demand
+	private static final int CACHE = 1 << 23;
+	//The ids of the classes, by local index, and the local index of each class id
+	private int[] classes;
+	private int[] local;
+	//The direct relationships of each class (by local index) in CSR form:
+	//the relationships of class i are in positions start[i] to start[i+1]-1
+	private int[] start;
+	private int[] parents;
+	private int[] properties;
+	private int[] distances;
+	private boolean[] restrictions;
+	//The pairs of properties (p1,p2) such that p1 is transitive over p2
+	private LongIntMap transitiveOver;
+	//The strongly connected component of each class (by local index), and
+	//the classes in each component, with the components in topological order
+	//(the classes of component j are in positions componentStart[j] to
+	//componentStart[j+1]-1 of members)
+	private int[] component;
+	private int[] componentStart;
+	private int[] members;
+	//The closure of each class (by local index)
+	private Row[] closure;
+	//The number of relationships in the closures computed on demand
+	private int cached;
+	//The stack of components waiting for the closures of their ancestors
+	private int[] pending;
+
+//Constructors
+
+	/**
+	 * Computes the transitive closure of the given relationships between classes
+	 * @param relationships: the table of relationships (Class -> Ancestor -> Relationship)
+	 * @param transitive: the table of transitive properties (Property1 -> Property2
+	 * over which 1 is transitive)
+	 */
+	public TransitiveClosure(Table3List<Integer,Integer,Relationship> relationships,
+			Table2Set<Integer,Integer> transitive)
+	{
+		this(relationships,transitive,false);
+	}
+
+	/**
+	 * Prepares the transitive closure of the given relationships between classes
+	 * @param relationships: the table of relationships (Class -> Ancestor -> Relationship)
+	 * @param transitive: the table of transitive properties (Property1 -> Property2
+	 * over which 1 is transitive)
+	 * @param lazy: whether to compute the closure of each class only when it is
+	 * requested (see close(int)) instead of computing the closures of all classes
+	 */
+	public TransitiveClosure(Table3List<Integer,Integer,Relationship> relationships,
+			Table2Set<Integer,Integer> transitive, boolean lazy)
+	{
+		transitiveOver = new LongIntMap();
+		for(Integer p1 : transitive.keySet())
+			for(Integer p2 : transitive.get(p1))
+				transitiveOver.put(LongIntMap.key(p1,p2), 0);
+		index(relationships);
+		closure = new Row[classes.length];
+		component = new int[classes.length];
+		members = components(start, parents, component);
+		//The last class in members is in the last component
+		int count = 0;
+		if(classes.length > 0)
+			count = component[members[classes.length-1]] + 1;
+		componentStart = new int[count+1];
+		for(int c : component)
+			componentStart[c+1]++;
+		for(int j = 0; j < count; j++)
+			componentStart[j+1] += componentStart[j];
+		if(lazy)
+			return;
+		//The components are in topological order, so the closures of the
+		//ancestors of each component are complete when we reach it
+		for(int j = 0; j < count; j++)
+			closeComponent(j);
+	}
+
+//Public Methods
+
+	/**
+	 * Computes the closure of a class, if it wasn't computed yet, along with
+	 * the closures of its ancestors. When the closures computed on demand
+	 * exceed the size of the cache, they are all discarded first, so the
+	 * closure of the class is only guaranteed until the next call
+	 * @param index: the local index of the class
+	 */
+	public void close(int index)
+	{
+		if(closure[index] != null)
+			return;
+		if(cached > CACHE)
+		{
+			Arrays.fill(closure, null);
+			cached = 0;
+		}
+		if(pending == null)
+			pending = new int[parents.length+1];
+		int size = 0;
+		pending[size++] = component[index];
+		while(size > 0)
+		{
+			int j = pending[size-1];
+			if(closure[members[componentStart[j]]] != null)
+			{
+				size--;
+				continue;
+			}
+			boolean ready = true;
+			for(int m = componentStart[j]; m < componentStart[j+1]; m++)
+			{
+				int c = members[m];
+				for(int i = start[c]; i < start[c+1]; i++)
+				{
+					if(component[parents[i]] != j && closure[parents[i]] == null)
+					{
+						pending[size++] = component[parents[i]];
+						ready = false;
+					}
+				}
+			}
+			if(ready)
+			{
+				closeComponent(j);
+				for(int m = componentStart[j]; m < componentStart[j+1]; m++)
+					cached += closure[members[m]].size;
+				size--;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of strongly connected components of the graph of
+	 * relationships
+	 */
+	public int componentCount()
+	{
+		return componentStart.length - 1;
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @return the number of direct relationships of the class
+	 */
+	public int directCount(int index)
+	{
+		return start[index+1] - start[index];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the relationship in the closure of the class
+	 * @return the id of the ancestor in the relationship
+	 */
+	public int getAncestor(int index, int k)
+	{
+		return classes[closure[index].ancestors[k]];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @return the id of the class
+	 */
+	public int getClassId(int index)
+	{
+		return classes[index];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @return the strongly connected component of the class, where the
+	 * components are numbered so that those of the ancestors come first
+	 */
+	public int getComponent(int index)
+	{
+		return component[index];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the direct relationship of the class
+	 * @return the distance of the direct relationship
+	 */
+	public int getDirectDistance(int index, int k)
+	{
+		return distances[start[index]+k];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the direct relationship of the class
+	 * @return the local index of the parent in the direct relationship
+	 */
+	public int getDirectParent(int index, int k)
+	{
+		return parents[start[index]+k];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the direct relationship of the class
+	 * @return the property of the direct relationship
+	 */
+	public int getDirectProperty(int index, int k)
+	{
+		return properties[start[index]+k];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the direct relationship of the class
+	 * @return the restriction of the direct relationship
+	 */
+	public boolean getDirectRestriction(int index, int k)
+	{
+		return restrictions[start[index]+k];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the relationship in the closure of the class
+	 * @return the (minimal) distance of the relationship
+	 */
+	public int getDistance(int index, int k)
+	{
+		return closure[index].distances[k];
+	}
+
+	/**
+	 * @param classId: the id of the class
+	 * @return the local index of the class, or -1 if it has no relationships
+	 */
+	public int getIndex(int classId)
+	{
+		if(classId < 0 || classId >= local.length)
+			return -1;
+		return local[classId];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the relationship in the closure of the class
+	 * @return the property of the relationship
+	 */
+	public int getProperty(int index, int k)
+	{
+		return closure[index].properties[k];
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @param k: the position of the relationship in the closure of the class
+	 * @return the restriction of the relationship
+	 */
+	public boolean getRestriction(int index, int k)
+	{
+		return closure[index].restrictions[k];
+	}
+
+	/**
+	 * @param prop1: the first property
+	 * @param prop2: the second property
+	 * @return whether prop1 is transitive over prop2, so that a relationship
+	 * with prop1 combines with a relationship with prop2 above it
+	 */
+	public boolean isTransitiveOver(int prop1, int prop2)
+	{
+		return transitiveOver.contains(LongIntMap.key(prop1,prop2));
+	}
+
+	/**
+	 * @param index: the local index of the class
+	 * @return the number of relationships in the closure of the class
+	 */
+	public int relationshipCount(int index)
+	{
+		return closure[index].size;
+	}
+
+	/**
+	 * @return the number of classes in the closure
+	 */
+	public int size()
+	{
+		return classes.length;
+	}
+
+//Private Methods
+
+	//Finds the strongly connected components of a graph in CSR form (the edges
+	//of node i lead to targets[start[i]] to targets[start[i+1]-1]) with Tarjan's
+	//algorithm, without recursion. The components are numbered in the order in
+	//which they are found, which is a topological order where the components
+	//reachable from a component come first. Fills in the component of each node
+	//and returns the nodes sorted by component
+	static int[] components(int[] start, int[] targets, int[] component)
+	{
+		int n = start.length - 1;
+		int[] members = new int[n];
+		int found = 0;
+		int components = 0;
+		int[] order = new int[n];
+		Arrays.fill(order, -1);
+		int[] low = new int[n];
+		boolean[] onStack = new boolean[n];
+		int[] stack = new int[n];
+		int stackSize = 0;
+		int[] path = new int[n];
+		int[] next = new int[n];
+		int count = 0;
+		for(int s = 0; s < n; s++)
+		{
+			if(order[s] != -1)
+				continue;
+			int depth = 0;
+			path[0] = s;
+			next[s] = start[s];
+			order[s] = low[s] = count++;
+			stack[stackSize++] = s;
+			onStack[s] = true;
+			while(depth >= 0)
+			{
+				int v = path[depth];
+				if(next[v] < start[v+1])
+				{
+					int w = targets[next[v]++];
+					if(order[w] == -1)
+					{
+						path[++depth] = w;
+						next[w] = start[w];
+						order[w] = low[w] = count++;
+						stack[stackSize++] = w;
+						onStack[w] = true;
+					}
+					else if(onStack[w] && order[w] < low[v])
+						low[v] = order[w];
+					continue;
+				}
+				if(low[v] == order[v])
+				{
+					int first = stackSize;
+					do
+					{
+						first--;
+						onStack[stack[first]] = false;
+					}
+					while(stack[first] != v);
+					for(int k = first; k < stackSize; k++)
+					{
+						component[stack[k]] = components;
+						members[found++] = stack[k];
+					}
+					components++;
+					stackSize = first;
+				}
+				depth--;
+				if(depth >= 0 && low[v] < low[path[depth]])
+					low[path[depth]] = low[v];
+			}
+		}
+		return members;
+	}
+
+	//Computes the closure of the classes in a strongly connected component,
+	//given that the closures of all their ancestors outside it are complete
+	private void closeComponent(int j)
+	{
+		int from = componentStart[j];
+		int to = componentStart[j+1];
+		int v = members[from];
+		boolean cyclic = to - from > 1;
+		for(int i = start[v]; i < start[v+1] && !cyclic; i++)
+			cyclic = parents[i] == v;
+		if(!cyclic)
+		{
+			closure[v] = extend(v);
+			return;
+		}
+		//In a cycle, closures can only grow or get shorter distances, so we
+		//iterate until neither the size nor the total distance changes
+		for(int m = from; m < to; m++)
+			closure[members[m]] = new Row(0);
+		boolean changed = true;
+		while(changed)
+		{
+			changed = false;
+			for(int m = from; m < to; m++)
+			{
+				int c = members[m];
+				Row r = extend(c);
+				if(r.size != closure[c].size || r.totalDistance() != closure[c].totalDistance())
+					changed = true;
+				closure[c] = r;
+			}
+		}
+	}
+
+	//Builds the closure of a class by extending each of its direct relationships
+	//with the closure of the parent, keeping the minimal distance of each
+	//combination of ancestor, property and restriction (as well as the minimal
+	//distance above 0, which is the one that can be extended)
+	private Row extend(int c)
+	{
+		int capacity = 0;
+		for(int i = start[c]; i < start[c+1]; i++)
+		{
+			capacity++;
+			if(closure[parents[i]] != null)
+				capacity += closure[parents[i]].size;
+		}
+		Row row = new Row(capacity);
+		LongIntMap positions = new LongIntMap(capacity);
+		for(int i = start[c]; i < start[c+1]; i++)
+		{
+			int parent = parents[i];
+			int p2 = properties[i];
+			boolean r2 = restrictions[i];
+			int d2 = distances[i];
+			row.offer(positions, parent, p2, r2, d2);
+			Row up = closure[parent];
+			if(up == null)
+				continue;
+			for(int k = 0; k < up.size; k++)
+			{
+				//Relationships at distance 0 (equivalences) are not extended upward
+				if(up.extensible[k] < 1)
+					continue;
+				int p1 = up.properties[k];
+				//We only extend relationships if the property is the same (and transitive)
+				//for the two relationships or one of the properties is 'is_a' (-1)
+				if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(LongIntMap.key(p2,p1))))
+					continue;
+				int prop;
+				if(p1 != -1)
+					prop = p1;
+				else
+					prop = p2;
+				row.offer(positions, up.ancestors[k], prop, r2 && up.restrictions[k], d2 + up.extensible[k]);
+			}
+		}
+		row.trim();
+		return row;
+	}
+
+	//Assigns local indexes to the classes and lists their direct relationships
+	private void index(Table3List<Integer,Integer,Relationship> relationships)
+	{
+		HashMap<Integer,Integer> localIds = new HashMap<Integer,Integer>();
+		Vector<Integer> ids = new Vector<Integer>();
+		int edges = 0;
+		for(Integer c : relationships.keySet())
+		{
+			if(!localIds.containsKey(c))
+			{
+				localIds.put(c, ids.size());
+				ids.add(c);
+			}
+			for(Integer p : relationships.keySet(c))
+			{
+				if(!localIds.containsKey(p))
+				{
+					localIds.put(p, ids.size());
+					ids.add(p);
+				}
+				edges += relationships.get(c,p).size();
+			}
+		}
+		int n = ids.size();
+		classes = new int[n];
+		int max = -1;
+		for(int i = 0; i < n; i++)
+		{
+			classes[i] = ids.get(i);
+			max = Math.max(max, classes[i]);
+		}
+		local = new int[max+1];
+		Arrays.fill(local, -1);
+		for(int i = 0; i < n; i++)
+			local[classes[i]] = i;
+		start = new int[n+1];
+		parents = new int[edges];
+		properties = new int[edges];
+		distances = new int[edges];
+		restrictions = new boolean[edges];
+		int pos = 0;
+		for(int i = 0; i < n; i++)
+		{
+			start[i] = pos;
+			if(!relationships.contains(classes[i]))
+				continue;
+			Set<Integer> ancs = relationships.keySet(classes[i]);
+			for(Integer p : ancs)
+			{
+				for(Relationship r : relationships.get(classes[i],p))
+				{
+					parents[pos] = localIds.get(p);
+					properties[pos] = r.getProperty();
+					distances[pos] = r.getDistance();
+					restrictions[pos] = r.getRestriction();
+					pos++;
+				}
+			}
+		}
+		start[n] = pos;
+	}
+
+	//The closure of a class, in parallel primitive arrays
+	private static class Row
+	{
+		private int[] ancestors;
+		private int[] properties;
+		private int[] distances;
+		//The minimal distance above 0 (or 0 if there is none)
+		private int[] extensible;
+		private boolean[] restrictions;
+		private int size;
+
+		public Row(int capacity)
+		{
+			ancestors = new int[capacity];
+			properties = new int[capacity];
+			distances = new int[capacity];
+			extensible = new int[capacity];
+			restrictions = new boolean[capacity];
+			size = 0;
+		}
+
+		//Adds a relationship to the row, or updates its distance if the
+		//row already has the ancestor, property and restriction
+		public void offer(LongIntMap positions, int ancestor, int prop, boolean rest, int distance)
+		{
+			long key = LongIntMap.key(2 * ancestor + (rest ? 1 : 0), prop);
+			int pos = positions.get(key);
+			if(pos == LongIntMap.NONE)
+			{
+				positions.put(key, size);
+				ancestors[size] = ancestor;
+				properties[size] = prop;
+				distances[size] = distance;
+				extensible[size] = Math.max(distance, 0);
+				restrictions[size] = rest;
+				size++;
+			}
+			else
+			{
+				if(distance < distances[pos])
+					distances[pos] = distance;
+				if(distance > 0 && (extensible[pos] == 0 || distance < extensible[pos]))
+					extensible[pos] = distance;
+			}
+		}
+
+		public long totalDistance()
+		{
+			long total = 0;
+			for(int i = 0; i < size; i++)
+				total += distances[i] + extensible[i];
+			return total;
+		}
+
+		public void trim()
+		{
+			if(size == ancestors.length)
+				return;
+			ancestors = Arrays.copyOf(ancestors, size);
+			properties = Arrays.copyOf(properties, size);
+			distances = Arrays.copyOf(distances, size);
+			extensible = Arrays.copyOf(extensible, size);
+			restrictions = Arrays.copyOf(restrictions, size);
+		}
+	}
+}
\ No newline at end of file
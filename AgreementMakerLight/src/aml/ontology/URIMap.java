@@ -13,14 +13,20 @@
 *                                                                             *
 *******************************************************************************
 * The global map of URIs, numeric indexes, and entity types in the opened     *
-* ontologies.                                                                 *
+* ontologies. Since indexes are dense (1 to size), entities are stored in     *
+* arrays by index: each URI is split into a namespace, stored once, and a     *
+* local name, stored in a shared pool of chars, and URIs are found by an      *
+* open addressing hash over the pool.                                         *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
 package aml.ontology;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.Vector;
 
 import aml.settings.EntityType;
 
@@ -32,85 +38,129 @@ public class URIMap
 {
 
 //Attributes
-	
-	//The numeric index (Integer) <-> URI (String) maps of ontology entities 
-	private HashMap<Integer,String> indexURI;
-	private HashMap<String,Integer> URIindex;
-	//The numeric index (Integer) -> EntityType map of ontology entities 
-	private HashMap<Integer,EntityType> indexType;
+
+	private static final EntityType[] TYPES = EntityType.values();
+	//The namespaces of the URIs, and the number of each namespace
+	private Vector<String> namespaces;
+	private HashMap<String,Integer> namespaceIndex;
+	//The number of the last namespace found (which is usually the next)
+	private int lastNamespace;
+	//The namespace number and EntityType (ordinal) of each entity, by index
+	private int[] namespace;
+	private byte[] type;
+	//The pool with the local names of the entities, where the local name
+	//of index i goes from start[i] to start[i+1]
+	private char[] pool;
+	private int[] start;
+	//The index of the entity in each slot of the hash (0 for an empty slot)
+	private int[] slots;
 	//The total number of stored URIs
 	private int size;
-	
+
 //Constructors
-	
+
 	public URIMap()
 	{
-		indexURI = new HashMap<Integer,String>();
-		URIindex = new HashMap<String,Integer>();
-		indexType = new HashMap<Integer,EntityType>();
+		namespaces = new Vector<String>();
+		namespaceIndex = new HashMap<String,Integer>();
+		lastNamespace = -1;
+		namespace = new int[1024];
+		type = new byte[1024];
+		pool = new char[16384];
+		start = new int[1025];
+		slots = new int[2048];
 		size = 0;
 	}
-	
+
 //Public Methods
-	
+
 	/**
 	 * @param uri: the URI to add to AML
 	 * @return the index of the added URI
 	 */
 	public int addURI(String uri, EntityType t)
 	{
-		String newUri = uri;
-		if(URIindex.containsKey(newUri))
+		int cut = split(uri);
+		int n = getNamespace(uri, cut);
+		if(n < 0)
 		{
-			int index = URIindex.get(newUri);
-			if(!indexType.get(index).equals(t))
-				indexType.put(index,t);
-			return index;
+			String ns = uri.substring(0, cut);
+			n = namespaces.size();
+			namespaces.add(ns);
+			namespaceIndex.put(ns, n);
 		}
 		else
 		{
-			size++;
-			Integer i = new Integer(size);
-			indexURI.put(i,newUri);
-			URIindex.put(newUri,i);
-			indexType.put(i, t);
-			return size;
+			int index = find(n, uri, cut);
+			if(index > 0)
+			{
+				type[index] = (byte)t.ordinal();
+				return index;
+			}
+		}
+		size++;
+		if(size + 1 >= start.length)
+		{
+			int length = start.length * 2;
+			namespace = Arrays.copyOf(namespace, length);
+			type = Arrays.copyOf(type, length);
+			start = Arrays.copyOf(start, length + 1);
+		}
+		int end = start[size] + uri.length() - cut;
+		if(end > pool.length)
+			pool = Arrays.copyOf(pool, Math.max(end, pool.length * 2));
+		uri.getChars(cut, uri.length(), pool, start[size]);
+		start[size+1] = end;
+		namespace[size] = n;
+		type[size] = (byte)t.ordinal();
+		if(size * 2 > slots.length)
+		{
+			slots = new int[slots.length * 2];
+			for(int i = 1; i <= size; i++)
+				place(i);
 		}
+		else
+			place(size);
+		return size;
 	}
-	
+
 	/**
 	 * @param uri: the URI to search in AML
 	 * @return the index of the input URI
 	 */
 	public int getIndex(String uri)
 	{
-		if(URIindex.containsKey(uri))
-			return URIindex.get(uri);
+		int cut = split(uri);
+		int n = getNamespace(uri, cut);
+		if(n < 0)
+			return -1;
+		int index = find(n, uri, cut);
+		if(index > 0)
+			return index;
 		else
 			return -1;
 	}
-	
+
 	/**
 	 * @return the indexes in the URIMap
 	 */
 	public Set<Integer> getIndexes()
 	{
-		return indexURI.keySet();
+		HashSet<Integer> indexes = new HashSet<Integer>();
+		for(int i = 1; i <= size; i++)
+			indexes.add(i);
+		return indexes;
 	}
-	
+
 	/**
 	 * @param index: the index of the entity to get the name
 	 * @return the local name of the entity with the given index
 	 */
 	public String getLocalName(int index)
 	{
-		String uri = indexURI.get(index);
-		if(uri == null)
+		if(index < 1 || index > size)
 			return null;
-		int i = uri.indexOf("#") + 1;
-		if(i == 0)
-			i = uri.lastIndexOf("/") + 1;
-		return uri.substring(i);
+		return new String(pool, start[index], start[index+1] - start[index]);
 	}
 
 	/**
@@ -119,63 +169,158 @@ public class URIMap
 	 */
 	public EntityType getType(int index)
 	{
-		return indexType.get(index);
+		if(index < 1 || index > size)
+			return null;
+		return TYPES[type[index]];
 	}
-	
+
 	/**
 	 * @param index: the index to search in AML
 	 * @return the URI of the input index
 	 */
 	public String getURI(int index)
 	{
-		if(indexURI.containsKey(index))
-			return indexURI.get(index);
-		else
+		if(index < 1 || index > size)
 			return null;
+		return namespaces.get(namespace[index]) + getLocalName(index);
 	}
-	
+
 	/**
 	 * @return the URIs in the URIMap
 	 */
 	public Set<String> getURIS()
 	{
-		return URIindex.keySet();
+		HashSet<String> uris = new HashSet<String>();
+		for(int i = 1; i <= size; i++)
+			uris.add(getURI(i));
+		return uris;
 	}
-	
+
 	/**
 	 * @param index: the index of the Ontology entity
 	 * @return whether the entity is a Class
 	 */
 	public boolean isClass(int index)
 	{
-		return indexType.get(index).equals(EntityType.CLASS);
+		return getType(index) == EntityType.CLASS;
 	}
-	
+
 	/**
 	 * @param index: the index of the Ontology entity
 	 * @return whether the entity is an Individual
 	 */
 	public boolean isIndividual(int index)
 	{
-		return indexType.get(index).equals(EntityType.INDIVIDUAL);
-	}	
-	
+		return getType(index) == EntityType.INDIVIDUAL;
+	}
+
 	/**
 	 * @param index: the index of the Ontology entity
 	 * @return whether the entity is a Property
 	 */
 	public boolean isProperty(int index)
 	{
-		return indexType.get(index).equals(EntityType.ANNOTATION) ||
-				indexType.get(index).equals(EntityType.DATA) ||
-				indexType.get(index).equals(EntityType.OBJECT);
+		EntityType t = getType(index);
+		return t == EntityType.ANNOTATION || t == EntityType.DATA ||
+				t == EntityType.OBJECT;
 	}
-	
+
 	/**
 	 * @return the number of entries in the URI map
 	 */
 	public int size()
 	{
-		return indexURI.size();
+		return size;
+	}
+
+//Private Methods
+
+	//Returns the index of the URI with the given namespace number and
+	//local name (from position cut of uri), or 0 if there is none
+	private int find(int n, String uri, int cut)
+	{
+		int length = uri.length() - cut;
+		int mask = slots.length - 1;
+		int h = n;
+		for(int j = cut; j < uri.length(); j++)
+			h = 31 * h + uri.charAt(j);
+		for(int i = mix(h) & mask; slots[i] != 0; i = (i + 1) & mask)
+		{
+			int index = slots[i];
+			if(namespace[index] != n || start[index+1] - start[index] != length)
+				continue;
+			int p = start[index];
+			int j = cut;
+			while(j < uri.length() && pool[p] == uri.charAt(j))
+			{
+				p++;
+				j++;
+			}
+			if(j == uri.length())
+				return index;
+		}
+		return 0;
+	}
+
+	//Returns the number of the namespace of the URI (which ends at
+	//position cut), or -1 if it isn't in the URIMap
+	private int getNamespace(String uri, int cut)
+	{
+		int n = lastNamespace;
+		if(n > -1 && isNamespace(uri, cut, n))
+			return n;
+		//Few namespaces are checked directly, to spare the substring
+		if(namespaces.size() <= 16)
+		{
+			for(n = 0; n < namespaces.size(); n++)
+			{
+				if(isNamespace(uri, cut, n))
+				{
+					lastNamespace = n;
+					return n;
+				}
+			}
+			return -1;
+		}
+		Integer i = namespaceIndex.get(uri.substring(0, cut));
+		if(i == null)
+			return -1;
+		lastNamespace = i;
+		return i;
+	}
+
+	//Checks whether the URI (with namespace ending at cut) is in the n-th namespace
+	private boolean isNamespace(String uri, int cut, int n)
+	{
+		String ns = namespaces.get(n);
+		return ns.length() == cut && uri.startsWith(ns);
+	}
+
+	private static int mix(int h)
+	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	//Places an index in the hash
+	private void place(int index)
+	{
+		int mask = slots.length - 1;
+		int h = namespace[index];
+		for(int p = start[index]; p < start[index+1]; p++)
+			h = 31 * h + pool[p];
+		int i = mix(h) & mask;
+		while(slots[i] != 0)
+			i = (i + 1) & mask;
+		slots[i] = index;
+	}
+
+	//Returns the position where the local name of the URI starts
+	private static int split(String uri)
+	{
+		int i = uri.indexOf("#") + 1;
+		if(i == 0)
+			i = uri.lastIndexOf("/") + 1;
+		return i;
 	}
-}
\ No newline at end of file
+}
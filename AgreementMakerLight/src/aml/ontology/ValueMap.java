@@ -20,6 +20,7 @@
 
 package aml.ontology;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -130,4 +131,20 @@ public class ValueMap
 	{
 		return valueIndividuals.size();
 	}
+	
+//Package Methods
+	
+	//Reads the entries of the ValueMap from a snapshot
+	void load(OntologySnapshot s) throws IOException
+	{
+		s.readTable(valueIndividuals);
+		s.readTable(individualValues);
+	}
+	
+	//Writes the entries of the ValueMap to a snapshot
+	void save(OntologySnapshot s) throws IOException
+	{
+		s.writeTable(valueIndividuals);
+		s.writeTable(individualValues);
+	}
 }
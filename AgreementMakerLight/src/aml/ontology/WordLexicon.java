@@ -19,13 +19,16 @@
 ******************************************************************************/
 package aml.ontology;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.Vector;
 
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
 import aml.util.StopList;
+import aml.util.StringParser;
 import aml.util.Table2Set;
 import aml.util.Table2Map;
 
@@ -34,8 +37,10 @@ public class WordLexicon
 
 //Attributes
 
-	//The maximum size of class blocks
+	//The default maximum size of class blocks
 	private final int MAX_BLOCK_SIZE = 10000;
+	//The maximum size of class blocks in use
+	private int blockSize = MAX_BLOCK_SIZE;
 	//A link to the original Lexicon
 	private Lexicon lex;
 	//The list of stop words to ignore when building this WordLexicon
@@ -99,6 +104,14 @@ public class WordLexicon
 		return wordEntities.length;
 	}
 	
+	/**
+	 * @return the maximum number of entities in each block of the WordLexicon
+	 */
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+	
 	/**
 	 * @param index: the index of the entity to search in the WordLexicon
 	 * @return the EC of the given entity
@@ -118,6 +131,18 @@ public class WordLexicon
 		return entityWords.keySet();
 	}
 	
+	/**
+	 * @param w: the word to search in the WordLexicon
+	 * @return the number of entities that have the given word
+	 */
+	public int getEntityCount(String w)
+	{
+		int count = 0;
+		for(Table2Set<String,Integer> block : wordEntities)
+			count += block.entryCount(w);
+		return count;
+	}
+	
 	/**
 	 * @return the language used to build this WordLexicon
 	 */
@@ -186,6 +211,14 @@ public class WordLexicon
 		return -1.0;
 	}
 
+	/**
+	 * @return the set of words in the WordLexicon
+	 */
+	public Set<String> getWords()
+	{
+		return wordECs.keySet();
+	}
+	
 	/**
 	 * @return the set of words for the given classId
 	 */
@@ -226,15 +259,36 @@ public class WordLexicon
 		return entityWords.get(classId, word);
 	}
 	
+	/**
+	 * Divides the WordLexicon in blocks of (at most) the given number of
+	 * entities, which are assigned to blocks by order of their index
+	 * @param size: the maximum number of entities in each block
+	 */
+	@SuppressWarnings({"rawtypes","unchecked"})
+	public void setBlockSize(int size)
+	{
+		if(size < 1 || size == blockSize)
+			return;
+		blockSize = size;
+		Vector<Integer> entities = new Vector<Integer>(entityWords.keySet());
+		Collections.sort(entities);
+		wordEntities = new Table2Set[Math.max(1, (entities.size() + size - 1) / size)];
+		for(int i = 0; i < wordEntities.length; i++)
+			wordEntities[i] = new Table2Set<String,Integer>();
+		for(int i = 0; i < entities.size(); i++)
+			for(String w : entityWords.keySet(entities.get(i)))
+				wordEntities[i / size].add(w, entities.get(i));
+	}
+	
 //Private methods
 	
 	//Builds the WordLexicon from the original Lexicon
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"rawtypes","unchecked"})
 	private void init()
 	{
 		//Initialize the data structures
 		stopSet = StopList.read();
-		int size = (int)Math.ceil(1.0*lex.entityCount(type)/MAX_BLOCK_SIZE);
+		int size = (int)Math.ceil(1.0*lex.entityCount(type)/blockSize);
 		wordEntities = new Table2Set[size];
 		for(int i = 0; i < wordEntities.length; i++)
 			wordEntities[i] = new Table2Set<String,Integer>();
@@ -296,10 +350,10 @@ public class WordLexicon
 		for(String w : words)
 		{
 			String word = w.replaceAll("[()]", "");
-			if(stopSet.contains(word) || word.length() < 2 || !word.matches(".*[a-zA-Z].*"))
+			if(stopSet.contains(word) || word.length() < 2 || !StringParser.hasLetter(word))
 				continue;
 			//Get the current block number (as determined by the number of classes already loaded)
-			int block = entityWords.keySet().size()/MAX_BLOCK_SIZE;
+			int block = entityWords.keySet().size()/blockSize;
 			//Add the block-word-class triple
 			wordEntities[block].add(word,classId);
 			//Update the current weight of the word for the classId
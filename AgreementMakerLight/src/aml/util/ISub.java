@@ -24,6 +24,20 @@ package aml.util;
 public class ISub
 {
 	
+//Attributes
+	
+	//Reusable character buffers for each thread
+	private static final ThreadLocal<char[][]> BUFFERS = new ThreadLocal<char[][]>()
+	{
+		@Override
+		protected char[][] initialValue()
+		{
+			return new char[2][64];
+		}
+	};
+	//Tolerance for rounding errors in the similarity upper bounds
+	private static final double TOLERANCE = 0.000001;
+	
 //Constructors
 	
 	private ISub(){}
@@ -38,20 +52,27 @@ public class ISub
 	 */
 	public static double stringSimilarity(String st1, String st2)
 	{
-		String s1 = st1, s2 = st2;
-		if(s1 == null || s2 == null)
+		if(st1 == null || st2 == null)
 			return 0;
-		int L1 = s1.length(), L2 = s2.length();
+		int L1 = st1.length(), L2 = st2.length();
 		if(L1 == 0 || L2 == 0)
 			return 0;
-		int l1, l2;
+		//The common substrings are removed in place from copies of
+		//the Strings in this thread's buffers
+		char[][] buffers = BUFFERS.get();
+		if(buffers[0].length < L1)
+			buffers[0] = new char[Math.max(L1, 2 * buffers[0].length)];
+		if(buffers[1].length < L2)
+			buffers[1] = new char[Math.max(L2, 2 * buffers[1].length)];
+		char[] s1 = buffers[0], s2 = buffers[1];
+		st1.getChars(0, L1, s1, 0);
+		st2.getChars(0, L2, s2, 0);
+		int l1 = L1, l2 = L2;
 		double common = 0;
 		int best = 2;
-		while (s1.length() > 0 && s2.length() > 0 && best != 0)
+		while (l1 > 0 && l2 > 0 && best != 0)
 		{
 			best = 0;
-			l1 = s1.length();
-			l2 = s2.length();
 			int i = 0, j = 0;
 			int startS1 = 0, endS1 = 0;
 			int startS2 = 0, endS2 = 0;
@@ -62,12 +83,12 @@ public class ISub
 				while (l2 - j > best)
 				{
 					int k = i;
-					while(j < l2 && s1.charAt(k) != s2.charAt(j))
+					while(j < l2 && s1[k] != s2[j])
 						j++;
 					if(j != l2)
 					{
 						p = j;
-						for(j++, k ++; (j < l2) && (k < l1) && (s1.charAt(k) == s2.charAt(j)); j++, k++);
+						for(j++, k ++; (j < l2) && (k < l1) && (s1[k] == s2[j]); j++, k++);
 						if(k - i > best)
 						{
 							best = k - i;
@@ -79,24 +100,10 @@ public class ISub
 					}
 				}
 			}
-			char[] newString = new char[s1.length() - (endS1 - startS1)];
-			j = 0;
-			for(i = 0; i < s1.length(); i++)
-			{
-				if(i >= startS1 && i < endS1)
-					continue;
-				newString[j++] = s1.charAt(i);
-			}
-			s1 = new String(newString);
-			newString = new char[s2.length() - (endS2 - startS2)];
-			j = 0;
-			for(i = 0; i < s2.length(); i++)
-			{
-				if(i >= startS2 && i < endS2)
-					continue;
-				newString[j++] = s2.charAt(i);
-			}
-			s2 = new String(newString);
+			System.arraycopy(s1, endS1, s1, startS1, l1 - endS1);
+			l1 -= endS1 - startS1;
+			System.arraycopy(s2, endS2, s2, startS2, l2 - endS2);
+			l2 -= endS2 - startS2;
 			if(best > 2)
 				common += best;
 			else
@@ -126,8 +133,73 @@ public class ISub
 		return result;
 	}
 
+	/**
+	 * Computes the similarity between two Strings if it can reach
+	 * a minimum score, checking first a cheap upper bound
+	 * @param st1: the first string to compare
+	 * @param st2: the second string to compare
+	 * @param minScore: the minimum similarity score of interest
+	 * @return the ISub similarity between st1 and st2 if its upper
+	 * bound is not below minScore, or 0 otherwise
+	 */
+	public static double stringSimilarity(String st1, String st2, double minScore)
+	{
+		if(minScore > 0 && maxSimilarity(st1, st2) < minScore)
+			return 0;
+		return stringSimilarity(st1, st2);
+	}
+
+	/**
+	 * Computes an upper bound of the ISub similarity between two Strings
+	 * from their lengths, their common prefix and the number of characters
+	 * they have in common (since no more than these can be in common
+	 * substrings), which is much faster than computing the similarity
+	 * @param st1: the first string to compare
+	 * @param st2: the second string to compare
+	 * @return the maximum ISub similarity between st1 and st2
+	 */
+	public static double maxSimilarity(String st1, String st2)
+	{
+		if(st1 == null || st2 == null)
+			return 0;
+		int L1 = st1.length(), L2 = st2.length();
+		int common = StringSimilarity.commonCharacters(st1, st2);
+		if(common < 3)
+			return 0;
+		double commonality = (double) (2 * common) / (L1 + L2);
+		double unmatchedS1 = (double) (L1 - common) / L1;
+		double unmatchedS2 = (double) (L2 - common) / L2;
+		double suma = unmatchedS1 + unmatchedS2;
+		double product = unmatchedS1 * unmatchedS2;
+		double dissimilarity = 0;
+		if((suma - product) != 0)
+			dissimilarity = product / (0.6 + 0.4 * (suma - product));
+		double bound = commonality - dissimilarity + winklerImprovement(st1, st2, commonality);
+		//Allow for rounding differences with respect to stringSimilarity
+		return bound + TOLERANCE;
+	}
+
+	/**
+	 * Computes an upper bound of the ISub similarity between two Strings
+	 * given only their lengths, which corresponds to the case where the
+	 * shortest String is fully contained in the longest one and they share
+	 * the maximum common prefix. Note that two Strings that don't share a
+	 * substring of at least 3 characters always have an ISub similarity of 0
+	 * @param l1: the length of the first string
+	 * @param l2: the length of the second string
+	 * @return the maximum ISub similarity between two strings with lengths l1 and l2
+	 */
+	public static double maxSimilarity(int l1, int l2)
+	{
+		int min = Math.min(l1, l2);
+		if(min < 3)
+			return 0;
+		double commonality = (double) (2 * min) / (l1 + l2);
+		return commonality + Math.min(4, min) * 0.1 * (1 - commonality);
+	}
+
 //Private Methods
-	
+
 	private static double winklerImprovement(String s1, String s2, double commonality)
 	{
 		int i, n = Math.min(s1.length(), s2.length());
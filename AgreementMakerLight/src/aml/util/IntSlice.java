@@ -0,0 +1,139 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A read-only view of a slice of a sorted array of distinct ints, which is    *
+* not copied, so frozen structures can return views without creating objects  *
+* per element. Searches are binary searches.                                  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+public class IntSlice
+{
+
+//Attributes
+
+	//The empty view
+	public static final IntSlice EMPTY = new IntSlice(new int[0], 0, 0);
+	//The viewed array and the limits of the slice
+	private final int[] values;
+	private final int from;
+	private final int to;
+
+//Constructors
+
+	/**
+	 * Constructs a new view of a slice of the given array, which must be
+	 * sorted (with no repeated values) between from and to
+	 * @param values: the array to view
+	 * @param from: the first position in the slice
+	 * @param to: the position after the last position in the slice
+	 */
+	public IntSlice(int[] values, int from, int to)
+	{
+		this.values = values;
+		this.from = from;
+		this.to = to;
+	}
+
+//Public Methods
+
+	/**
+	 * @param value: the value to search in the view
+	 * @return whether the view contains the value
+	 */
+	public boolean contains(int value)
+	{
+		return indexOf(value) > -1;
+	}
+
+	/**
+	 * @param index: the position in the view
+	 * @return the value at the given position
+	 */
+	public int get(int index)
+	{
+		if(index < 0 || index >= size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		return values[from + index];
+	}
+
+	/**
+	 * @param value: the value to search in the view
+	 * @return the position of the value in the view, or -1 if it isn't there
+	 */
+	public int indexOf(int value)
+	{
+		int i = Arrays.binarySearch(values, from, to, value);
+		if(i < 0)
+			return -1;
+		return i - from;
+	}
+
+	/**
+	 * @return whether the view is empty
+	 */
+	public boolean isEmpty()
+	{
+		return from == to;
+	}
+
+	/**
+	 * @return the number of values in the view
+	 */
+	public int size()
+	{
+		return to - from;
+	}
+
+	/**
+	 * @param values: the values to view
+	 * @return a view of a sorted copy of the given values
+	 */
+	public static IntSlice sorted(Collection<Integer> values)
+	{
+		if(values == null || values.isEmpty())
+			return EMPTY;
+		int[] array = new int[values.size()];
+		int i = 0;
+		for(Integer v : values)
+			array[i++] = v;
+		Arrays.sort(array);
+		return new IntSlice(array, 0, array.length);
+	}
+
+	/**
+	 * @return a copy of the values in the view
+	 */
+	public int[] toArray()
+	{
+		return Arrays.copyOfRange(values, from, to);
+	}
+
+	/**
+	 * @return a (modifiable) set with the values in the view
+	 */
+	public HashSet<Integer> toSet()
+	{
+		HashSet<Integer> set = new HashSet<Integer>();
+		for(int i = from; i < to; i++)
+			set.add(values[i]);
+		return set;
+	}
+}
\ No newline at end of file
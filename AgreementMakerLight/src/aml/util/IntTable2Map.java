@@ -0,0 +1,184 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A table with three columns (int key -> int key -> double value), for use in *
+* place of a Table2Map<Integer,Integer,Double> where no entries are removed.  *
+* The pairs of keys are kept in an IntTable2Set, and the values in double     *
+* arrays parallel to its arrays of second keys.                               *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class IntTable2Map
+{
+
+//Attributes
+
+	//The pairs of keys
+	private IntTable2Set pairs;
+	//The values of the pairs, by number of the first key and
+	//position of the second key
+	private double[][] values;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntTable2Map()
+	{
+		pairs = new IntTable2Set();
+		values = new double[16][];
+	}
+
+//Public Methods
+
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * value will be replaced
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param value: the value for the pair of keys to add to the Table
+	 */
+	public void add(int keyA, int keyB, double value)
+	{
+		long pos = pairs.put(keyA, keyB);
+		int k = (int)(pos >>> 32);
+		int p = (int)pos;
+		slot(k, p)[p] = value;
+	}
+
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * new value will replace the previous value only if it
+	 * is higher
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param value: the value for the pair of keys to add to the Table
+	 */
+	public void addUpgrade(int keyA, int keyB, double value)
+	{
+		int size = pairs.size();
+		long pos = pairs.put(keyA, keyB);
+		int k = (int)(pos >>> 32);
+		int p = (int)pos;
+		double[] v = slot(k, p);
+		if(pairs.size() > size || v[p] < value)
+			v[p] = value;
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return whether the Table contains the first level keyA
+	 */
+	public boolean contains(int keyA)
+	{
+		return pairs.contains(keyA);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return whether the Table contains an entry with the two keys
+	 */
+	public boolean contains(int keyA, int keyB)
+	{
+		return pairs.contains(keyA, keyB);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return the value for the entry with the two keys, or 0 if
+	 * there is no such entry
+	 */
+	public double get(int keyA, int keyB)
+	{
+		int k = pairs.number(keyA);
+		if(k < 0)
+			return 0;
+		int p = pairs.position(k, keyB);
+		if(p < 0)
+			return 0;
+		return values[k][p];
+	}
+
+	/**
+	 * @return a copy of the first level keys in the Table
+	 */
+	public int[] keySet()
+	{
+		return pairs.keySet();
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return a copy of the second level keys of keyA (empty if
+	 * it isn't in the Table)
+	 */
+	public int[] keySet(int keyA)
+	{
+		return pairs.get(keyA);
+	}
+
+	/**
+	 * @return the number of first level keys in the Table
+	 */
+	public int keyCount()
+	{
+		return pairs.keyCount();
+	}
+
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return pairs.size();
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return a copy of the values of the entries of keyA, in the
+	 * same order as keySet(keyA)
+	 */
+	public double[] values(int keyA)
+	{
+		int k = pairs.number(keyA);
+		if(k < 0)
+			return new double[0];
+		return Arrays.copyOf(values[k], pairs.getCount(k));
+	}
+
+//Private Methods
+
+	//Returns the values of the k-th first level key, making room
+	//for the value at position p if needed
+	private double[] slot(int k, int p)
+	{
+		if(k >= values.length)
+			values = Arrays.copyOf(values, Math.max(k + 1, values.length * 2));
+		double[] v = values[k];
+		if(v == null)
+			v = values[k] = new double[Math.max(2, p + 1)];
+		else if(p >= v.length)
+			v = values[k] = Arrays.copyOf(v, Math.max(p + 1, v.length * 2));
+		return v;
+	}
+}
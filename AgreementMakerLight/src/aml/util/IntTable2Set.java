@@ -0,0 +1,271 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A table with two columns of ints (key -> set of values), for use in place   *
+* of a Table2Set<Integer,Integer> where no entries are removed. Keys are      *
+* found by open addressing, and the values of each key are kept in an int     *
+* array, which is scanned while it is small and indexed by an open addressing *
+* table of positions once it grows, so no objects are created per entry.      *
+* Keys and values are listed in the order in which they were added.           *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class IntTable2Set
+{
+
+//Attributes
+
+	//The maximum number of values of a key that are scanned, not indexed
+	private static final int SMALL = 8;
+	//The keys, in the order they were added, and their values
+	private int[] keys;
+	private int[][] values;
+	private int[] counts;
+	//The positions (plus one) of the values of each key with more than
+	//SMALL values, by slot (0 for an empty slot)
+	private int[][] positions;
+	//The number (plus one) of the key in each slot (0 for an empty slot)
+	private int[] slots;
+	private int keyCount;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntTable2Set()
+	{
+		keys = new int[16];
+		values = new int[16][];
+		counts = new int[16];
+		positions = new int[16][];
+		slots = new int[32];
+		keyCount = 0;
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds the value for the given key to the Table, if it isn't there yet
+	 * @param key: the key to add to the Table
+	 * @param value: the value to add to the Table
+	 */
+	public void add(int key, int value)
+	{
+		put(key, value);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return whether the Table contains the key
+	 */
+	public boolean contains(int key)
+	{
+		return number(key) > -1;
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @param value: the value to search in the Table
+	 * @return whether the Table contains an entry with the key and value
+	 */
+	public boolean contains(int key, int value)
+	{
+		int k = number(key);
+		return k > -1 && position(k, value) > -1;
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return the number of entries with key
+	 */
+	public int entryCount(int key)
+	{
+		int k = number(key);
+		if(k < 0)
+			return 0;
+		return counts[k];
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return a copy of the values of the key (empty if it isn't in the Table)
+	 */
+	public int[] get(int key)
+	{
+		int k = number(key);
+		if(k < 0)
+			return new int[0];
+		return Arrays.copyOf(values[k], counts[k]);
+	}
+
+	/**
+	 * @return a copy of the keys in the Table
+	 */
+	public int[] keySet()
+	{
+		return Arrays.copyOf(keys, keyCount);
+	}
+
+	/**
+	 * @return the number of keys in the Table
+	 */
+	public int keyCount()
+	{
+		return keyCount;
+	}
+
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+//Package Methods
+
+	//The number of values of the k-th key
+	int getCount(int k)
+	{
+		return counts[k];
+	}
+
+	//The position of the key in keySet(), or -1 if it isn't in the Table
+	int number(int key)
+	{
+		int mask = slots.length - 1;
+		for(int i = hash(key) & mask; slots[i] != 0; i = (i + 1) & mask)
+			if(keys[slots[i]-1] == key)
+				return slots[i] - 1;
+		return -1;
+	}
+
+	//The position of the value in the values of the k-th key, or -1
+	int position(int k, int value)
+	{
+		int[] index = positions[k];
+		if(index == null)
+		{
+			int[] list = values[k];
+			for(int i = 0; i < counts[k]; i++)
+				if(list[i] == value)
+					return i;
+			return -1;
+		}
+		int mask = index.length - 1;
+		for(int i = hash(value) & mask; index[i] != 0; i = (i + 1) & mask)
+			if(values[k][index[i]-1] == value)
+				return index[i] - 1;
+		return -1;
+	}
+
+	//Adds the value to the key, if it isn't there yet, and returns the
+	//number of the key times 2^32 plus the position of the value
+	long put(int key, int value)
+	{
+		int k = number(key);
+		if(k < 0)
+			k = newKey(key);
+		int p = position(k, value);
+		if(p > -1)
+			return ((long)k << 32) | p;
+		if(counts[k] == values[k].length)
+			values[k] = Arrays.copyOf(values[k], counts[k] * 2);
+		p = counts[k]++;
+		values[k][p] = value;
+		size++;
+		if(positions[k] != null)
+		{
+			if(counts[k] * 2 > positions[k].length)
+				reindex(k);
+			else
+				place(positions[k], k, p);
+		}
+		else if(counts[k] > SMALL)
+			reindex(k);
+		return ((long)k << 32) | p;
+	}
+
+//Private Methods
+
+	private static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	//Adds a new key and returns its number
+	private int newKey(int key)
+	{
+		if(keyCount == keys.length)
+		{
+			int n = keyCount * 2;
+			keys = Arrays.copyOf(keys, n);
+			values = Arrays.copyOf(values, n);
+			counts = Arrays.copyOf(counts, n);
+			positions = Arrays.copyOf(positions, n);
+		}
+		int k = keyCount++;
+		keys[k] = key;
+		values[k] = new int[2];
+		if(keyCount * 2 > slots.length)
+		{
+			slots = new int[slots.length * 2];
+			for(int j = 0; j < keyCount; j++)
+				placeKey(j);
+		}
+		else
+			placeKey(k);
+		return k;
+	}
+
+	//Places the position of a value in the index of its key
+	private void place(int[] index, int k, int p)
+	{
+		int mask = index.length - 1;
+		int i = hash(values[k][p]) & mask;
+		while(index[i] != 0)
+			i = (i + 1) & mask;
+		index[i] = p + 1;
+	}
+
+	//Places the number of a key in the slots
+	private void placeKey(int k)
+	{
+		int mask = slots.length - 1;
+		int i = hash(keys[k]) & mask;
+		while(slots[i] != 0)
+			i = (i + 1) & mask;
+		slots[i] = k + 1;
+	}
+
+	//Builds the index of the values of a key, with room for twice as many
+	private void reindex(int k)
+	{
+		int n = 16;
+		while(n < counts[k] * 4)
+			n *= 2;
+		int[] index = new int[n];
+		for(int p = 0; p < counts[k]; p++)
+			place(index, k, p);
+		positions[k] = index;
+	}
+}
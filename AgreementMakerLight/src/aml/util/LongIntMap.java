@@ -0,0 +1,215 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A map from long keys to non-negative int values, stored in primitive arrays *
+* with open addressing (linear probing), so that no objects are created per   *
+* entry. It is meant for indexing pairs of entity ids (see key(int,int)).     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class LongIntMap
+{
+
+//Attributes
+
+	//The value returned for keys that are not in the map
+	public static final int NONE = -1;
+	//The maximum fraction of occupied slots before the map grows
+	private static final double LOAD = 0.6;
+	//The keys and values, by slot
+	private long[] keys;
+	private int[] values;
+	//The number of entries, and the number of entries at which the map grows
+	private int size;
+	private int limit;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty LongIntMap
+	 */
+	public LongIntMap()
+	{
+		this(16);
+	}
+
+	/**
+	 * Constructs a new empty LongIntMap with room for the given number
+	 * of entries before it needs to grow
+	 * @param capacity: the expected number of entries
+	 */
+	public LongIntMap(int capacity)
+	{
+		int slots = 16;
+		while(slots * LOAD < capacity)
+			slots *= 2;
+		init(slots);
+	}
+
+//Public Methods
+
+	/**
+	 * Removes all entries from the map
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, NONE);
+		size = 0;
+	}
+
+	/**
+	 * @param key: the key to search in the map
+	 * @return whether the map contains the key
+	 */
+	public boolean contains(long key)
+	{
+		return get(key) != NONE;
+	}
+
+	/**
+	 * @param key: the key to search in the map
+	 * @return the value of the key, or NONE if the key is not in the map
+	 */
+	public int get(long key)
+	{
+		int mask = keys.length - 1;
+		for(int i = slot(key, mask); values[i] != NONE; i = (i + 1) & mask)
+			if(keys[i] == key)
+				return values[i];
+		return NONE;
+	}
+
+	/**
+	 * Combines a pair of ints in a single long key
+	 * @param a: the first int in the pair
+	 * @param b: the second int in the pair
+	 * @return the key of the pair
+	 */
+	public static long key(int a, int b)
+	{
+		return ((long)a << 32) | (b & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Adds an entry to the map, replacing the value of the key if it
+	 * is already in the map
+	 * @param key: the key of the entry
+	 * @param value: the value of the entry (must not be negative)
+	 */
+	public void put(long key, int value)
+	{
+		if(value < 0)
+			throw new IllegalArgumentException("Negative value: " + value);
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for(; values[i] != NONE; i = (i + 1) & mask)
+		{
+			if(keys[i] == key)
+			{
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if(++size > limit)
+			grow();
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key: the key to remove
+	 * @return the value of the key, or NONE if the key was not in the map
+	 */
+	public int remove(long key)
+	{
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for(; values[i] != NONE; i = (i + 1) & mask)
+			if(keys[i] == key)
+				break;
+		int value = values[i];
+		if(value == NONE)
+			return NONE;
+		//Shift back the entries that follow in the probing sequence
+		//and would no longer be found if the slot were left empty
+		int j = i;
+		while(true)
+		{
+			j = (j + 1) & mask;
+			if(values[j] == NONE)
+				break;
+			int k = slot(keys[j], mask);
+			if((j > i && (k <= i || k > j)) || (j < i && k <= i && k > j))
+			{
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		values[i] = NONE;
+		size--;
+		return value;
+	}
+
+	/**
+	 * @return the number of entries in the map
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+//Private Methods
+
+	//Doubles the number of slots, placing all entries again
+	private void grow()
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		init(keys.length * 2);
+		int mask = keys.length - 1;
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldValues[i] == NONE)
+				continue;
+			int j = slot(oldKeys[i], mask);
+			while(values[j] != NONE)
+				j = (j + 1) & mask;
+			keys[j] = oldKeys[i];
+			values[j] = oldValues[i];
+			size++;
+		}
+	}
+
+	private void init(int slots)
+	{
+		keys = new long[slots];
+		values = new int[slots];
+		Arrays.fill(values, NONE);
+		size = 0;
+		limit = (int)(slots * LOAD);
+	}
+
+	//Spreads the bits of the key, so that consecutive ids don't cluster
+	private static int slot(long key, int mask)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+}
\ No newline at end of file
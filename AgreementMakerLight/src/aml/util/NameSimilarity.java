@@ -28,6 +28,9 @@ import aml.knowledge.WordNet;
 public class NameSimilarity
 {
 	private WordNet wn = null;
+	//Half the rounding unit of mapping similarities (a pair of names whose
+	//similarity is this much below the threshold still reaches it once rounded)
+	private static final double ROUNDING = 0.00005;
 	
 	public NameSimilarity(boolean useWordNet)
 	{
@@ -41,7 +44,7 @@ public class NameSimilarity
 	 * @param n2: the second name to compare
 	 * @param thresh: the similarity threshold
 	 * @return the similarity between the two names if it is above the threshold
-	 * or 0.0 otherwise
+	 * or a lower bound of it otherwise
 	 */
 	public double nameSimilarity(String n1, String n2, double thresh)
 	{
@@ -80,8 +83,12 @@ public class NameSimilarity
 		
 		//Compute the Jaccard word similarity between the properties
 		double wordSim = Similarity.jaccard(sWords,tWords)*0.9;
-		//and the String similarity
-		double simString = ISub.stringSimilarity(n1,n2)*0.9;
+		//and the String similarity (which is only needed if the
+		//combination can reach the threshold once it is rounded)
+		double minString = 0.0;
+		if(wordSim < 1)
+			minString = (1 - (1-thresh+ROUNDING) / (1-wordSim)) / 0.9;
+		double simString = ISub.stringSimilarity(n1,n2,minString)*0.9;
 		//Combine the two
 		double sim = 1 - ((1-wordSim) * (1-simString));
 		if(wn != null)
@@ -0,0 +1,164 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* An inverted index of Strings by their (character) q-grams, used to generate *
+* candidate pairs of Strings that share at least one q-gram. Strings shorter  *
+* than q are not indexed, as they have no q-grams.                            *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+public class QGramIndex
+{
+
+//Attributes
+
+	//The size of the q-grams (at most 4, so that they can be encoded as longs)
+	private int q;
+	//The indexed Strings
+	private Vector<String> strings;
+	//The postings lists: encoded q-gram -> indexes of the Strings that contain it
+	private HashMap<Long,Posting> postings;
+	//Marks the last query in which each String was found (to avoid duplicates)
+	private int[] marks;
+	private int query;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty QGramIndex
+	 * @param q: the size of the q-grams to index, between 1 and 4
+	 */
+	public QGramIndex(int q)
+	{
+		if(q < 1 || q > 4)
+			throw new IllegalArgumentException("Invalid q-gram size: " + q);
+		this.q = q;
+		strings = new Vector<String>();
+		postings = new HashMap<Long,Posting>();
+		marks = new int[0];
+		query = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a String to the index
+	 * @param s: the String to add
+	 * @return the index of the String in the QGramIndex
+	 */
+	public int add(String s)
+	{
+		int id = strings.size();
+		strings.add(s);
+		for(int i = 0; i + q <= s.length(); i++)
+		{
+			Long gram = encode(s,i);
+			Posting p = postings.get(gram);
+			if(p == null)
+			{
+				p = new Posting();
+				postings.put(gram, p);
+			}
+			//Since Strings are added sequentially, the last entry
+			//in the posting is the only one that can be a duplicate
+			if(p.size == 0 || p.ids[p.size-1] != id)
+				p.add(id);
+		}
+		return id;
+	}
+
+	/**
+	 * @param id: the index of the String to get
+	 * @return the String with the given index
+	 */
+	public String get(int id)
+	{
+		return strings.get(id);
+	}
+
+	/**
+	 * Returns all indexed Strings that share at least one q-gram with
+	 * the given String. This method is not thread-safe, as it reuses
+	 * the internal duplicate marks between queries.
+	 * @param s: the String to search in the index
+	 * @return the list of indexed Strings that share q-grams with s
+	 */
+	public Vector<String> getCandidates(String s)
+	{
+		Vector<String> candidates = new Vector<String>();
+		if(s.length() < q)
+			return candidates;
+		if(marks.length < strings.size())
+			marks = new int[strings.size()];
+		query++;
+		for(int i = 0; i + q <= s.length(); i++)
+		{
+			Posting p = postings.get(encode(s,i));
+			if(p == null)
+				continue;
+			for(int j = 0; j < p.size; j++)
+			{
+				int id = p.ids[j];
+				if(marks[id] != query)
+				{
+					marks[id] = query;
+					candidates.add(strings.get(id));
+				}
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return the number of Strings in the index
+	 */
+	public int size()
+	{
+		return strings.size();
+	}
+
+//Private Methods
+
+	//Encodes the q-gram starting at position i of s as a long
+	private Long encode(String s, int i)
+	{
+		long code = 0;
+		for(int j = i; j < i + q; j++)
+			code = (code << 16) | s.charAt(j);
+		return code;
+	}
+
+	//A growable list of String indexes
+	private class Posting
+	{
+		private int[] ids = new int[2];
+		private int size = 0;
+
+		private void add(int id)
+		{
+			if(size == ids.length)
+			{
+				int[] aux = new int[size * 2];
+				System.arraycopy(ids, 0, aux, 0, size);
+				ids = aux;
+			}
+			ids[size++] = id;
+		}
+	}
+}
\ No newline at end of file
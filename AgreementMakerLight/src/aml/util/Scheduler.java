@@ -0,0 +1,214 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Process-wide scheduler for AML's parallel tasks. It keeps a single pool of  *
+* worker threads, and runs each job by splitting its range of work items in   *
+* chunks, which the calling thread and the idle workers claim one at a time   *
+* (so that threads that finish early take over the remaining work). If a      *
+* chunk fails, the others still run, and the first failure is rethrown to the *
+* caller once they finish, so that no job returns partial results silently.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Scheduler
+{
+
+//Attributes
+
+	//The number of chunks each job is split into per thread (more chunks
+	//balance the load better, fewer reduce the scheduling overhead)
+	private static final int CHUNKS_PER_THREAD = 8;
+	//The number of threads used to run each job (including the caller)
+	private static int parallelism = Runtime.getRuntime().availableProcessors();
+	//The pool of worker threads (parallelism - 1 of them)
+	private static ExecutorService pool;
+
+//Constructors
+
+	private Scheduler(){}
+
+//Public Methods
+
+	/**
+	 * @return the number of threads used to run parallel tasks
+	 */
+	public static synchronized int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Runs a task over a range of work items in parallel, splitting it in
+	 * chunks, and waits until all items are processed. It can be called
+	 * safely from within a running task, as the calling thread also
+	 * processes chunks instead of waiting idly.
+	 * @param size: the number of work items, indexed from 0 to size-1
+	 * @param t: the task to run over the work items
+	 * @throws RuntimeException (or Error) the first one thrown by the task,
+	 * after the chunks that didn't fail are processed
+	 */
+	public static void run(int size, Task t)
+	{
+		if(size <= 0)
+			return;
+		ExecutorService workers;
+		int threads;
+		synchronized(Scheduler.class)
+		{
+			threads = parallelism;
+			if(threads > 1 && pool == null)
+				pool = Executors.newFixedThreadPool(threads - 1, new WorkerFactory());
+			workers = pool;
+		}
+		if(threads == 1 || size == 1)
+		{
+			t.run(0, size);
+			return;
+		}
+		Job job = new Job(t, size, Math.max(1, size / (threads * CHUNKS_PER_THREAD)));
+		try
+		{
+			for(int i = 1; i < Math.min(threads, job.chunks); i++)
+				workers.execute(job);
+		}
+		catch(RejectedExecutionException e)
+		{
+			//The parallelism was changed in the meantime, so
+			//the chunks left are run by the calling thread
+		}
+		job.run();
+		try
+		{
+			job.done.await();
+		}
+		catch(InterruptedException e)
+		{
+			e.printStackTrace();
+			Thread.currentThread().interrupt();
+		}
+		Throwable failure = job.failure.get();
+		if(failure instanceof Error)
+			throw (Error)failure;
+		if(failure != null)
+			throw (RuntimeException)failure;
+	}
+
+	/**
+	 * Sets the number of threads used to run parallel tasks
+	 * @param threads: the number of threads (if less than 1,
+	 * all available processors are used)
+	 */
+	public static synchronized void setParallelism(int threads)
+	{
+		if(threads < 1)
+			threads = Runtime.getRuntime().availableProcessors();
+		if(threads == parallelism)
+			return;
+		parallelism = threads;
+		//Jobs already running keep their workers until they finish
+		if(pool != null)
+			pool.shutdown();
+		pool = null;
+	}
+
+	/**
+	 * A task that processes a range of work items
+	 */
+	public interface Task
+	{
+		/**
+		 * Processes the work items from start (inclusive) to end (exclusive)
+		 * @param start: the index of the first work item to process
+		 * @param end: the index after the last work item to process
+		 */
+		public void run(int start, int end);
+	}
+
+//Private Classes
+
+	//A job split in chunks, which threads claim until there are none left
+	private static class Job implements Runnable
+	{
+		private Task task;
+		private int size;
+		private int chunkSize;
+		private int chunks;
+		private AtomicInteger next;
+		//Counts the chunks that are still to be finished
+		private CountDownLatch done;
+		//The first exception or error thrown by a chunk
+		private AtomicReference<Throwable> failure;
+
+		private Job(Task t, int size, int chunkSize)
+		{
+			task = t;
+			this.size = size;
+			this.chunkSize = chunkSize;
+			chunks = (size + chunkSize - 1) / chunkSize;
+			next = new AtomicInteger(0);
+			done = new CountDownLatch(chunks);
+			failure = new AtomicReference<Throwable>();
+		}
+
+		@Override
+		public void run()
+		{
+			int c;
+			while((c = next.getAndIncrement()) < chunks)
+			{
+				int start = c * chunkSize;
+				try
+				{
+					task.run(start, Math.min(size, start + chunkSize));
+				}
+				catch(RuntimeException e)
+				{
+					failure.compareAndSet(null, e);
+				}
+				catch(Error e)
+				{
+					failure.compareAndSet(null, e);
+				}
+				finally
+				{
+					done.countDown();
+				}
+			}
+		}
+	}
+
+	//Creates daemon worker threads, so that the pool doesn't prevent AML from exiting
+	private static class WorkerFactory implements ThreadFactory
+	{
+		private AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "AML-worker-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
\ No newline at end of file
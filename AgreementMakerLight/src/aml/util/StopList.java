@@ -39,12 +39,20 @@ public class StopList
 	
 //Public Methods
 	
+	/**
+	 * @return the path to the stop list file
+	 */
+	public static String getPath()
+	{
+		return AML.getInstance().getPath() + FILE;
+	}
+	
 	public static Set<String> read()
 	{
 		HashSet<String> stopWords = new HashSet<String>();
 		try
 		{
-			BufferedReader inStream = new BufferedReader(new FileReader(AML.getInstance().getPath() + FILE));
+			BufferedReader inStream = new BufferedReader(new FileReader(getPath()));
 			String line;
 			while((line = inStream.readLine()) != null)
 				stopWords.add(line);
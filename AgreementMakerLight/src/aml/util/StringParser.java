@@ -27,34 +27,92 @@ package aml.util;
 public class StringParser
 {
 
+//Attributes
+
+	//The characters (other than Latin letters, digits, apostrophes and
+	//brackets) that are kept in names
+	private static final String NAME_CHARS = "Ã�Ã€Ã‚Ã„Ã‰ÃˆÃŠÃ‹Ã�ÃŒÃŽÃ�Ã“Ã’Ã”Ã–ÃšÃ™Ã›ÃœÃ‡Ã‘Ã¡Ã Ã¢Ã£Ã¤Ã©Ã¨ÃªÃ«Ã­Ã¬Ã®Ã¯Ã³Ã²Ã´ÃµÃ¶ÃºÃ¹Ã»Ã¼Ã§Ã±";
+	//The character classes, by char
+	private static final byte LETTER = 1;
+	private static final byte DIGIT = 2;
+	private static final byte NAME = 4;
+	private static final byte PROPERTY = 8;
+	private static final byte[] CLASS = new byte[65536];
+	static
+	{
+		for(char c = 'a'; c <= 'z'; c++)
+			CLASS[c] = LETTER | NAME | PROPERTY;
+		for(char c = 'A'; c <= 'Z'; c++)
+			CLASS[c] = LETTER | NAME | PROPERTY;
+		for(char c = '0'; c <= '9'; c++)
+			CLASS[c] = DIGIT | NAME | PROPERTY;
+		for(char c : "'()".toCharArray())
+			CLASS[c] = NAME | PROPERTY;
+		for(char c : NAME_CHARS.toCharArray())
+			CLASS[c] |= NAME;
+	}
+	//The words that don't prevent a name with two case-change subwords
+	//from being split (see normalizeCaseChanges)
+	private static final String[] CONNECTORS = {"a","and","by","has","is","non","or","of","to"};
+	
 //Constructors
 	
 	private StringParser(){}
 	
 //Public Methods
 
+	/**
+	 * @param name: the name to analyze
+	 * @return whether the name is a single line of text with at least
+	 * one Latin letter
+	 */
+	public static boolean hasLetter(String name)
+	{
+		boolean letter = false;
+		for(int i = 0; i < name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if(isLineBreak(c))
+				return false;
+			letter = letter || is(c, LETTER);
+		}
+		return letter;
+	}
+	
 	/**
 	 * @param name: the name to analyze
 	 * @return whether the name is formula (i.e., not normal text)
 	 */
 	public static boolean isFormula(String name)
 	{
+		int n = name.length();
+		//Check whether the name is a single line with 3 contiguous letters
+		boolean singleLine = true;
+		boolean threeLetters = false;
+		for(int i = 0, run = 0; i < n; i++)
+		{
+			char c = name.charAt(i);
+			if(isLineBreak(c))
+				singleLine = false;
+			run = is(c, LETTER) ? run + 1 : 0;
+			threeLetters = threeLetters || run >= 3;
+		}
 		//A name is a formula if:
 		return
 			//It doesn't contain at least 3 contiguous letters
-			!name.matches(".*[a-zA-Z]{3,}.*") ||
+			!(singleLine && threeLetters) ||
 			//It is composed by a block of lower case letters followed by only upper case letters
-			name.matches("[a-z]+[A-Z]+") ||
+			isLowerUpper(name) ||
 			//It is composed by a block of 3 contiguous letters followed by only non-letters
 			//except if the non-letters consist of a separator followed by only 1-3 digits
-			(name.matches("[a-zA-Z]{3}[^a-zA-Z]+") && !name.matches("[a-zA-Z]{3}[ _][0-9]{1,3}")) ||
+			(isThreeLettersCode(name) && !isThreeLettersNumber(name)) ||
 			//It contains only upper case letters, numbers and dashes but not just upper case letters 
-			(name.matches("[A-Z0-9/\\\\-]+") && !name.matches("[A-Z]+")) ||
+			isUpperCaseCode(name) ||
 			//It starts with a digit-dash-word sequence
-			name.matches("[0-9]{1,2}'?-[a-zA-Z]{3,}.*") ||
+			(singleLine && digitDashWord(name, 0)) ||
 			//or contains a digit-dash-word sequence preceded by a space, comma or dash
 			//with possibly a bracket or apostrophe in between
-			name.matches(".*[ ,\\-][0-9]{1,2}'?\\)?-[a-zA-Z]{3,}.*");
+			(singleLine && containsDigitDashWord(name));
 	}
 	
 	/**
@@ -63,28 +121,65 @@ public class StringParser
 	 */
 	public static boolean isNumericId(String name)
 	{
+		int n = name.length();
+		int letters = span(name, 0, LETTER);
+		int digits = span(name, 0, DIGIT);
 		//just digits
-		return name.matches("[0-9]*")
-			//digits with an intervening separator
-			|| name.matches("[0-9]+[_:\\.\\-][0-9]+")
+		if(digits == n)
+			return true;
+		//digits with an intervening separator
+		if(digits > 0 && digits < n - 1 && "_:.-".indexOf(name.charAt(digits)) > -1 &&
+				span(name, digits + 1, DIGIT) == n)
+			return true;
+		if(letters == 1)
+		{
 			//a single letter
-			|| name.matches("[a-zA-Z]{1}")
+			if(n == 1)
+				return true;
 			//a single letter followed by digits
-			|| name.matches("[a-zA-Z]{1}[0-9]{1,3}")
+			int d = span(name, 1, DIGIT);
+			if(d == n && n <= 4)
+				return true;
 			//letter+digit+underscore+digits
-			|| name.matches("[a-zA-Z]{1}[0-9]{1}[_:][0-9]{1,}")
+			if(d == 2 && n > 3 && isSeparator(name.charAt(2)) && span(name, 3, DIGIT) == n)
+				return true;
 			//letter+underscore+digits&letters
-			|| name.matches("[a-zA-Z]{1}[_:][a-zA-Z0-9]{6,}")
-			//OBO Foundry style (e.g., "GO:000001")
-			|| name.matches("[a-zA-Z]{2,}[_:][0-9\\.]{1,}")
-			//akin to OBO Foundry style (e.g., "C_A00001")
-			|| name.matches("[a-zA-Z]+[_:]?[a-zA-Z]?[0-9\\.]{5,}")
-			//simple letters-dash-numbers-dash-numbers pattern
-			|| name.matches("[a-zA-Z]{1,3}-[0-9]{3,}-[0-9]{3,}")
-			//specific letters-and-numbers separated by dashes pattern
-			|| name.matches("[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}")
-			//another specific letters-and-numbers separated by dashes pattern
-			|| name.matches("sid-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}");
+			if(isSeparator(name.charAt(1)) && n >= 8 && span(name, 2, (byte)(LETTER | DIGIT)) == n)
+				return true;
+		}
+		//OBO Foundry style (e.g., "GO:000001")
+		if(letters >= 2 && letters < n - 1 && isSeparator(name.charAt(letters)) &&
+				spanNumber(name, letters + 1) == n)
+			return true;
+		//akin to OBO Foundry style (e.g., "C_A00001")
+		if(letters >= 1)
+		{
+			int i = letters;
+			if(i < n && isSeparator(name.charAt(i)))
+			{
+				i++;
+				if(i < n && is(name.charAt(i), LETTER))
+					i++;
+			}
+			if(n - i >= 5 && spanNumber(name, i) == n)
+				return true;
+		}
+		//simple letters-dash-numbers-dash-numbers pattern
+		if(letters >= 1 && letters <= 3 && letters < n && name.charAt(letters) == '-')
+		{
+			int i = span(name, letters + 1, DIGIT);
+			if(i - letters - 1 >= 3 && i < n && name.charAt(i) == '-')
+			{
+				int j = span(name, i + 1, DIGIT);
+				if(j == n && j - i - 1 >= 3)
+					return true;
+			}
+		}
+		//specific letters-and-numbers separated by dashes pattern
+		if(n == 36 && isLowerCaseBlocks(name))
+			return true;
+		//another specific letters-and-numbers separated by dashes pattern
+		return name.startsWith("sid-") && isIdBlocks(name);
 	}
 
 	/**
@@ -95,10 +190,11 @@ public class StringParser
 	{
 		//Formulas are parsed to lower case and stripped of
 		//underscores but otherwise unprocessed
-		String parsed = formula;
-		parsed = parsed.toLowerCase();
-		parsed = parsed.replace("_"," ");
-		parsed = parsed.replaceAll("\\s"," ");
+		char[] chars = formula.toLowerCase().toCharArray();
+		for(int i = 0; i < chars.length; i++)
+			if(chars[i] == '_' || isWhiteSpace(chars[i]))
+				chars[i] = ' ';
+		String parsed = new String(chars);
 		//The only exception is that if a formula closes brackets
 		//before opening brackets (which happens in NCI) we correct
 		//it by opening brackets at the start
@@ -123,12 +219,9 @@ public class StringParser
 		parsed = parsed.replace("(-)","negative");
 		
 		//Then replace all non-word characters with white spaces
-		//except for apostrophes and brackets
-		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()Ã�Ã€Ã‚Ã„Ã‰ÃˆÃŠÃ‹Ã�ÃŒÃŽÃ�Ã“Ã’Ã”Ã–ÃšÃ™Ã›ÃœÃ‡Ã‘Ã¡Ã Ã¢Ã£Ã¤Ã©Ã¨ÃªÃ«Ã­Ã¬Ã®Ã¯Ã³Ã²Ã´ÃµÃ¶ÃºÃ¹Ã»Ã¼Ã§Ã±] *"," ");
-		
-		//Then remove multiple, leading and trailing spaces
-		parsed = parsed.replaceAll(" {2,}"," ");
-		parsed = parsed.trim();
+		//except for apostrophes and brackets, while removing
+		//multiple, leading and trailing spaces
+		parsed = separate(parsed, NAME, false);
 		
 		//Then normalize the case changes and return the result
 		parsed = normalizeCaseChanges(parsed,false);
@@ -145,15 +238,10 @@ public class StringParser
 		String parsed = name.replace("&amp","and");
 		parsed = parsed.replace("&apos;","'");
 		parsed = parsed.replace("&nbsp;"," ");
-		//Remove dashes
-		parsed = parsed.replaceAll("-","");
-		//Then replace all other non-word characters with white spaces
-		//except for apostrophes and brackets
-		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()] *"," ");
-		
-		//Then remove multiple, leading and trailing spaces
-		parsed = parsed.replaceAll(" {2,}"," ");
-		parsed = parsed.trim();
+		//Then remove dashes and replace all other non-word characters
+		//with white spaces except for apostrophes and brackets, while
+		//removing multiple, leading and trailing spaces
+		parsed = separate(parsed, PROPERTY, true);
 		
 		//Then normalize the case changes and return the result
 		parsed = normalizeCaseChanges(parsed,true);
@@ -162,14 +250,159 @@ public class StringParser
 
 //Private Methods
 	
+	//Checks whether the string contains a digit-dash-word sequence preceded
+	//by a space, comma or dash (see digitDashWord)
+	private static boolean containsDigitDashWord(String s)
+	{
+		for(int i = 0; i < s.length() - 1; i++)
+		{
+			char c = s.charAt(i);
+			if((c == ' ' || c == ',' || c == '-') && digitDashWord(s, i + 1))
+				return true;
+		}
+		return false;
+	}
+	
+	//Checks whether the string has a sequence of 1-2 digits, optionally an
+	//apostrophe (and a closing bracket, if not at the start), a dash and 3
+	//letters, starting at the given position
+	private static boolean digitDashWord(String s, int start)
+	{
+		int i = span(s, start, DIGIT);
+		if(i == start || i - start > 2)
+			return false;
+		if(i < s.length() && s.charAt(i) == '\'')
+			i++;
+		if(start > 0 && i < s.length() && s.charAt(i) == ')')
+			i++;
+		if(i >= s.length() || s.charAt(i) != '-')
+			return false;
+		return span(s, i + 1, LETTER) - i - 1 >= 3;
+	}
+	
+	private static boolean is(char c, byte type)
+	{
+		return (CLASS[c] & type) != 0;
+	}
+	
+	//Checks whether the string is "sid" followed by 5 dash-separated blocks
+	//of 4 or more letters or digits
+	private static boolean isIdBlocks(String s)
+	{
+		int i = 3;
+		for(int b = 0; b < 5; b++)
+		{
+			if(i >= s.length() || s.charAt(i) != '-')
+				return false;
+			int j = span(s, i + 1, (byte)(LETTER | DIGIT));
+			if(j - i - 1 < 4)
+				return false;
+			i = j;
+		}
+		return i == s.length();
+	}
+	
+	//Checks whether the char is a line terminator (i.e., not matched by '.')
+	private static boolean isLineBreak(char c)
+	{
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+	
+	//Checks whether the string is a block of lower case letters followed
+	//by a block of upper case letters
+	private static boolean isLowerUpper(String s)
+	{
+		int i = 0;
+		while(i < s.length() && s.charAt(i) >= 'a' && s.charAt(i) <= 'z')
+			i++;
+		if(i == 0 || i == s.length())
+			return false;
+		for(int j = i; j < s.length(); j++)
+			if(s.charAt(j) < 'A' || s.charAt(j) > 'Z')
+				return false;
+		return true;
+	}
+	
+	//Checks whether the string consists of dash-separated blocks of 8, 4, 4,
+	//4 and 12 lower case letters or digits
+	private static boolean isLowerCaseBlocks(String s)
+	{
+		for(int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if(i == 8 || i == 13 || i == 18 || i == 23)
+			{
+				if(c != '-')
+					return false;
+			}
+			else if(!((c >= 'a' && c <= 'z') || is(c, DIGIT)))
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean isSeparator(char c)
+	{
+		return c == '_' || c == ':';
+	}
+	
+	//Checks whether the string is 3 letters followed by one or more non-letters
+	private static boolean isThreeLettersCode(String s)
+	{
+		if(s.length() < 4 || span(s, 0, LETTER) != 3)
+			return false;
+		for(int i = 4; i < s.length(); i++)
+			if(is(s.charAt(i), LETTER))
+				return false;
+		return true;
+	}
+	
+	//Checks whether the string is 3 letters, a space or underscore, and 1-3 digits
+	private static boolean isThreeLettersNumber(String s)
+	{
+		return s.length() >= 5 && s.length() <= 7 && span(s, 0, LETTER) == 3 &&
+				(s.charAt(3) == ' ' || s.charAt(3) == '_') && span(s, 4, DIGIT) == s.length();
+	}
+	
+	//Checks whether the string consists of upper case letters, digits, slashes,
+	//backslashes and dashes, but not only of upper case letters
+	private static boolean isUpperCaseCode(String s)
+	{
+		if(s.length() == 0)
+			return false;
+		boolean other = false;
+		for(int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if(is(c, DIGIT) || c == '/' || c == '\\' || c == '-')
+				other = true;
+			else if(c < 'A' || c > 'Z')
+				return false;
+		}
+		return other;
+	}
+	
+	//Checks whether the char is a white space (as matched by \s)
+	private static boolean isWhiteSpace(char c)
+	{
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+	
 	private static String normalizeCaseChanges(String name, boolean allChanges)
 	{
 		//If the name contains no within word case changes
-		if(!name.matches(".*[a-z][A-Z].*"))
+		boolean caseChange = false;
+		for(int i = 1; i < name.length() && !caseChange; i++)
+		{
+			char c = name.charAt(i);
+			char p = name.charAt(i-1);
+			caseChange = c >= 'A' && c <= 'Z' && p >= 'a' && p <= 'z';
+		}
+		if(!caseChange)
 			//Just convert it to lower case and return it
 			return name.toLowerCase();
 		//Otherwise initialize the String to return
-		String parsed = "";
+		StringBuilder parsed = new StringBuilder(name.length() + 8);
 		//Then split the name into words (by space)
 		String[] words = name.split(" ");
 		//And run through each word
@@ -181,16 +414,7 @@ public class StringParser
 			{
 				for(String s : subwords)
 				{
-					if(s.length() < 4 &&
-							!s.equalsIgnoreCase("a") &&
-							!s.equalsIgnoreCase("and") &&
-							!s.equalsIgnoreCase("by") &&
-							!s.equalsIgnoreCase("has") &&
-							!s.equalsIgnoreCase("is") &&
-							!s.equalsIgnoreCase("non") &&
-							!s.equalsIgnoreCase("or") &&
-							!s.equalsIgnoreCase("of") &&
-							!s.equalsIgnoreCase("to"))
+					if(s.length() < 4 && !isConnector(s))
 					{
 						useSubWords = false;
 						break;
@@ -199,12 +423,60 @@ public class StringParser
 			}
 			if(useSubWords)
 				for(String s : subwords)
-					parsed += " " + s;
+					parsed.append(' ').append(s);
 			else
-				parsed += " " + w.toLowerCase();
+				parsed.append(' ').append(w.toLowerCase());
 		}
-		parsed = parsed.substring(1);
-		return parsed;
+		return parsed.substring(1);
+	}
+	
+	private static boolean isConnector(String s)
+	{
+		for(String c : CONNECTORS)
+			if(s.equalsIgnoreCase(c))
+				return true;
+		return false;
+	}
+	
+	//Copies the chars of the string that are of the given type, replacing each
+	//run of other chars (if not at the start or end) by a single space, and
+	//optionally dropping dashes altogether
+	private static String separate(String s, byte type, boolean dropDashes)
+	{
+		StringBuilder parsed = new StringBuilder(s.length());
+		boolean space = false;
+		for(int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if(is(c, type))
+			{
+				if(space && parsed.length() > 0)
+					parsed.append(' ');
+				parsed.append(c);
+				space = false;
+			}
+			else if(!dropDashes || c != '-')
+				space = true;
+		}
+		return parsed.toString();
+	}
+	
+	//Returns the end of the run of chars of the given type starting at the given position
+	private static int span(String s, int start, byte type)
+	{
+		int i = start;
+		while(i < s.length() && is(s.charAt(i), type))
+			i++;
+		return i;
+	}
+	
+	//Returns the end of the run of digits and dots starting at the given position
+	private static int spanNumber(String s, int start)
+	{
+		int i = start;
+		while(i < s.length() && (is(s.charAt(i), DIGIT) || s.charAt(i) == '.'))
+			i++;
+		return i;
 	}
 
 	private static String[] splitOnCaseChanges(String s)
@@ -213,18 +485,19 @@ public class StringParser
 		char[] chars = s.toCharArray();
 		int max = chars.length-1;
 		//Initialize the parsed String with the first character
-		String parsed = "" + Character.toLowerCase(chars[0]);
+		StringBuilder parsed = new StringBuilder(chars.length + 4);
+		parsed.append(Character.toLowerCase(chars[0]));
 		//Run through the input String
 		for(int i = 1 ; i < max; i++)
 		{	
-			parsed += Character.toLowerCase(chars[i]);
+			parsed.append(Character.toLowerCase(chars[i]));
 			//If the next character is upper case
 			if(Character.isLowerCase(chars[i]) && Character.isUpperCase(chars[i+1]))
-				parsed += " ";
+				parsed.append(' ');
 		}
 		if(max > 0)
-			parsed += "" + Character.toLowerCase(chars[max]);
-		String[] words = parsed.split(" ");
+			parsed.append(Character.toLowerCase(chars[max]));
+		String[] words = parsed.toString().split(" ");
 		return words;		
 	}
-}
\ No newline at end of file
+}
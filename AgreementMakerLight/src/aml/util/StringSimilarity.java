@@ -0,0 +1,194 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Computes the String similarity between two Strings according to one of the  *
+* available String similarity measures, optionally skipping the computation   *
+* when a cheap upper bound of the similarity is below a minimum score.        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
+import aml.settings.StringSimMeasure;
+
+public class StringSimilarity
+{
+
+//Attributes
+
+	//Reusable character counts for each thread
+	private static final ThreadLocal<int[]> COUNTS = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[128];
+		}
+	};
+	//Tolerance for rounding errors in the similarity upper bounds
+	//(the simmetrics measures are computed in float precision)
+	private static final double TOLERANCE = 0.00001;
+
+//Constructors
+
+	private StringSimilarity(){}
+
+//Public Methods
+
+	/**
+	 * Counts the characters two Strings have in common (i.e., the size of the
+	 * intersection of their character multisets). Non-ASCII characters are not
+	 * distinguished from each other, so the count is an upper bound for them
+	 * @param s: the first string to compare
+	 * @param t: the second string to compare
+	 * @return the number of characters in common between s and t
+	 */
+	public static int commonCharacters(String s, String t)
+	{
+		int[] counts = COUNTS.get();
+		int otherS = 0, otherT = 0, common = 0;
+		for(int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if(c < 128)
+				counts[c]++;
+			else
+				otherS++;
+		}
+		for(int i = 0; i < t.length(); i++)
+		{
+			char c = t.charAt(i);
+			if(c >= 128)
+				otherT++;
+			else if(counts[c] > 0)
+			{
+				counts[c]--;
+				common++;
+			}
+		}
+		for(int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if(c < 128)
+				counts[c] = 0;
+		}
+		return common + Math.min(otherS, otherT);
+	}
+
+	/**
+	 * Computes an upper bound of the similarity between two Strings, based on
+	 * their lengths, common prefix and number of characters in common
+	 * @param s: the first string to compare
+	 * @param t: the second string to compare
+	 * @param m: the String similarity measure
+	 * @return the maximum similarity between s and t according to m
+	 */
+	public static double maxSimilarity(String s, String t, StringSimMeasure m)
+	{
+		if(m.equals(StringSimMeasure.ISUB))
+			return ISub.maxSimilarity(s, t);
+		int l1 = s.length(), l2 = t.length();
+		double bound = 1.0;
+		if(m.equals(StringSimMeasure.EDIT))
+		{
+			//The edit distance is at least the length of the longest
+			//String minus the number of characters in common
+			int max = Math.max(l1, l2);
+			if(max > 0)
+				bound = 1.0 * commonCharacters(s, t) / max;
+		}
+		else if(m.equals(StringSimMeasure.JW))
+		{
+			//The Jaro matching characters are common characters,
+			//and the Winkler prefix (of up to 6 characters) is
+			//at most the common prefix
+			if(l1 > 0 && l2 > 0)
+			{
+				int common = commonCharacters(s, t);
+				double jaro = (1.0 * common / l1 + 1.0 * common / l2 + 1.0) / 3.0;
+				bound = jaro + commonPrefix(s, t, 6) * 0.1 * (1 - jaro);
+			}
+		}
+		else if(m.equals(StringSimMeasure.QGRAM))
+		{
+			//Each String has length + 2 padded 3-grams, and the q-gram
+			//distance is at least the difference between the counts
+			int n1 = l1 + 2, n2 = l2 + 2;
+			bound = 2.0 * Math.min(n1, n2) / (n1 + n2);
+		}
+		return bound + TOLERANCE;
+	}
+
+	/**
+	 * Computes the similarity between two Strings
+	 * @param s: the first string to compare
+	 * @param t: the second string to compare
+	 * @param m: the String similarity measure
+	 * @return the similarity between s and t according to m
+	 */
+	public static double stringSimilarity(String s, String t, StringSimMeasure m)
+	{
+		double sim = 0.0;
+		if(m.equals(StringSimMeasure.ISUB))
+			sim = ISub.stringSimilarity(s,t);
+		else if(m.equals(StringSimMeasure.EDIT))
+		{
+			Levenshtein lv = new Levenshtein();
+			sim = lv.getSimilarity(s, t);
+		}
+		else if(m.equals(StringSimMeasure.JW))
+		{
+			JaroWinkler jv = new JaroWinkler();
+			sim = jv.getSimilarity(s, t);
+		}
+		else if(m.equals(StringSimMeasure.QGRAM))
+		{
+			QGramsDistance q = new QGramsDistance();
+			sim = q.getSimilarity(s, t);
+		}
+		return sim;
+	}
+
+	/**
+	 * Computes the similarity between two Strings if it can reach
+	 * a minimum score, checking first a cheap upper bound
+	 * @param s: the first string to compare
+	 * @param t: the second string to compare
+	 * @param m: the String similarity measure
+	 * @param minScore: the minimum similarity score of interest
+	 * @return the similarity between s and t according to m if its
+	 * upper bound is not below minScore, or 0 otherwise
+	 */
+	public static double stringSimilarity(String s, String t, StringSimMeasure m, double minScore)
+	{
+		if(minScore > 0 && maxSimilarity(s, t, m) < minScore)
+			return 0.0;
+		return stringSimilarity(s, t, m);
+	}
+
+//Private Methods
+
+	//Computes the length of the common prefix of two Strings, up to a maximum
+	private static int commonPrefix(String s, String t, int max)
+	{
+		int i, n = Math.min(max, Math.min(s.length(), t.length()));
+		for(i = 0; i < n; i++)
+			if(s.charAt(i) != t.charAt(i))
+				break;
+		return i;
+	}
+}
\ No newline at end of file
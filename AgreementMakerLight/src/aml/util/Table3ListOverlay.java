@@ -0,0 +1,287 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A Table3List that layers its changes over a shared base Table3List, which   *
+* is not copied: each first level key of the base is copied only when it is   *
+* first changed, and reads merge both. The base must not be changed while     *
+* the overlay is in use.                                                      *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Vector;
+
+public class Table3ListOverlay<A,B,C extends Comparable<C>> extends Table3List<A,B,C>
+{
+
+//Attributes
+
+	//The shared base Table
+	private Table3List<A,B,C> base;
+	//The first level keys that were changed or added, and the number of
+	//those that were added (i.e., that aren't in the base)
+	private HashMap<A,Table2List<B,C>> changes;
+	private int newKeys;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new Table that is layered over the given Table
+	 * @param m: the base Table
+	 */
+	public Table3ListOverlay(Table3List<A,B,C> m)
+	{
+		super();
+		base = m;
+		changes = new HashMap<A,Table2List<B,C>>();
+		newKeys = 0;
+		size = m.size();
+	}
+
+//Public Methods
+
+	@Override
+	public void add(A keyA, B keyB, C valueC)
+	{
+		if(!contains(keyA,keyB,valueC))
+			size++;
+		Table2List<B,C> mapsA = changes.get(keyA);
+		if(mapsA == null)
+		{
+			Table2List<B,C> baseA = base.get(keyA);
+			if(baseA == null)
+			{
+				mapsA = new Table2List<B,C>();
+				newKeys++;
+			}
+			else
+				mapsA = new Table2List<B,C>(baseA);
+			changes.put(keyA, mapsA);
+		}
+		mapsA.add(keyB, valueC);
+	}
+
+	@Override
+	public boolean contains(A keyA)
+	{
+		return changes.containsKey(keyA) || base.contains(keyA);
+	}
+
+	@Override
+	public boolean contains(A keyA, B keyB)
+	{
+		Table2List<B,C> mapsA = get(keyA);
+		return mapsA != null && mapsA.contains(keyB);
+	}
+
+	@Override
+	public boolean contains(A keyA, B keyB, C valueC)
+	{
+		Table2List<B,C> mapsA = get(keyA);
+		return mapsA != null && mapsA.contains(keyB) &&
+			mapsA.get(keyB).contains(valueC);
+	}
+
+	@Override
+	public int entryCount(A keyA)
+	{
+		Table2List<B,C> mapsA = get(keyA);
+		if(mapsA == null)
+			return 0;
+		return mapsA.size();
+	}
+
+	@Override
+	public int entryCount(A keyA, C valueC)
+	{
+		int count = 0;
+		Table2List<B,C> mapsA = get(keyA);
+		if(mapsA == null)
+			return count;
+		Set<B> setA = mapsA.keySet();
+		for(B b : setA)
+			if(mapsA.get(b).equals(valueC))
+				count++;
+		return count;
+	}
+
+	@Override
+	public Table2List<B,C> get(A keyA)
+	{
+		Table2List<B,C> mapsA = changes.get(keyA);
+		if(mapsA == null)
+			return base.get(keyA);
+		return mapsA;
+	}
+
+	@Override
+	public Vector<C> get(A keyA, B keyB)
+	{
+		Table2List<B,C> mapsA = get(keyA);
+		if(mapsA == null || !mapsA.contains(keyB))
+			return null;
+		return mapsA.get(keyB);
+	}
+
+	@Override
+	public Vector<B> getMatchingKeys(A keyA, C valueC)
+	{
+		Vector<B> keysB = new Vector<B>(0,1);
+		Table2List<B,C> mapsA = get(keyA);
+		if(mapsA == null)
+			return keysB;
+		Set<B> setA = mapsA.keySet();
+		for(B b : setA)
+			if(mapsA.get(b).contains(valueC))
+				keysB.add(b);
+		return keysB;
+	}
+
+	/**
+	 * @return a view of the set of first level keys in the Table
+	 * (those of the base followed by the added ones)
+	 */
+	@Override
+	public Set<A> keySet()
+	{
+		return new AbstractSet<A>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return changes.containsKey(o) || base.keySet().contains(o);
+			}
+
+			@Override
+			public Iterator<A> iterator()
+			{
+				return new KeyIterator();
+			}
+
+			@Override
+			public int size()
+			{
+				return keyCount();
+			}
+		};
+	}
+
+	@Override
+	public Set<B> keySet(A keyA)
+	{
+		Table2List<B,C> mapsA = get(keyA);
+		if(mapsA == null)
+			return null;
+		return mapsA.keySet();
+	}
+
+	@Override
+	public int keyCount()
+	{
+		return base.keyCount() + newKeys;
+	}
+
+	/**
+	 * Removes all entries for the given first level key, which must
+	 * not be in the base Table
+	 * @param keyA: the key to remove from the Table
+	 */
+	@Override
+	public void remove(A keyA)
+	{
+		if(base.contains(keyA))
+			throw new UnsupportedOperationException("Can't remove a key of the base Table");
+		Table2List<B,C> mapsA = changes.remove(keyA);
+		if(mapsA != null)
+		{
+			size -= mapsA.size();
+			newKeys--;
+		}
+	}
+
+	@Override
+	public void remove(A keyA, B keyB)
+	{
+		Table2List<B,C> baseA = base.get(keyA);
+		if(baseA != null && !changes.containsKey(keyA))
+			changes.put(keyA, new Table2List<B,C>(baseA));
+		Table2List<B,C> maps = changes.get(keyA);
+		if(maps != null)
+		{
+			size -= maps.get(keyB).size();
+			maps.remove(keyB);
+		}
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+//Private Classes
+
+	//Iterates over the keys of the base, then over the added keys
+	private class KeyIterator implements Iterator<A>
+	{
+		private Iterator<A> baseKeys = base.keySet().iterator();
+		private Iterator<A> changedKeys = changes.keySet().iterator();
+		private A next = null;
+		private boolean hasNext = false;
+
+		@Override
+		public boolean hasNext()
+		{
+			if(hasNext)
+				return true;
+			if(baseKeys.hasNext())
+			{
+				next = baseKeys.next();
+				hasNext = true;
+			}
+			while(!hasNext && changedKeys.hasNext())
+			{
+				A a = changedKeys.next();
+				if(!base.contains(a))
+				{
+					next = a;
+					hasNext = true;
+				}
+			}
+			return hasNext;
+		}
+
+		@Override
+		public A next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			hasNext = false;
+			return next;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* The labels and synonyms of the anatomy ontologies bundled with AML, as      *
+* they are written in the files, for the equivalence tests.                   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Vector;
+
+import aml.ontology.Lexicon;
+import aml.ontology.RDFStreamReader;
+import aml.settings.EntityType;
+import aml.settings.LexicalType;
+import aml.util.ISub;
+import aml.util.QGramIndex;
+
+public class AnatomyNames
+{
+
+//Attributes
+
+	public static final String MOUSE = "store/anatomy/mouse.owl";
+	public static final String HUMAN = "store/anatomy/human.owl";
+
+//Public Methods
+
+	/**
+	 * Opens the anatomy ontologies in AML and lists the pairs of classes
+	 * that the StringMatcher scores with the ISub measure at the given
+	 * threshold (those with names that share a 3-gram and aren't too
+	 * dissimilar in length, see StringMatcher.getCandidates)
+	 * @param thresh: the similarity threshold
+	 * @return the source and target ids of the pairs, in the order in which
+	 * the StringMatcher adds them to its candidate tables
+	 * @throws Exception if the ontologies can't be opened
+	 */
+	public static int[][] candidatePairs(double thresh) throws Exception
+	{
+		AML aml = AML.getInstance();
+		aml.openOntologies(MOUSE, HUMAN);
+		Lexicon sLex = aml.getSource().getLexicon();
+		Lexicon tLex = aml.getTarget().getLexicon();
+		QGramIndex index = new QGramIndex(3);
+		for(String n : tLex.getNames(EntityType.CLASS))
+			index.add(n);
+		//Lexicon weights are at most 1 and are corrected by at least 0.8
+		double minSim = thresh / 0.8;
+		Vector<int[]> pairs = new Vector<int[]>();
+		for(int i : sLex.getEntities(EntityType.CLASS))
+		{
+			HashSet<Integer> candidates = new HashSet<Integer>();
+			for(String s : sLex.getNames(i))
+			{
+				if(sLex.getTypes(s,i).contains(LexicalType.FORMULA))
+					continue;
+				for(String t : index.getCandidates(s))
+				{
+					if(ISub.maxSimilarity(s.length(), t.length()) < minSim)
+						continue;
+					for(int j : tLex.getEntities(EntityType.CLASS,t))
+						if(candidates.add(j))
+							pairs.add(new int[]{i, j});
+				}
+			}
+		}
+		int[][] ids = new int[2][pairs.size()];
+		for(int k = 0; k < pairs.size(); k++)
+		{
+			ids[0][k] = pairs.get(k)[0];
+			ids[1][k] = pairs.get(k)[1];
+		}
+		return ids;
+	}
+
+	/**
+	 * @param path: the path to an ontology file
+	 * @return the distinct labels and synonyms in the file, in the order
+	 * in which they are first listed
+	 * @throws IOException if the file can't be read
+	 */
+	public static Vector<String> labels(String path) throws IOException
+	{
+		final LinkedHashSet<String> labels = new LinkedHashSet<String>();
+		new RDFStreamReader(new RDFStreamReader.Handler()
+		{
+			@Override
+			public void resource(String s, String p, String o){}
+
+			@Override
+			public void literal(String s, String p, String value, String lang, String datatype)
+			{
+				if(p.endsWith("#label") || p.contains("Synonym"))
+					labels.add(value);
+			}
+		}).read(path);
+		return new Vector<String>(labels);
+	}
+}
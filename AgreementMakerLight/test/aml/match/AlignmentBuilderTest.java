@@ -0,0 +1,152 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that an AlignmentBuilder builds the same Alignment (with the same    *
+* similarities, relations and statuses) whatever the order in which redundant *
+* Mappings are added, including when they are added from several threads,    *
+* between classes of the anatomy ontologies.                                  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import aml.AML;
+import aml.AnatomyNames;
+import aml.settings.EntityType;
+import aml.settings.MappingRelation;
+import aml.settings.MappingStatus;
+
+public class AlignmentBuilderTest
+{
+
+//Attributes
+
+	//The number of Mappings added, over few pairs so that many are redundant
+	private static final int MAPPINGS = 200000;
+	private static final int ENTITIES = 100;
+	//The ids of the first classes of each ontology
+	private static int[] sources;
+	private static int[] targets;
+
+//Public Methods
+
+	@BeforeClass
+	public static void openOntologies() throws Exception
+	{
+		AML aml = AML.getInstance();
+		aml.openOntologies(AnatomyNames.MOUSE, AnatomyNames.HUMAN);
+		sources = first(aml.getSource().getEntities(EntityType.CLASS));
+		targets = first(aml.getTarget().getEntities(EntityType.CLASS));
+	}
+
+	@Test
+	public void sameInAnyOrder() throws InterruptedException
+	{
+		Random r = new Random(42);
+		MappingRelation[] relations = MappingRelation.values();
+		MappingStatus[] statuses = MappingStatus.values();
+		Vector<Mapping> maps = new Vector<Mapping>();
+		for(int i = 0; i < MAPPINGS; i++)
+		{
+			//Similarities with 5 decimals, so that some differ only before rounding
+			Mapping m = new Mapping(sources[r.nextInt(ENTITIES)], targets[r.nextInt(ENTITIES)], 0.0,
+					relations[r.nextInt(relations.length)]);
+			m.setStatus(statuses[r.nextInt(statuses.length)]);
+			maps.add(m);
+		}
+		double[] sims = new double[MAPPINGS];
+		for(int i = 0; i < MAPPINGS; i++)
+			sims[i] = 0.9 + r.nextInt(100) / 100000.0;
+		String expected = contents(build(maps, sims, 1));
+		for(int k = 0; k < 3; k++)
+		{
+			Vector<Integer> order = new Vector<Integer>();
+			for(int i = 0; i < MAPPINGS; i++)
+				order.add(i);
+			Collections.shuffle(order, r);
+			Vector<Mapping> shuffled = new Vector<Mapping>();
+			double[] shuffledSims = new double[MAPPINGS];
+			for(int i = 0; i < MAPPINGS; i++)
+			{
+				shuffled.add(maps.get(order.get(i)));
+				shuffledSims[i] = sims[order.get(i)];
+			}
+			assertEquals("order " + k, expected, contents(build(shuffled, shuffledSims, 1)));
+			assertEquals("order " + k + " (threads)", expected, contents(build(shuffled, shuffledSims, 4)));
+		}
+	}
+
+//Private Methods
+
+	//Adds the Mappings (with the given similarities) to an AlignmentBuilder
+	//from the given number of threads, each adding an interleaved share
+	private static Alignment build(final Vector<Mapping> maps, final double[] sims, final int threads)
+			throws InterruptedException
+	{
+		final AlignmentBuilder builder = new AlignmentBuilder();
+		Thread[] t = new Thread[threads];
+		for(int i = 0; i < threads; i++)
+		{
+			final int first = i;
+			t[i] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for(int j = first; j < maps.size(); j += threads)
+					{
+						Mapping m = maps.get(j);
+						builder.add(m.getSourceId(), m.getTargetId(), sims[j],
+								m.getRelationship(), m.getStatus());
+					}
+				}
+			};
+			t[i].start();
+		}
+		for(Thread x : t)
+			x.join();
+		return builder.build();
+	}
+
+	private static int[] first(Iterable<Integer> ids)
+	{
+		int[] first = new int[ENTITIES];
+		int i = 0;
+		for(Integer id : ids)
+		{
+			if(i == ENTITIES)
+				break;
+			first[i++] = id;
+		}
+		return first;
+	}
+
+	private static String contents(Alignment a)
+	{
+		StringBuilder s = new StringBuilder();
+		for(Mapping m : a)
+			s.append(m.getSourceId() + " " + m.getTargetId() + " " + m.getSimilarity() + " " +
+					m.getRelationship() + " " + m.getStatus() + "\n");
+		return s.toString();
+	}
+}
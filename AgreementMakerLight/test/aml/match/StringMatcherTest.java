@@ -0,0 +1,114 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that pruning name pairs by their maximum similarity doesn't change   *
+* which pairs the StringMatcher keeps, using thresholds right at the rounded  *
+* similarities of pairs of names from the anatomy ontologies.                 *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import aml.AnatomyNames;
+import aml.settings.StringSimMeasure;
+import aml.util.StringParser;
+
+public class StringMatcherTest
+{
+
+//Attributes
+
+	//The pairs of names to compare
+	private static Vector<String[]> pairs;
+	//The combined Lexicon weights of the pairs of names
+	private static final double[] WEIGHTS = {1.0, 0.95, 0.9025, 0.9, 0.81, 0.7};
+
+//Public Methods
+
+	@BeforeClass
+	public static void readPairs() throws IOException
+	{
+		TreeSet<String> names = new TreeSet<String>();
+		for(String s : AnatomyNames.labels(AnatomyNames.MOUSE))
+			names.add(StringParser.normalizeName(s));
+		for(String s : AnatomyNames.labels(AnatomyNames.HUMAN))
+			names.add(StringParser.normalizeName(s));
+		//Names that are close in alphabetical order share prefixes
+		//and substrings, so their similarities are near the thresholds
+		Vector<String> all = new Vector<String>(names);
+		pairs = new Vector<String[]>();
+		for(int i = 0; i < all.size(); i++)
+			for(int j = i + 1; j < all.size() && j <= i + 2; j++)
+				pairs.add(new String[]{all.get(i), all.get(j)});
+	}
+
+	@Test
+	public void sameMappingsISub()
+	{
+		checkPruning(StringSimMeasure.ISUB, 1);
+	}
+
+	@Test
+	public void sameMappingsOtherMeasures()
+	{
+		//The simmetrics measures are slower, so they are checked on a sample
+		checkPruning(StringSimMeasure.EDIT, 10);
+		checkPruning(StringSimMeasure.JW, 10);
+		checkPruning(StringSimMeasure.QGRAM, 10);
+	}
+
+//Private Methods
+
+	//Compares the pruned and unpruned similarities of the pairs with
+	//thresholds at and around their rounded similarities
+	private void checkPruning(StringSimMeasure m, int step)
+	{
+		for(int i = 0; i < pairs.size(); i += step)
+		{
+			String s = pairs.get(i)[0], t = pairs.get(i)[1];
+			double sim = StringMatcher.stringSimilarity(s, t, m, 0.0);
+			for(double w : WEIGHTS)
+			{
+				double unpruned = w * sim;
+				double rounded = round(unpruned);
+				if(rounded == 0)
+					continue;
+				for(double thresh : new double[]{rounded - 0.0001, rounded, rounded + 0.0001})
+				{
+					double pruned = w * StringMatcher.stringSimilarity(s, t, m,
+							StringMatcher.minSimilarity(thresh, 0.0) / w);
+					String pair = m + " " + s + " / " + t + " (weight " + w + ", threshold " + thresh + ")";
+					assertEquals(pair, round(unpruned) >= thresh, round(pruned) >= thresh);
+					if(round(unpruned) >= thresh)
+						assertEquals(pair, unpruned, pruned, 0.0);
+				}
+			}
+		}
+	}
+
+	//Rounds a similarity the way Mappings do
+	private static double round(double sim)
+	{
+		return Math.round(sim*10000)/10000.0;
+	}
+}
@@ -0,0 +1,104 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that the disjointness queries of a RelationshipMap answered by its   *
+* DisjointIndex after the transitive closure are the same as those computed   *
+* from its tables, over random hierarchies with disjoint clauses added while  *
+* loading, and reports the time it takes to load them.                        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class DisjointIndexTest
+{
+
+//Attributes
+
+	//The number of classes in the random hierarchies
+	private static final int CLASSES = 8000;
+
+//Public Methods
+
+	@Test
+	public void sameAsTables()
+	{
+		for(long seed = 0; seed < 3; seed++)
+		{
+			RelationshipMap rels = load(new Random(seed), seed == 2);
+			for(int c1 = 0; c1 < CLASSES; c1 += 7)
+			{
+				Set<Integer> disj = new HashSet<Integer>(rels.getDisjoint(c1));
+				boolean has = rels.hasDisjoint(c1);
+				for(int a : rels.getSuperClasses(c1, false))
+				{
+					disj.addAll(rels.getDisjoint(a));
+					has |= rels.hasDisjoint(a);
+				}
+				assertEquals("seed " + seed + " class " + c1, disj, rels.getDisjointTransitive(c1));
+				assertEquals("seed " + seed + " class " + c1, has, rels.hasDisjointTransitive(c1));
+				for(int c2 = 0; c2 < CLASSES; c2 += 13)
+				{
+					Set<Integer> ancs = rels.getSuperClasses(c2, false);
+					ancs.add(c2);
+					ancs.retainAll(disj);
+					assertEquals("seed " + seed + " classes " + c1 + " " + c2,
+							!ancs.isEmpty(), rels.areDisjoint(c1, c2));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void loadingTime()
+	{
+		long time = System.nanoTime();
+		RelationshipMap rels = load(new Random(7), false);
+		double seconds = (System.nanoTime() - time) / 1e9;
+		System.out.println(String.format("RelationshipMap loading of %d classes with %d disjoint " +
+				"clauses: %.0f classes/s", CLASSES, rels.disjointCount(), CLASSES / seconds));
+	}
+
+//Private Methods
+
+	//Loads a random 'is_a' hierarchy, adding a disjoint clause between some
+	//siblings and checking for disjointness as each class is added (as an
+	//ontology does while it is being opened), and computes its closure
+	private static RelationshipMap load(Random r, boolean indexed)
+	{
+		RelationshipMap rels = new RelationshipMap();
+		rels.setReachabilityIndex(indexed);
+		for(int c = 1; c < CLASSES; c++)
+		{
+			rels.addDirectSubclass(c, r.nextInt(c));
+			if(r.nextInt(4) == 0)
+				rels.addDirectSubclass(c, r.nextInt(c));
+			if(c % 3 == 0)
+				rels.addDisjoint(c, c - 1);
+			int other = r.nextInt(c);
+			if(c % 10 == 0 && !rels.areDisjoint(c, other))
+				rels.addDisjoint(c, other);
+		}
+		rels.transitiveClosure();
+		return rels;
+	}
+}
@@ -0,0 +1,103 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that opening the anatomy ontologies with the OntologyStreamReader    *
+* gives the same classes, Lexicon entries (with their types, languages,       *
+* sources and weights), cross-references and direct relationships as         *
+* opening them through the OWL API.                                           *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import aml.AML;
+import aml.AnatomyNames;
+import aml.settings.EntityType;
+
+public class OntologyStreamReaderTest
+{
+
+//Public Methods
+
+	@Test
+	public void sameAsOWLAPI() throws Exception
+	{
+		for(String path : new String[]{AnatomyNames.MOUSE, AnatomyNames.HUMAN})
+		{
+			TreeSet<String> owlapi = contents(path, false);
+			TreeSet<String> stream = contents(path, true);
+			assertEquals(path, owlapi, stream);
+		}
+	}
+
+//Private Methods
+
+	//Opens an ontology (with new URI and Relationship maps) and lists its
+	//contents by URI, so that they can be compared regardless of indexes
+	private static TreeSet<String> contents(String path, boolean stream) throws Exception
+	{
+		AML aml = AML.getInstance();
+		set(aml, "uris", new URIMap());
+		set(aml, "rels", new RelationshipMap());
+		Ontology o;
+		if(stream)
+			o = OntologyStreamReader.open(path)[0];
+		else
+			o = Ontology.open(path)[0];
+		URIMap uris = aml.getURIMap();
+		RelationshipMap rels = aml.getRelationshipMap();
+		Lexicon lex = o.getLexicon();
+		TreeSet<String> contents = new TreeSet<String>();
+		contents.add("ontology " + o.getURI());
+		for(int id : o.getEntities(EntityType.CLASS))
+		{
+			String c = uris.getURI(id);
+			contents.add("class " + c + " " + o.isObsoleteClass(id));
+			for(String n : lex.getNames(id))
+				for(Provenance p : lex.get(n, id))
+					contents.add("name " + c + " | " + n + " | " + p.getType() + " " +
+							p.getLanguage() + " " + p.getSource() + " " + lex.getWeight(n, id));
+			if(o.getReferenceMap().get(id) != null)
+				for(String r : o.getReferenceMap().get(id))
+					contents.add("xref " + c + " " + r);
+			for(int p : rels.getParents(id))
+				for(Relationship r : rels.getRelationships(id, p))
+					contents.add("parent " + c + " " + uris.getURI(p) + " " + r.getDistance() + " " +
+							(r.getProperty() < 0 ? "is_a" : uris.getURI(r.getProperty())) + " " + r.getRestriction());
+			for(int d : rels.getDisjoint(id))
+				contents.add("disjoint " + c + " " + uris.getURI(d));
+		}
+		for(int id : o.getEntities(EntityType.OBJECT))
+			for(String n : lex.getNames(id))
+				for(Provenance p : lex.get(n, id))
+					contents.add("property " + uris.getURI(id) + " | " + n + " | " + p.getType() + " " + p.getLanguage());
+		return contents;
+	}
+
+	//Sets a private field of AML (which has no public way of opening
+	//a single ontology with fresh URI and Relationship maps)
+	private static void set(AML aml, String name, Object value) throws Exception
+	{
+		Field f = AML.class.getDeclaredField(name);
+		f.setAccessible(true);
+		f.set(aml, value);
+	}
+}
@@ -0,0 +1,78 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that the RDFStreamReader reads RDF/XML files that refer to a DTD     *
+* entity more times than the default entity expansion limit of the JDK, as    *
+* large biomedical ontologies do.                                             *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.Test;
+
+public class RDFStreamReaderTest
+{
+
+//Attributes
+
+	//The number of classes, each of which refers to the entity twice
+	private static final int CLASSES = 70000;
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+	private static final String SUBCLASS = "http://www.w3.org/2000/01/rdf-schema#subClassOf";
+
+//Public Methods
+
+	@Test
+	public void manyEntityReferences() throws Exception
+	{
+		StringBuilder s = new StringBuilder();
+		s.append("<?xml version=\"1.0\"?>\n");
+		s.append("<!DOCTYPE rdf:RDF [\n");
+		s.append("    <!ENTITY obo \"" + OBO + "\" >\n");
+		s.append("]>\n");
+		s.append("<rdf:RDF xmlns:rdf=\"" + RDFStreamReader.RDF + "\"\n");
+		s.append("     xmlns:owl=\"http://www.w3.org/2002/07/owl#\"\n");
+		s.append("     xmlns:rdfs=\"http://www.w3.org/2000/01/rdf-schema#\">\n");
+		for(int i = 1; i <= CLASSES; i++)
+		{
+			s.append("    <owl:Class rdf:about=\"&obo;C_" + i + "\">\n");
+			s.append("        <rdfs:subClassOf rdf:resource=\"&obo;C_" + (i-1) + "\"/>\n");
+			s.append("    </owl:Class>\n");
+		}
+		s.append("</rdf:RDF>\n");
+		final int[] count = new int[2];
+		RDFStreamReader.Handler h = new RDFStreamReader.Handler()
+		{
+			@Override
+			public void resource(String sub, String p, String o)
+			{
+				if(p.equals(RDFStreamReader.TYPE))
+					count[0]++;
+				else if(p.equals(SUBCLASS) && sub.startsWith(OBO) && o.startsWith(OBO))
+					count[1]++;
+			}
+
+			@Override
+			public void literal(String sub, String p, String value, String lang, String datatype){}
+		};
+		new RDFStreamReader(h).readRDFXML(new ByteArrayInputStream(s.toString().getBytes("UTF-8")), OBO);
+		assertEquals(CLASSES, count[0]);
+		assertEquals(CLASSES, count[1]);
+	}
+}
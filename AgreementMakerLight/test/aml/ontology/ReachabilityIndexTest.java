@@ -0,0 +1,141 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that a RelationshipMap with a ReachabilityIndex answers the queries  *
+* about ancestors and descendants as it does after the full transitive        *
+* closure, over the random hierarchies of TransitiveClosureTest, both from a  *
+* single thread and from several threads querying it at the same time.        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import aml.util.IntSlice;
+
+public class ReachabilityIndexTest
+{
+
+//Attributes
+
+	//The distances and properties used in the queries
+	private static final int[] DISTANCES = {0, 1, 2, 3};
+	private static final int[] PROPERTIES = {-1, 1, 2, 3};
+
+//Public Methods
+
+	@Test
+	public void sameAsClosure()
+	{
+		for(long seed = 0; seed < 5; seed++)
+		{
+			Vector<int[]> edges = TransitiveClosureTest.randomEdges(new Random(seed), seed % 2 == 1);
+			assertEquals("seed " + seed, answers(map(edges, false)), answers(map(edges, true)));
+		}
+	}
+
+	@Test
+	public void sameFromThreads() throws InterruptedException
+	{
+		Vector<int[]> edges = TransitiveClosureTest.randomEdges(new Random(1), true);
+		final Vector<String> expected = answers(map(edges, false));
+		final RelationshipMap rels = map(edges, true);
+		final AtomicInteger differences = new AtomicInteger(0);
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					if(!expected.equals(answers(rels)))
+						differences.incrementAndGet();
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread t : threads)
+			t.join();
+		assertEquals(0, differences.get());
+	}
+
+//Private Methods
+
+	//Builds a RelationshipMap with the given edges (see TransitiveClosureTest)
+	private static RelationshipMap map(Vector<int[]> edges, boolean indexed)
+	{
+		RelationshipMap rels = new RelationshipMap();
+		rels.addTransitive(1);
+		rels.addTransitiveOver(2, -1);
+		rels.setReachabilityIndex(indexed);
+		for(int[] e : edges)
+			rels.addClassRelationship(e[0], e[1], e[2], e[3], e[4] == 1);
+		rels.transitiveClosure();
+		return rels;
+	}
+
+	//Lists the answers of a RelationshipMap to the queries about the
+	//ancestors and descendants of each class
+	private static Vector<String> answers(RelationshipMap rels)
+	{
+		Vector<String> answers = new Vector<String>();
+		for(int c = 0; c < TransitiveClosureTest.CLASSES; c++)
+		{
+			answers.add(c + " ancestors " + list(rels.getAncestorView(c)));
+			answers.add(c + " descendants " + list(rels.getDescendantView(c)));
+			answers.add(c + " superclasses " + list(rels.getSuperClassView(c, false)) + " " + list(rels.getSuperClassView(c, true)));
+			answers.add(c + " subclasses " + list(rels.getSubClassView(c, false)) + " " + list(rels.getSubClassView(c, true)));
+			for(int d : DISTANCES)
+			{
+				answers.add(c + " ancestors " + d + " " + sorted(rels.getAncestors(c, d)));
+				answers.add(c + " descendants " + d + " " + sorted(rels.getDescendants(c, d)));
+				for(int p : PROPERTIES)
+				{
+					answers.add(c + " ancestors " + d + " " + p + " " + sorted(rels.getAncestors(c, d, p)));
+					answers.add(c + " descendants " + d + " " + p + " " + sorted(rels.getDescendants(c, d, p)));
+				}
+			}
+			for(int p : PROPERTIES)
+			{
+				answers.add(c + " ancestors property " + p + " " + sorted(rels.getAncestorsProperty(c, p)));
+				answers.add(c + " descendants property " + p + " " + sorted(rels.getDescendantsProperty(c, p)));
+			}
+			for(int a : rels.getAncestors(c))
+				answers.add(c + " " + a + " " + rels.getDistance(c, a) + " " + rels.isSubclass(c, a) + " " +
+						rels.getRelationship(c, a).getProperty());
+		}
+		return answers;
+	}
+
+	private static String list(IntSlice slice)
+	{
+		return Arrays.toString(slice.toArray());
+	}
+
+	private static String sorted(Set<Integer> set)
+	{
+		return new TreeSet<Integer>(set).toString();
+	}
+}
@@ -0,0 +1,173 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that the transitive closure of a RelationshipMap (both the one added *
+* to the map and the one answered by a ReachabilityIndex) has the same        *
+* relationships and minimal distances as a naive fixpoint of the composition  *
+* rules, over random hierarchies with several properties and equivalences.    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Test;
+
+public class TransitiveClosureTest
+{
+
+//Attributes
+
+	//The number of classes in the random hierarchies
+	static final int CLASSES = 400;
+	//The properties of the relationships ('is_a', transitive, transitive
+	//over 'is_a' only, and not transitive)
+	private static final int[] PROPERTIES = {-1, -1, -1, 1, 2, 3};
+
+//Public Methods
+
+	@Test
+	public void sameAsFixpoint()
+	{
+		for(long seed = 0; seed < 5; seed++)
+		{
+			Vector<int[]> edges = randomEdges(new Random(seed), seed % 2 == 1);
+			HashMap<String,Integer> expected = fixpoint(edges);
+			assertEquals("seed " + seed, expected, closure(edges, false));
+			assertEquals("seed " + seed + " (indexed)", expected, closure(edges, true));
+		}
+	}
+
+//Private Methods
+
+	//Generates a random hierarchy where each class has up to 3 parents with a
+	//lower index (edges are {child, parent, distance, property, restriction})
+	//plus, optionally, a few equivalences and upward edges that create cycles
+	static Vector<int[]> randomEdges(Random r, boolean cycles)
+	{
+		Vector<int[]> edges = new Vector<int[]>();
+		for(int c = 1; c < CLASSES; c++)
+		{
+			int parents = 1 + r.nextInt(3);
+			for(int k = 0; k < parents; k++)
+				edges.add(new int[]{c, r.nextInt(c), 1,
+						PROPERTIES[r.nextInt(PROPERTIES.length)], r.nextInt(2)});
+		}
+		if(cycles)
+		{
+			for(int k = 0; k < CLASSES / 20; k++)
+			{
+				int c = r.nextInt(CLASSES - 1);
+				edges.add(new int[]{c, c + 1 + r.nextInt(CLASSES - c - 1), r.nextInt(2), -1, 0});
+			}
+		}
+		return edges;
+	}
+
+	//Computes the closure of the edges in a RelationshipMap, as a map of
+	//"child ancestor property restriction" to the minimal distance
+	private static HashMap<String,Integer> closure(Vector<int[]> edges, boolean indexed)
+	{
+		RelationshipMap rels = new RelationshipMap();
+		rels.addTransitive(1);
+		rels.addTransitiveOver(2, -1);
+		rels.setReachabilityIndex(indexed);
+		for(int[] e : edges)
+			rels.addClassRelationship(e[0], e[1], e[2], e[3], e[4] == 1);
+		rels.transitiveClosure();
+		HashMap<String,Integer> closure = new HashMap<String,Integer>();
+		for(int c = 0; c < CLASSES; c++)
+			for(int a : rels.getAncestors(c))
+				for(Relationship x : rels.getRelationships(c, a))
+					offer(closure, c + " " + a + " " + x.getProperty() + " " + x.getRestriction(),
+							x.getDistance());
+		return closure;
+	}
+
+	//Computes the closure of the edges by applying the composition rules to
+	//all pairs of relationships until nothing changes: a relationship combines
+	//with an upper one at a distance above 0 if either is 'is_a' or the lower
+	//property is transitive over the upper one, keeping the upper property
+	//(unless it is 'is_a') and both restrictions
+	private static HashMap<String,Integer> fixpoint(Vector<int[]> edges)
+	{
+		//Class -> ancestor -> {property, restriction, minimal distance, minimal distance above 0}
+		Vector<HashMap<String,int[]>> rows = new Vector<HashMap<String,int[]>>();
+		for(int c = 0; c < CLASSES; c++)
+			rows.add(new HashMap<String,int[]>());
+		for(int[] e : edges)
+			offer(rows.get(e[0]), e[1], e[3], e[4], e[2]);
+		boolean changed = true;
+		while(changed)
+		{
+			changed = false;
+			for(int[] e : edges)
+			{
+				for(int[] up : new Vector<int[]>(rows.get(e[1]).values()))
+				{
+					if(up[4] < 1)
+						continue;
+					int p1 = up[1], p2 = e[3];
+					boolean transitive = p1 == p2 && p1 == 1 || p2 == 2 && p1 == -1;
+					if(!(p1 == -1 || p2 == -1 || transitive))
+						continue;
+					int prop = p1 != -1 ? p1 : p2;
+					changed = offer(rows.get(e[0]), up[0], prop, e[4] & up[2], e[2] + up[4]) || changed;
+				}
+			}
+		}
+		HashMap<String,Integer> closure = new HashMap<String,Integer>();
+		for(int c = 0; c < CLASSES; c++)
+			for(int[] x : rows.get(c).values())
+				closure.put(c + " " + x[0] + " " + x[1] + " " + (x[2] == 1), x[3]);
+		return closure;
+	}
+
+	//Adds a relationship to a row of the fixpoint, returning whether it changed
+	private static boolean offer(HashMap<String,int[]> row, int ancestor, int prop, int rest, int distance)
+	{
+		String key = ancestor + " " + prop + " " + rest;
+		int[] x = row.get(key);
+		if(x == null)
+		{
+			row.put(key, new int[]{ancestor, prop, rest, distance, distance});
+			return true;
+		}
+		boolean changed = false;
+		if(distance < x[3])
+		{
+			x[3] = distance;
+			changed = true;
+		}
+		if(distance > 0 && (x[4] == 0 || distance < x[4]))
+		{
+			x[4] = distance;
+			changed = true;
+		}
+		return changed;
+	}
+
+	//Keeps the minimal distance of each relationship
+	private static void offer(HashMap<String,Integer> closure, String key, int distance)
+	{
+		Integer d = closure.get(key);
+		if(d == null || distance < d)
+			closure.put(key, distance);
+	}
+}
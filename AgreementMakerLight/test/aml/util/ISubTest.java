@@ -0,0 +1,210 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that ISub gives bit-identical scores to its original String-based    *
+* implementation (kept here as the reference) over pairs of names from the    *
+* anatomy ontologies, and reports the throughput of both implementations.     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import aml.AnatomyNames;
+
+public class ISubTest
+{
+
+//Attributes
+
+	//The pairs of names to compare
+	private static Vector<String[]> pairs;
+
+//Public Methods
+
+	@BeforeClass
+	public static void readPairs() throws IOException
+	{
+		Vector<String> mouse = names(AnatomyNames.MOUSE);
+		Vector<String> human = names(AnatomyNames.HUMAN);
+		pairs = new Vector<String[]>();
+		//Names that are close in alphabetical order (which share prefixes
+		//and substrings, so they have high similarities)
+		Vector<String> all = new Vector<String>(new TreeSet<String>(mouse));
+		all.addAll(human);
+		Collections.sort(all);
+		for(int i = 0; i < all.size(); i++)
+			for(int j = i + 1; j < all.size() && j <= i + 4; j++)
+				pairs.add(new String[]{all.get(i), all.get(j)});
+		//And a sample of all pairs of mouse and human names
+		for(int i = 0; i < mouse.size(); i++)
+			for(int j = i % 200; j < human.size(); j += 200)
+				pairs.add(new String[]{mouse.get(i), human.get(j)});
+	}
+
+	@Test
+	public void sameScores()
+	{
+		for(String[] p : pairs)
+		{
+			double expected = referenceSimilarity(p[0], p[1]);
+			double actual = ISub.stringSimilarity(p[0], p[1]);
+			assertEquals(p[0] + " / " + p[1], Double.doubleToLongBits(expected),
+					Double.doubleToLongBits(actual));
+		}
+	}
+
+	@Test
+	public void throughput()
+	{
+		//Warm up both implementations before timing them
+		double sum = 0;
+		for(String[] p : pairs)
+		{
+			sum += referenceSimilarity(p[0], p[1]);
+			sum += ISub.stringSimilarity(p[0], p[1]);
+		}
+		long time = System.nanoTime();
+		for(String[] p : pairs)
+			sum += referenceSimilarity(p[0], p[1]);
+		double reference = (System.nanoTime() - time) / 1e9;
+		time = System.nanoTime();
+		for(String[] p : pairs)
+			sum -= ISub.stringSimilarity(p[0], p[1]);
+		double current = (System.nanoTime() - time) / 1e9;
+		System.out.println(String.format("ISub over %d pairs: reference %.0f pairs/s, " +
+				"current %.0f pairs/s (checksum %.3f)", pairs.size(),
+				pairs.size() / reference, pairs.size() / current, sum));
+	}
+
+//Private Methods
+
+	//Returns the labels of an ontology file along with their normalized
+	//forms (which are the names in the Lexicon)
+	private static Vector<String> names(String path) throws IOException
+	{
+		TreeSet<String> names = new TreeSet<String>();
+		for(String s : AnatomyNames.labels(path))
+		{
+			names.add(s);
+			names.add(StringParser.normalizeName(s));
+		}
+		return new Vector<String>(names);
+	}
+
+	//The original implementation of ISub.stringSimilarity
+	private static double referenceSimilarity(String st1, String st2)
+	{
+		String s1 = st1, s2 = st2;
+		if(s1 == null || s2 == null)
+			return 0;
+		int L1 = s1.length(), L2 = s2.length();
+		if(L1 == 0 || L2 == 0)
+			return 0;
+		int l1, l2;
+		double common = 0;
+		int best = 2;
+		while (s1.length() > 0 && s2.length() > 0 && best != 0)
+		{
+			best = 0;
+			l1 = s1.length();
+			l2 = s2.length();
+			int i = 0, j = 0;
+			int startS1 = 0, endS1 = 0;
+			int startS2 = 0, endS2 = 0;
+			int p = 0;
+			for(i = 0; (i < l1) && (l1 - i > best); i++)
+			{
+				j = 0;
+				while (l2 - j > best)
+				{
+					int k = i;
+					while(j < l2 && s1.charAt(k) != s2.charAt(j))
+						j++;
+					if(j != l2)
+					{
+						p = j;
+						for(j++, k ++; (j < l2) && (k < l1) && (s1.charAt(k) == s2.charAt(j)); j++, k++);
+						if(k - i > best)
+						{
+							best = k - i;
+							startS1 = i;
+							endS1 = k;
+							startS2 = p;
+							endS2 = j;
+						}
+					}
+				}
+			}
+			char[] newString = new char[s1.length() - (endS1 - startS1)];
+			j = 0;
+			for(i = 0; i < s1.length(); i++)
+			{
+				if(i >= startS1 && i < endS1)
+					continue;
+				newString[j++] = s1.charAt(i);
+			}
+			s1 = new String(newString);
+			newString = new char[s2.length() - (endS2 - startS2)];
+			j = 0;
+			for(i = 0; i < s2.length(); i++)
+			{
+				if(i >= startS2 && i < endS2)
+					continue;
+				newString[j++] = s2.charAt(i);
+			}
+			s2 = new String(newString);
+			if(best > 2)
+				common += best;
+			else
+				best = 0;
+		}
+		double commonality = 0;
+		double scaledCommon = (double) (2 * common) / (L1 + L2);
+		commonality = scaledCommon;
+		int n = Math.min(st1.length(), st2.length());
+		int prefix;
+		for(prefix = 0; prefix < n; prefix++)
+			if(st1.charAt(prefix) != st2.charAt(prefix))
+				break;
+		double winklerImprovement = Math.min(4, prefix) * 0.1 * (1 - commonality);
+		double dissimilarity = 0;
+		double rest1 = L1 - common;
+		double rest2 = L2 - common;
+		double unmatchedS1 = Math.max(rest1, 0);
+		double unmatchedS2 = Math.max(rest2, 0);
+		unmatchedS1 = rest1 / L1;
+		unmatchedS2 = rest2 / L2;
+		double suma = unmatchedS1 + unmatchedS2;
+		double product = unmatchedS1 * unmatchedS2;
+		double p = 0.6;
+		if((suma - product) == 0)
+			dissimilarity = 0;
+		else
+			dissimilarity = (product) / (p + (1 - p) * (suma - product));
+		double result = commonality - dissimilarity + winklerImprovement;
+		if(result < 0)
+			result = 0;
+		return result;
+	}
+}
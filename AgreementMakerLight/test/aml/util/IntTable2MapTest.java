@@ -0,0 +1,187 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that IntTable2Map has the same entries as a Table2Map after the same *
+* random additions (replacing and upgrading values), and with the candidate   *
+* pairs that the StringMatcher scores on the anatomy task, and reports the    *
+* throughput and memory footprint of both tables.                             *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import aml.AnatomyNames;
+
+public class IntTable2MapTest
+{
+
+//Attributes
+
+	//The number of random additions
+	private static final int PAIRS = 500000;
+
+//Public Methods
+
+	@Test
+	public void sameEntries()
+	{
+		Random r = new Random(42);
+		IntTable2Map table = new IntTable2Map();
+		Table2Map<Integer,Integer,Double> reference = new Table2Map<Integer,Integer,Double>();
+		for(int i = 0; i < PAIRS; i++)
+		{
+			int keyA = r.nextBoolean() ? r.nextInt(100) : r.nextInt(20000);
+			int keyB = r.nextInt(keyA % 3 == 0 ? 20 : 3000);
+			double value = r.nextInt(1000) / 1000.0;
+			if(r.nextBoolean())
+			{
+				table.add(keyA, keyB, value);
+				reference.add(keyA, keyB, value);
+			}
+			else
+			{
+				table.addUpgrade(keyA, keyB, value);
+				reference.addUpgrade(keyA, keyB, value);
+			}
+		}
+		assertEquals(reference.size(), table.size());
+		assertEquals(reference.keyCount(), table.keyCount());
+		for(int keyA : table.keySet())
+		{
+			int[] keys = table.keySet(keyA);
+			double[] values = table.values(keyA);
+			assertEquals(reference.entryCount(keyA), keys.length);
+			for(int k = 0; k < keys.length; k++)
+			{
+				assertEquals(reference.get(keyA, keys[k]), values[k], 0.0);
+				assertEquals(reference.get(keyA, keys[k]), table.get(keyA, keys[k]), 0.0);
+			}
+		}
+		for(int keyA = 0; keyA < 20000; keyA += 3)
+			for(int keyB = 0; keyB < 30; keyB++)
+				assertEquals(reference.contains(keyA, keyB), table.contains(keyA, keyB));
+	}
+
+	@Test
+	public void throughput()
+	{
+		int[] keysA = new int[PAIRS];
+		int[] keysB = new int[PAIRS];
+		double[] values = new double[PAIRS];
+		Random r = new Random(7);
+		for(int i = 0; i < PAIRS; i++)
+		{
+			keysA[i] = r.nextInt(3000);
+			keysB[i] = r.nextInt(3300);
+			values[i] = r.nextDouble();
+		}
+		//Time each table a few times, keeping the best time (as the times
+		//of a single run depend mostly on when the garbage collector runs)
+		double generic = Double.MAX_VALUE, primitive = Double.MAX_VALUE;
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			long time = System.nanoTime();
+			Table2Map<Integer,Integer,Double> reference = buildReference(keysA, keysB, values);
+			generic = Math.min(generic, (System.nanoTime() - time) / 1e9);
+			System.gc();
+			time = System.nanoTime();
+			IntTable2Map table = build(keysA, keysB, values);
+			primitive = Math.min(primitive, (System.nanoTime() - time) / 1e9);
+			assertEquals(reference.size(), table.size());
+		}
+		System.out.println(String.format("Table2Map over %d pairs: Table2Map %.0f pairs/s, " +
+				"IntTable2Map %.0f pairs/s", PAIRS, PAIRS / generic, PAIRS / primitive));
+	}
+
+	@Test
+	public void anatomyCandidates() throws Exception
+	{
+		int[][] pairs = AnatomyNames.candidatePairs(0.7);
+		int[] keysA = pairs[0], keysB = pairs[1];
+		//Each pair gets a similarity derived from its ids (the tables
+		//don't depend on the values, only on their number)
+		double[] values = new double[keysA.length];
+		for(int i = 0; i < values.length; i++)
+			values[i] = ((keysA[i] * 31 + keysB[i]) % 1000) / 1000.0;
+		//The tables must have the same entries
+		Table2Map<Integer,Integer,Double> reference = buildReference(keysA, keysB, values);
+		IntTable2Map table = build(keysA, keysB, values);
+		assertEquals(reference.size(), table.size());
+		assertEquals(reference.keyCount(), table.keyCount());
+		for(int i = 0; i < keysA.length; i++)
+			assertEquals(reference.get(keysA[i], keysB[i]), table.get(keysA[i], keysB[i]), 0.0);
+		reference = null;
+		table = null;
+		//Measure the memory of each table (while it is still referenced)
+		long before = usedMemory();
+		reference = buildReference(keysA, keysB, values);
+		long generic = usedMemory() - before;
+		reference = null;
+		before = usedMemory();
+		table = build(keysA, keysB, values);
+		long primitive = usedMemory() - before;
+		//Time each table a few times, keeping the best time
+		double genericTime = Double.MAX_VALUE, primitiveTime = Double.MAX_VALUE;
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			long time = System.nanoTime();
+			reference = buildReference(keysA, keysB, values);
+			genericTime = Math.min(genericTime, (System.nanoTime() - time) / 1e9);
+			reference = null;
+			System.gc();
+			time = System.nanoTime();
+			table = build(keysA, keysB, values);
+			primitiveTime = Math.min(primitiveTime, (System.nanoTime() - time) / 1e9);
+		}
+		System.out.println(String.format("Table2Map over %d anatomy candidate pairs (%d sources): " +
+				"Table2Map %.1f MB, %.0f pairs/s; IntTable2Map %.1f MB, %.0f pairs/s", keysA.length,
+				table.keyCount(), generic / 1e6, keysA.length / genericTime, primitive / 1e6,
+				keysA.length / primitiveTime));
+	}
+
+//Private Methods
+
+	private static IntTable2Map build(int[] keysA, int[] keysB, double[] values)
+	{
+		IntTable2Map table = new IntTable2Map();
+		for(int i = 0; i < keysA.length; i++)
+			table.addUpgrade(keysA[i], keysB[i], values[i]);
+		return table;
+	}
+
+	//Returns the memory in use after collecting garbage
+	private static long usedMemory()
+	{
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static Table2Map<Integer,Integer,Double> buildReference(int[] keysA, int[] keysB, double[] values)
+	{
+		Table2Map<Integer,Integer,Double> table = new Table2Map<Integer,Integer,Double>();
+		for(int i = 0; i < keysA.length; i++)
+			table.addUpgrade(keysA[i], keysB[i], values[i]);
+		return table;
+	}
+}
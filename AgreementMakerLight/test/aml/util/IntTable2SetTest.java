@@ -0,0 +1,186 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that IntTable2Set has the same contents as a Table2Set (with keys    *
+* and values in insertion order) after the same random additions, and with    *
+* the candidate pairs that the StringMatcher scores on the anatomy task, and  *
+* reports the throughput and memory footprint of both tables.                 *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import aml.AnatomyNames;
+
+public class IntTable2SetTest
+{
+
+//Attributes
+
+	//The number of random additions
+	private static final int PAIRS = 500000;
+
+//Public Methods
+
+	@Test
+	public void sameContents()
+	{
+		//Some keys get many values (so they are indexed) and others only a few
+		Random r = new Random(42);
+		IntTable2Set table = new IntTable2Set();
+		Table2Set<Integer,Integer> reference = new Table2Set<Integer,Integer>();
+		LinkedHashMap<Integer,LinkedHashSet<Integer>> order = new LinkedHashMap<Integer,LinkedHashSet<Integer>>();
+		for(int i = 0; i < PAIRS; i++)
+		{
+			int key = r.nextBoolean() ? r.nextInt(100) : r.nextInt(100000) - 50000;
+			int value = r.nextInt(key % 3 == 0 ? 20 : 5000);
+			table.add(key, value);
+			reference.add(key, value);
+			if(!order.containsKey(key))
+				order.put(key, new LinkedHashSet<Integer>());
+			order.get(key).add(value);
+		}
+		assertEquals(reference.size(), table.size());
+		assertEquals(reference.keyCount(), table.keyCount());
+		assertArrayEquals(toArray(order.keySet()), table.keySet());
+		for(int key : order.keySet())
+		{
+			assertEquals(reference.entryCount(key), table.entryCount(key));
+			assertArrayEquals(toArray(order.get(key)), table.get(key));
+			for(int value = -1; value < 30; value++)
+				assertEquals(reference.contains(key, value), table.contains(key, value));
+		}
+		for(int key = -60000; key < 60000; key += 7)
+			assertEquals(reference.contains(key), table.contains(key));
+	}
+
+	@Test
+	public void throughput()
+	{
+		int[] keys = new int[PAIRS];
+		int[] values = new int[PAIRS];
+		Random r = new Random(7);
+		for(int i = 0; i < PAIRS; i++)
+		{
+			keys[i] = r.nextInt(3000);
+			values[i] = r.nextInt(3300);
+		}
+		//Time each table a few times, keeping the best time (as the times
+		//of a single run depend mostly on when the garbage collector runs)
+		double generic = Double.MAX_VALUE, primitive = Double.MAX_VALUE;
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			long time = System.nanoTime();
+			Table2Set<Integer,Integer> reference = buildReference(keys, values);
+			generic = Math.min(generic, (System.nanoTime() - time) / 1e9);
+			System.gc();
+			time = System.nanoTime();
+			IntTable2Set table = build(keys, values);
+			primitive = Math.min(primitive, (System.nanoTime() - time) / 1e9);
+			assertEquals(reference.size(), table.size());
+		}
+		System.out.println(String.format("Table2Set over %d pairs: Table2Set %.0f pairs/s, " +
+				"IntTable2Set %.0f pairs/s", PAIRS, PAIRS / generic, PAIRS / primitive));
+	}
+
+	@Test
+	public void anatomyCandidates() throws Exception
+	{
+		int[][] pairs = AnatomyNames.candidatePairs(0.7);
+		int[] keys = pairs[0], values = pairs[1];
+		//The tables must have the same contents
+		Table2Set<Integer,Integer> reference = buildReference(keys, values);
+		IntTable2Set table = build(keys, values);
+		assertEquals(reference.size(), table.size());
+		assertEquals(reference.keyCount(), table.keyCount());
+		for(int key : table.keySet())
+			for(int value : table.get(key))
+				assertEquals(true, reference.contains(key, value));
+		reference = null;
+		table = null;
+		//Measure the memory of each table (while it is still referenced)
+		long before = usedMemory();
+		reference = buildReference(keys, values);
+		long generic = usedMemory() - before;
+		reference = null;
+		before = usedMemory();
+		table = build(keys, values);
+		long primitive = usedMemory() - before;
+		//Time each table a few times, keeping the best time
+		double genericTime = Double.MAX_VALUE, primitiveTime = Double.MAX_VALUE;
+		for(int i = 0; i < 5; i++)
+		{
+			System.gc();
+			long time = System.nanoTime();
+			reference = buildReference(keys, values);
+			genericTime = Math.min(genericTime, (System.nanoTime() - time) / 1e9);
+			reference = null;
+			System.gc();
+			time = System.nanoTime();
+			table = build(keys, values);
+			primitiveTime = Math.min(primitiveTime, (System.nanoTime() - time) / 1e9);
+		}
+		System.out.println(String.format("Table2Set over %d anatomy candidate pairs (%d sources): " +
+				"Table2Set %.1f MB, %.0f pairs/s; IntTable2Set %.1f MB, %.0f pairs/s", keys.length,
+				table.keyCount(), generic / 1e6, keys.length / genericTime, primitive / 1e6,
+				keys.length / primitiveTime));
+	}
+
+//Private Methods
+
+	private static IntTable2Set build(int[] keys, int[] values)
+	{
+		IntTable2Set table = new IntTable2Set();
+		for(int i = 0; i < keys.length; i++)
+			table.add(keys[i], values[i]);
+		return table;
+	}
+
+	private static Table2Set<Integer,Integer> buildReference(int[] keys, int[] values)
+	{
+		Table2Set<Integer,Integer> table = new Table2Set<Integer,Integer>();
+		for(int i = 0; i < keys.length; i++)
+			table.add(keys[i], values[i]);
+		return table;
+	}
+
+	//Returns the memory in use after collecting garbage
+	private static long usedMemory()
+	{
+		Runtime rt = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++)
+			System.gc();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	private static int[] toArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(int v : set)
+			array[i++] = v;
+		return array;
+	}
+}
@@ -0,0 +1,75 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that the threshold given to NameSimilarity doesn't change whether a  *
+* pair of names reaches it once rounded, using thresholds right at the        *
+* rounded similarities of pairs of names from the anatomy ontologies.         *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.junit.Test;
+
+import aml.AnatomyNames;
+
+public class NameSimilarityTest
+{
+
+//Public Methods
+
+	@Test
+	public void sameMappings() throws IOException
+	{
+		TreeSet<String> names = new TreeSet<String>();
+		for(String s : AnatomyNames.labels(AnatomyNames.MOUSE))
+			names.add(StringParser.normalizeName(s));
+		for(String s : AnatomyNames.labels(AnatomyNames.HUMAN))
+			names.add(StringParser.normalizeName(s));
+		Vector<String> all = new Vector<String>(names);
+		NameSimilarity ns = new NameSimilarity(false);
+		//Names that are close in alphabetical order share words and
+		//substrings, so their similarities are near the thresholds
+		for(int i = 0; i + 1 < all.size(); i++)
+		{
+			String s = all.get(i), t = all.get(i + 1);
+			double unpruned = ns.nameSimilarity(s, t, 0.0);
+			double rounded = round(unpruned);
+			if(rounded == 0)
+				continue;
+			for(double thresh : new double[]{rounded - 0.0001, rounded, rounded + 0.0001})
+			{
+				double pruned = ns.nameSimilarity(s, t, thresh);
+				String pair = s + " / " + t + " (threshold " + thresh + ")";
+				assertEquals(pair, round(unpruned) >= thresh, round(pruned) >= thresh);
+				if(round(unpruned) >= thresh)
+					assertEquals(pair, unpruned, pruned, 0.0);
+			}
+		}
+	}
+
+//Private Methods
+
+	//Rounds a similarity the way Mappings do
+	private static double round(double sim)
+	{
+		return Math.round(sim*10000)/10000.0;
+	}
+}
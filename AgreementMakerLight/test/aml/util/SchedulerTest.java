@@ -0,0 +1,112 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that the Scheduler processes every work item of a job, and that when *
+* a work item fails, the chunks without it are still processed and the        *
+* failure is rethrown to the caller, with one thread and with several.        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SchedulerTest
+{
+
+//Attributes
+
+	//The number of work items of each job
+	private static final int SIZE = 10000;
+	//The work item that fails
+	private static final int FAILED = 4321;
+
+//Public Methods
+
+	@After
+	public void resetParallelism()
+	{
+		Scheduler.setParallelism(0);
+	}
+
+	@Test
+	public void processesAllItems()
+	{
+		for(int threads : new int[]{1, 4})
+		{
+			Scheduler.setParallelism(threads);
+			final AtomicIntegerArray done = new AtomicIntegerArray(SIZE);
+			Scheduler.run(SIZE, new Scheduler.Task()
+			{
+				@Override
+				public void run(int start, int end)
+				{
+					for(int i = start; i < end; i++)
+						done.incrementAndGet(i);
+				}
+			});
+			for(int i = 0; i < SIZE; i++)
+				assertEquals("item " + i + " with " + threads + " threads", 1, done.get(i));
+		}
+	}
+
+	@Test
+	public void rethrowsFailures()
+	{
+		for(int threads : new int[]{1, 4})
+		{
+			Scheduler.setParallelism(threads);
+			final AtomicIntegerArray done = new AtomicIntegerArray(SIZE);
+			final IllegalStateException error = new IllegalStateException("item " + FAILED);
+			final int[] failedChunkEnd = new int[1];
+			try
+			{
+				Scheduler.run(SIZE, new Scheduler.Task()
+				{
+					@Override
+					public void run(int start, int end)
+					{
+						for(int i = start; i < end; i++)
+						{
+							if(i == FAILED)
+							{
+								failedChunkEnd[0] = end;
+								throw error;
+							}
+							done.incrementAndGet(i);
+						}
+					}
+				});
+				fail("The failure was not rethrown with " + threads + " threads");
+			}
+			catch(IllegalStateException e)
+			{
+				assertSame(error, e);
+			}
+			//Only the items of the chunk from the failed one on are left out
+			for(int i = 0; i < SIZE; i++)
+			{
+				boolean skipped = i >= FAILED && i < failedChunkEnd[0];
+				assertEquals("item " + i + " with " + threads + " threads", skipped ? 0 : 1, done.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,262 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Checks that StringParser gives the same results as its original regex-based *
+* implementation (kept here as the reference) over the labels of the anatomy  *
+* ontologies and over random strings built from the characters and fragments  *
+* that the rules react to, and reports the throughput of both.                *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import aml.AnatomyNames;
+
+public class StringParserTest
+{
+
+//Attributes
+
+	//The strings to parse
+	private static Vector<String> strings;
+	//The fragments of the random strings
+	private static final String[] FRAGMENTS = {"a", "b", "Z", "abc", "Abc", "ABC", "aB",
+		"part", "Of", "GO", "sid", "0", "7", "12", "123", "2024", "00001", "-", "_", ":",
+		".", ",", "'", "(", ")", "/", "\\", " ", "  ", "\t", "\n", "(+)", "(-)", "&amp",
+		"&amp;", "&apos;", "&nbsp;", "é", "Ç", "Ã", "ão", "%", "#"};
+
+//Public Methods
+
+	@BeforeClass
+	public static void readStrings() throws IOException
+	{
+		strings = new Vector<String>();
+		strings.add("");
+		for(String s : AnatomyNames.labels(AnatomyNames.MOUSE))
+		{
+			strings.add(s);
+			strings.add(StringParser.normalizeName(s));
+		}
+		for(String s : AnatomyNames.labels(AnatomyNames.HUMAN))
+		{
+			strings.add(s);
+			strings.add(StringParser.normalizeName(s));
+		}
+		Random r = new Random(42);
+		for(int i = 0; i < 200000; i++)
+		{
+			StringBuilder s = new StringBuilder();
+			int length = 1 + r.nextInt(8);
+			for(int j = 0; j < length; j++)
+				s.append(FRAGMENTS[r.nextInt(FRAGMENTS.length)]);
+			strings.add(s.toString());
+		}
+	}
+
+	@Test
+	public void sameResults()
+	{
+		for(String s : strings)
+		{
+			assertEquals(s, s.matches(".*[a-zA-Z].*"), StringParser.hasLetter(s));
+			assertEquals(s, referenceIsFormula(s), StringParser.isFormula(s));
+			assertEquals(s, referenceIsNumericId(s), StringParser.isNumericId(s));
+			assertEquals(s, referenceNormalizeFormula(s), StringParser.normalizeFormula(s));
+			assertEquals(s, referenceNormalizeName(s), StringParser.normalizeName(s));
+			assertEquals(s, referenceNormalizeProperty(s), StringParser.normalizeProperty(s));
+		}
+	}
+
+	@Test
+	public void throughput()
+	{
+		//Warm up both implementations before timing them
+		int sum = parseReference() + parse();
+		long time = System.nanoTime();
+		sum += parseReference();
+		double reference = (System.nanoTime() - time) / 1e9;
+		time = System.nanoTime();
+		sum -= parse();
+		double current = (System.nanoTime() - time) / 1e9;
+		System.out.println(String.format("StringParser over %d strings: reference %.0f strings/s, " +
+				"current %.0f strings/s (checksum %d)", strings.size(),
+				strings.size() / reference, strings.size() / current, sum));
+	}
+
+//Private Methods
+
+	private static int parse()
+	{
+		int sum = 0;
+		for(String s : strings)
+		{
+			if(StringParser.isFormula(s))
+				sum++;
+			if(StringParser.isNumericId(s))
+				sum++;
+			sum += StringParser.normalizeName(s).length();
+			sum += StringParser.normalizeProperty(s).length();
+		}
+		return sum;
+	}
+
+	private static int parseReference()
+	{
+		int sum = 0;
+		for(String s : strings)
+		{
+			if(referenceIsFormula(s))
+				sum++;
+			if(referenceIsNumericId(s))
+				sum++;
+			sum += referenceNormalizeName(s).length();
+			sum += referenceNormalizeProperty(s).length();
+		}
+		return sum;
+	}
+
+	//The original implementation of StringParser.isFormula
+	private static boolean referenceIsFormula(String name)
+	{
+		return
+			!name.matches(".*[a-zA-Z]{3,}.*") ||
+			name.matches("[a-z]+[A-Z]+") ||
+			(name.matches("[a-zA-Z]{3}[^a-zA-Z]+") && !name.matches("[a-zA-Z]{3}[ _][0-9]{1,3}")) ||
+			(name.matches("[A-Z0-9/\\\\-]+") && !name.matches("[A-Z]+")) ||
+			name.matches("[0-9]{1,2}'?-[a-zA-Z]{3,}.*") ||
+			name.matches(".*[ ,\\-][0-9]{1,2}'?\\)?-[a-zA-Z]{3,}.*");
+	}
+
+	//The original implementation of StringParser.isNumericId
+	private static boolean referenceIsNumericId(String name)
+	{
+		return name.matches("[0-9]*")
+			|| name.matches("[0-9]+[_:\\.\\-][0-9]+")
+			|| name.matches("[a-zA-Z]{1}")
+			|| name.matches("[a-zA-Z]{1}[0-9]{1,3}")
+			|| name.matches("[a-zA-Z]{1}[0-9]{1}[_:][0-9]{1,}")
+			|| name.matches("[a-zA-Z]{1}[_:][a-zA-Z0-9]{6,}")
+			|| name.matches("[a-zA-Z]{2,}[_:][0-9\\.]{1,}")
+			|| name.matches("[a-zA-Z]+[_:]?[a-zA-Z]?[0-9\\.]{5,}")
+			|| name.matches("[a-zA-Z]{1,3}-[0-9]{3,}-[0-9]{3,}")
+			|| name.matches("[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}")
+			|| name.matches("sid-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}");
+	}
+
+	//The original implementation of StringParser.normalizeFormula
+	private static String referenceNormalizeFormula(String formula)
+	{
+		String parsed = formula;
+		parsed = parsed.toLowerCase();
+		parsed = parsed.replace("_"," ");
+		parsed = parsed.replaceAll("\\s"," ");
+		int index1 = parsed.indexOf('(');
+		int index2 = parsed.indexOf(')');
+		if(index2 > -1 && (index1 == -1 || index1 > index2))
+			parsed = "(" + parsed;
+		return parsed;
+	}
+
+	//The original implementation of StringParser.normalizeName
+	private static String referenceNormalizeName(String name)
+	{
+		String parsed = name.replace("&amp","and");
+		parsed = parsed.replace("&apos;","'");
+		parsed = parsed.replace("&nbsp;"," ");
+		parsed = parsed.replace("(+)","positive");
+		parsed = parsed.replace("(-)","negative");
+		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()Ã�Ã€Ã‚Ã„Ã‰ÃˆÃŠÃ‹Ã�ÃŒÃŽÃ�Ã“Ã’Ã”Ã–ÃšÃ™Ã›ÃœÃ‡Ã‘Ã¡Ã Ã¢Ã£Ã¤Ã©Ã¨ÃªÃ«Ã­Ã¬Ã®Ã¯Ã³Ã²Ã´ÃµÃ¶ÃºÃ¹Ã»Ã¼Ã§Ã±] *"," ");
+		parsed = parsed.replaceAll(" {2,}"," ");
+		parsed = parsed.trim();
+		return referenceNormalizeCaseChanges(parsed,false);
+	}
+
+	//The original implementation of StringParser.normalizeProperty
+	private static String referenceNormalizeProperty(String name)
+	{
+		String parsed = name.replace("&amp","and");
+		parsed = parsed.replace("&apos;","'");
+		parsed = parsed.replace("&nbsp;"," ");
+		parsed = parsed.replaceAll("-","");
+		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()] *"," ");
+		parsed = parsed.replaceAll(" {2,}"," ");
+		parsed = parsed.trim();
+		return referenceNormalizeCaseChanges(parsed,true);
+	}
+
+	private static String referenceNormalizeCaseChanges(String name, boolean allChanges)
+	{
+		if(!name.matches(".*[a-z][A-Z].*"))
+			return name.toLowerCase();
+		String parsed = "";
+		String[] words = name.split(" ");
+		for(String w : words)
+		{
+			String[] subwords = referenceSplitOnCaseChanges(w);
+			boolean useSubWords = (subwords.length > 1);
+			if(subwords.length == 2 && !allChanges)
+			{
+				for(String s : subwords)
+				{
+					if(s.length() < 4 &&
+							!s.equalsIgnoreCase("a") &&
+							!s.equalsIgnoreCase("and") &&
+							!s.equalsIgnoreCase("by") &&
+							!s.equalsIgnoreCase("has") &&
+							!s.equalsIgnoreCase("is") &&
+							!s.equalsIgnoreCase("non") &&
+							!s.equalsIgnoreCase("or") &&
+							!s.equalsIgnoreCase("of") &&
+							!s.equalsIgnoreCase("to"))
+					{
+						useSubWords = false;
+						break;
+					}
+				}
+			}
+			if(useSubWords)
+				for(String s : subwords)
+					parsed += " " + s;
+			else
+				parsed += " " + w.toLowerCase();
+		}
+		parsed = parsed.substring(1);
+		return parsed;
+	}
+
+	private static String[] referenceSplitOnCaseChanges(String s)
+	{
+		char[] chars = s.toCharArray();
+		int max = chars.length-1;
+		String parsed = "" + Character.toLowerCase(chars[0]);
+		for(int i = 1 ; i < max; i++)
+		{	
+			parsed += Character.toLowerCase(chars[i]);
+			if(Character.isLowerCase(chars[i]) && Character.isUpperCase(chars[i+1]))
+				parsed += " ";
+		}
+		if(max > 0)
+			parsed += "" + Character.toLowerCase(chars[max]);
+		return parsed.split(" ");
+	}
+}